@@ -0,0 +1,227 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.common.event.EventAware.Asynchronous;
+import org.sonatype.nexus.common.event.HasAffinity;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.reflect.TypeToken;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Arrays.asList;
+import static java.util.Locale.ENGLISH;
+
+/**
+ * Delivers events to {@link Asynchronous} subscribers through bounded per-subscriber queues.
+ *
+ * Each subscriber gets its own {@link SubscriberQueue}, so a slow subscriber only delays its own events and the
+ * memory held by pending events is bounded. Event classes (or their supertypes) can be listed as high or low
+ * priority; their events overtake, or are overtaken by, other pending events for the same subscriber. Events with an
+ * {@link HasAffinity affinity} ignore priorities and always share the normal lane, so they reach each subscriber in
+ * the order they were posted, as the affinity executor would deliver them.
+ *
+ * When a queue is full its {@link OverflowPolicy} decides whether the posting thread blocks, the event replaces a
+ * pending event with the same key, or the event is dropped; blocked events are dropped if the queue is still full
+ * after the block timeout. Events with an affinity only replace a pending event that nothing has been queued behind.
+ * The default policy can be overridden per subscriber class with
+ * {@code nexus.event.bounded.overflowPolicy.<subscriber class>}.
+ *
+ * Queue depth, lag, dispatch time, drop and coalesce counts of each subscriber are published as metrics under
+ * {@code nexus.event.subscriber.<subscriber class>@<identity hash>}, so instances of the same class don't clash.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+class BoundedEventDispatcher
+    extends ComponentSupport
+{
+  private static final String CONFIG_PREFIX = "nexus.event.bounded.";
+
+  private static final String METRIC_PREFIX = "nexus.event.subscriber";
+
+  private static final String QUEUE_DEPTH = "queueDepth";
+
+  private static final String LAG = "lag";
+
+  private static final String DISPATCH = "dispatch";
+
+  private static final String DROPPED = "dropped";
+
+  private static final String COALESCED = "coalesced";
+
+  private final EventExecutor eventExecutor;
+
+  private final boolean enabled;
+
+  private final int queueCapacity;
+
+  private final OverflowPolicy defaultOverflowPolicy;
+
+  private final Time blockTimeout;
+
+  private final Set<String> highPriority;
+
+  private final Set<String> lowPriority;
+
+  private final List<SubscriberQueue> queues = new CopyOnWriteArrayList<>();
+
+  private final Map<Class<?>, EventPriority> priorities = new ConcurrentHashMap<>();
+
+  @Nullable
+  private MetricRegistry metricRegistry;
+
+  @Inject
+  public BoundedEventDispatcher(
+      final EventExecutor eventExecutor,
+      @Named("${" + CONFIG_PREFIX + "enabled:-false}") final boolean enabled,
+      @Named("${" + CONFIG_PREFIX + "queueCapacity:-10000}") final int queueCapacity,
+      @Named("${" + CONFIG_PREFIX + "overflowPolicy:-BLOCK}") final String defaultOverflowPolicy,
+      @Named("${" + CONFIG_PREFIX + "blockTimeout:-30s}") final Time blockTimeout,
+      @Named("${" + CONFIG_PREFIX + "highPriority:-}") final String highPriority,
+      @Named("${" + CONFIG_PREFIX + "lowPriority:-}") final String lowPriority)
+  {
+    checkArgument(queueCapacity > 0, CONFIG_PREFIX + "queueCapacity must be positive");
+    this.eventExecutor = checkNotNull(eventExecutor);
+    this.enabled = enabled;
+    this.queueCapacity = queueCapacity;
+    this.defaultOverflowPolicy = OverflowPolicy.valueOf(defaultOverflowPolicy.toUpperCase(ENGLISH));
+    this.blockTimeout = checkNotNull(blockTimeout);
+    this.highPriority = classNames(highPriority);
+    this.lowPriority = classNames(lowPriority);
+  }
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void register(final Object subscriber) {
+    String policyKey = CONFIG_PREFIX + "overflowPolicy." + SubscriberQueue.subscriberName(subscriber);
+    OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(
+        SystemPropertiesHelper.getString(policyKey, defaultOverflowPolicy.name()).toUpperCase(ENGLISH));
+
+    SubscriberQueue queue = new SubscriberQueue(subscriber, eventExecutor, overflowPolicy, queueCapacity, blockTimeout,
+        this::resumeStalled);
+    queues.add(queue);
+    registerMetrics(queue);
+
+    log.debug("Registered {} with {} queue of {}", queue.getName(), overflowPolicy, queueCapacity);
+  }
+
+  public void unregister(final Object subscriber) {
+    for (SubscriberQueue queue : queues) {
+      if (queue.getSubscriber() == subscriber) {
+        queues.remove(queue);
+        unregisterMetrics(queue);
+      }
+    }
+  }
+
+  public void post(final Object event) {
+    EventPriority priority = hasAffinity(event)
+        ? EventPriority.NORMAL : priorities.computeIfAbsent(event.getClass(), this::priority);
+    for (SubscriberQueue queue : queues) {
+      if (queue.accepts(event)) {
+        queue.offer(event, priority);
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if all subscriber queues are empty and idle
+   */
+  public boolean isCalmPeriod() {
+    return queues.stream().allMatch(SubscriberQueue::isIdle);
+  }
+
+  /**
+   * Restarts queues whose drain was rejected by a saturated executor; called whenever a drain finishes.
+   */
+  private void resumeStalled() {
+    for (SubscriberQueue queue : queues) {
+      if (queue.isStalled()) {
+        queue.resume();
+      }
+    }
+  }
+
+  /**
+   * Events with an affinity must keep their relative order, so they can't be prioritised or freely coalesced.
+   */
+  static boolean hasAffinity(final Object event) {
+    return event instanceof HasAffinity && ((HasAffinity) event).getAffinity() != null;
+  }
+
+  private EventPriority priority(final Class<?> eventType) {
+    for (Class<?> type : TypeToken.of(eventType).getTypes().rawTypes()) {
+      if (highPriority.contains(type.getName())) {
+        return EventPriority.HIGH;
+      }
+      if (lowPriority.contains(type.getName())) {
+        return EventPriority.LOW;
+      }
+    }
+    return EventPriority.NORMAL;
+  }
+
+  private void registerMetrics(final SubscriberQueue queue) {
+    if (metricRegistry != null) {
+      metricRegistry.register(metricName(queue, QUEUE_DEPTH), (Gauge<Integer>) queue::size);
+      metricRegistry.register(metricName(queue, LAG), queue.getLag());
+      metricRegistry.register(metricName(queue, DISPATCH), queue.getDispatch());
+      metricRegistry.register(metricName(queue, DROPPED), queue.getDropped());
+      metricRegistry.register(metricName(queue, COALESCED), queue.getCoalesced());
+    }
+  }
+
+  private void unregisterMetrics(final SubscriberQueue queue) {
+    if (metricRegistry != null) {
+      for (String metric : asList(QUEUE_DEPTH, LAG, DISPATCH, DROPPED, COALESCED)) {
+        metricRegistry.remove(metricName(queue, metric));
+      }
+    }
+  }
+
+  private static String metricName(final SubscriberQueue queue, final String metric) {
+    return name(METRIC_PREFIX, queue.getMetricName(), metric);
+  }
+
+  private static Set<String> classNames(final String value) {
+    return ImmutableSet.copyOf(Splitter.on(',').trimResults().omitEmptyStrings().split(value));
+  }
+}
@@ -14,9 +14,11 @@ package org.sonatype.nexus.internal.event;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -45,6 +47,7 @@ import static com.google.common.util.concurrent.MoreExecutors.newSequentialExecu
 import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.TASKS;
 import static org.sonatype.nexus.common.event.EventHelper.asReplicating;
 import static org.sonatype.nexus.common.event.EventHelper.isReplicating;
+import static org.sonatype.nexus.common.property.SystemPropertiesHelper.getInteger;
 import static org.sonatype.nexus.internal.event.EventManagerImpl.HOST_THREAD_POOL_SIZE;
 
 /**
@@ -71,6 +74,11 @@ class EventExecutor
    */
   private static final RejectedExecutionHandler CALLER_RUNS_FAILSAFE = (command, executor) -> command.run();
 
+  /**
+   * Pending drain tasks are limited to one per subscriber, so this only fills up when the pool can't keep up at all.
+   */
+  private static final int DRAIN_QUEUE_CAPACITY = getInteger("nexus.event.bounded.drainQueueCapacity", 1000);
+
   private final boolean affinityEnabled;
 
   private final int affinityCacheSize;
@@ -85,6 +93,8 @@ class EventExecutor
 
   private NexusExecutorService affinityProcessor;
 
+  private NexusExecutorService drainProcessor;
+
   private LoadingCache<String, AffinityBarrier> affinityBarriers;
 
   private volatile boolean asyncProcessing;
@@ -121,6 +131,20 @@ class EventExecutor
 
     eventProcessor = NexusExecutorService.forCurrentSubject(threadPool);
 
+    // dedicated pool for bounded subscriber queues; rejects rather than making the posting thread deliver events
+    ThreadPoolExecutor drainPool = new ThreadPoolExecutor(
+        HOST_THREAD_POOL_SIZE,
+        HOST_THREAD_POOL_SIZE,
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(DRAIN_QUEUE_CAPACITY),
+        new NexusThreadFactory("event-drain", "event-manager"),
+        new AbortPolicy()
+    );
+    drainPool.allowCoreThreadTimeOut(true);
+
+    drainProcessor = NexusExecutorService.forCurrentSubject(drainPool);
+
     if (affinityEnabled) {
 
       Supplier<Executor> coordinator;
@@ -159,6 +183,7 @@ class EventExecutor
   protected void doStop() throws Exception {
     if (asyncProcessing) {
       shutdown(affinityProcessor);
+      shutdown(drainProcessor);
       shutdown(eventProcessor);
       asyncProcessing = false;
     }
@@ -170,7 +195,7 @@ class EventExecutor
   @VisibleForTesting
   boolean isCalmPeriod() {
     if (asyncProcessing) {
-      return isCalmPeriod(affinityProcessor) && isCalmPeriod(eventProcessor);
+      return isCalmPeriod(affinityProcessor) && isCalmPeriod(drainProcessor) && isCalmPeriod(eventProcessor);
     }
     else {
       return true; // single-threaded mode is always calm
@@ -223,6 +248,23 @@ class EventExecutor
     }
   }
 
+  /**
+   * Executes a task that delivers events posted from other contexts, so it doesn't inherit the current
+   * "isReplicating" flag or take part in affinity coordination. Tasks run on a dedicated bounded pool.
+   *
+   * @throws RejectedExecutionException if the pool is saturated
+   *
+   * @since 3.next
+   */
+  public void executeDetached(final Runnable task) {
+    if (asyncProcessing) {
+      drainProcessor.execute(task);
+    }
+    else {
+      task.run();
+    }
+  }
+
   /**
    * @return {@code true} if the thread pool backing the (optional) executor service is inactive
    */
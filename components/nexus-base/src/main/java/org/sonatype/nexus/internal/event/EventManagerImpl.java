@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.internal.event;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -60,14 +61,30 @@ public class EventManagerImpl
 
   private final EventBus asyncBus;
 
-  @Inject
+  @Nullable
+  private final BoundedEventDispatcher boundedDispatcher;
+
   public EventManagerImpl(final BeanLocator beanLocator, final EventExecutor eventExecutor)
+  {
+    this(beanLocator, eventExecutor, null);
+  }
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public EventManagerImpl(
+      final BeanLocator beanLocator,
+      final EventExecutor eventExecutor,
+      @Nullable final BoundedEventDispatcher boundedDispatcher)
   {
     this.beanLocator = checkNotNull(beanLocator);
     this.eventExecutor = checkNotNull(eventExecutor);
 
     this.eventBus = reentrantEventBus("nexus");
     this.asyncBus = reentrantAsyncEventBus("nexus.async", eventExecutor);
+
+    this.boundedDispatcher = boundedDispatcher != null && boundedDispatcher.isEnabled() ? boundedDispatcher : null;
   }
 
   /**
@@ -97,7 +114,10 @@ public class EventManagerImpl
   public void register(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && boundedDispatcher != null) {
+      boundedDispatcher.register(object);
+    }
+    else if (async) {
       asyncBus.register(object);
     }
     else {
@@ -111,7 +131,10 @@ public class EventManagerImpl
   public void unregister(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && boundedDispatcher != null) {
+      boundedDispatcher.unregister(object);
+    }
+    else if (async) {
       asyncBus.unregister(object);
     }
     else {
@@ -126,7 +149,11 @@ public class EventManagerImpl
     // notify synchronous subscribers before going asynchronous
     eventBus.post(event);
 
-    if (isAffinityEnabled() && event instanceof HasAffinity) {
+    if (boundedDispatcher != null) {
+      // events with affinity share a single FIFO lane in each subscriber queue, so they are delivered in order
+      boundedDispatcher.post(event);
+    }
+    else if (isAffinityEnabled() && event instanceof HasAffinity) {
       String affinity = ((HasAffinity) event).getAffinity();
       if (affinity != null) {
         eventExecutor.executeWithAffinity(affinity, () -> asyncBus.post(event));
@@ -146,7 +173,7 @@ public class EventManagerImpl
   @VisibleForTesting
   @ManagedAttribute
   public boolean isCalmPeriod() {
-    return eventExecutor.isCalmPeriod();
+    return eventExecutor.isCalmPeriod() && (boundedDispatcher == null || boundedDispatcher.isCalmPeriod());
   }
 
   @Override
@@ -0,0 +1,442 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.common.event.HasCoalescingKey;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Integer.toHexString;
+import static java.lang.System.identityHashCode;
+import static org.sonatype.nexus.common.event.EventBusFactory.reentrantEventBus;
+import static org.sonatype.nexus.common.event.EventHelper.asReplicating;
+import static org.sonatype.nexus.common.event.EventHelper.isReplicating;
+
+/**
+ * Bounded queue of events waiting to be delivered to a single asynchronous subscriber.
+ *
+ * Events are delivered one at a time, in order within each {@link EventPriority priority lane}, by a drain task that
+ * runs on the {@link EventExecutor} while there are pending events. When the executor rejects the drain task the
+ * queue is marked as stalled and the drain is retried by the next offer or by {@link #resume()}. The subject and
+ * replicating flag of the posting thread are captured with each event and restored when it is delivered.
+ *
+ * @since 3.next
+ */
+class SubscriberQueue
+    extends ComponentSupport
+{
+  private static final ThreadLocal<SubscriberQueue> DRAINING = new ThreadLocal<>();
+
+  private final Object subscriber;
+
+  private final String name;
+
+  private final String metricName;
+
+  private final EventExecutor eventExecutor;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final int capacity;
+
+  private final Time blockTimeout;
+
+  private final EventBus eventBus;
+
+  private final Set<Class<?>> eventTypes;
+
+  private final Map<Class<?>, Boolean> interest = new ConcurrentHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition notFull = lock.newCondition();
+
+  private final Deque<PendingEvent>[] lanes;
+
+  private final Map<Object, PendingEvent> pendingByKey = new HashMap<>();
+
+  private final Counter dropped = new Counter();
+
+  private final Counter coalesced = new Counter();
+
+  private final Timer lag = new Timer();
+
+  private final Timer dispatch = new Timer();
+
+  private final Runnable onDrained;
+
+  private int size;
+
+  private boolean draining;
+
+  private volatile boolean stalled;
+
+  @SuppressWarnings("unchecked")
+  SubscriberQueue(
+      final Object subscriber,
+      final EventExecutor eventExecutor,
+      final OverflowPolicy overflowPolicy,
+      final int capacity,
+      final Time blockTimeout,
+      final Runnable onDrained)
+  {
+    checkArgument(capacity > 0, "Capacity must be positive");
+    this.subscriber = checkNotNull(subscriber);
+    this.name = subscriberName(subscriber);
+    this.metricName = name + '@' + toHexString(identityHashCode(subscriber));
+    this.eventExecutor = checkNotNull(eventExecutor);
+    this.overflowPolicy = checkNotNull(overflowPolicy);
+    this.capacity = capacity;
+    this.blockTimeout = checkNotNull(blockTimeout);
+    this.onDrained = checkNotNull(onDrained);
+
+    this.eventBus = reentrantEventBus("nexus.async." + name);
+    this.eventBus.register(subscriber);
+    this.eventTypes = subscribedEventTypes(subscriber.getClass());
+
+    this.lanes = new Deque[EventPriority.values().length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new ArrayDeque<>();
+    }
+  }
+
+  Object getSubscriber() {
+    return subscriber;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Name under which the metrics of this queue are published, unique per subscriber instance.
+   */
+  String getMetricName() {
+    return metricName;
+  }
+
+  /**
+   * Does the subscriber have a method that accepts this event?
+   */
+  boolean accepts(final Object event) {
+    return interest.computeIfAbsent(event.getClass(),
+        type -> eventTypes.stream().anyMatch(eventType -> eventType.isAssignableFrom(type)));
+  }
+
+  /**
+   * Queues the event for delivery, applying the overflow policy when the queue is full.
+   */
+  void offer(final Object event, final EventPriority priority) {
+    boolean startDrain = false;
+    lock.lock();
+    try {
+      Object key = overflowPolicy == OverflowPolicy.COALESCE && event instanceof HasCoalescingKey
+          ? ((HasCoalescingKey) event).getCoalescingKey() : null;
+
+      if (key != null) {
+        PendingEvent pending = pendingByKey.get(key);
+        // an event with affinity may only replace the last queued event, otherwise it would overtake later ones
+        if (pending != null
+            && (!BoundedEventDispatcher.hasAffinity(event) || lanes[priority.ordinal()].peekLast() == pending)) {
+          pending.replace(event);
+          coalesced.inc();
+          return;
+        }
+      }
+
+      if (size >= capacity) {
+        if (overflowPolicy == OverflowPolicy.DROP) {
+          dropped.inc();
+          log.debug("Dropped {} for {}, queue is full", event, name);
+          return;
+        }
+        // the drain thread can't wait for itself, so let reentrant events overflow
+        if (DRAINING.get() != this && !awaitCapacity()) {
+          dropped.inc();
+          log.warn("Dropped {} for {}, queue is still full after {}", event, name, blockTimeout);
+          return;
+        }
+      }
+
+      PendingEvent pending = new PendingEvent(event, key);
+      lanes[priority.ordinal()].addLast(pending);
+      size++;
+      if (key != null) {
+        pendingByKey.put(key, pending);
+      }
+
+      if (!draining) {
+        draining = true;
+        startDrain = true;
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+
+    if (startDrain) {
+      startDrain();
+    }
+  }
+
+  /**
+   * Restarts draining of a stalled queue.
+   */
+  void resume() {
+    boolean startDrain = false;
+    lock.lock();
+    try {
+      if (size > 0 && !draining) {
+        draining = true;
+        startDrain = true;
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+
+    if (startDrain) {
+      startDrain();
+    }
+  }
+
+  boolean isStalled() {
+    return stalled;
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return size;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return {@code true} if there are no pending events and no event is being delivered
+   */
+  boolean isIdle() {
+    lock.lock();
+    try {
+      return size == 0 && !draining;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  Counter getDropped() {
+    return dropped;
+  }
+
+  Counter getCoalesced() {
+    return coalesced;
+  }
+
+  Timer getLag() {
+    return lag;
+  }
+
+  Timer getDispatch() {
+    return dispatch;
+  }
+
+  /**
+   * @return {@code true} if there is room in the queue, {@code false} if it is still full after the block timeout
+   */
+  private boolean awaitCapacity() {
+    long remainingNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout.toMillis());
+    try {
+      while (size >= capacity && remainingNanos > 0) {
+        remainingNanos = notFull.awaitNanos(remainingNanos);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return size < capacity;
+  }
+
+  private void startDrain() {
+    try {
+      stalled = false;
+      eventExecutor.executeDetached(this::drain);
+    }
+    catch (RejectedExecutionException e) {
+      lock.lock();
+      try {
+        draining = false;
+        stalled = true;
+      }
+      finally {
+        lock.unlock();
+      }
+      log.debug("Drain of {} rejected, will retry", name, e);
+    }
+  }
+
+  private void drain() {
+    SubscriberQueue outer = DRAINING.get();
+    DRAINING.set(this);
+    try {
+      PendingEvent pending;
+      while ((pending = poll()) != null) {
+        deliver(pending);
+      }
+    }
+    finally {
+      if (outer != null) {
+        DRAINING.set(outer);
+      }
+      else {
+        DRAINING.remove();
+      }
+      onDrained.run();
+    }
+  }
+
+  @Nullable
+  private PendingEvent poll() {
+    lock.lock();
+    try {
+      for (Deque<PendingEvent> lane : lanes) {
+        PendingEvent pending = lane.pollFirst();
+        if (pending != null) {
+          size--;
+          if (pending.key != null) {
+            pendingByKey.remove(pending.key, pending);
+          }
+          notFull.signal();
+          return pending;
+        }
+      }
+      draining = false;
+      return null;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private void deliver(final PendingEvent pending) {
+    lag.update(System.nanoTime() - pending.queuedAt, TimeUnit.NANOSECONDS);
+
+    // the event has been polled so can no longer be replaced, but take its latest state under the lock
+    Object event;
+    Subject subject;
+    boolean replicating;
+    lock.lock();
+    try {
+      event = pending.event;
+      subject = pending.subject;
+      replicating = pending.replicating;
+    }
+    finally {
+      lock.unlock();
+    }
+
+    Runnable delivery = () -> {
+      try (Timer.Context ignored = dispatch.time()) {
+        eventBus.post(event);
+      }
+    };
+    if (replicating && !isReplicating()) {
+      Runnable target = delivery;
+      delivery = () -> asReplicating(target);
+    }
+    if (subject != null) {
+      subject.execute(delivery);
+    }
+    else {
+      delivery.run();
+    }
+  }
+
+  /**
+   * Returns the parameter types of all {@link Subscribe} methods, as registered by Guava's {@link EventBus}.
+   */
+  private static Set<Class<?>> subscribedEventTypes(final Class<?> subscriberType) {
+    Set<Class<?>> eventTypes = new HashSet<>();
+    for (Class<?> type : TypeToken.of(subscriberType).getTypes().rawTypes()) {
+      for (Method method : type.getDeclaredMethods()) {
+        if (method.isAnnotationPresent(Subscribe.class) && !method.isSynthetic()
+            && method.getParameterTypes().length == 1) {
+          eventTypes.add(method.getParameterTypes()[0]);
+        }
+      }
+    }
+    return eventTypes;
+  }
+
+  static String subscriberName(final Object subscriber) {
+    String name = subscriber.getClass().getName();
+    int proxyMarker = name.indexOf("$$");
+    return proxyMarker > 0 ? name.substring(0, proxyMarker) : name;
+  }
+
+  /**
+   * Event waiting for delivery together with the context it was posted in; guarded by the queue lock.
+   */
+  private static class PendingEvent
+  {
+    @Nullable
+    private final Object key;
+
+    private Object event;
+
+    @Nullable
+    private Subject subject;
+
+    private boolean replicating;
+
+    private final long queuedAt = System.nanoTime();
+
+    private PendingEvent(final Object event, @Nullable final Object key) {
+      this.key = key;
+      replace(event);
+    }
+
+    private void replace(final Object event) {
+      this.event = event;
+      this.subject = ThreadContext.getSubject();
+      this.replicating = isReplicating();
+    }
+  }
+}
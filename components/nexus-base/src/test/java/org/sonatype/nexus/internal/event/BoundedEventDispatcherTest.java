@@ -0,0 +1,256 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.common.Time;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.event.EventAware.Asynchronous;
+import org.sonatype.nexus.common.event.EventManager;
+import org.sonatype.nexus.common.event.HasAffinity;
+import org.sonatype.nexus.common.event.HasCoalescingKey;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.Subscribe;
+import org.eclipse.sisu.inject.DefaultBeanLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link BoundedEventDispatcher}.
+ */
+public class BoundedEventDispatcherTest
+    extends TestSupport
+{
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+
+  private EventExecutor executor;
+
+  private BlockingHandler handler;
+
+  private String subscriberMetric;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = new EventExecutor(false, 0, Time.seconds(0), false, false);
+    executor.start();
+    handler = new BlockingHandler();
+    subscriberMetric = "nexus.event.subscriber." + BlockingHandler.class.getName() + '@' +
+        Integer.toHexString(System.identityHashCode(handler));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    handler.release.countDown();
+    executor.stop();
+  }
+
+  @Test
+  public void fullQueueDropsEvents() {
+    EventManager underTest = eventManager("DROP", "", "");
+
+    post(underTest, "first", 2, 3, 4);
+    assertThat(metricRegistry.counter(subscriberMetric + ".dropped").getCount(), is(1L));
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", 2, 3));
+    assertThat(metricRegistry.timer(subscriberMetric + ".dispatch").getCount(), is(3L));
+  }
+
+  @Test
+  public void blockedEventsAreDroppedAfterTimeout() {
+    EventManager underTest = eventManager("BLOCK", "", "", Time.millis(100));
+
+    post(underTest, "first", 2, 3, 4);
+    assertThat(metricRegistry.counter(subscriberMetric + ".dropped").getCount(), is(1L));
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", 2, 3));
+  }
+
+  @Test
+  public void higherPriorityEventsOvertakePendingEvents() {
+    EventManager underTest = eventManager("BLOCK", Integer.class.getName(), Number.class.getName());
+
+    post(underTest, "first", 2.0f, 3);
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", 3, 2.0f));
+  }
+
+  @Test
+  public void pendingEventsWithTheSameKeyAreCoalesced() {
+    EventManager underTest = eventManager("COALESCE", "", "");
+
+    post(underTest, "first", new KeyedEvent("a", 1), new KeyedEvent("b", 1), new KeyedEvent("a", 2));
+    assertThat(metricRegistry.counter(subscriberMetric + ".coalesced").getCount(), is(1L));
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", "a2", "b1"));
+  }
+
+  @Test
+  public void eventsWithAffinityIgnorePriorities() {
+    EventManager underTest = eventManager("BLOCK", UrgentAffinityEvent.class.getName(), "");
+
+    post(underTest, "first", new AffinityEvent("a", 1), new UrgentAffinityEvent("b", 1));
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", "a1", "b1"));
+  }
+
+  @Test
+  public void eventsWithAffinityOnlyCoalesceWithTheLastPendingEvent() {
+    EventManager underTest = eventManager("COALESCE", "", "", Time.seconds(5), 4);
+
+    post(underTest, "first", new AffinityEvent("a", 1), new AffinityEvent("b", 1), new AffinityEvent("a", 2),
+        new AffinityEvent("a", 3));
+    assertThat(metricRegistry.counter(subscriberMetric + ".coalesced").getCount(), is(1L));
+
+    handler.release.countDown();
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.handled, contains("first", "a1", "b1", "a3"));
+  }
+
+  private EventManager eventManager(final String overflowPolicy, final String highPriority, final String lowPriority) {
+    return eventManager(overflowPolicy, highPriority, lowPriority, Time.seconds(5));
+  }
+
+  private EventManager eventManager(
+      final String overflowPolicy,
+      final String highPriority,
+      final String lowPriority,
+      final Time blockTimeout)
+  {
+    return eventManager(overflowPolicy, highPriority, lowPriority, blockTimeout, 2);
+  }
+
+  private EventManager eventManager(
+      final String overflowPolicy,
+      final String highPriority,
+      final String lowPriority,
+      final Time blockTimeout,
+      final int queueCapacity)
+  {
+    BoundedEventDispatcher dispatcher = new BoundedEventDispatcher(
+        executor, true, queueCapacity, overflowPolicy, blockTimeout, highPriority, lowPriority);
+    dispatcher.setMetricRegistry(metricRegistry);
+    EventManager eventManager = new EventManagerImpl(new DefaultBeanLocator(), executor, dispatcher);
+    eventManager.register(handler);
+    return eventManager;
+  }
+
+  private void post(final EventManager eventManager, final Object... events) {
+    FakeAlmightySubject.forUserId("testUser").execute(() -> {
+      eventManager.post(events[0]);
+      // wait until the first event is being handled, so the others remain queued
+      await().atMost(5, TimeUnit.SECONDS).until(() -> handler.blocked.getCount() == 0);
+      asList(events).subList(1, events.length).forEach(eventManager::post);
+    });
+  }
+
+  private static class KeyedEvent
+      implements HasCoalescingKey
+  {
+    private final String key;
+
+    private final int version;
+
+    private KeyedEvent(final String key, final int version) {
+      this.key = key;
+      this.version = version;
+    }
+
+    @Override
+    public Object getCoalescingKey() {
+      return key;
+    }
+
+    @Override
+    public String toString() {
+      return key + version;
+    }
+  }
+
+  private static class AffinityEvent
+      extends KeyedEvent
+      implements HasAffinity
+  {
+    private AffinityEvent(final String key, final int version) {
+      super(key, version);
+    }
+
+    @Override
+    public String getAffinity() {
+      return "same";
+    }
+  }
+
+  private static class UrgentAffinityEvent
+      extends AffinityEvent
+  {
+    private UrgentAffinityEvent(final String key, final int version) {
+      super(key, version);
+    }
+  }
+
+  private static class BlockingHandler
+      implements Asynchronous
+  {
+    private final List<Object> handled = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Subscribe
+    public void handle(final String event) throws InterruptedException {
+      blocked.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      handled.add(event);
+    }
+
+    @Subscribe
+    public void handle(final Number event) {
+      handled.add(event);
+    }
+
+    @Subscribe
+    public void handle(final KeyedEvent event) {
+      handled.add(event.toString());
+    }
+  }
+}
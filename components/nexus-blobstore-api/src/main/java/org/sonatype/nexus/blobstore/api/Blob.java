@@ -15,6 +15,8 @@ package org.sonatype.nexus.blobstore.api;
 import java.io.InputStream;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 /**
  * A handle for binary data stored within a {@link BlobStore}.
  *
@@ -49,4 +51,15 @@ public interface Blob
    *                            {@link BlobStore#delete hard deleted}.
    */
   BlobMetrics getMetrics();
+
+  /**
+   * Returns the region of a local file holding this blob's content, or {@code null} if the content is not available
+   * as a plain file region (e.g. it is stored remotely or transformed on read).
+   *
+   * @since 3.next
+   */
+  @Nullable
+  default BlobFileRegion getFileRegion() {
+    return null;
+  }
 }
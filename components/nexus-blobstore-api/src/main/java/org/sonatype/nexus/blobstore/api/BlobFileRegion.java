@@ -0,0 +1,80 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.api;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A region of a local file holding the content of a {@link Blob}, letting callers hand the bytes to the kernel
+ * (e.g. via {@link FileChannel#transferTo}) instead of copying them through an {@link java.io.InputStream}.
+ *
+ * @since 3.next
+ */
+public final class BlobFileRegion
+{
+  private final Path path;
+
+  private final long position;
+
+  private final long count;
+
+  public BlobFileRegion(final Path path, final long position, final long count) {
+    checkArgument(position >= 0, "position must be >= 0");
+    checkArgument(count >= 0, "count must be >= 0");
+    this.path = checkNotNull(path);
+    this.position = position;
+    this.count = count;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the sub-region starting {@code offset} bytes into this region.
+   */
+  public BlobFileRegion slice(final long offset, final long length) {
+    checkArgument(offset >= 0 && length >= 0 && offset + length <= count, "slice out of bounds");
+    return new BlobFileRegion(path, position + offset, length);
+  }
+
+  /**
+   * Opens a read-only channel on the underlying file; callers must only access bytes within this region.
+   */
+  public FileChannel openChannel() throws IOException {
+    return FileChannel.open(path, READ);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "path=" + path +
+        ", position=" + position +
+        ", count=" + count +
+        '}';
+  }
+}
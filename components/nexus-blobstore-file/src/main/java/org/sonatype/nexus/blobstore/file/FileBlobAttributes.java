@@ -59,6 +59,16 @@ public class FileBlobAttributes
       return true;
   }
 
+  /**
+   * Updates the backing properties from the current attribute values without storing them, for attributes that were
+   * not loaded from their file.
+   *
+   * @since 3.next
+   */
+  public void refreshProperties() {
+    writeTo(propertiesFile);
+  }
+
   @Override
   public void store() throws IOException {
     writeTo(propertiesFile);
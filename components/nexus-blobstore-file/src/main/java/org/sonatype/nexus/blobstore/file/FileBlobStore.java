@@ -52,6 +52,7 @@ import org.sonatype.nexus.blobstore.BlobSupport;
 import org.sonatype.nexus.blobstore.StreamMetrics;
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.blobstore.api.BlobAttributes;
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
 import org.sonatype.nexus.blobstore.api.BlobStore;
@@ -63,7 +64,9 @@ import org.sonatype.nexus.blobstore.api.OperationMetrics;
 import org.sonatype.nexus.blobstore.api.OperationType;
 import org.sonatype.nexus.blobstore.api.RawObjectAccess;
 import org.sonatype.nexus.blobstore.api.metrics.BlobStoreMetricsService;
+import org.sonatype.nexus.blobstore.file.internal.BlobAttributesIndex;
 import org.sonatype.nexus.blobstore.file.internal.BlobCollisionException;
+import org.sonatype.nexus.blobstore.file.internal.BlobSegmentStore;
 import org.sonatype.nexus.blobstore.file.internal.FileOperations;
 import org.sonatype.nexus.blobstore.metrics.MonitoringBlobStoreMetrics;
 import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaUsageChecker;
@@ -129,6 +132,20 @@ public class FileBlobStore
 
   public static final String PATH_KEY = "path";
 
+  /**
+   * Configuration key enabling the packed layout, where small blobs are appended to segment files.
+   *
+   * @since 3.next
+   */
+  public static final String PACKED_KEY = "packed";
+
+  /**
+   * Configuration key enabling the memory-mapped {@link BlobAttributesIndex}.
+   *
+   * @since 3.next
+   */
+  public static final String ATTRIBUTES_INDEX_KEY = "attributesIndex";
+
   @VisibleForTesting
   public static final String METADATA_FILENAME = "metadata.properties";
 
@@ -156,6 +173,15 @@ public class FileBlobStore
 
   private static final int INTERVAL_IN_SECONDS = 60;
 
+  private static final long PACKED_MAX_BLOB_SIZE =
+      SystemPropertiesHelper.getLong("nexus.blobstore.file.packed.maxBlobSize", 64 * 1024L);
+
+  private static final long PACKED_MAX_SEGMENT_SIZE =
+      SystemPropertiesHelper.getLong("nexus.blobstore.file.packed.maxSegmentSize", 256 * 1024 * 1024L);
+
+  private static final double PACKED_COMPACT_LIVE_RATIO =
+      Double.parseDouble(SystemPropertiesHelper.getString("nexus.blobstore.file.packed.compactLiveRatio", "0.5"));
+
   private Path contentDir;
 
   private Path reconciliationLogDir;
@@ -186,6 +212,12 @@ public class FileBlobStore
 
   private final BlobStoreQuotaUsageChecker blobStoreQuotaUsageChecker;
 
+  @Nullable
+  private BlobSegmentStore segmentStore;
+
+  @Nullable
+  private BlobAttributesIndex attributesIndex;
+
   @Inject
   public FileBlobStore(
       final BlobIdLocationResolver blobIdLocationResolver,
@@ -251,6 +283,14 @@ public class FileBlobStore
       metadata.store();
     }
     liveBlobs = CacheBuilder.newBuilder().weakValues().build(from(FileBlob::new));
+    if (isPacked()) {
+      segmentStore = new BlobSegmentStore(storageDir, PACKED_MAX_SEGMENT_SIZE, PACKED_COMPACT_LIVE_RATIO);
+      segmentStore.start();
+    }
+    if (isAttributesIndexed()) {
+      attributesIndex = new BlobAttributesIndex(storageDir);
+      attributesIndex.start();
+    }
     blobDeletionIndex.initIndex(metadata, this);
     metricsService.init(this);
 
@@ -307,6 +347,14 @@ public class FileBlobStore
     finally {
       metricsService.stop();
       blobStoreQuotaUsageChecker.stop();
+      if (segmentStore != null) {
+        segmentStore.stop();
+        segmentStore = null;
+      }
+      if (attributesIndex != null) {
+        attributesIndex.stop();
+        attributesIndex = null;
+      }
     }
   }
 
@@ -403,7 +451,7 @@ public class FileBlobStore
 
     Lock lock = blob.lock();
     try {
-      final boolean wouldCollide = fileOperations.exists(blobPath);
+      final boolean wouldCollide = fileOperations.exists(blobPath) || isPacked(blobId);
 
       if ((reusedBlobId == null) && RETRY_ON_COLLISION && wouldCollide && !isDirectPath) {
         throw new BlobCollisionException(blobId);
@@ -415,6 +463,19 @@ public class FileBlobStore
         final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSha1(), streamMetrics.getSize());
         blob.refresh(headers, metrics);
 
+        if (segmentStore != null && existingSize == null && !isDirectPath &&
+            streamMetrics.getSize() <= PACKED_MAX_BLOB_SIZE) {
+          // Append the blob and its attributes to the active segment instead of writing a file pair
+          PackedFileBlobAttributes blobAttributes =
+              new PackedFileBlobAttributes(segmentStore, blobId, attributePath, headers, metrics);
+          segmentStore.put(blobId, blobAttributes.toProperties(), temporaryBlobPath);
+          fileOperations.deleteQuietly(temporaryBlobPath);
+
+          metricsService.recordAddition(metrics.getContentSize());
+
+          return blob;
+        }
+
         // Write the blob attribute file
         FileBlobAttributes blobAttributes = new FileBlobAttributes(temporaryAttributePath, headers, metrics);
         blobAttributes.store();
@@ -431,6 +492,7 @@ public class FileBlobStore
           move(temporaryAttributePath, attributePath);
         }
 
+        index(blobId, blobAttributes);
         metricsService.recordAddition(blobAttributes.getMetrics().getContentSize());
 
         return blob;
@@ -455,6 +517,9 @@ public class FileBlobStore
   public Blob copy(final BlobId blobId, final Map<String, String> headers) {
     Blob sourceBlob = checkNotNull(get(blobId));
     Path sourcePath = contentPath(sourceBlob.getId());
+    if (isPacked(sourceBlob.getId())) {
+      return create(headers, destination -> fileOperations.create(destination, sourceBlob.getInputStream()), null);
+    }
     if (supportsHardLinkCopy) {
       try {
         return create(headers, destination -> {
@@ -550,6 +615,7 @@ public class FileBlobStore
       blobAttributes.setDeletedReason(reason);
       blobAttributes.setDeletedDateTime(new DateTime());
       blobAttributes.store();
+      index(blobId, blobAttributes);
 
       // record blob for hard-deletion when the next compact task runs
       blobDeletionIndex.createRecord(blobId);
@@ -575,8 +641,20 @@ public class FileBlobStore
       Path attributePath = attributePath(blobId);
       Long contentSize = getContentSizeForDeletion(blobId);
 
+      if (isPacked(blobId)) {
+        boolean blobDeleted = segmentStore.delete(blobId);
+        if (blobDeleted && contentSize != null) {
+          metricsService.recordDeletion(contentSize);
+        }
+        return blobDeleted;
+      }
+
       Path blobPath = contentPath(blobId);
 
+      String volume = indexVolume(blobId);
+      if (volume != null) {
+        attributesIndex.remove(volume, blobId);
+      }
       boolean blobDeleted = delete(blobPath);
       delete(attributePath);
 
@@ -597,6 +675,13 @@ public class FileBlobStore
 
   @Nullable
   private Long getContentSizeForDeletion(final BlobId blobId) {
+    String volume = indexVolume(blobId);
+    if (volume != null) {
+      long contentSize = attributesIndex.getContentSize(volume, blobId);
+      if (contentSize >= 0) {
+        return contentSize;
+      }
+    }
     return Optional.ofNullable(getFileBlobAttributes(blobId))
         .map(BlobAttributes::getMetrics)
         .map(BlobMetrics::getContentSize)
@@ -654,6 +739,11 @@ public class FileBlobStore
       else {
         doCompactWithDeletedBlobIndex(inUseChecker);
       }
+
+      if (segmentStore != null) {
+        int compacted = segmentStore.compact();
+        log.info("Compacted {} blob segments in blob store {}", compacted, blobStoreConfiguration.getName());
+      }
     }
     catch (BlobStoreException | TaskInterruptedException e) {
       throw e;
@@ -763,7 +853,11 @@ public class FileBlobStore
   @Override
   public boolean exists(final BlobId blobId) {
     checkNotNull(blobId);
-    if (!fileOperations.exists(attributePath(blobId))) {
+    String volume = indexVolume(blobId);
+    if (volume != null && attributesIndex.contains(volume, blobId)) {
+      return true;
+    }
+    if (!isPacked(blobId) && !fileOperations.exists(attributePath(blobId))) {
       log.debug("Blob {} was not found during existence check", blobId);
       return false;
     }
@@ -814,6 +908,57 @@ public class FileBlobStore
     fileOperations.copyIfLocked(source, target, fileOperations::overwrite);
   }
 
+  /**
+   * Returns {@code true} if this blob store is configured to use the packed segment layout for small blobs.
+   *
+   * @since 3.next
+   */
+  public boolean isPacked() {
+    return Boolean.parseBoolean(String.valueOf(blobStoreConfiguration.attributes(CONFIG_KEY).get(PACKED_KEY)));
+  }
+
+  private boolean isPacked(final BlobId blobId) {
+    return segmentStore != null && segmentStore.contains(blobId);
+  }
+
+  /**
+   * Returns {@code true} if this blob store keeps a {@link BlobAttributesIndex} of its attributes files.
+   *
+   * @since 3.next
+   */
+  public boolean isAttributesIndexed() {
+    return Boolean.parseBoolean(
+        String.valueOf(blobStoreConfiguration.attributes(CONFIG_KEY).get(ATTRIBUTES_INDEX_KEY)));
+  }
+
+  /**
+   * Returns the {@link BlobAttributesIndex} volume for the blob, or {@code null} when the blob is not indexed. Only
+   * blobs with generated ids in the volume/chapter layout are indexed, packed blobs carry their own attributes.
+   */
+  @Nullable
+  private String indexVolume(final BlobId blobId) {
+    if (attributesIndex == null || blobId.asUniqueString().indexOf('$') >= 0 || isPacked(blobId)) {
+      return null;
+    }
+    String location = blobIdLocationResolver.getLocation(blobId);
+    int separator = location.indexOf('/');
+    return separator > 0 ? location.substring(0, separator) : null;
+  }
+
+  private void index(final BlobId blobId, final BlobAttributes blobAttributes) {
+    String volume = indexVolume(blobId);
+    if (volume != null) {
+      try {
+        attributesIndex.put(volume, blobId, blobAttributes);
+      }
+      catch (Exception e) {
+        log.warn("Unable to index attributes of blob {}, falling back to attributes file", blobId,
+            log.isDebugEnabled() ? e : null);
+        attributesIndex.remove(volume, blobId);
+      }
+    }
+  }
+
   private void setConfiguredBlobStorePath(final Path path) {
     blobStoreConfiguration.attributes(CONFIG_KEY).set(PATH_KEY, path.toString());
   }
@@ -834,6 +979,8 @@ public class FileBlobStore
       Path blobDir = getAbsoluteBlobDir();
       FileUtils.deleteDirectory(reconciliationLogDir.toFile());
       if (fileOperations.deleteEmptyDirectory(contentDir)) {
+        fileOperations.deleteDirectory(blobDir.resolve(BlobSegmentStore.SEGMENTS_DIR));
+        fileOperations.deleteDirectory(blobDir.resolve(BlobAttributesIndex.INDEX_DIR));
         fileOperations.deleteQuietly(blobDir.resolve("metadata.properties"));
         File[] files = blobDir.toFile().listFiles((dir, name) -> name.endsWith(DELETIONS_FILENAME));
         if (files != null) {
@@ -1051,6 +1198,12 @@ public class FileBlobStore
     protected InputStream doGetInputStream() {
       Path contentPath = contentPath(getId());
       try {
+        if (isPacked(getId())) {
+          InputStream packed = segmentStore.openInputStream(getId());
+          if (packed != null) {
+            return performanceLogger.maybeWrapForPerformanceLogging(new BufferedInputStream(packed));
+          }
+        }
         checkExists(contentPath, getId());
         return performanceLogger.maybeWrapForPerformanceLogging(
             new BufferedInputStream(fileOperations.openInputStream(contentPath)));
@@ -1065,6 +1218,23 @@ public class FileBlobStore
         throw new BlobStoreException(e, getId());
       }
     }
+
+    @Nullable
+    @Override
+    public BlobFileRegion getFileRegion() {
+      if (performanceLogger.isEnabled()) {
+        // stream the content so reads are logged
+        return null;
+      }
+      if (isPacked(getId())) {
+        return segmentStore.getFileRegion(getId());
+      }
+      Path contentPath = contentPath(getId());
+      if (!fileOperations.exists(contentPath)) {
+        return null;
+      }
+      return new BlobFileRegion(contentPath, 0, getMetrics().getContentSize());
+    }
   }
 
   private interface BlobIngester
@@ -1080,10 +1250,11 @@ public class FileBlobStore
   @Override
   public Stream<BlobId> getBlobIdStream() {
     try {
-      return getAttributeFilePaths()
+      Stream<BlobId> blobIds = getAttributeFilePaths()
           .map(FileAttributesLocation::new)
           .map(this::getBlobIdFromAttributeFilePath)
           .map(BlobId::new);
+      return segmentStore != null ? Stream.concat(segmentStore.getBlobIds(), blobIds) : blobIds;
     }
     catch (IOException e) {
       throw new RuntimeException(e);
@@ -1137,12 +1308,23 @@ public class FileBlobStore
   public BlobAttributes getBlobAttributes(final BlobId blobId) {
     Path blobPath = attributePath(blobId);
     try {
-      FileBlobAttributes blobAttributes = new FileBlobAttributes(blobPath);
+      String volume = indexVolume(blobId);
+      if (volume != null) {
+        FileBlobAttributes indexed = attributesIndex.load(volume, blobId, blobPath);
+        if (indexed != null) {
+          return indexed;
+        }
+      }
+      FileBlobAttributes blobAttributes = isPacked(blobId) ?
+          new PackedFileBlobAttributes(segmentStore, blobId, blobPath) :
+          new FileBlobAttributes(blobPath);
       if (!blobAttributes.load()) {
         log.warn("Attempt to access non-existent blob attributes file {} for blob {}", attributePath(blobId), blobId);
         return null;
       }
       else {
+        // re-index blobs written before the index existed or after it was discarded
+        index(blobId, blobAttributes);
         return blobAttributes;
       }
     }
@@ -1185,6 +1367,7 @@ public class FileBlobStore
       FileBlobAttributes fileBlobAttributes = getFileBlobAttributes(blobId);
       fileBlobAttributes.updateFrom(blobAttributes);
       fileBlobAttributes.store();
+      index(blobId, fileBlobAttributes);
     }
     catch (Exception e) {
       log.error("Unable to set BlobAttributes for blob id: {}, exception: {}",
@@ -1192,6 +1375,11 @@ public class FileBlobStore
     }
   }
 
+  @Override
+  protected void doUndelete(final BlobId blobId, final BlobAttributes attributes) {
+    index(blobId, attributes);
+  }
+
   @Override
   public RawObjectAccess getRawObjectAccess() {
     return rawObjectAccess;
@@ -0,0 +1,88 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.file.internal.BlobSegmentStore;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link FileBlobAttributes} of a blob kept in a {@link BlobSegmentStore} segment. The path is the location the
+ * attributes file would have in the unpacked layout, it is only used to identify the blob.
+ *
+ * @since 3.next
+ */
+public class PackedFileBlobAttributes
+    extends FileBlobAttributes
+{
+  private final BlobSegmentStore segmentStore;
+
+  private final BlobId blobId;
+
+  public PackedFileBlobAttributes(final BlobSegmentStore segmentStore, final BlobId blobId, final Path path) {
+    super(path);
+    this.segmentStore = checkNotNull(segmentStore);
+    this.blobId = checkNotNull(blobId);
+  }
+
+  public PackedFileBlobAttributes(
+      final BlobSegmentStore segmentStore,
+      final BlobId blobId,
+      final Path path,
+      final Map<String, String> headers,
+      final BlobMetrics metrics)
+  {
+    super(path, headers, metrics);
+    this.segmentStore = checkNotNull(segmentStore);
+    this.blobId = checkNotNull(blobId);
+  }
+
+  /**
+   * Returns {@code false} if the blob is not in the segment store.
+   */
+  @Override
+  public boolean load() throws IOException {
+    Properties properties = segmentStore.getAttributes(blobId);
+    if (properties == null) {
+      return false;
+    }
+    propertiesFile.clear();
+    propertiesFile.putAll(properties);
+    readFrom(propertiesFile);
+    return true;
+  }
+
+  @Override
+  public void store() throws IOException {
+    writeTo(propertiesFile);
+    if (segmentStore.contains(blobId)) {
+      segmentStore.putAttributes(blobId, propertiesFile);
+    }
+  }
+
+  /**
+   * Returns the attributes as they would be written to the segment, for use with
+   * {@link BlobSegmentStore#put(BlobId, Properties, Path)}.
+   */
+  Properties toProperties() {
+    refreshProperties();
+    return propertiesFile;
+  }
+}
@@ -0,0 +1,729 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobAttributes;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.file.FileBlobAttributes;
+import org.sonatype.nexus.common.io.DirectoryHelper;
+
+import com.google.common.hash.HashCode;
+import org.joda.time.DateTime;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Binary index of blob attributes kept in memory-mapped files, one per blob store volume.
+ *
+ * Each volume file is an open-addressing hash table of fixed-width records holding the content size, SHA1, creation
+ * time and deletion state of a blob, plus its headers as ids into an append-only string dictionary shared by all
+ * volumes, an id being the position of the entry in the dictionary. Lookups of size and deletion state do not
+ * allocate. The whole dictionary is held in memory both ways, so loading full attributes resolves ids without I/O and
+ * a string is only appended once; entries no longer referenced are dropped when a volume is compacted and the
+ * dictionary has doubled in size.
+ * The index is written through alongside the {@code .properties} files, which remain the source
+ * of truth: blobs that are missing from the index (e.g. after an unclean shutdown discarded it) are looked up in their
+ * attributes file and re-indexed, and a {@link FileBlobAttributes} loaded from the index rewrites its file on
+ * {@link FileBlobAttributes#store()}.
+ *
+ * @since 3.next
+ */
+public class BlobAttributesIndex
+    extends ComponentSupport
+{
+  public static final String INDEX_DIR = "attributes-index";
+
+  private static final String DICTIONARY_FILE = "headers.dict";
+
+  private static final String VOLUME_SUFFIX = ".idx";
+
+  private static final int MAGIC = 0x4E584149;
+
+  private static final int VERSION = 2;
+
+  private static final int FILE_HEADER_SIZE = 64;
+
+  private static final int CLEAN_OFFSET = 8;
+
+  private static final int CAPACITY_OFFSET = 12;
+
+  private static final int COUNT_OFFSET = 16;
+
+  private static final int USED_OFFSET = 20;
+
+  private static final int MAX_ID_LENGTH = 48;
+
+  private static final int MAX_HEADERS = 11;
+
+  private static final int STATE = 0;
+
+  private static final int DELETED = 1;
+
+  private static final int ID_LENGTH = 2;
+
+  private static final int HEADER_COUNT = 3;
+
+  private static final int ID = 4;
+
+  private static final int CONTENT_SIZE = ID + MAX_ID_LENGTH;
+
+  private static final int CREATION_TIME = CONTENT_SIZE + Long.BYTES;
+
+  private static final int DELETED_TIME = CREATION_TIME + Long.BYTES;
+
+  private static final int DELETED_REASON = DELETED_TIME + Long.BYTES;
+
+  private static final int SHA1 = DELETED_REASON + Integer.BYTES;
+
+  private static final int SHA1_LENGTH = 20;
+
+  private static final int HEADERS = SHA1 + SHA1_LENGTH;
+
+  private static final int SLOT_SIZE = 192;
+
+  private static final byte EMPTY = 0;
+
+  private static final byte USED = 1;
+
+  private static final byte REMOVED = 2;
+
+  private static final int INITIAL_CAPACITY = 4096;
+
+  private static final double MAX_LOAD = 0.7;
+
+  private static final int MIN_COMPACT_ENTRIES = 10_000;
+
+  private static final int INITIAL_DICTIONARY_CAPACITY = 1024;
+
+  private final Path indexDir;
+
+  private final Map<String, Volume> volumes = new ConcurrentHashMap<>();
+
+  private final Map<String, Integer> dictionaryIds = new ConcurrentHashMap<>();
+
+  // entries by id; only grown while appending, and readers see the entries of ids they found in a volume because
+  // the volume lock orders the append before the read
+  private volatile String[] dictionaryStrings = new String[INITIAL_DICTIONARY_CAPACITY];
+
+  private int dictionaryCount;
+
+  // held for reading while dictionary ids are used, and for writing while they are reassigned by compaction
+  private final ReadWriteLock dictionaryLock = new ReentrantReadWriteLock();
+
+  private final Object appendLock = new Object();
+
+  private FileChannel dictionary;
+
+  private int liveEntries;
+
+  public BlobAttributesIndex(final Path blobDir) {
+    this.indexDir = checkNotNull(blobDir).resolve(INDEX_DIR);
+  }
+
+  public synchronized void start() throws IOException {
+    DirectoryHelper.mkdir(indexDir);
+    dictionary = FileChannel.open(indexDir.resolve(DICTIONARY_FILE), CREATE, READ, WRITE);
+    loadDictionary();
+  }
+
+  public synchronized void stop() throws IOException {
+    dictionaryLock.writeLock().lock();
+    try {
+      for (Volume volume : volumes.values()) {
+        volume.close();
+      }
+      volumes.clear();
+      clearDictionary();
+      if (dictionary != null) {
+        dictionary.force(true);
+        dictionary.close();
+        dictionary = null;
+      }
+    }
+    finally {
+      dictionaryLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the blob is indexed.
+   */
+  public boolean contains(final String volume, final BlobId blobId) {
+    Volume index = volume(volume);
+    index.lock.readLock().lock();
+    try {
+      return index.find(blobId.asUniqueString()) >= 0;
+    }
+    finally {
+      index.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the indexed content size of the blob or {@code -1} if the blob is not indexed.
+   */
+  public long getContentSize(final String volume, final BlobId blobId) {
+    Volume index = volume(volume);
+    index.lock.readLock().lock();
+    try {
+      int slot = index.find(blobId.asUniqueString());
+      return slot < 0 ? -1 : index.buffer.getLong(slot + CONTENT_SIZE);
+    }
+    finally {
+      index.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the indexed attributes of the blob, bound to the given attributes file, or {@code null} if the blob is not
+   * indexed.
+   */
+  @Nullable
+  public FileBlobAttributes load(final String volume, final BlobId blobId, final Path attributePath)
+      throws IOException
+  {
+    Volume index = volume(volume);
+    dictionaryLock.readLock().lock();
+    index.lock.readLock().lock();
+    try {
+      int slot = index.find(blobId.asUniqueString());
+      if (slot < 0) {
+        return null;
+      }
+      ByteBuffer buffer = index.buffer;
+      Map<String, String> headers = new HashMap<>();
+      int headerCount = buffer.get(slot + HEADER_COUNT);
+      for (int i = 0; i < headerCount; i++) {
+        int offset = slot + HEADERS + i * 2 * Integer.BYTES;
+        headers.put(string(buffer.getInt(offset)), string(buffer.getInt(offset + Integer.BYTES)));
+      }
+      byte[] sha1 = new byte[SHA1_LENGTH];
+      for (int i = 0; i < SHA1_LENGTH; i++) {
+        sha1[i] = buffer.get(slot + SHA1 + i);
+      }
+      BlobMetrics metrics = new BlobMetrics(new DateTime(buffer.getLong(slot + CREATION_TIME)),
+          HashCode.fromBytes(sha1).toString(), buffer.getLong(slot + CONTENT_SIZE));
+
+      FileBlobAttributes attributes = new FileBlobAttributes(attributePath, headers, metrics);
+      if (buffer.get(slot + DELETED) != 0) {
+        attributes.setDeleted(true);
+        int reason = buffer.getInt(slot + DELETED_REASON);
+        attributes.setDeletedReason(reason < 0 ? null : string(reason));
+        long deletedTime = buffer.getLong(slot + DELETED_TIME);
+        attributes.setDeletedDateTime(deletedTime < 0 ? null : new DateTime(deletedTime));
+      }
+      attributes.refreshProperties();
+      return attributes;
+    }
+    finally {
+      index.lock.readLock().unlock();
+      dictionaryLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds or replaces the indexed attributes of a blob. Returns {@code false} when the attributes do not fit into a
+   * fixed-width record, in which case any previous record is removed and callers fall back to the attributes file.
+   */
+  public boolean put(final String volume, final BlobId blobId, final BlobAttributes attributes) throws IOException {
+    String id = blobId.asUniqueString();
+    Map<String, String> headers = attributes.getHeaders();
+    String sha1 = attributes.getMetrics().getSha1Hash();
+    if (id.length() > MAX_ID_LENGTH || headers.size() > MAX_HEADERS || sha1 == null ||
+        sha1.length() != SHA1_LENGTH * 2) {
+      remove(volume, blobId);
+      return false;
+    }
+
+    boolean compacted;
+    dictionaryLock.readLock().lock();
+    try {
+      compacted = put(volume(volume), id, attributes);
+    }
+    finally {
+      dictionaryLock.readLock().unlock();
+    }
+    if (compacted) {
+      maybeCompactDictionary();
+    }
+    return true;
+  }
+
+  /**
+   * Writes the record of a blob, returning {@code true} if the volume was compacted to make room for it.
+   */
+  private boolean put(final Volume index, final String id, final BlobAttributes attributes) throws IOException {
+    Map<String, String> headers = attributes.getHeaders();
+    int[] headerIds = new int[headers.size() * 2];
+    int i = 0;
+    for (Entry<String, String> header : headers.entrySet()) {
+      headerIds[i++] = stringId(header.getKey());
+      headerIds[i++] = stringId(header.getValue());
+    }
+    String reason = attributes.isDeleted() ? attributes.getDeletedReason() : null;
+    int reasonId = reason != null ? stringId(reason) : -1;
+    byte[] sha1Bytes = HashCode.fromString(attributes.getMetrics().getSha1Hash()).asBytes();
+
+    index.lock.writeLock().lock();
+    try {
+      boolean compacted = index.ensureCapacity();
+      int slot = index.find(id);
+      if (slot < 0) {
+        slot = index.claim(id);
+      }
+      ByteBuffer buffer = index.buffer;
+      buffer.put(slot + DELETED, (byte) (attributes.isDeleted() ? 1 : 0));
+      buffer.put(slot + HEADER_COUNT, (byte) headers.size());
+      buffer.putLong(slot + CONTENT_SIZE, attributes.getMetrics().getContentSize());
+      buffer.putLong(slot + CREATION_TIME, attributes.getMetrics().getCreationTime().getMillis());
+      DateTime deletedTime = attributes.getDeletedDateTime();
+      buffer.putLong(slot + DELETED_TIME, deletedTime == null ? -1 : deletedTime.getMillis());
+      buffer.putInt(slot + DELETED_REASON, reasonId);
+      for (int j = 0; j < SHA1_LENGTH; j++) {
+        buffer.put(slot + SHA1 + j, sha1Bytes[j]);
+      }
+      for (int j = 0; j < headerIds.length; j++) {
+        buffer.putInt(slot + HEADERS + j * Integer.BYTES, headerIds[j]);
+      }
+      return compacted;
+    }
+    finally {
+      index.lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(final String volume, final BlobId blobId) {
+    Volume index = volume(volume);
+    index.lock.writeLock().lock();
+    try {
+      int slot = index.find(blobId.asUniqueString());
+      if (slot >= 0) {
+        index.buffer.put(slot + STATE, REMOVED);
+        index.setCount(index.count() - 1);
+      }
+    }
+    finally {
+      index.lock.writeLock().unlock();
+    }
+  }
+
+  private Volume volume(final String name) {
+    return volumes.computeIfAbsent(name, key -> {
+      try {
+        return new Volume(indexDir.resolve(key + VOLUME_SUFFIX));
+      }
+      catch (IOException e) {
+        throw new IllegalStateException("Unable to open attributes index volume " + key, e);
+      }
+    });
+  }
+
+  private int stringId(final String value) throws IOException {
+    Integer id = dictionaryIds.get(value);
+    if (id == null) {
+      synchronized (appendLock) {
+        id = dictionaryIds.get(value);
+        if (id == null) {
+          append(dictionary, value);
+          id = addString(value);
+          dictionaryIds.put(value, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  private static void append(final FileChannel channel, final String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    long offset = channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+    buffer.putInt(bytes.length).put(bytes).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+  }
+
+  /**
+   * Records the next dictionary entry in memory, returning its id.
+   */
+  private int addString(final String value) {
+    String[] strings = dictionaryStrings;
+    int id = dictionaryCount;
+    if (id == strings.length) {
+      strings = Arrays.copyOf(strings, id * 2);
+    }
+    strings[id] = value;
+    dictionaryStrings = strings;
+    dictionaryCount = id + 1;
+    return id;
+  }
+
+  private void clearDictionary() {
+    dictionaryIds.clear();
+    dictionaryStrings = new String[INITIAL_DICTIONARY_CAPACITY];
+    dictionaryCount = 0;
+  }
+
+  /**
+   * Reads every dictionary entry so strings already in the dictionary are never appended again, dropping any entry
+   * left incomplete by an unclean shutdown.
+   */
+  private void loadDictionary() throws IOException {
+    clearDictionary();
+    Path path = indexDir.resolve(DICTIONARY_FILE);
+    long size = dictionary.size();
+    long offset = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      while (offset + Integer.BYTES <= size) {
+        int length = in.readInt();
+        if (length < 0 || offset + Integer.BYTES + length > size) {
+          break;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        String value = new String(bytes, UTF_8);
+        dictionaryIds.putIfAbsent(value, addString(value));
+        offset += Integer.BYTES + length;
+      }
+    }
+    catch (EOFException e) {
+      log.debug("Attributes index dictionary {} ended early", path, e);
+    }
+    if (offset < size) {
+      log.warn("Truncating incomplete entry at {} of attributes index dictionary {}", offset, path);
+      dictionary.truncate(offset);
+    }
+    liveEntries = dictionaryIds.size();
+  }
+
+  /**
+   * Compacts the dictionary once it has doubled in size since it was loaded or last compacted.
+   */
+  private void maybeCompactDictionary() {
+    dictionaryLock.writeLock().lock();
+    try {
+      if (dictionaryIds.size() > Math.max(liveEntries * 2, MIN_COMPACT_ENTRIES)) {
+        compactDictionary();
+      }
+    }
+    catch (IOException e) {
+      log.warn("Unable to compact attributes index dictionary in {}", indexDir, e);
+    }
+    finally {
+      dictionaryLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Rewrites the dictionary with only the entries referenced by indexed blobs, updating the ids held in every volume.
+   */
+  void compactDictionary() throws IOException {
+    dictionaryLock.writeLock().lock();
+    try {
+      List<Volume> all = new ArrayList<>();
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(indexDir, "*" + VOLUME_SUFFIX)) {
+        for (Path file : files) {
+          String name = file.getFileName().toString();
+          all.add(volume(name.substring(0, name.length() - VOLUME_SUFFIX.length())));
+        }
+      }
+
+      // copy the referenced entries first, so a failure leaves the current dictionary and volumes untouched
+      Path path = indexDir.resolve(DICTIONARY_FILE);
+      Path temp = indexDir.resolve(DICTIONARY_FILE + ".compact");
+      Files.deleteIfExists(temp);
+      Map<Integer, Integer> newIds = new HashMap<>();
+      List<String> compactedStrings = new ArrayList<>();
+      try (FileChannel compacted = FileChannel.open(temp, CREATE_NEW, READ, WRITE)) {
+        for (Volume volume : all) {
+          for (int oldId : volume.stringIds()) {
+            if (!newIds.containsKey(oldId)) {
+              String value = string(oldId);
+              append(compacted, value);
+              newIds.put(oldId, compactedStrings.size());
+              compactedStrings.add(value);
+            }
+          }
+        }
+        compacted.force(true);
+      }
+
+      log.debug("Compacting attributes index dictionary {} from {} to {} entries", path, dictionaryIds.size(),
+          compactedStrings.size());
+      dictionary.close();
+      Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+      dictionary = FileChannel.open(path, READ, WRITE);
+      for (Volume volume : all) {
+        volume.remapStringIds(newIds::get);
+      }
+      clearDictionary();
+      for (String value : compactedStrings) {
+        dictionaryIds.put(value, addString(value));
+      }
+      liveEntries = compactedStrings.size();
+    }
+    finally {
+      dictionaryLock.writeLock().unlock();
+    }
+  }
+
+  private String string(final int id) throws IOException {
+    String[] strings = dictionaryStrings;
+    String value = id >= 0 && id < strings.length ? strings[id] : null;
+    if (value == null) {
+      throw new IOException("Attributes index dictionary has no entry " + id);
+    }
+    return value;
+  }
+
+  /**
+   * A single memory-mapped hash table file.
+   */
+  private class Volume
+  {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Path path;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private int capacity;
+
+    Volume(final Path path) throws IOException {
+      this.path = path;
+      if (Files.exists(path)) {
+        map(FileChannel.open(path, READ, WRITE));
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(CLEAN_OFFSET) == 0) {
+          // the index is only a cache of the attributes files, so rather than trusting records written before an
+          // unclean shutdown it is discarded and repopulated as blobs are accessed
+          log.warn("Discarding attributes index {} which was not closed cleanly or has an older format", path);
+          channel.close();
+          create(path, INITIAL_CAPACITY);
+        }
+      }
+      else {
+        create(path, INITIAL_CAPACITY);
+      }
+      buffer.putInt(CLEAN_OFFSET, 0);
+    }
+
+    private void create(final Path target, final int initialCapacity) throws IOException {
+      Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+      Files.deleteIfExists(temp);
+      FileChannel created = FileChannel.open(temp, CREATE, READ, WRITE);
+      MappedByteBuffer mapped = created.map(FileChannel.MapMode.READ_WRITE, 0,
+          FILE_HEADER_SIZE + (long) initialCapacity * SLOT_SIZE);
+      mapped.putInt(0, MAGIC);
+      mapped.putInt(4, VERSION);
+      mapped.putInt(CAPACITY_OFFSET, initialCapacity);
+      created.close();
+      Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+      map(FileChannel.open(target, READ, WRITE));
+    }
+
+    private void map(final FileChannel fileChannel) throws IOException {
+      channel = fileChannel;
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+      capacity = buffer.getInt(CAPACITY_OFFSET);
+    }
+
+    int count() {
+      return buffer.getInt(COUNT_OFFSET);
+    }
+
+    void setCount(final int count) {
+      buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Returns the offset of the slot holding the id or {@code -1} if absent.
+     */
+    int find(final String id) {
+      int start = Math.floorMod(mix(id.hashCode()), capacity);
+      for (int i = 0; i < capacity; i++) {
+        int slot = FILE_HEADER_SIZE + ((start + i) % capacity) * SLOT_SIZE;
+        byte state = buffer.get(slot + STATE);
+        if (state == EMPTY) {
+          return -1;
+        }
+        if (state == USED && matches(slot, id)) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Claims a free slot for an id known to be absent.
+     */
+    int claim(final String id) {
+      int start = Math.floorMod(mix(id.hashCode()), capacity);
+      for (int i = 0; i < capacity; i++) {
+        int slot = FILE_HEADER_SIZE + ((start + i) % capacity) * SLOT_SIZE;
+        byte state = buffer.get(slot + STATE);
+        if (state != USED) {
+          if (state == EMPTY) {
+            buffer.putInt(USED_OFFSET, buffer.getInt(USED_OFFSET) + 1);
+          }
+          buffer.put(slot + STATE, USED);
+          buffer.put(slot + ID_LENGTH, (byte) id.length());
+          for (int j = 0; j < id.length(); j++) {
+            buffer.put(slot + ID + j, (byte) id.charAt(j));
+          }
+          setCount(count() + 1);
+          return slot;
+        }
+      }
+      throw new IllegalStateException("Attributes index " + path + " is full");
+    }
+
+    private boolean matches(final int slot, final String id) {
+      if (buffer.get(slot + ID_LENGTH) != id.length()) {
+        return false;
+      }
+      for (int j = 0; j < id.length(); j++) {
+        if (buffer.get(slot + ID + j) != (byte) id.charAt(j)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Doubles the table, dropping removed slots, once the load factor including removed slots is exceeded. Returns
+     * {@code true} if the table was rewritten.
+     */
+    boolean ensureCapacity() throws IOException {
+      if (buffer.getInt(USED_OFFSET) + 1 <= capacity * MAX_LOAD) {
+        return false;
+      }
+      MappedByteBuffer old = buffer;
+      int oldCapacity = capacity;
+      int newCapacity = count() + 1 > oldCapacity * MAX_LOAD / 2 ? oldCapacity * 2 : oldCapacity;
+      log.debug("Resizing attributes index {} from {} to {} slots", path, oldCapacity, newCapacity);
+
+      channel.close();
+      Path temp = path.resolveSibling(path.getFileName() + ".resize");
+      Files.move(path, temp, ATOMIC_MOVE, REPLACE_EXISTING);
+      create(path, newCapacity);
+      for (int i = 0; i < oldCapacity; i++) {
+        int oldSlot = FILE_HEADER_SIZE + i * SLOT_SIZE;
+        if (old.get(oldSlot + STATE) == USED) {
+          byte[] idBytes = new byte[old.get(oldSlot + ID_LENGTH)];
+          for (int j = 0; j < idBytes.length; j++) {
+            idBytes[j] = old.get(oldSlot + ID + j);
+          }
+          int slot = claim(new String(idBytes, UTF_8));
+          buffer.put(slot + DELETED, old.get(oldSlot + DELETED));
+          buffer.put(slot + HEADER_COUNT, old.get(oldSlot + HEADER_COUNT));
+          for (int j = CONTENT_SIZE; j < SLOT_SIZE; j++) {
+            buffer.put(slot + j, old.get(oldSlot + j));
+          }
+        }
+      }
+      buffer.putInt(CLEAN_OFFSET, 0);
+      Files.delete(temp);
+      return true;
+    }
+
+    /**
+     * Returns the dictionary ids referenced by the records in this volume, possibly repeated.
+     */
+    List<Integer> stringIds() {
+      List<Integer> ids = new ArrayList<>();
+      remapStringIds(id -> {
+        ids.add(id);
+        return id;
+      });
+      return ids;
+    }
+
+    /**
+     * Replaces every dictionary id referenced by the records in this volume.
+     */
+    void remapStringIds(final IntUnaryOperator mapping) {
+      lock.writeLock().lock();
+      try {
+        for (int i = 0; i < capacity; i++) {
+          int slot = FILE_HEADER_SIZE + i * SLOT_SIZE;
+          if (buffer.get(slot + STATE) != USED) {
+            continue;
+          }
+          int headerIds = buffer.get(slot + HEADER_COUNT) * 2;
+          for (int j = 0; j < headerIds; j++) {
+            int offset = slot + HEADERS + j * Integer.BYTES;
+            buffer.putInt(offset, mapping.applyAsInt(buffer.getInt(offset)));
+          }
+          int reason = buffer.getInt(slot + DELETED_REASON);
+          if (buffer.get(slot + DELETED) != 0 && reason >= 0) {
+            buffer.putInt(slot + DELETED_REASON, mapping.applyAsInt(reason));
+          }
+        }
+      }
+      finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    void close() throws IOException {
+      lock.writeLock().lock();
+      try {
+        buffer.putInt(CLEAN_OFFSET, 1);
+        buffer.force();
+        channel.close();
+      }
+      finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  private static int mix(final int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,819 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.common.io.DirectoryHelper;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only segment storage used by the packed layout of the file blob store.
+ *
+ * Small blobs are appended, together with their attributes, to large segment files instead of being written as a
+ * {@code .bytes}/{@code .properties} file pair. Attribute changes (e.g. soft deletes) append a new attributes record and
+ * hard deletes append a tombstone, so segments are never modified in place. An in-memory offset index is rebuilt on
+ * start by scanning the segments sequentially; segments with mostly dead records are rewritten by {@link #compact()}.
+ *
+ * Record layout: {@code int magic, byte type, UTF blobId, int attributesLength, attributes, [long contentLength,
+ * content]} where content is only present for {@link #PUT} records.
+ *
+ * Compacted segments are retired rather than deleted: readers hold a reference on the segments they read from and a
+ * retired segment is only deleted by a later compaction pass once it has no readers left.
+ *
+ * @since 3.next
+ */
+public class BlobSegmentStore
+    extends ComponentSupport
+{
+  public static final String SEGMENTS_DIR = "segments";
+
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  private static final String SEGMENT_SUFFIX = ".dat";
+
+  private static final int MAGIC = 0x4E58424C;
+
+  private static final byte PUT = 1;
+
+  private static final byte ATTRIBUTES = 2;
+
+  private static final byte DELETE = 3;
+
+  private final Path segmentDir;
+
+  private final long maxSegmentSize;
+
+  private final double compactLiveRatio;
+
+  private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+  private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+  private final Object compactLock = new Object();
+
+  private int activeSegmentId;
+
+  private FileChannel activeChannel;
+
+  public BlobSegmentStore(final Path blobDir, final long maxSegmentSize, final double compactLiveRatio) {
+    this.segmentDir = checkNotNull(blobDir).resolve(SEGMENTS_DIR);
+    this.maxSegmentSize = maxSegmentSize;
+    this.compactLiveRatio = compactLiveRatio;
+  }
+
+  /**
+   * Opens the segment directory, rebuilding the offset index from the existing segments.
+   */
+  public synchronized void start() throws IOException {
+    DirectoryHelper.mkdir(segmentDir);
+    index.clear();
+    segments.clear();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(segmentDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        int segmentId = segmentId(path);
+        segments.put(segmentId, new Segment(segmentId, path));
+      }
+    }
+    for (Segment segment : segments.values()) {
+      scan(segment);
+    }
+    log.debug("Loaded {} packed blobs from {} segments in {}", index.size(), segments.size(), segmentDir);
+    openSegment(segments.isEmpty() ? 1 : segments.lastKey());
+  }
+
+  public synchronized void stop() throws IOException {
+    if (activeChannel != null) {
+      activeChannel.force(true);
+      activeChannel.close();
+      activeChannel = null;
+    }
+    index.clear();
+  }
+
+  public boolean contains(final BlobId blobId) {
+    return index.containsKey(blobId.asUniqueString());
+  }
+
+  public Stream<BlobId> getBlobIds() {
+    return new ArrayList<>(index.keySet()).stream().map(BlobId::new);
+  }
+
+  /**
+   * Appends the content of {@code source} and the given attributes as a new packed blob.
+   */
+  public synchronized void put(final BlobId blobId, final Properties attributes, final Path source) throws IOException {
+    long contentLength = Files.size(source);
+    byte[] header = header(PUT, blobId.asUniqueString(), toBytes(attributes), contentLength);
+    long recordLength = header.length + contentLength;
+    maybeRoll(recordLength);
+
+    long offset = activeChannel.size();
+    try (FileChannel content = FileChannel.open(source, READ)) {
+      write(activeChannel, ByteBuffer.wrap(header), offset);
+      transfer(content, activeChannel, offset + header.length, contentLength);
+    }
+    catch (IOException e) {
+      // drop the partial record so the segment stays readable
+      activeChannel.truncate(offset);
+      throw e;
+    }
+
+    index.put(blobId.asUniqueString(), putEntry(activeSegmentId, offset, header.length, blobId.asUniqueString(),
+        contentLength));
+  }
+
+  /**
+   * Appends an updated copy of the attributes for an existing packed blob.
+   */
+  public synchronized void putAttributes(final BlobId blobId, final Properties attributes) throws IOException {
+    Entry entry = index.get(blobId.asUniqueString());
+    checkState(entry != null, "Blob %s is not packed", blobId);
+
+    byte[] header = header(ATTRIBUTES, blobId.asUniqueString(), toBytes(attributes), -1);
+    maybeRoll(header.length);
+    long offset = activeChannel.size();
+    write(activeChannel, ByteBuffer.wrap(header), offset);
+
+    index.put(blobId.asUniqueString(), entry.withAttributes(activeSegmentId,
+        offset + attributesStart(blobId.asUniqueString()), header.length - attributesStart(blobId.asUniqueString()),
+        header.length));
+  }
+
+  /**
+   * Appends a tombstone for a packed blob, returning {@code false} if the blob was not packed.
+   */
+  public synchronized boolean delete(final BlobId blobId) throws IOException {
+    if (index.remove(blobId.asUniqueString()) == null) {
+      return false;
+    }
+    byte[] header = header(DELETE, blobId.asUniqueString(), new byte[0], -1);
+    maybeRoll(header.length);
+    write(activeChannel, ByteBuffer.wrap(header), activeChannel.size());
+    return true;
+  }
+
+  /**
+   * Returns the latest attributes of a packed blob or {@code null} if the blob is not packed.
+   */
+  @Nullable
+  public Properties getAttributes(final BlobId blobId) throws IOException {
+    Lease lease = acquire(blobId.asUniqueString(), true);
+    if (lease == null) {
+      return null;
+    }
+    try {
+      Properties properties = new Properties();
+      properties.load(new ByteArrayInputStream(readAttributes(lease.segment, lease.entry)));
+      return properties;
+    }
+    finally {
+      lease.segment.release();
+    }
+  }
+
+  /**
+   * Opens a stream over the content of a packed blob or returns {@code null} if the blob is not packed. The segment
+   * holding the content is kept until the stream is closed.
+   */
+  @Nullable
+  public InputStream openInputStream(final BlobId blobId) throws IOException {
+    Lease lease = acquire(blobId.asUniqueString(), false);
+    if (lease == null) {
+      return null;
+    }
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(lease.segment.path, READ);
+      channel.position(lease.entry.contentOffset);
+    }
+    catch (IOException | RuntimeException e) {
+      lease.segment.release();
+      throw e;
+    }
+    AtomicBoolean released = new AtomicBoolean();
+    return new BoundedInputStream(Channels.newInputStream(channel), lease.entry.contentLength)
+    {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        }
+        finally {
+          if (released.compareAndSet(false, true)) {
+            lease.segment.release();
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the segment file region holding the content of a packed blob or {@code null} if the blob is not packed.
+   *
+   * Regions do not hold a reference on their segment; a segment retired by compaction is only deleted by the next
+   * compaction pass, so callers have a whole compaction interval to open the region.
+   */
+  @Nullable
+  public BlobFileRegion getFileRegion(final BlobId blobId) {
+    Lease lease = acquire(blobId.asUniqueString(), false);
+    if (lease == null) {
+      return null;
+    }
+    lease.segment.release();
+    return new BlobFileRegion(lease.segment.path, lease.entry.contentOffset, lease.entry.contentLength);
+  }
+
+  /**
+   * Rewrites the live records of sealed segments whose live ratio dropped below the configured threshold into new
+   * segments and retires the old segments. Records are copied without holding the store monitor, which is only taken
+   * to roll the active segment and to swap the index entries over to the copies.
+   *
+   * @return the number of segments that were compacted
+   */
+  public int compact() throws IOException {
+    synchronized (compactLock) {
+      deleteRetiredSegments();
+
+      Map<Integer, Segment> targets = new HashMap<>();
+      synchronized (this) {
+        List<Integer> candidates = findCandidates();
+        if (candidates.isEmpty()) {
+          return 0;
+        }
+        // reserve one target per candidate below the new active segment so replay order is preserved
+        activeChannel.force(true);
+        activeChannel.close();
+        int targetId = activeSegmentId;
+        for (int candidate : candidates) {
+          targetId++;
+          Segment target = new Segment(targetId, segmentPath(targetId));
+          segments.put(targetId, target);
+          targets.put(candidate, target);
+        }
+        openSegment(targetId + 1);
+      }
+
+      for (Map.Entry<Integer, Segment> compaction : targets.entrySet()) {
+        compactSegment(segments.get(compaction.getKey()), compaction.getValue());
+      }
+      return targets.size();
+    }
+  }
+
+  private List<Integer> findCandidates() throws IOException {
+    Map<Integer, Long> liveBytes = new HashMap<>();
+    for (Entry entry : index.values()) {
+      liveBytes.merge(entry.segment, entry.recordLength, Long::sum);
+      if (entry.attributesRecordLength > 0) {
+        liveBytes.merge(entry.attributesSegment, entry.attributesRecordLength, Long::sum);
+      }
+    }
+
+    List<Integer> candidates = new ArrayList<>();
+    for (Segment segment : segments.values()) {
+      if (segment.id != activeSegmentId && !segment.retired) {
+        long size = Files.size(segment.path);
+        long live = liveBytes.getOrDefault(segment.id, 0L);
+        if (size == 0 || (double) live / size < compactLiveRatio) {
+          candidates.add(segment.id);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private void compactSegment(final Segment source, final Segment target) throws IOException {
+    log.debug("Compacting blob segment {} into {}", source.path, target.path);
+    List<Relocation> relocations = copyLiveRecords(source, target);
+
+    synchronized (this) {
+      for (Relocation relocation : relocations) {
+        Entry current = index.get(relocation.blobId);
+        Entry updated = current != null ? relocation.apply(current) : null;
+        if (updated != null) {
+          index.put(relocation.blobId, updated);
+        }
+      }
+      source.retired = true;
+    }
+
+    if (Files.size(target.path) == 0 && target.tryDelete()) {
+      segments.remove(target.id);
+    }
+  }
+
+  private List<Relocation> copyLiveRecords(final Segment source, final Segment target) throws IOException {
+    // the tombstone is only needed while an older segment may still hold the original record
+    boolean hasOlderSegments = segments.firstKey() < source.id;
+    List<Relocation> relocations = new ArrayList<>();
+    Set<String> copied = new HashSet<>();
+
+    try (FileChannel channel = FileChannel.open(source.path, READ);
+         FileChannel content = FileChannel.open(source.path, READ);
+         FileChannel out = FileChannel.open(target.path, CREATE, WRITE, READ)) {
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      long offset = 0;
+      long size = channel.size();
+      while (offset < size) {
+        Record record = readRecord(in, offset, size);
+        if (record == null) {
+          break;
+        }
+        Entry entry = index.get(record.blobId);
+        long position = out.size();
+        if (record.type == DELETE) {
+          if (hasOlderSegments && entry == null) {
+            write(out, ByteBuffer.wrap(header(DELETE, record.blobId, new byte[0], -1)), position);
+          }
+        }
+        else if (entry != null && record.type == PUT && entry.segment == source.id && entry.contentOffset == record.contentOffset) {
+          byte[] header = header(PUT, record.blobId, readAttributes(entry), entry.contentLength);
+          write(out, ByteBuffer.wrap(header), position);
+          content.position(entry.contentOffset);
+          transfer(content, out, position + header.length, entry.contentLength);
+          relocations.add(new Relocation(record.blobId, entry,
+              putEntry(target.id, position, header.length, record.blobId, entry.contentLength)));
+          copied.add(record.blobId);
+        }
+        else if (entry != null && record.type == ATTRIBUTES && !copied.contains(record.blobId) &&
+            entry.attributesSegment == source.id && entry.attributesOffset == record.attributesOffset) {
+          byte[] header = header(ATTRIBUTES, record.blobId, readAttributes(entry), -1);
+          write(out, ByteBuffer.wrap(header), position);
+          relocations.add(new Relocation(record.blobId, entry, entry.withAttributes(target.id,
+              position + attributesStart(record.blobId), header.length - attributesStart(record.blobId),
+              header.length)));
+        }
+        offset = record.end;
+      }
+      out.force(true);
+    }
+    return relocations;
+  }
+
+  private void deleteRetiredSegments() {
+    for (Segment segment : segments.values()) {
+      if (segment.retired) {
+        try {
+          if (segment.tryDelete()) {
+            segments.remove(segment.id);
+          }
+        }
+        catch (IOException e) {
+          log.warn("Unable to delete retired blob segment {}, will retry on next compaction", segment.path, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Looks up the entry of a blob and acquires the segment holding its content or attributes, re-reading the index when
+   * the segment was deleted after a compaction moved the blob.
+   */
+  @Nullable
+  private Lease acquire(final String blobId, final boolean attributes) {
+    Entry entry = index.get(blobId);
+    while (entry != null) {
+      Segment segment = segments.get(attributes ? entry.attributesSegment : entry.segment);
+      if (segment != null && segment.acquire()) {
+        return new Lease(entry, segment);
+      }
+      Entry latest = index.get(blobId);
+      checkState(latest != entry, "Missing blob segment for %s", blobId);
+      entry = latest;
+    }
+    return null;
+  }
+
+  private byte[] readAttributes(final Entry entry) throws IOException {
+    Segment segment = segments.get(entry.attributesSegment);
+    checkState(segment != null && segment.acquire(), "Missing blob segment %s", entry.attributesSegment);
+    try {
+      return readAttributes(segment, entry);
+    }
+    finally {
+      segment.release();
+    }
+  }
+
+  private static byte[] readAttributes(final Segment segment, final Entry entry) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(entry.attributesLength);
+    try (FileChannel channel = FileChannel.open(segment.path, READ)) {
+      readFully(channel, buffer, entry.attributesOffset);
+    }
+    return buffer.array();
+  }
+
+  private void scan(final Segment segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment.path, READ, WRITE)) {
+      DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+      long offset = 0;
+      long size = channel.size();
+      while (offset < size) {
+        Record record = readRecord(in, offset, size);
+        if (record == null) {
+          log.warn("Truncating incomplete record at offset {} of blob segment {}", offset, segment.path);
+          channel.truncate(offset);
+          break;
+        }
+        apply(segment.id, record);
+        offset = record.end;
+      }
+    }
+  }
+
+  private void apply(final int segmentId, final Record record) {
+    switch (record.type) {
+      case PUT:
+        index.put(record.blobId, new Entry(segmentId, record.end - record.start, record.contentOffset,
+            record.contentLength, segmentId, record.attributesOffset, record.attributesLength, 0));
+        break;
+      case ATTRIBUTES:
+        Entry existing = index.get(record.blobId);
+        if (existing != null) {
+          index.put(record.blobId, existing.withAttributes(segmentId, record.attributesOffset,
+              record.attributesLength, record.end - record.start));
+        }
+        break;
+      case DELETE:
+        index.remove(record.blobId);
+        break;
+      default:
+        throw new IllegalStateException("Unknown record type " + record.type);
+    }
+  }
+
+  /**
+   * Reads the record header at the current stream position, skipping any content. Returns {@code null} when the record
+   * is incomplete or corrupt, which happens when the node stopped while appending.
+   */
+  @Nullable
+  private Record readRecord(final DataInputStream in, final long offset, final long size) throws IOException {
+    try {
+      int magic = in.readInt();
+      if (magic != MAGIC) {
+        log.warn("Corrupt blob segment record at offset {}", offset);
+        return null;
+      }
+      Record record = new Record();
+      record.start = offset;
+      record.type = in.readByte();
+      record.blobId = in.readUTF();
+      record.attributesLength = in.readInt();
+      record.attributesOffset = offset + attributesStart(record.blobId);
+      skipFully(in, record.attributesLength);
+      record.end = record.attributesOffset + record.attributesLength;
+      if (record.type == PUT) {
+        record.contentLength = in.readLong();
+        record.contentOffset = record.end + Long.BYTES;
+        record.end = record.contentOffset + record.contentLength;
+        skipFully(in, record.contentLength);
+      }
+      return record.end <= size ? record : null;
+    }
+    catch (EOFException e) { // NOSONAR
+      return null;
+    }
+  }
+
+  private void maybeRoll(final long recordLength) throws IOException {
+    if (activeChannel.size() > 0 && activeChannel.size() + recordLength > maxSegmentSize) {
+      activeChannel.force(true);
+      activeChannel.close();
+      openSegment(activeSegmentId + 1);
+    }
+  }
+
+  private void openSegment(final int segmentId) throws IOException {
+    Path path = segmentPath(segmentId);
+    activeChannel = FileChannel.open(path, CREATE, WRITE, READ);
+    activeSegmentId = segmentId;
+    segments.putIfAbsent(segmentId, new Segment(segmentId, path));
+  }
+
+  private Path segmentPath(final int segmentId) {
+    return segmentDir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+  }
+
+  private static int segmentId(final Path path) {
+    String name = path.getFileName().toString();
+    return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  private static Entry putEntry(
+      final int segmentId,
+      final long offset,
+      final int headerLength,
+      final String blobId,
+      final long contentLength)
+  {
+    return new Entry(segmentId, headerLength + contentLength, offset + headerLength, contentLength, segmentId,
+        offset + attributesStart(blobId), headerLength - attributesStart(blobId) - Long.BYTES, 0);
+  }
+
+  private static byte[] toBytes(final Properties attributes) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    attributes.store(buffer, null);
+    return buffer.toByteArray();
+  }
+
+  private static byte[] header(
+      final byte type,
+      final String blobId,
+      final byte[] attributeBytes,
+      final long contentLength) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + attributeBytes.length);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeByte(type);
+      out.writeUTF(blobId);
+      out.writeInt(attributeBytes.length);
+      out.write(attributeBytes);
+      if (type == PUT) {
+        out.writeLong(contentLength);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static int attributesStart(final String blobId) {
+    return Integer.BYTES + 1 + utfLength(blobId) + Integer.BYTES;
+  }
+
+  private static int utfLength(final String value) {
+    // blob ids are plain ASCII so the modified UTF-8 length is the string length plus its two byte prefix
+    return 2 + value.length();
+  }
+
+  private static void write(final FileChannel channel, final ByteBuffer buffer, final long position)
+      throws IOException
+  {
+    long written = 0;
+    while (buffer.hasRemaining()) {
+      written += channel.write(buffer, position + written);
+    }
+  }
+
+  private static void transfer(
+      final FileChannel source,
+      final FileChannel target,
+      final long position,
+      final long length) throws IOException
+  {
+    long transferred = 0;
+    while (transferred < length) {
+      long count = target.transferFrom(source, position + transferred, length - transferred);
+      if (count <= 0) {
+        throw new EOFException("Unexpected end of blob content");
+      }
+      transferred += count;
+    }
+  }
+
+  private static void skipFully(final DataInputStream in, final long length) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        throw new EOFException();
+      }
+      remaining -= skipped;
+    }
+  }
+
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+      throws IOException
+  {
+    long read = 0;
+    while (buffer.hasRemaining()) {
+      int count = channel.read(buffer, position + read);
+      if (count < 0) {
+        throw new EOFException();
+      }
+      read += count;
+    }
+  }
+
+  /**
+   * Immutable location of a packed blob; updates replace the whole entry in the index.
+   */
+  private static class Entry
+  {
+    private final int segment;
+
+    private final long recordLength;
+
+    private final long contentOffset;
+
+    private final long contentLength;
+
+    private final int attributesSegment;
+
+    private final long attributesOffset;
+
+    private final int attributesLength;
+
+    private final long attributesRecordLength;
+
+    Entry(
+        final int segment,
+        final long recordLength,
+        final long contentOffset,
+        final long contentLength,
+        final int attributesSegment,
+        final long attributesOffset,
+        final int attributesLength,
+        final long attributesRecordLength)
+    {
+      this.segment = segment;
+      this.recordLength = recordLength;
+      this.contentOffset = contentOffset;
+      this.contentLength = contentLength;
+      this.attributesSegment = attributesSegment;
+      this.attributesOffset = attributesOffset;
+      this.attributesLength = attributesLength;
+      this.attributesRecordLength = attributesRecordLength;
+    }
+
+    Entry withAttributes(
+        final int attributesSegment,
+        final long attributesOffset,
+        final int attributesLength,
+        final long attributesRecordLength)
+    {
+      return new Entry(segment, recordLength, contentOffset, contentLength, attributesSegment, attributesOffset,
+          attributesLength, attributesRecordLength);
+    }
+
+    boolean sameContent(final Entry other) {
+      return segment == other.segment && contentOffset == other.contentOffset;
+    }
+
+    boolean sameAttributes(final Entry other) {
+      return attributesSegment == other.attributesSegment && attributesOffset == other.attributesOffset;
+    }
+  }
+
+  /**
+   * A record copied by compaction, applied to the index only if the blob was not changed in the meantime.
+   */
+  private static class Relocation
+  {
+    private final String blobId;
+
+    private final Entry from;
+
+    private final Entry to;
+
+    Relocation(final String blobId, final Entry from, final Entry to) {
+      this.blobId = blobId;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Nullable
+    Entry apply(final Entry current) {
+      if (!to.sameContent(from)) {
+        // content was copied; newer attributes written meanwhile stay where they are
+        if (!current.sameContent(from)) {
+          return null;
+        }
+        return current.sameAttributes(from) ? to : to.withAttributes(current.attributesSegment,
+            current.attributesOffset, current.attributesLength, current.attributesRecordLength);
+      }
+      if (!current.sameAttributes(from)) {
+        return null;
+      }
+      return current.withAttributes(to.attributesSegment, to.attributesOffset, to.attributesLength,
+          to.attributesRecordLength);
+    }
+  }
+
+  private static class Record
+  {
+    private byte type;
+
+    private String blobId;
+
+    private long start;
+
+    private long end;
+
+    private long attributesOffset;
+
+    private int attributesLength;
+
+    private long contentOffset;
+
+    private long contentLength;
+  }
+
+  private static class Segment
+  {
+    private final int id;
+
+    private final Path path;
+
+    /**
+     * Number of open readers, or {@code -1} once the segment has been deleted.
+     */
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private volatile boolean retired;
+
+    Segment(final int id, final Path path) {
+      this.id = id;
+      this.path = path;
+    }
+
+    boolean acquire() {
+      while (true) {
+        int count = readers.get();
+        if (count < 0) {
+          return false;
+        }
+        if (readers.compareAndSet(count, count + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release() {
+      readers.decrementAndGet();
+    }
+
+    boolean tryDelete() throws IOException {
+      if (!readers.compareAndSet(0, -1)) {
+        return false;
+      }
+      try {
+        Files.deleteIfExists(path);
+        return true;
+      }
+      catch (IOException e) {
+        readers.set(0);
+        throw e;
+      }
+    }
+  }
+
+  private static class Lease
+  {
+    private final Entry entry;
+
+    private final Segment segment;
+
+    Lease(final Entry entry, final Segment segment) {
+      this.entry = entry;
+      this.segment = segment;
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file.internal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.file.FileBlobAttributes;
+
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.sonatype.nexus.blobstore.api.BlobAttributesConstants.HEADER_PREFIX;
+import static org.sonatype.nexus.blobstore.api.BlobStore.BLOB_NAME_HEADER;
+import static org.sonatype.nexus.blobstore.api.BlobStore.CREATED_BY_HEADER;
+
+public class BlobAttributesIndexTest
+    extends TestSupport
+{
+  private static final String VOLUME = "vol-01";
+
+  private static final String SHA1 = "da39a3ee5e6b4b0d3255bfef95601890afd80709";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path blobDir;
+
+  private BlobAttributesIndex underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    blobDir = temporaryFolder.newFolder().toPath();
+    underTest = new BlobAttributesIndex(blobDir);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void putAndLoad() throws Exception {
+    BlobId blobId = new BlobId(UUID.randomUUID().toString());
+    FileBlobAttributes attributes = attributes(blobId, 42);
+    attributes.setDeleted(true);
+    attributes.setDeletedReason("cleanup");
+    attributes.setDeletedDateTime(new DateTime(1000));
+
+    assertThat(underTest.put(VOLUME, blobId, attributes), is(true));
+
+    assertThat(underTest.contains(VOLUME, blobId), is(true));
+    assertThat(underTest.getContentSize(VOLUME, blobId), is(42L));
+
+    FileBlobAttributes loaded = underTest.load(VOLUME, blobId, blobDir.resolve("blob.properties"));
+    assertThat(loaded.getHeaders(), is(attributes.getHeaders()));
+    assertThat(loaded.getMetrics().getSha1Hash(), is(SHA1));
+    assertThat(loaded.getMetrics().getContentSize(), is(42L));
+    assertThat(loaded.isDeleted(), is(true));
+    assertThat(loaded.getDeletedReason(), is("cleanup"));
+    assertThat(loaded.getDeletedDateTime().getMillis(), is(1000L));
+    assertThat(loaded.getProperties().getProperty(HEADER_PREFIX + BLOB_NAME_HEADER), is("/" + blobId));
+  }
+
+  @Test
+  public void deletedWithoutReason() throws Exception {
+    BlobId blobId = new BlobId(UUID.randomUUID().toString());
+    FileBlobAttributes attributes = attributes(blobId, 42);
+    attributes.setDeleted(true);
+
+    assertThat(underTest.put(VOLUME, blobId, attributes), is(true));
+
+    FileBlobAttributes loaded = underTest.load(VOLUME, blobId, blobDir.resolve("blob.properties"));
+    assertThat(loaded.isDeleted(), is(true));
+    assertThat(loaded.getDeletedReason(), nullValue());
+  }
+
+  @Test
+  public void removeAndMissing() throws Exception {
+    BlobId blobId = new BlobId(UUID.randomUUID().toString());
+    underTest.put(VOLUME, blobId, attributes(blobId, 1));
+    underTest.remove(VOLUME, blobId);
+
+    assertThat(underTest.contains(VOLUME, blobId), is(false));
+    assertThat(underTest.getContentSize(VOLUME, blobId), is(-1L));
+    assertThat(underTest.load(VOLUME, blobId, blobDir.resolve("blob.properties")), nullValue());
+  }
+
+  @Test
+  public void survivesRestartAndResize() throws Exception {
+    BlobId[] blobIds = new BlobId[10_000];
+    for (int i = 0; i < blobIds.length; i++) {
+      blobIds[i] = new BlobId(UUID.randomUUID().toString());
+      underTest.put(VOLUME, blobIds[i], attributes(blobIds[i], i));
+    }
+
+    underTest.stop();
+    underTest.start();
+
+    for (int i = 0; i < blobIds.length; i++) {
+      assertThat(underTest.getContentSize(VOLUME, blobIds[i]), is((long) i));
+    }
+  }
+
+  @Test
+  public void rejectsOversizedIds() throws Exception {
+    BlobId blobId = new BlobId("path$" + new String(new char[64]).replace('\0', 'x'));
+
+    assertThat(underTest.put(VOLUME, blobId, attributes(blobId, 1)), is(false));
+    assertThat(underTest.contains(VOLUME, blobId), is(false));
+  }
+
+  @Test
+  public void knownStringsAreNotAppendedAgainAfterRestart() throws Exception {
+    BlobId first = new BlobId(UUID.randomUUID().toString());
+    underTest.put(VOLUME, first, attributes(first, 1));
+    underTest.put(VOLUME, first, attributes(first, 2));
+
+    underTest.stop();
+    long size = Files.size(dictionary());
+    underTest.start();
+
+    BlobId second = new BlobId(UUID.randomUUID().toString());
+    underTest.put(VOLUME, second, attributes(second, 3));
+
+    // only the new blob name is appended
+    assertThat(Files.size(dictionary()), is(size + Integer.BYTES + ("/" + second).length()));
+  }
+
+  @Test
+  public void incompleteDictionaryEntryIsDropped() throws Exception {
+    BlobId blobId = new BlobId(UUID.randomUUID().toString());
+    underTest.put(VOLUME, blobId, attributes(blobId, 1));
+    underTest.stop();
+    long size = Files.size(dictionary());
+    Files.write(dictionary(), new byte[]{0, 0, 0, 9, 'x'}, APPEND);
+
+    underTest.start();
+
+    assertThat(Files.size(dictionary()), is(size));
+    assertThat(underTest.load(VOLUME, blobId, blobDir.resolve("blob.properties")).getHeaders(),
+        is(attributes(blobId, 1).getHeaders()));
+  }
+
+  @Test
+  public void compactionDropsUnreferencedStrings() throws Exception {
+    BlobId kept = new BlobId(UUID.randomUUID().toString());
+    for (int i = 0; i < 100; i++) {
+      BlobId blobId = new BlobId(UUID.randomUUID().toString());
+      underTest.put("vol-02", blobId, attributes(blobId, i));
+      underTest.remove("vol-02", blobId);
+    }
+    FileBlobAttributes attributes = attributes(kept, 42);
+    attributes.setDeleted(true);
+    attributes.setDeletedReason("cleanup");
+    underTest.put(VOLUME, kept, attributes);
+    long size = Files.size(dictionary());
+
+    underTest.compactDictionary();
+
+    assertThat(Files.size(dictionary()), lessThan(size));
+    underTest.stop();
+    underTest.start();
+    FileBlobAttributes loaded = underTest.load(VOLUME, kept, blobDir.resolve("blob.properties"));
+    assertThat(loaded.getHeaders(), is(attributes.getHeaders()));
+    assertThat(loaded.getDeletedReason(), is("cleanup"));
+  }
+
+  private Path dictionary() {
+    return blobDir.resolve(BlobAttributesIndex.INDEX_DIR).resolve("headers.dict");
+  }
+
+  private FileBlobAttributes attributes(final BlobId blobId, final long size) {
+    return new FileBlobAttributes(blobDir.resolve(blobId + ".properties"),
+        ImmutableMap.of(BLOB_NAME_HEADER, "/" + blobId, CREATED_BY_HEADER, "admin"),
+        new BlobMetrics(new DateTime(), SHA1, size));
+  }
+}
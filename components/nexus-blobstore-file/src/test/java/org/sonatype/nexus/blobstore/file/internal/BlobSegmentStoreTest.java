@@ -0,0 +1,184 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file.internal;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobId;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BlobSegmentStoreTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path blobDir;
+
+  private BlobSegmentStore underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    blobDir = temporaryFolder.newFolder().toPath();
+    underTest = new BlobSegmentStore(blobDir, 1024, 0.5);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void putAndRead() throws Exception {
+    BlobId blobId = new BlobId("a");
+    underTest.put(blobId, attributes("sha1", "abc"), content("hello"));
+
+    assertThat(underTest.contains(blobId), is(true));
+    assertThat(read(blobId), is("hello"));
+    assertThat(underTest.getAttributes(blobId).getProperty("sha1"), is("abc"));
+    assertThat(underTest.getAttributes(new BlobId("b")), nullValue());
+  }
+
+  @Test
+  public void indexIsRebuiltOnRestart() throws Exception {
+    BlobId updated = new BlobId("updated");
+    BlobId deleted = new BlobId("deleted");
+    underTest.put(updated, attributes("deleted", "false"), content("one"));
+    underTest.put(deleted, attributes("deleted", "false"), content("two"));
+    underTest.putAttributes(updated, attributes("deleted", "true"));
+    underTest.delete(deleted);
+
+    restart();
+
+    assertThat(underTest.getBlobIds().collect(toList()), contains(updated));
+    assertThat(underTest.getAttributes(updated).getProperty("deleted"), is("true"));
+    assertThat(read(updated), is("one"));
+  }
+
+  @Test
+  public void incompleteRecordIsTruncatedOnRestart() throws Exception {
+    BlobId blobId = new BlobId("a");
+    underTest.put(blobId, attributes("sha1", "abc"), content("hello"));
+    underTest.stop();
+
+    Path segment = blobDir.resolve(BlobSegmentStore.SEGMENTS_DIR).resolve("segment-000001.dat");
+    Files.write(segment, new byte[]{0x4E, 0x58}, APPEND);
+
+    underTest.start();
+
+    assertThat(read(blobId), is("hello"));
+  }
+
+  @Test
+  public void segmentsRollAndCompact() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      underTest.put(new BlobId("blob" + i), attributes("index", "" + i), content(new String(new char[200])));
+    }
+    for (int i = 1; i < 20; i++) {
+      underTest.delete(new BlobId("blob" + i));
+    }
+    underTest.put(new BlobId("late"), attributes("index", "late"), content("late"));
+
+    assertThat(underTest.compact() > 0, is(true));
+    restart();
+
+    assertThat(underTest.getBlobIds().collect(toList()), containsInAnyOrder(new BlobId("blob0"), new BlobId("late")));
+    assertThat(underTest.getAttributes(new BlobId("blob0")).getProperty("index"), is("0"));
+    assertThat(read(new BlobId("late")), is("late"));
+  }
+
+  @Test
+  public void corruptRecordIsTruncatedOnRestart() throws Exception {
+    BlobId blobId = new BlobId("a");
+    underTest.put(blobId, attributes("sha1", "abc"), content("hello"));
+    underTest.stop();
+
+    Path segment = blobDir.resolve(BlobSegmentStore.SEGMENTS_DIR).resolve("segment-000001.dat");
+    Files.write(segment, new byte[]{1, 2, 3, 4, 5, 6, 7, 8}, APPEND);
+
+    underTest.start();
+
+    assertThat(read(blobId), is("hello"));
+  }
+
+  @Test
+  public void openStreamSurvivesCompaction() throws Exception {
+    BlobId blobId = new BlobId("blob0");
+    for (int i = 0; i < 20; i++) {
+      underTest.put(new BlobId("blob" + i), attributes("index", "" + i), content(padded("content" + i)));
+    }
+    for (int i = 1; i < 20; i++) {
+      underTest.delete(new BlobId("blob" + i));
+    }
+
+    try (InputStream in = underTest.openInputStream(blobId)) {
+      assertThat(underTest.compact() > 0, is(true));
+      underTest.putAttributes(blobId, attributes("index", "updated"));
+      underTest.compact();
+
+      assertThat(IOUtils.toString(in, UTF_8), is(padded("content0")));
+    }
+    underTest.compact();
+    restart();
+
+    assertThat(read(blobId), is(padded("content0")));
+    assertThat(underTest.getAttributes(blobId).getProperty("index"), is("updated"));
+  }
+
+  private void restart() throws Exception {
+    underTest.stop();
+    underTest.start();
+  }
+
+  private String read(final BlobId blobId) throws Exception {
+    try (InputStream in = underTest.openInputStream(blobId)) {
+      return IOUtils.toString(in, UTF_8);
+    }
+  }
+
+  private Path content(final String content) throws Exception {
+    Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, content.getBytes(UTF_8));
+    return path;
+  }
+
+  private static String padded(final String content) {
+    return String.format("%-200s", content);
+  }
+
+  private static Properties attributes(final String key, final String value) {
+    Properties properties = new Properties();
+    properties.setProperty(key, value);
+    return properties;
+  }
+}
@@ -38,6 +38,14 @@ public class PerformanceLogger {
     this.blobStoreName = blobStoreName;
   }
 
+  /**
+   * @return {@code true} if reads should go through {@link #maybeWrapForPerformanceLogging(InputStream)} to be logged
+   * @since 3.next
+   */
+  public boolean isEnabled() {
+    return log.isDebugEnabled();
+  }
+
   public InputStream maybeWrapForPerformanceLogging(final InputStream inputStream) {
     if (log.isDebugEnabled()) {
       return new PerformanceLoggingInputStream(inputStream, this);
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.blobstore.group;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -22,6 +23,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.cache.Cache;
@@ -49,6 +51,8 @@ import org.sonatype.nexus.blobstore.api.OperationType;
 import org.sonatype.nexus.blobstore.api.RawObjectAccess;
 import org.sonatype.nexus.blobstore.api.UnimplementedRawObjectAccess;
 import org.sonatype.nexus.blobstore.api.metrics.BlobStoreMetricsService;
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupIndex;
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupIndexService;
 import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupMetrics;
 import org.sonatype.nexus.blobstore.group.internal.WriteToFirstMemberFillPolicy;
 import org.sonatype.nexus.blobstore.metrics.MonitoringBlobStoreMetrics;
@@ -116,6 +120,13 @@ public class BlobStoreGroup
   // cache of located blobs that have not been soft deleted
   private Cache<BlobId, String> locatedBlobs;
 
+  @Nullable
+  private BlobStoreGroupIndexService indexService;
+
+  // durable index of member locations, consulted when the cache misses
+  @Nullable
+  private BlobStoreGroupIndex index;
+
   @Inject
   public BlobStoreGroup(final BlobStoreManager blobStoreManager,
                         final Map<String, Provider<FillPolicy>> fillPolicyProviders,
@@ -127,6 +138,14 @@ public class BlobStoreGroup
     this.blobIdCacheTimeout = checkNotNull(blobIdCacheTimeout);
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setIndexService(final BlobStoreGroupIndexService indexService) {
+    this.indexService = indexService;
+  }
+
   @Override
   public void init(final BlobStoreConfiguration configuration) {
     this.blobStoreConfiguration = configuration;
@@ -145,6 +164,15 @@ public class BlobStoreGroup
   @Override
   protected void doStart() throws Exception {
     locatedBlobs = cacheHelperProvider.get().maybeCreateCache(CACHE_NAME, getCacheConfiguration());
+    if (indexService != null && indexService.isEnabled()) {
+      try {
+        index = indexService.open(blobStoreConfiguration.getName(), members);
+      }
+      catch (IOException e) {
+        log.warn("Unable to open blob index of {}, members will be searched for blobs",
+            blobStoreConfiguration.getName(), e);
+      }
+    }
   }
 
   private MutableConfiguration<BlobId, String> getCacheConfiguration() {
@@ -160,6 +188,10 @@ public class BlobStoreGroup
   @Override
   protected void doStop() throws Exception {
     locatedBlobs = null;
+    if (index != null) {
+      indexService.close(blobStoreConfiguration.getName(), index);
+      index = null;
+    }
   }
 
   @Override
@@ -199,17 +231,19 @@ public class BlobStoreGroup
       throw new BlobStoreException("Unable to find a member Blob Store of '" + this + "' for create", null);
     }
     Blob blob = createBlobFunction.create(result);
-    locatedBlobs.put(blob.getId(), result.getBlobStoreConfiguration().getName());
+    remember(blob.getId(), result.getBlobStoreConfiguration().getName());
     return blob;
   }
 
   @Override
   @Guarded(by = STARTED)
   public Blob copy(final BlobId blobId, final Map<String, String> headers) {
-    BlobStore target = locate(blobId)
-        .orElseThrow(() -> new BlobStoreException("Unable to find blob", blobId));
+    BlobStore target = getLocated(blobId, (BlobStore member) -> holding(member, blobId));
+    if (target == null) {
+      throw new BlobStoreException("Unable to find blob", blobId);
+    }
     Blob blob = target.copy(blobId, headers);
-    locatedBlobs.put(blob.getId(), target.getBlobStoreConfiguration().getName());
+    remember(blob.getId(), target.getBlobStoreConfiguration().getName());
     return blob;
   }
 
@@ -218,9 +252,7 @@ public class BlobStoreGroup
   @Guarded(by = STARTED)
   @MonitoringBlobStoreMetrics(operationType = DOWNLOAD)
   public Blob get(final BlobId blobId) {
-    return locate(blobId)
-        .map((BlobStore target) -> target.get(blobId))
-        .orElse(null);
+    return getLocated(blobId, (BlobStore target) -> target.get(blobId));
   }
 
   @Nullable
@@ -238,16 +270,38 @@ public class BlobStoreGroup
           .orElse(null);
     }
     else {
-      return locate(blobId)
-        .map((BlobStore target) -> target.get(blobId, false))
-        .orElse(null);
+      return getLocated(blobId, (BlobStore target) -> target.get(blobId, false));
+    }
+  }
+
+  /**
+   * Applies the getter to the member holding the blob. A {@code null} result from an indexed member that no longer has
+   * the blob is treated as a stale index entry, in which case the entry is dropped and the members are searched again;
+   * a blob that still exists there, such as a soft-deleted one, is a hit.
+   */
+  @Nullable
+  private <T> T getLocated(final BlobId blobId, final Function<BlobStore, T> getter) {
+    Optional<BlobStore> located = locate(blobId);
+    T result = located.map(getter).orElse(null);
+    if (result == null && index != null && index.contains(blobId)
+        && !located.map((BlobStore member) -> member.exists(blobId)).orElse(false)) {
+      // the index may be out of date, for example when another node moved the blob, so search again
+      log.debug("{} not found where indexed, searching members", blobId);
+      forget(blobId);
+      result = locate(blobId).map(getter).orElse(null);
     }
+    return result;
+  }
+
+  @Nullable
+  private BlobStore holding(final BlobStore member, final BlobId blobId) {
+    return member.exists(blobId) ? member : null;
   }
 
   @Override
   @Guarded(by = STARTED)
   public boolean delete(final BlobId blobId, final String reason) {
-    locatedBlobs.remove(blobId);
+    forget(blobId);
     List<BlobStore> locations = members.get().stream()
         .filter((BlobStore member) -> member.exists(blobId))
         .collect(toList());
@@ -264,7 +318,7 @@ public class BlobStoreGroup
   @Override
   @Guarded(by = STARTED)
   public boolean deleteHard(final BlobId blobId) {
-    locatedBlobs.remove(blobId);
+    forget(blobId);
     List<BlobStore> locations = members.get().stream()
         .filter((BlobStore member) -> member.exists(blobId))
         .collect(toList());
@@ -436,15 +490,15 @@ public class BlobStoreGroup
   @Nullable
   @Override
   public BlobAttributes getBlobAttributes(final BlobId blobId) {
-    return locate(blobId)
-        .map((BlobStore target) -> target.getBlobAttributes(blobId))
-        .orElse(null);
+    return getLocated(blobId, (BlobStore target) -> target.getBlobAttributes(blobId));
   }
 
   @Override
   public void setBlobAttributes(BlobId blobId, BlobAttributes blobAttributes) {
-    locate(blobId)
-        .ifPresent((BlobStore target) -> target.setBlobAttributes(blobId, blobAttributes));
+    BlobStore target = getLocated(blobId, (BlobStore member) -> holding(member, blobId));
+    if (target != null) {
+      target.setBlobAttributes(blobId, blobAttributes);
+    }
   }
 
   public List<BlobStore> getMembers() {
@@ -481,16 +535,59 @@ public class BlobStoreGroup
       return Optional.ofNullable(blobStoreManager.get(blobStoreName));
     }
 
+    BlobStore indexed = indexedMember(blobId);
+    if (indexed != null) {
+      log.trace("{} location was indexed as {}", blobId, indexed);
+      if (indexed.isWritable()) {
+        locatedBlobs.put(blobId, indexed.getBlobStoreConfiguration().getName());
+      }
+      return Optional.of(indexed);
+    }
+
     BlobStore blobStore = search(blobId);
-    if (blobStore != null && blobStore.isWritable()) {
+    if (blobStore != null) {
       String memberName = blobStore.getBlobStoreConfiguration().getName();
-      log.trace("Caching {} in member {}", blobId, memberName);
-      locatedBlobs.put(blobId, memberName);
+      if (index != null) {
+        index.put(blobId, memberName);
+      }
+      if (blobStore.isWritable()) {
+        log.trace("Caching {} in member {}", blobId, memberName);
+        locatedBlobs.put(blobId, memberName);
+      }
     }
 
     return Optional.ofNullable(blobStore);
   }
 
+  /**
+   * Returns the member the index says holds the blob, provided it is still a member of this group.
+   */
+  @Nullable
+  private BlobStore indexedMember(final BlobId blobId) {
+    String memberName = index != null ? index.get(blobId) : null;
+    if (memberName == null) {
+      return null;
+    }
+    return members.get().stream()
+        .filter((BlobStore member) -> memberName.equals(member.getBlobStoreConfiguration().getName()))
+        .findFirst()
+        .orElse(null);
+  }
+
+  private void remember(final BlobId blobId, final String memberName) {
+    locatedBlobs.put(blobId, memberName);
+    if (index != null) {
+      index.put(blobId, memberName);
+    }
+  }
+
+  private void forget(final BlobId blobId) {
+    locatedBlobs.remove(blobId);
+    if (index != null) {
+      index.remove(blobId);
+    }
+  }
+
   private BlobStore search(BlobId blobId) {
     log.trace("Searching for {} in {}", blobId, members);
     return members.get().stream()
@@ -0,0 +1,177 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Compact map from 64-bit blob id hashes to member ordinals, used by {@link BlobStoreGroupIndex} so that large groups
+ * take about nine bytes per slot instead of a pair of strings per blob.
+ *
+ * Keys must be non-zero and ordinals between 1 and 255; {@code 0} means "absent". The table uses linear probing with
+ * backward-shift deletion and holds at most {@code maxEntries} entries. It is not thread-safe, callers synchronize.
+ *
+ * @since 3.next
+ */
+class BlobLocationTable
+{
+  /**
+   * Callback for {@link #forEach(EntryConsumer)}.
+   */
+  interface EntryConsumer
+  {
+    void accept(long key, int ordinal) throws IOException;
+  }
+
+  private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final int maxEntries;
+
+  private long[] keys;
+
+  private byte[] ordinals;
+
+  private int size;
+
+  BlobLocationTable(final int maxEntries) {
+    checkArgument(maxEntries > 0 && maxEntries <= MAXIMUM_CAPACITY / 4 * 3, "Invalid maximum entries: %s", maxEntries);
+    this.maxEntries = maxEntries;
+    allocate(INITIAL_CAPACITY);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isFull() {
+    return size >= maxEntries;
+  }
+
+  /**
+   * @return ordinal stored for the key, {@code 0} if absent
+   */
+  int get(final long key) {
+    int slot = find(key);
+    return slot < 0 ? 0 : ordinals[slot] & 0xFF;
+  }
+
+  /**
+   * @return previous ordinal of the key, {@code 0} if it was absent, or {@code -1} if the table is full
+   */
+  int put(final long key, final int ordinal) {
+    checkArgument(key != 0, "Zero key");
+    checkArgument(ordinal > 0 && ordinal <= 0xFF, "Invalid ordinal: %s", ordinal);
+    int mask = keys.length - 1;
+    int slot = home(key, mask);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        int previous = ordinals[slot] & 0xFF;
+        ordinals[slot] = (byte) ordinal;
+        return previous;
+      }
+      slot = (slot + 1) & mask;
+    }
+    if (isFull()) {
+      return -1;
+    }
+    keys[slot] = key;
+    ordinals[slot] = (byte) ordinal;
+    size++;
+    if (size > keys.length / 4 * 3) {
+      resize(keys.length * 2);
+    }
+    return 0;
+  }
+
+  /**
+   * @return previous ordinal of the key, {@code 0} if it was absent
+   */
+  int remove(final long key) {
+    int gap = find(key);
+    if (gap < 0) {
+      return 0;
+    }
+    int previous = ordinals[gap] & 0xFF;
+    int mask = keys.length - 1;
+    // shift back later entries of the probe sequence that may no longer be reachable past the gap
+    for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+      int home = home(keys[next], mask);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        ordinals[gap] = ordinals[next];
+        gap = next;
+      }
+    }
+    keys[gap] = 0;
+    ordinals[gap] = 0;
+    size--;
+    return previous;
+  }
+
+  void clear() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  void forEach(final EntryConsumer consumer) throws IOException {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (keys[slot] != 0) {
+        consumer.accept(keys[slot], ordinals[slot] & 0xFF);
+      }
+    }
+  }
+
+  private int find(final long key) {
+    int mask = keys.length - 1;
+    for (int slot = home(key, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private void resize(final int capacity) {
+    if (capacity > MAXIMUM_CAPACITY) {
+      return;
+    }
+    long[] oldKeys = keys;
+    byte[] oldOrdinals = ordinals;
+    keys = new long[capacity];
+    ordinals = new byte[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = home(oldKeys[i], mask);
+        while (keys[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        ordinals[slot] = oldOrdinals[i];
+      }
+    }
+  }
+
+  private void allocate(final int capacity) {
+    keys = new long[capacity];
+    ordinals = new byte[capacity];
+    size = 0;
+  }
+
+  private static int home(final long key, final int mask) {
+    return (int) (key ^ (key >>> 32)) & mask;
+  }
+}
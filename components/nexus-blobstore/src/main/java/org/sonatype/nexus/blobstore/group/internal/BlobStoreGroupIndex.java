@@ -0,0 +1,419 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+
+import com.codahale.metrics.Counter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Durable index of which member of a blob store group holds each blob.
+ *
+ * The index is kept in memory as a {@link BlobLocationTable} of 64-bit blob id hashes and member ordinals, and holds
+ * at most {@code maxEntries} blobs; further blobs are not indexed. It is persisted as an append-only log of additions
+ * ({@code +blobId<TAB>member}) and removals ({@code -blobId}), which is compacted into a snapshot of hashed entries
+ * ({@code =hash<TAB>member}) after a rebuild, and whenever it has grown well beyond the number of live entries. A
+ * snapshot written after a complete rebuild starts with {@value #COMPLETE_MARKER}. The log is flushed at most once per
+ * flush interval, so a crash can lose the latest changes; that only makes the hint less accurate.
+ *
+ * The index is a hint: other nodes may change members without updating this node's index, and ids with colliding
+ * hashes share an entry, so callers must still search the members when the index has no entry or a wrong one.
+ *
+ * @since 3.next
+ */
+public class BlobStoreGroupIndex
+    extends ComponentSupport
+{
+  @VisibleForTesting
+  static final String COMPLETE_MARKER = "#complete";
+
+  public static final int DEFAULT_MAX_ENTRIES = 10_000_000;
+
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private static final int MAX_MEMBERS = 0xFF;
+
+  private static final int COMPACT_SLACK = 1000;
+
+  private final Path file;
+
+  private final long flushIntervalMillis;
+
+  private final BlobLocationTable locations;
+
+  /**
+   * Names of the members, the ordinal of a member is its position plus one.
+   */
+  private final List<String> memberNames = new ArrayList<>();
+
+  private final Counter hits = new Counter();
+
+  private final Counter misses = new Counter();
+
+  @Nullable
+  private Writer journal;
+
+  private long logEntries;
+
+  private long lastFlush;
+
+  private boolean complete;
+
+  private boolean warnedFull;
+
+  /**
+   * Hashes of blobs removed while a rebuild is running, which the rebuild must not add back.
+   */
+  @Nullable
+  private Set<Long> removedDuringRebuild;
+
+  public BlobStoreGroupIndex(final Path file) {
+    this(file, 0);
+  }
+
+  public BlobStoreGroupIndex(final Path file, final long flushIntervalMillis) {
+    this(file, flushIntervalMillis, DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * @param flushIntervalMillis minimum time between flushes of the log, {@code 0} to flush every change
+   * @param maxEntries          maximum number of blobs held in memory
+   */
+  public BlobStoreGroupIndex(final Path file, final long flushIntervalMillis, final int maxEntries) {
+    this.file = checkNotNull(file);
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.locations = new BlobLocationTable(maxEntries);
+  }
+
+  /**
+   * Loads the index from disk, compacting the log if needed.
+   */
+  public synchronized void open() throws IOException {
+    locations.clear();
+    logEntries = 0;
+    complete = false;
+    if (Files.exists(file)) {
+      try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          replay(line);
+        }
+      }
+    }
+    if (needsCompaction()) {
+      compact();
+    }
+    journal = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND);
+  }
+
+  /**
+   * Flushes changes that have not been written to disk yet.
+   */
+  public synchronized void flush() throws IOException {
+    if (journal != null) {
+      journal.flush();
+      lastFlush = System.currentTimeMillis();
+    }
+  }
+
+  public synchronized void close() throws IOException {
+    if (journal != null) {
+      journal.close();
+      journal = null;
+    }
+  }
+
+  /**
+   * Has the index been filled from the members' blobs at least once?
+   */
+  public synchronized boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * @return name of the member holding the blob, or {@code null} if not indexed
+   */
+  @Nullable
+  public String get(final BlobId blobId) {
+    long key = hash(blobId.asUniqueString());
+    String member;
+    synchronized (this) {
+      member = memberName(locations.get(key));
+    }
+    if (member != null) {
+      hits.inc();
+    }
+    else {
+      misses.inc();
+    }
+    return member;
+  }
+
+  /**
+   * Is the blob indexed? Unlike {@link #get(BlobId)} this is not counted as a lookup.
+   */
+  public boolean contains(final BlobId blobId) {
+    long key = hash(blobId.asUniqueString());
+    synchronized (this) {
+      return locations.get(key) != 0;
+    }
+  }
+
+  public synchronized void put(final BlobId blobId, final String memberName) {
+    String id = blobId.asUniqueString();
+    int ordinal = ordinal(memberName);
+    if (ordinal == 0) {
+      return;
+    }
+    int previous = locations.put(hash(id), ordinal);
+    if (previous < 0) {
+      warnFull();
+    }
+    else if (previous != ordinal) {
+      append('+' + id + '\t' + memberName);
+    }
+  }
+
+  public synchronized void remove(final BlobId blobId) {
+    String id = blobId.asUniqueString();
+    long key = hash(id);
+    if (removedDuringRebuild != null) {
+      removedDuringRebuild.add(key);
+    }
+    if (locations.remove(key) != 0) {
+      append('-' + id);
+    }
+  }
+
+  public synchronized int size() {
+    return locations.size();
+  }
+
+  public Counter getHits() {
+    return hits;
+  }
+
+  public Counter getMisses() {
+    return misses;
+  }
+
+  /**
+   * Adds every blob of the given members to the index, then writes a compacted snapshot. Changes made while the
+   * rebuild runs take precedence over what the members reported.
+   */
+  public void rebuild(final List<BlobStore> members) throws IOException {
+    synchronized (this) {
+      removedDuringRebuild = new HashSet<>();
+    }
+    try {
+      for (BlobStore member : members) {
+        String memberName = member.getBlobStoreConfiguration().getName();
+        int ordinal;
+        synchronized (this) {
+          ordinal = ordinal(memberName);
+        }
+        if (ordinal == 0) {
+          continue;
+        }
+        log.info("Indexing blobs of group member {}", memberName);
+        try (Stream<BlobId> blobIds = member.getBlobIdStream()) {
+          blobIds.map(blobId -> hash(blobId.asUniqueString())).forEach(key -> {
+            synchronized (this) {
+              if (!removedDuringRebuild.contains(key) && locations.get(key) == 0 && locations.put(key, ordinal) < 0) {
+                warnFull();
+              }
+            }
+          });
+        }
+      }
+      synchronized (this) {
+        complete = true;
+        compactJournal();
+      }
+      log.info("Indexed {} blobs in {}", size(), file);
+    }
+    finally {
+      synchronized (this) {
+        removedDuringRebuild = null;
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static long hash(final String id) {
+    long hash = HASH.hashString(id, UTF_8).asLong();
+    return hash != 0 ? hash : 1; // zero marks empty slots
+  }
+
+  @Nullable
+  private String memberName(final int ordinal) {
+    return ordinal != 0 ? memberNames.get(ordinal - 1) : null;
+  }
+
+  /**
+   * @return ordinal of the member, assigning one if needed, or {@code 0} if there are too many members to index
+   */
+  private int ordinal(final String memberName) {
+    int position = memberNames.indexOf(memberName);
+    if (position < 0) {
+      if (memberNames.size() >= MAX_MEMBERS) {
+        log.warn("Too many members in {}, blobs of {} are not indexed", file, memberName);
+        return 0;
+      }
+      memberNames.add(memberName);
+      position = memberNames.size() - 1;
+    }
+    return position + 1;
+  }
+
+  private void warnFull() {
+    if (!warnedFull) {
+      warnedFull = true;
+      log.warn("Blob store group index {} is full, further blobs will be found by searching the members", file);
+    }
+  }
+
+  private void replay(final String line) {
+    if (line.isEmpty()) {
+      return;
+    }
+    logEntries++;
+    switch (line.charAt(0)) {
+      case '#':
+        complete = complete || COMPLETE_MARKER.equals(line);
+        break;
+      case '+':
+      case '=':
+        int tab = line.indexOf('\t');
+        if (tab > 1) {
+          replayPut(line.charAt(0) == '=' ? parseHash(line.substring(1, tab)) : hash(line.substring(1, tab)),
+              line.substring(tab + 1));
+        }
+        break;
+      case '-':
+        locations.remove(hash(line.substring(1)));
+        break;
+      default:
+        log.debug("Ignoring unexpected line in {}: {}", file, line);
+    }
+  }
+
+  private void replayPut(final long key, final String memberName) {
+    int ordinal = ordinal(memberName);
+    if (key != 0 && ordinal != 0 && locations.put(key, ordinal) < 0) {
+      warnFull();
+    }
+  }
+
+  private long parseHash(final String value) {
+    try {
+      return Long.parseUnsignedLong(value, 16);
+    }
+    catch (NumberFormatException e) {
+      log.debug("Ignoring unexpected hash in {}: {}", file, value);
+      return 0;
+    }
+  }
+
+  /**
+   * Appends a change to the log; callers hold the index lock so the log order matches the order of changes.
+   */
+  private void append(final String line) {
+    if (journal == null) {
+      return; // not open
+    }
+    try {
+      journal.write(line);
+      journal.write('\n');
+      logEntries++;
+      if (needsCompaction()) {
+        compactJournal();
+      }
+      else {
+        long now = System.currentTimeMillis();
+        if (now - lastFlush >= flushIntervalMillis) {
+          journal.flush();
+          lastFlush = now;
+        }
+      }
+    }
+    catch (IOException e) {
+      log.warn("Unable to update blob store group index {}", file, e);
+    }
+  }
+
+  /**
+   * Has the log grown well beyond the number of live entries?
+   */
+  private boolean needsCompaction() {
+    return logEntries > 2L * locations.size() + COMPACT_SLACK;
+  }
+
+  /**
+   * Compacts the log, keeping it open for further changes if it was open.
+   */
+  private void compactJournal() throws IOException {
+    boolean open = journal != null;
+    close();
+    compact();
+    if (open) {
+      journal = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND);
+      lastFlush = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Replaces the log with a snapshot of the current entries.
+   */
+  private void compact() throws IOException {
+    Path snapshot = file.resolveSibling(file.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(snapshot, UTF_8)) {
+      if (complete) {
+        writer.write(COMPLETE_MARKER);
+        writer.write('\n');
+      }
+      locations.forEach((key, ordinal) -> {
+        writer.write('=' + Long.toHexString(key) + '\t' + memberName(ordinal));
+        writer.write('\n');
+      });
+    }
+    Files.move(snapshot, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    logEntries = locations.size() + (complete ? 1 : 0);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Arrays.asList;
+
+/**
+ * Opens the {@link BlobStoreGroupIndex} of each blob store group and fills incomplete indexes in the background.
+ *
+ * Indexes are stored under {@code blobstore-group-index} in the work directory. Index hits, misses and size are
+ * published as metrics under {@code nexus.blobstore.group.<group>.index}. Index changes are flushed to disk at most
+ * once per {@code nexus.blobstore.group.index.flushInterval}, and each index holds at most
+ * {@code nexus.blobstore.group.index.maxEntries} blobs in memory, about 15 bytes each.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class BlobStoreGroupIndexService
+    extends ComponentSupport
+{
+  private static final String METRIC_PREFIX = "nexus.blobstore.group";
+
+  private final boolean enabled;
+
+  private final Path directory;
+
+  private final long flushIntervalMillis;
+
+  private final int maxEntries;
+
+  private final ThreadPoolExecutor rebuildExecutor;
+
+  @Nullable
+  private MetricRegistry metricRegistry;
+
+  @Inject
+  public BlobStoreGroupIndexService(
+      final ApplicationDirectories applicationDirectories,
+      @Named("${nexus.blobstore.group.index.enabled:-false}") final boolean enabled,
+      @Named("${nexus.blobstore.group.index.flushInterval:-1s}") final Time flushInterval,
+      @Named("${nexus.blobstore.group.index.maxEntries:-10000000}") final int maxEntries)
+  {
+    this(applicationDirectories.getWorkDirectory("blobstore-group-index").toPath(), enabled, flushInterval.toMillis(),
+        maxEntries);
+  }
+
+  @VisibleForTesting
+  BlobStoreGroupIndexService(
+      final Path directory,
+      final boolean enabled,
+      final long flushIntervalMillis,
+      final int maxEntries)
+  {
+    this.directory = checkNotNull(directory);
+    this.enabled = enabled;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxEntries = maxEntries;
+    this.rebuildExecutor = new ThreadPoolExecutor(
+        1,
+        1,
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new NexusThreadFactory("blobstore-group-index", "blobstore-group-index"));
+    this.rebuildExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Opens the index of the named group. If the index has never been filled, it is filled from the group's members in
+   * the background.
+   */
+  public BlobStoreGroupIndex open(final String groupName, final Supplier<List<BlobStore>> members) throws IOException {
+    Files.createDirectories(directory);
+    BlobStoreGroupIndex index = new BlobStoreGroupIndex(directory.resolve(groupName + ".idx"), flushIntervalMillis,
+        maxEntries);
+    index.open();
+    registerMetrics(groupName, index);
+
+    if (!index.isComplete()) {
+      rebuildExecutor.execute(() -> {
+        try {
+          index.rebuild(members.get());
+        }
+        catch (Exception e) {
+          log.warn("Unable to index blobs of group {}, members will be searched for unindexed blobs", groupName, e);
+        }
+      });
+    }
+    return index;
+  }
+
+  public void close(final String groupName, final BlobStoreGroupIndex index) {
+    unregisterMetrics(groupName);
+    try {
+      index.close();
+    }
+    catch (IOException e) {
+      log.warn("Unable to close index of group {}", groupName, e);
+    }
+  }
+
+  private void registerMetrics(final String groupName, final BlobStoreGroupIndex index) {
+    if (metricRegistry != null) {
+      unregisterMetrics(groupName);
+      metricRegistry.register(name(METRIC_PREFIX, groupName, "index", "hits"), index.getHits());
+      metricRegistry.register(name(METRIC_PREFIX, groupName, "index", "misses"), index.getMisses());
+      metricRegistry.register(name(METRIC_PREFIX, groupName, "index", "size"), (Gauge<Integer>) index::size);
+    }
+  }
+
+  private void unregisterMetrics(final String groupName) {
+    if (metricRegistry != null) {
+      for (String metric : asList("hits", "misses", "size")) {
+        metricRegistry.remove(name(METRIC_PREFIX, groupName, "index", metric));
+      }
+    }
+  }
+}
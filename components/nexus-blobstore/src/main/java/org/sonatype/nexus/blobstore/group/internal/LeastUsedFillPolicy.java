@@ -0,0 +1,66 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal;
+
+import java.util.Comparator;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.group.BlobStoreGroup;
+import org.sonatype.nexus.blobstore.group.FillPolicy;
+
+/**
+ * {@link FillPolicy} that writes to the member currently storing the fewest bytes, so members fill evenly by size
+ * rather than by number of blobs.
+ *
+ * @since 3.next
+ */
+@Named(LeastUsedFillPolicy.TYPE)
+public class LeastUsedFillPolicy
+    extends ComponentSupport
+    implements FillPolicy
+{
+  public static final String TYPE = "leastUsed";
+
+  private static final String NAME = "Least Used";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  @Nullable
+  public BlobStore chooseBlobStore(final BlobStoreGroup blobStoreGroup, final Map<String, String> headers) {
+    return blobStoreGroup
+        .getMembers().stream()
+        .filter(BlobStore::isWritable)
+        .filter(BlobStore::isStorageAvailable)
+        .min(Comparator.comparingLong(this::totalSize))
+        .orElse(null);
+  }
+
+  private long totalSize(final BlobStore member) {
+    try {
+      return member.getMetrics().getTotalSize();
+    }
+    catch (Exception e) {
+      log.debug("Unable to get size of {}, not preferring it", member, e);
+      return Long.MAX_VALUE;
+    }
+  }
+}
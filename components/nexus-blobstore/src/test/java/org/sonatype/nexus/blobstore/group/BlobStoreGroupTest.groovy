@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.blobstore.group
 
+import java.nio.file.Files
 import java.util.concurrent.TimeUnit
 
 import javax.cache.Cache
@@ -25,6 +26,8 @@ import org.sonatype.nexus.blobstore.api.BlobId
 import org.sonatype.nexus.blobstore.api.BlobStore
 import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration
 import org.sonatype.nexus.blobstore.api.BlobStoreManager
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupIndex
+import org.sonatype.nexus.blobstore.group.internal.BlobStoreGroupIndexService
 import org.sonatype.nexus.blobstore.group.internal.WriteToFirstMemberFillPolicy
 import org.sonatype.nexus.cache.CacheHelper
 
@@ -298,6 +301,70 @@ class BlobStoreGroupTest
       'in_both'      || false // not deleted from two
   }
 
+  def 'Copy searches the members when the index is out of date'() {
+    given: 'A group whose index places a blob in the wrong member'
+      config.attributes = [group: [members: ['one', 'two'], fillPolicy: 'test']]
+      def blobId = new BlobId('moved')
+      def index = new BlobStoreGroupIndex(Files.createTempDirectory('blobstore-group-index').resolve('group.idx'))
+      index.open()
+      index.put(blobId, 'one')
+      blobStore.indexService = Mock(BlobStoreGroupIndexService) {
+        isEnabled() >> true
+        open(_, _) >> index
+      }
+      blobStore.init(config)
+      blobStore.doStart()
+      blobStoreManager.get('one') >> one
+      blobStoreManager.get('two') >> two
+      one.exists(blobId) >> false
+      two.exists(blobId) >> true
+      Blob copied = Mock() {
+        getId() >> new BlobId('copied')
+      }
+
+    when: 'the blob is copied'
+      def result = blobStore.copy(blobId, [:])
+
+    then: 'the member holding the blob makes the copy'
+      0 * one.copy(_, _)
+      1 * two.copy(blobId, [:]) >> copied
+      result == copied
+
+    and: 'the index is corrected'
+      index.get(blobId) == 'two'
+      index.get(new BlobId('copied')) == 'two'
+  }
+
+  def 'Soft-deleted blobs in the indexed member are index hits'() {
+    given: 'A group whose index places a soft-deleted blob in its member'
+      config.attributes = [group: [members: ['one', 'two'], fillPolicy: 'test']]
+      def blobId = new BlobId('soft-deleted')
+      def index = new BlobStoreGroupIndex(Files.createTempDirectory('blobstore-group-index').resolve('group.idx'))
+      index.open()
+      index.put(blobId, 'one')
+      blobStore.indexService = Mock(BlobStoreGroupIndexService) {
+        isEnabled() >> true
+        open(_, _) >> index
+      }
+      blobStore.init(config)
+      blobStore.doStart()
+      blobStoreManager.get('one') >> one
+      blobStoreManager.get('two') >> two
+      one.get(blobId) >> null
+      one.exists(blobId) >> true
+
+    when: 'the blob is read'
+      def result = blobStore.get(blobId)
+
+    then: 'the members are not searched again'
+      result == null
+      0 * two.exists(blobId)
+
+    and: 'the index entry is kept'
+      index.contains(blobId)
+      index.get(blobId) == 'one'
+  }
+
   def 'fall back on default fill policy if named policy not found'() {
     given: 'a config with a bad fill policy name'
       config.attributes = [group: [members: ['one', 'two'], fillPolicy: 'nosuch']]
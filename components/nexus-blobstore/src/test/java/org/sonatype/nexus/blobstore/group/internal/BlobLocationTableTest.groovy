@@ -0,0 +1,51 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal
+
+import spock.lang.Specification
+
+/**
+ * Tests {@link BlobLocationTable}.
+ */
+class BlobLocationTableTest
+    extends Specification
+{
+  def 'Removing entries keeps colliding entries reachable'() {
+    given: 'a table with entries that probe the same slots'
+      def table = new BlobLocationTable(100)
+      def keys = (1..20).collect { 7L + it * 1024L }
+      keys.eachWithIndex { key, i -> table.put(key, i + 1) }
+
+    when: 'every other entry is removed'
+      keys.eachWithIndex { key, i -> if (i % 2 == 0) { assert table.remove(key) == i + 1 } }
+
+    then: 'the remaining entries are still found'
+      table.size() == 10
+      keys.withIndex().every { key, i -> table.get(key) == (i % 2 ? i + 1 : 0) }
+  }
+
+  def 'The table grows and stops at its maximum size'() {
+    given: 'a table limited to 5000 entries'
+      def table = new BlobLocationTable(5000)
+
+    when: 'more entries are added'
+      def results = (1L..6000L).collect { table.put(it, 1) }
+
+    then: 'entries beyond the limit are rejected, existing ones can still change'
+      results.count { it == -1 } == 1000
+      table.size() == 5000
+      table.put(1L, 2) == 1
+      table.get(1L) == 2
+      table.get(5001L) == 0
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+import org.sonatype.nexus.blobstore.api.BlobId
+import org.sonatype.nexus.blobstore.api.BlobStore
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration
+
+import spock.lang.Specification
+
+/**
+ * Tests {@link BlobStoreGroupIndex}.
+ */
+class BlobStoreGroupIndexTest
+    extends Specification
+{
+  Path file
+
+  def setup() {
+    file = Files.createTempDirectory('blobstore-group-index').resolve('group.idx')
+  }
+
+  def 'Changes survive reopening the index'() {
+    given: 'an index with some changes'
+      def index = new BlobStoreGroupIndex(file)
+      index.open()
+      index.put(new BlobId('a'), 'one')
+      index.put(new BlobId('b'), 'two')
+      index.put(new BlobId('a'), 'two')
+      index.remove(new BlobId('b'))
+      index.close()
+
+    when: 'the index is reopened'
+      def reopened = new BlobStoreGroupIndex(file)
+      reopened.open()
+
+    then: 'the latest locations are restored'
+      reopened.get(new BlobId('a')) == 'two'
+      reopened.get(new BlobId('b')) == null
+      reopened.size() == 1
+      !reopened.complete
+      reopened.hits.count == 1
+      reopened.misses.count == 1
+  }
+
+  def 'Rebuild indexes member blobs without undoing concurrent changes'() {
+    given: 'an index where a blob has been moved'
+      def index = new BlobStoreGroupIndex(file)
+      index.open()
+      index.put(new BlobId('moved'), 'two')
+
+    when: 'the index is rebuilt from the members, while a blob is deleted'
+      def deleting = { BlobId blobId ->
+        if (blobId.asUniqueString() == 'a') {
+          index.remove(new BlobId('deleted'))
+        }
+        blobId
+      }
+      index.rebuild([
+          mockMember('one', ['a', 'moved', 'deleted'], deleting),
+          mockMember('two', ['b'])
+      ])
+      index.close()
+      def reopened = new BlobStoreGroupIndex(file)
+      reopened.open()
+
+    then: 'all blobs are indexed and the rebuild is remembered'
+      reopened.complete
+      reopened.get(new BlobId('a')) == 'one'
+      reopened.get(new BlobId('b')) == 'two'
+      reopened.get(new BlobId('moved')) == 'two'
+      reopened.get(new BlobId('deleted')) == null
+  }
+
+  def 'Changes are flushed at most once per interval and on close'() {
+    given: 'an index that flushes rarely'
+      def index = new BlobStoreGroupIndex(file, 60_000L)
+      index.open()
+
+    when: 'several changes are made'
+      index.put(new BlobId('a'), 'one')
+      index.put(new BlobId('b'), 'one')
+      index.put(new BlobId('c'), 'two')
+
+    then: 'only the first change has been flushed'
+      Files.readAllLines(file) == ['+a\tone']
+
+    when: 'the index is closed'
+      index.close()
+
+    then: 'every change is on disk'
+      Files.readAllLines(file) == ['+a\tone', '+b\tone', '+c\ttwo']
+  }
+
+  def 'The log is compacted once it grows well beyond the live entries'() {
+    given: 'an open index'
+      def index = new BlobStoreGroupIndex(file)
+      index.open()
+
+    when: 'a blob is moved back and forth many times'
+      (1..1100).each { index.put(new BlobId('a'), it % 2 ? 'one' : 'two') }
+
+    then: 'the log has been replaced by a snapshot and later changes'
+      Files.readAllLines(file).size() < 1000
+      Files.readAllLines(file).any { it.startsWith('=') }
+
+    when: 'the index is reopened'
+      index.close()
+      def reopened = new BlobStoreGroupIndex(file)
+      reopened.open()
+
+    then: 'the latest location is restored'
+      reopened.get(new BlobId('a')) == 'two'
+      reopened.size() == 1
+  }
+
+  def 'A full index stops adding blobs but keeps updating indexed ones'() {
+    given: 'an index limited to two blobs'
+      def index = new BlobStoreGroupIndex(file, 0, 2)
+      index.open()
+      index.put(new BlobId('a'), 'one')
+      index.put(new BlobId('b'), 'one')
+
+    when: 'more blobs are added and an indexed blob moves'
+      index.put(new BlobId('c'), 'one')
+      index.put(new BlobId('a'), 'two')
+
+    then: 'only the indexed blobs are tracked'
+      index.size() == 2
+      index.get(new BlobId('a')) == 'two'
+      index.get(new BlobId('c')) == null
+
+    when: 'an indexed blob is removed'
+      index.remove(new BlobId('b'))
+      index.put(new BlobId('c'), 'one')
+
+    then: 'there is room again'
+      index.get(new BlobId('c')) == 'one'
+  }
+
+  private BlobStore mockMember(final String name, final List<String> blobIds, final Closure onEach = { it }) {
+    Mock(BlobStore) {
+      getBlobStoreConfiguration() >> Mock(BlobStoreConfiguration) { getName() >> name }
+      getBlobIdStream() >> blobIds.stream().map { onEach(new BlobId(it)) }
+    }
+  }
+}
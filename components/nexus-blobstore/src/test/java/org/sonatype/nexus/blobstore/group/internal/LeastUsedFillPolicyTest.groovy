@@ -0,0 +1,87 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.group.internal
+
+import org.sonatype.nexus.blobstore.api.BlobStore
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration
+import org.sonatype.nexus.blobstore.api.BlobStoreMetrics
+import org.sonatype.nexus.blobstore.group.BlobStoreGroup
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+/**
+ * Tests {@link LeastUsedFillPolicy}.
+ */
+class LeastUsedFillPolicyTest
+    extends Specification
+{
+  LeastUsedFillPolicy underTest = new LeastUsedFillPolicy()
+
+  @Unroll
+  def 'It will choose the smallest available and writable member'() {
+    given: 'A group with 3 members'
+      BlobStoreGroup blobStoreGroup = Mock() {
+        getMembers() >> [
+            mockMember('one', 100L, available, writable),
+            mockMember('two', 200L, true, true),
+            mockMember('three', 300L, true, true),
+        ]
+      }
+    when: 'the policy tries to select the blob store member'
+      def blobStore = underTest.chooseBlobStore(blobStoreGroup, [:])
+    then:
+      blobStore.blobStoreConfiguration.name == name
+
+    where:
+      available | writable | name
+      false     | false    | 'two'
+      false     | true     | 'two'
+      true      | false    | 'two'
+      true      | true     | 'one'
+  }
+
+  def 'It will not prefer members whose size is unknown'() {
+    given: 'A group where the smallest member cannot report its size'
+      BlobStore broken = Mock(BlobStore) {
+        isStorageAvailable() >> true
+        isWritable() >> true
+        getMetrics() >> { throw new IllegalStateException('unavailable') }
+      }
+      BlobStoreGroup blobStoreGroup = Mock() {
+        getMembers() >> [broken, mockMember('two', 200L, true, true)]
+      }
+    when: 'the policy tries to select the blob store member'
+      def blobStore = underTest.chooseBlobStore(blobStoreGroup, [:])
+    then:
+      blobStore.blobStoreConfiguration.name == 'two'
+  }
+
+  def 'It will return null when no member is writable'() {
+    given: 'A group without writable members'
+      BlobStoreGroup blobStoreGroup = Mock() {
+        getMembers() >> [mockMember('one', 100L, true, false)]
+      }
+    expect:
+      underTest.chooseBlobStore(blobStoreGroup, [:]) == null
+  }
+
+  private BlobStore mockMember(final String name, final long size, final boolean available, final boolean writable) {
+    Mock(BlobStore) {
+      isStorageAvailable() >> available
+      isWritable() >> writable
+      getBlobStoreConfiguration() >> Mock(BlobStoreConfiguration) { getName() >> name }
+      getMetrics() >> Mock(BlobStoreMetrics) { getTotalSize() >> size }
+    }
+  }
+}
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.cleanup.content.search;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.sonatype.nexus.cleanup.storage.CleanupPolicy;
@@ -22,6 +23,8 @@ import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.query.QueryOptions;
 
+import static java.util.stream.Collectors.toList;
+
 /**
  * Finds components to be cleaned up.
  *
@@ -37,6 +40,24 @@ public interface CleanupComponentBrowse
 
   Stream<FluentComponent> browse(CleanupPolicy policy, Repository repository);
 
+  /**
+   * Finds components to be cleaned up by any of the given policies.
+   *
+   * The default implementation browses the repository once per policy and merges the results by component id,
+   * dropping components found by more than one policy. This relies on {@link #browse(CleanupPolicy, Repository)}
+   * returning components ordered by id, as continuation browses do.
+   *
+   * @since 3.next
+   */
+  default Stream<FluentComponent> browse(final List<CleanupPolicy> policies, final Repository repository) {
+    if (policies.size() == 1) {
+      return browse(policies.get(0), repository);
+    }
+    return DistinctComponentMerge.merge(policies.stream()
+        .map(policy -> browse(policy, repository))
+        .collect(toList()));
+  }
+
   Stream<FluentComponent> browseIncludingAssets(CleanupPolicy policy, Repository repository);
 
   /**
@@ -0,0 +1,94 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.content.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
+
+/**
+ * Merges streams of components ordered by id into one stream ordered by id, dropping duplicates.
+ *
+ * Only the next component of each stream is held, rather than every component seen so far.
+ *
+ * @since 3.next
+ */
+class DistinctComponentMerge
+    extends AbstractIterator<FluentComponent>
+{
+  private static final Comparator<PeekingIterator<FluentComponent>> BY_NEXT_ID =
+      Comparator.comparingInt(head -> internalComponentId(head.peek()));
+
+  private final List<Iterator<FluentComponent>> sources;
+
+  private PriorityQueue<PeekingIterator<FluentComponent>> heads;
+
+  private DistinctComponentMerge(final List<Iterator<FluentComponent>> sources) {
+    this.sources = checkNotNull(sources);
+  }
+
+  /**
+   * @param streams streams of components, each ordered by id; closing the result closes them all
+   */
+  static Stream<FluentComponent> merge(final List<Stream<FluentComponent>> streams) {
+    List<Iterator<FluentComponent>> sources = new ArrayList<>(streams.size());
+    streams.forEach(stream -> sources.add(stream.iterator()));
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new DistinctComponentMerge(sources),
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+        .onClose(() -> streams.forEach(Stream::close));
+  }
+
+  @Override
+  protected FluentComponent computeNext() {
+    if (heads == null) {
+      // sources are only started once the merged stream is consumed
+      heads = new PriorityQueue<>(Math.max(sources.size(), 1), BY_NEXT_ID);
+      sources.forEach(source -> offer(Iterators.peekingIterator(source)));
+    }
+    PeekingIterator<FluentComponent> head = heads.poll();
+    if (head == null) {
+      return endOfData();
+    }
+    FluentComponent next = head.next();
+    offer(head);
+
+    int id = internalComponentId(next);
+    while (!heads.isEmpty() && internalComponentId(heads.peek().peek()) == id) {
+      PeekingIterator<FluentComponent> duplicate = heads.poll();
+      duplicate.next();
+      offer(duplicate);
+    }
+    return next;
+  }
+
+  private void offer(final PeekingIterator<FluentComponent> head) {
+    if (head.hasNext()) {
+      heads.add(head);
+    }
+  }
+}
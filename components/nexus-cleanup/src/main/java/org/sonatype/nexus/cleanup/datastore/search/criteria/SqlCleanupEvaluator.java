@@ -0,0 +1,41 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.datastore.search.criteria;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.Repository;
+
+/**
+ * A cleanup criteria evaluator which can also be expressed as a SQL condition, so the database can select the
+ * eligible components instead of each component being tested in Java.
+ *
+ * Evaluators which implement {@link ComponentCleanupEvaluator} return a condition on the component table, aliased as
+ * {@value SqlCleanupQuery#COMPONENT}. Evaluators which implement {@link AssetCleanupEvaluator} return a condition on
+ * the asset table, aliased as {@value SqlCleanupQuery#ASSET}.
+ *
+ * @since 3.next
+ */
+public interface SqlCleanupEvaluator
+{
+  /**
+   * Creates a SQL condition which matches the same content as the evaluator's predicate.
+   *
+   * @param repository the repository whose content will be queried
+   * @param value      the value associated with the CleanupPolicy for use with this criteria
+   * @param query      the query the condition is for, used to bind values and name tables
+   * @return the condition, or {@code null} if this value can't be expressed in SQL for the current database
+   */
+  @Nullable
+  String getCondition(Repository repository, String value, SqlCleanupQuery query);
+}
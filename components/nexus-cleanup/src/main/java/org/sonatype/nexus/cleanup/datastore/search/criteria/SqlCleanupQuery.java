@@ -0,0 +1,77 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.datastore.search.criteria;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Collects the values bound by the conditions of a cleanup query, see {@link SqlCleanupEvaluator}.
+ *
+ * @since 3.next
+ */
+public class SqlCleanupQuery
+{
+  /**
+   * Alias of the component table.
+   */
+  public static final String COMPONENT = "component";
+
+  /**
+   * Alias of the asset table, available to asset conditions.
+   */
+  public static final String ASSET = "asset";
+
+  private final String format;
+
+  private final boolean postgresql;
+
+  private final Map<String, Object> values = new LinkedHashMap<>();
+
+  public SqlCleanupQuery(final String format, final boolean postgresql) {
+    this.format = checkNotNull(format);
+    this.postgresql = postgresql;
+  }
+
+  /**
+   * @return the name of the given content table of the repository's format, for example {@code maven2_asset_blob}
+   */
+  public String table(final String name) {
+    return format + '_' + name;
+  }
+
+  /**
+   * Is the query run against PostgreSQL, rather than H2?
+   */
+  public boolean isPostgresql() {
+    return postgresql;
+  }
+
+  /**
+   * Binds a value to the query.
+   *
+   * @return the placeholder to use for the value in the condition
+   */
+  public String bind(final Object value) {
+    String name = "v" + values.size();
+    values.put(name, checkNotNull(value));
+    return "#{params.values." + name + '}';
+  }
+
+  public Map<String, Object> getValues() {
+    return unmodifiableMap(values);
+  }
+}
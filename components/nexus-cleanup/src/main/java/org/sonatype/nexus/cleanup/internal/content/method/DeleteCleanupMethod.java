@@ -14,9 +14,14 @@ package org.sonatype.nexus.cleanup.internal.content.method;
 
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.cleanup.internal.content.service.ParallelCleanupExecutor;
+import org.sonatype.nexus.cleanup.internal.content.service.ParallelCleanupExecutor.BatchIterator;
 import org.sonatype.nexus.cleanup.internal.method.CleanupMethod;
 import org.sonatype.nexus.common.entity.Continuations;
 import org.sonatype.nexus.repository.Repository;
@@ -37,6 +42,17 @@ public class DeleteCleanupMethod
     extends ComponentSupport
     implements CleanupMethod
 {
+  @Nullable
+  private ParallelCleanupExecutor executor;
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setExecutor(final ParallelCleanupExecutor executor) {
+    this.executor = executor;
+  }
+
   @Override
   public DeletionProgress run(
       final Repository repository,
@@ -46,8 +62,17 @@ public class DeleteCleanupMethod
     ContentMaintenanceFacet maintenance = repository.facet(ContentMaintenanceFacet.class);
     DeletionProgress progress = new DeletionProgress();
 
-    Iterators.partition(components.iterator(), Continuations.BROWSE_LIMIT)
-        .forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+    if (executor != null && executor.isEnabled()) {
+      // browse the next batches while the current one is being deleted
+      try (BatchIterator<FluentComponent> batches =
+               executor.prefetch(components.iterator(), Continuations.BROWSE_LIMIT)) {
+        batches.forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+      }
+    }
+    else {
+      Iterators.partition(components.iterator(), Continuations.BROWSE_LIMIT)
+          .forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+    }
 
     return progress;
   }
@@ -0,0 +1,207 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.cleanup.content.search.ContinuationBrowse;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.SqlGenerator;
+import org.sonatype.nexus.repository.content.SqlQueryParameters;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+import org.sonatype.nexus.repository.content.fluent.FluentComponents;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery.COMPONENT;
+
+/**
+ * Query for the components matching the criteria of a cleanup policy which the database can evaluate, together with
+ * the criteria which must still be evaluated in Java.
+ *
+ * @since 3.next
+ */
+public class CleanupQueryPlan
+    implements SqlGenerator<CleanupQueryPlan.Parameters>
+{
+  private final String componentTable;
+
+  private final String assetTable;
+
+  private final String condition;
+
+  private final Map<String, Object> values;
+
+  private final Set<String> sqlCriteria;
+
+  private final Set<String> javaCriteria;
+
+  CleanupQueryPlan(
+      final String componentTable,
+      final String assetTable,
+      final List<String> conditions,
+      final Map<String, Object> values,
+      final Set<String> sqlCriteria,
+      final Set<String> javaCriteria)
+  {
+    this.componentTable = checkNotNull(componentTable);
+    this.assetTable = checkNotNull(assetTable);
+    this.condition = String.join(" AND ", conditions);
+    this.values = checkNotNull(values);
+    this.sqlCriteria = checkNotNull(sqlCriteria);
+    this.javaCriteria = checkNotNull(javaCriteria);
+  }
+
+  /**
+   * @return keys of the criteria evaluated by the database
+   */
+  public Set<String> getSqlCriteria() {
+    return sqlCriteria;
+  }
+
+  /**
+   * @return keys of the criteria which must be evaluated in Java
+   */
+  public Set<String> getJavaCriteria() {
+    return javaCriteria;
+  }
+
+  public Map<String, Object> getValues() {
+    return values;
+  }
+
+  /**
+   * @return the statement used to fetch the first page of components
+   */
+  public String getSql() {
+    return generateSelectStatement(new Parameters(0, 0, null, values, false));
+  }
+
+  /**
+   * Generates the select of a page of matching components; formats with ordered result maps read the continuation
+   * token from the {@code orderedToken} column. With assets the page is selected first and then joined with its
+   * assets, like {@code browseComponentsEager}.
+   */
+  @Override
+  public String generateSelectStatement(final Parameters params) {
+    StringBuilder sql = new StringBuilder();
+    if (params.isWithAssets()) {
+      sql.append("WITH matches AS (SELECT ").append(COMPONENT).append(".component_id");
+    }
+    else {
+      sql.append("SELECT ").append(COMPONENT).append(".*, ")
+          .append(COMPONENT).append(".component_id AS orderedToken");
+    }
+    sql.append(" FROM ").append(componentTable).append(" AS ").append(COMPONENT)
+        .append(" WHERE ").append(COMPONENT).append(".repository_id = #{params.repositoryId}");
+    if (params.getContinuationToken() != null) {
+      sql.append(" AND ").append(COMPONENT).append(".component_id > #{params.continuationToken}");
+    }
+    sql.append(" AND ").append(condition)
+        .append(" ORDER BY ").append(COMPONENT).append(".component_id LIMIT #{params.limit}");
+    if (params.isWithAssets()) {
+      sql.append(") SELECT ").append(COMPONENT).append(".*, asset.*, ")
+          .append(COMPONENT).append(".component_id AS orderedToken")
+          .append(" FROM ").append(componentTable).append(" AS ").append(COMPONENT)
+          .append(" LEFT JOIN ").append(assetTable).append(" AS asset ON ")
+          .append(COMPONENT).append(".component_id = asset.component_id")
+          .append(" WHERE ").append(COMPONENT).append(".component_id IN (SELECT component_id FROM matches)")
+          .append(" ORDER BY ").append(COMPONENT).append(".component_id");
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return browser of the repository's components matching this plan, ordered by id
+   */
+  public ContinuationBrowse<FluentComponent> browser(final Repository repository) {
+    ContentFacet content = repository.facet(ContentFacet.class);
+    FluentComponents components = content.components();
+    int repositoryId = content.contentRepositoryId();
+    return (limit, continuationToken) -> components.selectComponents(this,
+        new Parameters(repositoryId, limit, toInteger(continuationToken), values, false));
+  }
+
+  /**
+   * @return browser of the repository's components matching this plan together with their assets, ordered by id
+   */
+  public ContinuationBrowse<FluentComponent> browserWithAssets(final Repository repository) {
+    ContentFacet content = repository.facet(ContentFacet.class);
+    FluentComponents components = content.components();
+    int repositoryId = content.contentRepositoryId();
+    return (limit, continuationToken) -> components.selectComponentsWithAssets(this,
+        new Parameters(repositoryId, limit, toInteger(continuationToken), values, true));
+  }
+
+  @Nullable
+  private static Integer toInteger(@Nullable final String continuationToken) {
+    return continuationToken != null ? Integer.valueOf(continuationToken) : null;
+  }
+
+  /**
+   * Parameters of a page of the plan's query.
+   */
+  public static class Parameters
+      implements SqlQueryParameters
+  {
+    private final int repositoryId;
+
+    private final int limit;
+
+    @Nullable
+    private final Integer continuationToken;
+
+    private final Map<String, Object> values;
+
+    private final boolean withAssets;
+
+    Parameters(
+        final int repositoryId,
+        final int limit,
+        @Nullable final Integer continuationToken,
+        final Map<String, Object> values,
+        final boolean withAssets)
+    {
+      this.repositoryId = repositoryId;
+      this.limit = limit;
+      this.continuationToken = continuationToken;
+      this.values = values;
+      this.withAssets = withAssets;
+    }
+
+    public int getRepositoryId() {
+      return repositoryId;
+    }
+
+    public int getLimit() {
+      return limit;
+    }
+
+    @Nullable
+    public Integer getContinuationToken() {
+      return continuationToken;
+    }
+
+    public Map<String, Object> getValues() {
+      return values;
+    }
+
+    public boolean isWithAssets() {
+      return withAssets;
+    }
+  }
+}
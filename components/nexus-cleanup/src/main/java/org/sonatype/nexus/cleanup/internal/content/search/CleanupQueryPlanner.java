@@ -0,0 +1,218 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.AssetCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.ComponentCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery;
+import org.sonatype.nexus.common.db.DatabaseCheck;
+import org.sonatype.nexus.repository.Repository;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery.ASSET;
+import static org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery.COMPONENT;
+
+/**
+ * Decides which criteria of a cleanup policy can be evaluated by the database, see {@link SqlCleanupEvaluator}.
+ *
+ * Component criteria are translated individually. Asset criteria must all hold for the same asset, so they are only
+ * translated if every one of them can be; otherwise they are all left to Java. Either way the query only returns
+ * components with at least one asset, as the Java filter never matches components without assets.
+ *
+ * Planning is off by default; enable it with {@code nexus.cleanup.sqlCriteria.enabled=true}.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class CleanupQueryPlanner
+    extends ComponentSupport
+{
+  private static final Pattern TABLE_PREFIX = Pattern.compile("[a-z0-9_]+");
+
+  private final Map<String, ComponentCleanupEvaluator> componentCriteria;
+
+  private final Map<String, AssetCleanupEvaluator> assetCriteria;
+
+  private final DatabaseCheck databaseCheck;
+
+  private final boolean enabled;
+
+  @Inject
+  public CleanupQueryPlanner(
+      final Map<String, ComponentCleanupEvaluator> componentCriteria,
+      final Map<String, AssetCleanupEvaluator> assetCriteria,
+      final DatabaseCheck databaseCheck,
+      @Named("${nexus.cleanup.sqlCriteria.enabled:-false}") final boolean enabled)
+  {
+    this.componentCriteria = checkNotNull(componentCriteria);
+    this.assetCriteria = checkNotNull(assetCriteria);
+    this.databaseCheck = checkNotNull(databaseCheck);
+    this.enabled = enabled;
+  }
+
+  /**
+   * @param repository the repository the criteria are applied to
+   * @param criteria   the cleanup criteria to evaluate
+   * @return the plan, or {@code null} if none of the criteria can be evaluated by the database
+   */
+  @Nullable
+  public CleanupQueryPlan plan(final Repository repository, final Map<String, String> criteria) {
+    SqlCleanupQuery query = newQuery(repository);
+    if (query == null) {
+      return null;
+    }
+
+    Translation translation = translate(repository, criteria, query);
+    if (translation.sqlCriteria.isEmpty()) {
+      return null;
+    }
+
+    log.debug("Cleanup of {} evaluates {} in SQL and {} in memory", repository.getName(), translation.sqlCriteria,
+        translation.javaCriteria);
+    return new CleanupQueryPlan(query.table("component"), query.table("asset"), translation.conditions,
+        query.getValues(), translation.sqlCriteria, translation.javaCriteria);
+  }
+
+  /**
+   * Plans a single query for the components matching the criteria of any of several policies.
+   *
+   * @param repository the repository the criteria are applied to
+   * @param criteria   the cleanup criteria of each policy
+   * @return the plan, or {@code null} unless the database can evaluate all the criteria
+   * @since 3.next
+   */
+  @Nullable
+  public CleanupQueryPlan planAny(final Repository repository, final List<Map<String, String>> criteria) {
+    SqlCleanupQuery query = newQuery(repository);
+    if (query == null) {
+      return null;
+    }
+
+    List<String> alternatives = new ArrayList<>();
+    Set<String> sqlCriteria = new TreeSet<>();
+    for (Map<String, String> policyCriteria : criteria) {
+      Translation translation = translate(repository, policyCriteria, query);
+      if (!translation.javaCriteria.isEmpty()) {
+        return null;
+      }
+      alternatives.add('(' + String.join(" AND ", translation.conditions) + ')');
+      sqlCriteria.addAll(translation.sqlCriteria);
+    }
+
+    String condition = '(' + String.join(" OR ", alternatives) + ')';
+    return new CleanupQueryPlan(query.table("component"), query.table("asset"), singletonList(condition),
+        query.getValues(), sqlCriteria, emptySet());
+  }
+
+  @Nullable
+  private SqlCleanupQuery newQuery(final Repository repository) {
+    String format = repository.getFormat().getValue();
+    if (!enabled || !TABLE_PREFIX.matcher(format).matches()) {
+      return null;
+    }
+    return new SqlCleanupQuery(format, databaseCheck.isPostgresql());
+  }
+
+  private Translation translate(
+      final Repository repository,
+      final Map<String, String> criteria,
+      final SqlCleanupQuery query)
+  {
+    Translation translation = new Translation();
+
+    for (Entry<String, String> entry : criteria.entrySet()) {
+      ComponentCleanupEvaluator evaluator = componentCriteria.get(entry.getKey());
+      if (evaluator != null) {
+        String condition = condition(evaluator, repository, entry.getValue(), query);
+        if (condition != null) {
+          translation.conditions.add(condition);
+          translation.sqlCriteria.add(entry.getKey());
+        }
+        else {
+          translation.javaCriteria.add(entry.getKey());
+        }
+      }
+    }
+
+    List<String> assetConditions = new ArrayList<>();
+    Set<String> assetKeys = new TreeSet<>();
+    boolean assetsInSql = true;
+    for (Entry<String, String> entry : criteria.entrySet()) {
+      AssetCleanupEvaluator evaluator = assetCriteria.get(entry.getKey());
+      if (evaluator != null) {
+        assetKeys.add(entry.getKey());
+        String condition = assetsInSql ? condition(evaluator, repository, entry.getValue(), query) : null;
+        if (condition != null) {
+          assetConditions.add(condition);
+        }
+        else {
+          assetsInSql = false;
+        }
+      }
+    }
+
+    StringBuilder assetMatch = new StringBuilder("EXISTS (SELECT 1 FROM ")
+        .append(query.table("asset")).append(" AS ").append(ASSET)
+        .append(" WHERE ").append(ASSET).append(".component_id = ").append(COMPONENT).append(".component_id");
+    if (assetsInSql) {
+      assetConditions.forEach(condition -> assetMatch.append(" AND (").append(condition).append(')'));
+      translation.sqlCriteria.addAll(assetKeys);
+    }
+    else {
+      translation.javaCriteria.addAll(assetKeys);
+    }
+    translation.conditions.add(assetMatch.append(')').toString());
+
+    return translation;
+  }
+
+  @Nullable
+  private static String condition(
+      final Object evaluator,
+      final Repository repository,
+      final String value,
+      final SqlCleanupQuery query)
+  {
+    if (evaluator instanceof SqlCleanupEvaluator) {
+      return ((SqlCleanupEvaluator) evaluator).getCondition(repository, value, query);
+    }
+    return null;
+  }
+
+  private static class Translation
+  {
+    private final List<String> conditions = new ArrayList<>();
+
+    private final Set<String> sqlCriteria = new TreeSet<>();
+
+    private final Set<String> javaCriteria = new TreeSet<>();
+  }
+}
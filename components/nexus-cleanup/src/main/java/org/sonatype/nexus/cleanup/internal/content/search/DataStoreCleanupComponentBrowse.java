@@ -12,16 +12,19 @@
  */
 package org.sonatype.nexus.cleanup.internal.content.search;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -43,6 +46,8 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.query.QueryOptions;
 import org.sonatype.nexus.scheduling.CancelableHelper;
 
+import com.google.common.base.Suppliers;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.cleanup.content.search.CleanupBrowseServiceFactory.DEFAULT_BROWSE_SERVICE;
 
@@ -59,6 +64,9 @@ public class DataStoreCleanupComponentBrowse
 
   private final Map<String, ComponentCleanupEvaluator> componentCriteria;
 
+  @Nullable
+  private CleanupQueryPlanner queryPlanner;
+
   @Inject
   public DataStoreCleanupComponentBrowse(
       final Map<String, ComponentCleanupEvaluator> componentCriteria,
@@ -68,6 +76,14 @@ public class DataStoreCleanupComponentBrowse
     this.assetCriteria = checkNotNull(assetCriteria);
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setQueryPlanner(final CleanupQueryPlanner queryPlanner) {
+    this.queryPlanner = queryPlanner;
+  }
+
   /**
    * @return true as the default DataStoreComponentBrowse implementation applies to all formats with no other conditions
    */
@@ -81,15 +97,53 @@ public class DataStoreCleanupComponentBrowse
     checkNotNull(policy);
     checkNotNull(repository);
 
+    CleanupQueryPlan plan = getQueryPlan(repository, policy);
+    return Continuations.streamOf(getComponentBrowser(repository, policy, plan)::browse)
+        .filter(createComponentFilter(repository, policy, plan));
+  }
+
+  /**
+   * Browses components matching any of the policies in a single pass where possible: with one query when the database
+   * can evaluate all their criteria, or by testing every component against all policies when none of their criteria
+   * can be. Otherwise each policy is browsed with its own query, as that is still cheaper than testing every component.
+   */
+  @Override
+  public Stream<FluentComponent> browse(final List<CleanupPolicy> policies, final Repository repository) {
+    checkNotNull(policies);
+    checkNotNull(repository);
+
+    if (policies.size() == 1) {
+      return browse(policies.get(0), repository);
+    }
+    policies.forEach(this::validateCleanupPolicy);
+
+    if (queryPlanner != null) {
+      CleanupQueryPlan plan = queryPlanner.planAny(repository, policies.stream()
+          .map(policy -> getFilterableCriteria(repository, policy))
+          .collect(Collectors.toList()));
+      if (plan != null) {
+        return Continuations.streamOf(plan.browser(repository)::browse);
+      }
+      if (policies.stream().anyMatch(policy -> getQueryPlan(repository, policy) != null)) {
+        return CleanupComponentBrowse.super.browse(policies, repository);
+      }
+    }
 
-    return Continuations.streamOf(getComponentBrowser(repository, policy)::browse)
-        .filter(createComponentFilter(repository, policy));
+    List<List<BiPredicate<Component, Iterable<Asset>>>> policyFilters = policies.stream()
+        .map(policy -> createPolicyFilters(repository, policy, null))
+        .collect(Collectors.toList());
+    return Continuations.streamOf(repository.facet(ContentFacet.class).components()::browse)
+        .filter(createComponentFilter(policyFilters));
   }
 
   @Override
   public Stream<FluentComponent> browseIncludingAssets(final CleanupPolicy policy, final Repository repository) {
-    return Continuations.streamOf(repository.facet(ContentFacet.class).components()::browseEager)
-        .filter(createComponentFilter(repository, policy));
+    CleanupQueryPlan plan = getQueryPlan(repository, policy);
+    ContinuationBrowse<FluentComponent> browser = plan != null
+        ? plan.browserWithAssets(repository)
+        : repository.facet(ContentFacet.class).components()::browseEager;
+    return Continuations.streamOf(browser::browse)
+        .filter(createComponentFilter(repository, policy, plan));
   }
 
   @Override
@@ -104,7 +158,8 @@ public class DataStoreCleanupComponentBrowse
     checkNotNull(options.getStart());
     checkNotNull(options.getLimit());
 
-    Predicate<FluentComponent> componentFilter = createComponentFilter(repository, policy);
+    CleanupQueryPlan plan = getQueryPlan(repository, policy);
+    Predicate<FluentComponent> componentFilter = createComponentFilter(repository, policy, plan);
 
     Optional<Predicate<FluentComponent>> optionsFilter = createOptionsFilter(options);
     if (optionsFilter.isPresent()) {
@@ -112,7 +167,7 @@ public class DataStoreCleanupComponentBrowse
     }
 
     List<Component> result =
-        Continuations.streamOf(getComponentBrowser(repository, policy)::browse, Continuations.BROWSE_LIMIT,
+        Continuations.streamOf(getComponentBrowser(repository, policy, plan)::browse, Continuations.BROWSE_LIMIT,
                 options.getLastId())
             .peek(__ -> CancelableHelper.checkCancellation())
             .filter(componentFilter)
@@ -136,6 +191,19 @@ public class DataStoreCleanupComponentBrowse
     return policy.getCriteria();
   }
 
+  /**
+   * Returns the plan for evaluating criteria of the policy in the database, or {@code null} if all criteria are to be
+   * evaluated in Java against the components of {@link #getComponentBrowser(Repository, CleanupPolicy)}. The plan is
+   * made from the {@link #getFilterableCriteria filterable criteria}, so previews show what browsing actually runs.
+   *
+   * @since 3.next
+   */
+  @Nullable
+  public CleanupQueryPlan getQueryPlan(final Repository repository, final CleanupPolicy policy) {
+    validateCleanupPolicy(policy);
+    return queryPlanner != null ? queryPlanner.plan(repository, getFilterableCriteria(repository, policy)) : null;
+  }
+
   /**
    * Creates a Predicate that will return true if any of the Component's name/group/version matches the provided
    * filter.
@@ -156,30 +224,69 @@ public class DataStoreCleanupComponentBrowse
 
   /*
    * Creates a Predicate which will return true if the Component and any of its Assets match all of the specified
-   * cleanup criteria.
+   * cleanup criteria, apart from those the plan evaluates in the database.
    */
-  private Predicate<FluentComponent> createComponentFilter(final Repository repository, final CleanupPolicy policy) {
-    validateCleanupPolicy(policy);
-
-    List<BiPredicate<Component, Iterable<Asset>>> componentFilters =
-        getFilterableCriteria(repository, policy).entrySet().stream()
-            .filter(entry -> componentCriteria.containsKey(entry.getKey()))
-            .map(entry -> componentCriteria.get(entry.getKey()).getPredicate(repository, entry.getValue()))
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
+  private Predicate<FluentComponent> createComponentFilter(
+      final Repository repository,
+      final CleanupPolicy policy,
+      @Nullable final CleanupQueryPlan plan)
+  {
+    return createComponentFilter(Collections.singletonList(createPolicyFilters(repository, policy, plan)));
+  }
 
-    componentFilters.add(createAssetFilter(repository, policy));
+  /*
+   * Creates a Predicate which will return true if the Component and its Assets pass all filters of any policy.
+   */
+  private static Predicate<FluentComponent> createComponentFilter(
+      final List<List<BiPredicate<Component, Iterable<Asset>>>> policyFilters)
+  {
+    if (policyFilters.stream().anyMatch(List::isEmpty)) {
+      return component -> true;
+    }
 
     return component -> {
-      Iterable<Asset> assets = component.assets().stream()
+      // only fetch assets if a filter looks at them
+      Supplier<List<Asset>> assets = Suppliers.memoize(() -> component.assets().stream()
           .map(Asset.class::cast)
-          .collect(Collectors.toList());
+          .collect(Collectors.toList()));
+      Iterable<Asset> lazyAssets = () -> assets.get().iterator();
 
-      return componentFilters.stream()
-          .allMatch(fn -> fn.test(component, assets));
+      return policyFilters.stream()
+          .anyMatch(filters -> filters.stream().allMatch(fn -> fn.test(component, lazyAssets)));
     };
   }
 
+  /*
+   * Creates the filters for the criteria of a policy, apart from those the plan evaluates in the database.
+   */
+  private List<BiPredicate<Component, Iterable<Asset>>> createPolicyFilters(
+      final Repository repository,
+      final CleanupPolicy policy,
+      @Nullable final CleanupQueryPlan plan)
+  {
+    validateCleanupPolicy(policy);
+
+    Map<String, String> criteria = getFilterableCriteria(repository, policy);
+    if (plan != null) {
+      criteria = criteria.entrySet().stream()
+          .filter(entry -> !plan.getSqlCriteria().contains(entry.getKey()))
+          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    List<BiPredicate<Component, Iterable<Asset>>> componentFilters = criteria.entrySet().stream()
+        .filter(entry -> componentCriteria.containsKey(entry.getKey()))
+        .map(entry -> componentCriteria.get(entry.getKey()).getPredicate(repository, entry.getValue()))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+
+    // the plan only selects components with assets, so the asset filter is needed if asset criteria remain
+    if (plan == null || criteria.keySet().stream().anyMatch(assetCriteria::containsKey)) {
+      componentFilters.add(createAssetFilter(repository, criteria));
+    }
+
+    return componentFilters;
+  }
+
   /*
    * Creates a BiFunction which combines the asset-specific criteria of a cleanup-policy which will return true if any
    * individual Asset matches all (asset) criteria of the policy.
@@ -189,9 +296,9 @@ public class DataStoreCleanupComponentBrowse
    */
   private BiPredicate<Component, Iterable<Asset>> createAssetFilter(
       final Repository repository,
-      final CleanupPolicy policy)
+      final Map<String, String> criteria)
   {
-    List<Predicate<Asset>> filters = getFilterableCriteria(repository, policy).entrySet().stream()
+    List<Predicate<Asset>> filters = criteria.entrySet().stream()
         .map(entry -> {
           if (!assetCriteria.containsKey(entry.getKey())) {
             return null;
@@ -234,4 +341,12 @@ public class DataStoreCleanupComponentBrowse
   {
     return repository.facet(ContentFacet.class).components()::browse;
   }
+
+  private ContinuationBrowse<FluentComponent> getComponentBrowser(
+      final Repository repository,
+      final CleanupPolicy policy,
+      @Nullable final CleanupQueryPlan plan)
+  {
+    return plan != null ? plan.browser(repository) : getComponentBrowser(repository, policy);
+  }
 }
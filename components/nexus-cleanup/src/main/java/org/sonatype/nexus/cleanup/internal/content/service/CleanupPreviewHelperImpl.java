@@ -13,8 +13,12 @@
 package org.sonatype.nexus.cleanup.internal.content.service;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -22,6 +26,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -31,7 +36,10 @@ import javax.ws.rs.core.Response;
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.cleanup.content.search.CleanupBrowseServiceFactory;
 import org.sonatype.nexus.cleanup.content.search.CleanupComponentBrowse;
+import org.sonatype.nexus.cleanup.internal.content.search.CleanupQueryPlan;
+import org.sonatype.nexus.cleanup.internal.content.search.DataStoreCleanupComponentBrowse;
 import org.sonatype.nexus.cleanup.preview.CleanupPreviewHelper;
+import org.sonatype.nexus.cleanup.preview.CleanupQueryPlanXO;
 import org.sonatype.nexus.cleanup.storage.CleanupPolicy;
 import org.sonatype.nexus.cleanup.storage.CleanupPolicyCriteria;
 import org.sonatype.nexus.cleanup.storage.CleanupPolicyPreviewXO;
@@ -51,6 +59,8 @@ import org.sonatype.nexus.scheduling.CancelableHelper;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Collections2.transform;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -106,6 +116,25 @@ public class CleanupPreviewHelperImpl
     return componentSteam.map(component -> convert(component, repository));
   }
 
+  @Nullable
+  @Override
+  public CleanupQueryPlanXO getQueryPlan(final CleanupPolicyPreviewXO previewXO, final Repository repository) {
+    CleanupComponentBrowse browseService = browseServiceFactory.getPreviewService();
+    if (!(browseService instanceof DataStoreCleanupComponentBrowse)) {
+      return null;
+    }
+    CleanupPolicy policy = toCleanupPolicy(previewXO);
+    Map<String, String> criteria = policy.getCriteria();
+    CleanupQueryPlan plan = ((DataStoreCleanupComponentBrowse) browseService).getQueryPlan(repository, policy);
+    if (plan == null) {
+      return new CleanupQueryPlanXO(null, emptyMap(), emptyList(), new ArrayList<>(new TreeSet<>(criteria.keySet())));
+    }
+    Map<String, String> values = new TreeMap<>();
+    plan.getValues().forEach((name, value) -> values.put(name, String.valueOf(value)));
+    return new CleanupQueryPlanXO(plan.getSql(), values, new ArrayList<>(plan.getSqlCriteria()),
+        new ArrayList<>(plan.getJavaCriteria()));
+  }
+
   private PagedResponse<ComponentXO> searchForComponents(final Repository repository,
                                                            final CleanupPolicy cleanupPolicy,
                                                            final QueryOptions queryOptions)
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -42,11 +43,13 @@ import org.sonatype.nexus.repository.task.DeletionProgress;
 import org.sonatype.nexus.repository.types.GroupType;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.Streams;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.elasticsearch.search.SearchContextMissingException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_KEY;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_SORT_BY_KEY;
 
@@ -81,6 +84,9 @@ public class CleanupServiceImpl
 
   private final CleanupFeatureCheck cleanupFeatureCheck;
 
+  @Nullable
+  private ParallelCleanupExecutor parallelExecutor;
+
   @Inject
   public CleanupServiceImpl(final RepositoryManager repositoryManager,
                             final CleanupPolicyStorage cleanupPolicyStorage,
@@ -99,8 +105,26 @@ public class CleanupServiceImpl
     this.cleanupFeatureCheck = cleanupFeatureCheck;
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setParallelExecutor(final ParallelCleanupExecutor parallelExecutor) {
+    this.parallelExecutor = parallelExecutor;
+  }
+
   @Override
   public void cleanup(final BooleanSupplier cancelledCheck) {
+    if (parallelExecutor != null && parallelExecutor.isEnabled()) {
+      List<Repository> repositories = Streams.stream(repositoryManager.browse())
+          .filter(repository -> !repository.getType().equals(groupType))
+          .collect(toList());
+      long deleted = parallelExecutor.cleanup(repositories, repository -> cleanupSinglePass(repository, cancelledCheck),
+          cancelledCheck);
+      log.info("{} assets cleaned up across all repositories", deleted);
+      return;
+    }
+
     AtomicLong totalDeletedCount = new AtomicLong(0L);
     repositoryManager.browse().forEach(repository -> {
       if (!cancelledCheck.getAsBoolean() && !repository.getType().equals(groupType)) {
@@ -120,6 +144,34 @@ public class CleanupServiceImpl
     return deleted.get();
   }
 
+  /**
+   * Cleans up the repository evaluating all of its policies while browsing its components once. Policies with
+   * exclusion criteria need the full set of matching components so are still run separately.
+   */
+  private long cleanupSinglePass(final Repository repository, final BooleanSupplier cancelledCheck) {
+    List<CleanupPolicy> policies = new ArrayList<>();
+    long deleted = 0;
+    CleanupComponentBrowse browseService = browseServiceFactory.get(repository.getFormat());
+    for (CleanupPolicy policy : findPolicies(repository)) {
+      if (policy.getCriteria().isEmpty() || hasExclusionCriteria(policy.getCriteria())) {
+        deleted += deleteByPolicy(repository, policy, cancelledCheck, browseService);
+      }
+      else {
+        policies.add(policy);
+      }
+    }
+
+    if (policies.size() == 1) {
+      deleted += deleteByPolicy(repository, policies.get(0), cancelledCheck, browseService);
+    }
+    else if (!policies.isEmpty() && !cancelledCheck.getAsBoolean()) {
+      log.info("Deleting components and assets in repository {} using policies {}", repository.getName(),
+          policies.stream().map(CleanupPolicy::getName).collect(toList()));
+      deleted += delete(repository, () -> browseService.browse(policies, repository), cancelledCheck);
+    }
+    return deleted;
+  }
+
   protected Long deleteByPolicy(final Repository repository,
                                 final CleanupPolicy policy,
                                 final BooleanSupplier cancelledCheck,
@@ -127,8 +179,6 @@ public class CleanupServiceImpl
   {
     log.info("Deleting components and assets in repository {} using policy {}", repository.getName(), policy.getName());
 
-    DeletionProgress deletionProgress = new DeletionProgress(cleanupRetryLimit);
-
     // Skip the policy if it somehow has exclusion criteria but exclusion (retain) is not supported by the format.
     if (hasExclusionCriteria(policy.getCriteria()) &&
             (cleanupFeatureCheck==null || !cleanupFeatureCheck.isRetainSupported(repository.getFormat().getValue()))) {
@@ -139,28 +189,7 @@ public class CleanupServiceImpl
     }
 
     if (!policy.getCriteria().isEmpty()) {
-      do {
-        try {
-          Stream<FluentComponent> componentsToDelete = browseService.browse(policy, repository);
-          DeletionProgress currentProgress = cleanupMethod.run(repository, componentsToDelete, cancelledCheck);
-          deletionProgress.update(currentProgress);
-        }
-        catch (Exception e) {
-          deletionProgress.setAttempts(deletionProgress.getAttempts() + 1);
-          deletionProgress.setFailed(true);
-          if (ExceptionUtils.getRootCause(e) instanceof SearchContextMissingException) {
-            log.warn("Search scroll timed out, continuing with new scrollId.", log.isDebugEnabled() ? e : null);
-          }
-          else {
-            log.error("Failed to delete components.", e);
-          }
-        }
-      } while (!deletionProgress.isFinished());
-
-      if (deletionProgress.isFailed()) {
-        log.warn("Deletion attempts exceeded for repository {}", repository.getName());
-      }
-      return deletionProgress.getComponentCount();
+      return delete(repository, () -> browseService.browse(policy, repository), cancelledCheck);
     }
     else {
       log.info("Policy {} has no criteria and will therefore be ignored (i.e. no components will be deleted)",
@@ -169,6 +198,36 @@ public class CleanupServiceImpl
     }
   }
 
+  private long delete(
+      final Repository repository,
+      final Supplier<Stream<FluentComponent>> components,
+      final BooleanSupplier cancelledCheck)
+  {
+    DeletionProgress deletionProgress = new DeletionProgress(cleanupRetryLimit);
+    do {
+      try {
+        Stream<FluentComponent> componentsToDelete = components.get();
+        DeletionProgress currentProgress = cleanupMethod.run(repository, componentsToDelete, cancelledCheck);
+        deletionProgress.update(currentProgress);
+      }
+      catch (Exception e) {
+        deletionProgress.setAttempts(deletionProgress.getAttempts() + 1);
+        deletionProgress.setFailed(true);
+        if (ExceptionUtils.getRootCause(e) instanceof SearchContextMissingException) {
+          log.warn("Search scroll timed out, continuing with new scrollId.", log.isDebugEnabled() ? e : null);
+        }
+        else {
+          log.error("Failed to delete components.", e);
+        }
+      }
+    } while (!deletionProgress.isFinished());
+
+    if (deletionProgress.isFailed()) {
+      log.warn("Deletion attempts exceeded for repository {}", repository.getName());
+    }
+    return deletionProgress.getComponentCount();
+  }
+
   private boolean hasExclusionCriteria(final Map<String, String> criteria) {
     return criteria.containsKey(RETAIN_KEY) || criteria.containsKey(RETAIN_SORT_BY_KEY);
   }
@@ -0,0 +1,317 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.STORAGE;
+
+/**
+ * Runs cleanup of several repositories at a time.
+ *
+ * The number of repositories cleaned up at once is bounded overall, which should stay below the size of the
+ * database connection pool, and per blob store, so a single blob store isn't overloaded by deletes. Repositories
+ * are started in the order given, skipping those whose blob store is busy. Each repository's throughput and how long
+ * it waited to start are logged when it finishes.
+ *
+ * While enabled, deleting components is also pipelined with browsing them, see {@link #prefetch(Iterator, int)}.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class ParallelCleanupExecutor
+    extends ComponentSupport
+{
+  private static final Object END = new Object();
+
+  private final boolean enabled;
+
+  private final int repositoryConcurrency;
+
+  private final int blobStoreConcurrency;
+
+  private final int prefetchBatches;
+
+  private final ExecutorService executor;
+
+  @Inject
+  public ParallelCleanupExecutor(
+      @Named("${nexus.cleanup.parallel.enabled:-false}") final boolean enabled,
+      @Named("${nexus.cleanup.parallel.repositories:-4}") final int repositoryConcurrency,
+      @Named("${nexus.cleanup.parallel.perBlobStore:-2}") final int blobStoreConcurrency,
+      @Named("${nexus.cleanup.parallel.prefetchBatches:-2}") final int prefetchBatches)
+  {
+    checkArgument(repositoryConcurrency > 0, "nexus.cleanup.parallel.repositories must be positive");
+    checkArgument(blobStoreConcurrency > 0, "nexus.cleanup.parallel.perBlobStore must be positive");
+    checkArgument(prefetchBatches >= 0, "nexus.cleanup.parallel.prefetchBatches must not be negative");
+    this.enabled = enabled;
+    this.repositoryConcurrency = repositoryConcurrency;
+    this.blobStoreConcurrency = blobStoreConcurrency;
+    this.prefetchBatches = prefetchBatches;
+    // each repository being cleaned up may have a thread browsing ahead of it
+    this.executor = NexusExecutorService.forCurrentSubject(new ThreadPoolExecutor(
+        0,
+        repositoryConcurrency * 2,
+        60L,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        new NexusThreadFactory("cleanup", "cleanup")));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Cleans up the given repositories, returning once all started cleanups have finished.
+   *
+   * @param repositories   the repositories to clean up
+   * @param cleanup        cleans up a repository, returning the number of components deleted
+   * @param cancelledCheck stops further repositories from being started
+   * @return the number of components deleted across all repositories
+   */
+  public long cleanup(
+      final List<Repository> repositories,
+      final ToLongFunction<Repository> cleanup,
+      final BooleanSupplier cancelledCheck)
+  {
+    checkNotNull(repositories);
+    checkNotNull(cleanup);
+    checkNotNull(cancelledCheck);
+
+    Stopwatch queued = Stopwatch.createStarted();
+    CompletionService<Result> completion = new ExecutorCompletionService<>(executor);
+    Deque<Repository> pending = new ArrayDeque<>(repositories);
+    Map<String, Integer> running = new HashMap<>();
+    int inFlight = 0;
+    long total = 0;
+
+    while (true) {
+      Repository rejected = null;
+      Iterator<Repository> candidates = pending.iterator();
+      while (inFlight < repositoryConcurrency && candidates.hasNext() && !cancelledCheck.getAsBoolean()) {
+        Repository repository = candidates.next();
+        String blobStore = blobStoreName(repository);
+        if (running.getOrDefault(blobStore, 0) < blobStoreConcurrency) {
+          long lag = queued.elapsed(MILLISECONDS);
+          try {
+            completion.submit(() -> run(repository, blobStore, lag, cleanup));
+          }
+          catch (RejectedExecutionException e) {
+            // the pool is shared with prefetching, so wait for a thread to be freed up
+            log.debug("No thread available to clean up repository {}", repository.getName());
+            rejected = repository;
+            break;
+          }
+          candidates.remove();
+          running.merge(blobStore, 1, Integer::sum);
+          inFlight++;
+        }
+      }
+      if (inFlight == 0) {
+        if (rejected == null) {
+          break;
+        }
+        // nothing running here to wait for, so clean up on this thread instead
+        pending.remove(rejected);
+        total += run(rejected, blobStoreName(rejected), queued.elapsed(MILLISECONDS), cleanup).deleted;
+        continue;
+      }
+
+      try {
+        Result result = completion.take().get();
+        inFlight--;
+        running.merge(result.blobStore, -1, Integer::sum);
+        total += result.deleted;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("Interrupted waiting for {} repository cleanups to finish", inFlight);
+        break;
+      }
+      catch (ExecutionException e) {
+        // not expected as run catches everything
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+
+    if (!pending.isEmpty()) {
+      log.info("Cleanup of {} repositories was not started", pending.size());
+    }
+    return total;
+  }
+
+  /**
+   * Splits the items into batches, with up to {@code nexus.cleanup.parallel.prefetchBatches} batches fetched on
+   * another thread ahead of the caller. The returned iterator must be closed if it isn't consumed to the end.
+   */
+  public <T> BatchIterator<T> prefetch(final Iterator<T> items, final int batchSize) {
+    Iterator<List<T>> batches = Iterators.partition(items, batchSize);
+    if (!enabled || prefetchBatches == 0) {
+      return new BatchIterator<>(batches, null, null);
+    }
+
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(prefetchBatches);
+    Future<?> producer;
+    try {
+      producer = executor.submit(() -> {
+        try {
+          try {
+            while (batches.hasNext()) {
+              queue.put(batches.next());
+            }
+            queue.put(END);
+          }
+          catch (RuntimeException e) {
+            queue.put(e);
+          }
+        }
+        catch (InterruptedException e) {
+          log.debug("Stopped prefetching cleanup batches");
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("No thread available to prefetch cleanup batches, fetching them inline");
+      return new BatchIterator<>(batches, null, null);
+    }
+    return new BatchIterator<>(null, queue, producer);
+  }
+
+  private Result run(
+      final Repository repository,
+      final String blobStore,
+      final long lag,
+      final ToLongFunction<Repository> cleanup)
+  {
+    Stopwatch elapsed = Stopwatch.createStarted();
+    long deleted = 0;
+    try {
+      deleted = cleanup.applyAsLong(repository);
+    }
+    catch (Exception e) {
+      log.error("Failed to clean up repository {}", repository.getName(), e);
+    }
+    long millis = Math.max(elapsed.elapsed(MILLISECONDS), 1);
+    log.info("Cleanup of repository {} deleted {} components in {} ms ({} components/s) after waiting {} ms to start",
+        repository.getName(), deleted, millis, deleted * 1000 / millis, lag);
+    return new Result(blobStore, deleted);
+  }
+
+  private static String blobStoreName(final Repository repository) {
+    Object name = repository.getConfiguration().attributes(STORAGE).get(BLOB_STORE_NAME);
+    return name != null ? name.toString() : "";
+  }
+
+  private static class Result
+  {
+    private final String blobStore;
+
+    private final long deleted;
+
+    private Result(final String blobStore, final long deleted) {
+      this.blobStore = blobStore;
+      this.deleted = deleted;
+    }
+  }
+
+  /**
+   * Iterator over batches of items, which may be fetched ahead on another thread.
+   */
+  public static class BatchIterator<T>
+      extends AbstractIterator<List<T>>
+      implements AutoCloseable
+  {
+    private final Iterator<List<T>> batches;
+
+    private final BlockingQueue<Object> queue;
+
+    private final Future<?> producer;
+
+    private BatchIterator(
+        final Iterator<List<T>> batches,
+        final BlockingQueue<Object> queue,
+        final Future<?> producer)
+    {
+      this.batches = batches;
+      this.queue = queue;
+      this.producer = producer;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected List<T> computeNext() {
+      if (batches != null) {
+        return batches.hasNext() ? batches.next() : endOfData();
+      }
+      Object next;
+      try {
+        next = queue.take();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted waiting for cleanup batch", e);
+      }
+      if (next == END) {
+        return endOfData();
+      }
+      if (next instanceof RuntimeException) {
+        throw (RuntimeException) next;
+      }
+      return (List<T>) next;
+    }
+
+    @Override
+    public void close() {
+      if (producer != null) {
+        producer.cancel(true);
+      }
+    }
+  }
+}
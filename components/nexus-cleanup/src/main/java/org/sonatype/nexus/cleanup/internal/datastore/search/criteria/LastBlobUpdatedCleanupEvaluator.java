@@ -20,6 +20,8 @@ import java.util.stream.StreamSupport;
 import javax.inject.Named;
 
 import org.sonatype.nexus.cleanup.datastore.search.criteria.ComponentCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.AssetBlob;
@@ -37,7 +39,7 @@ import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_BLOB
  */
 @Named(LAST_BLOB_UPDATED_KEY)
 public class LastBlobUpdatedCleanupEvaluator
-    implements ComponentCleanupEvaluator
+    implements ComponentCleanupEvaluator, SqlCleanupEvaluator
 {
   private static final Logger log = LoggerFactory.getLogger(LastBlobUpdatedCleanupEvaluator.class);
 
@@ -64,4 +66,14 @@ public class LastBlobUpdatedCleanupEvaluator
       return false;
     };
   }
+
+  @Override
+  public String getCondition(final Repository repository, final String value, final SqlCleanupQuery query) {
+    OffsetDateTime cutTime = OffsetDateTime.now().minusSeconds(Long.valueOf(value));
+
+    // a component without blobs has no maximum, so like the predicate it never matches
+    return "(SELECT MAX(ab.blob_created) FROM " + query.table("asset") + " AS a"
+        + " JOIN " + query.table("asset_blob") + " AS ab ON a.asset_blob_id = ab.asset_blob_id"
+        + " WHERE a.component_id = " + SqlCleanupQuery.COMPONENT + ".component_id) < " + query.bind(cutTime);
+  }
 }
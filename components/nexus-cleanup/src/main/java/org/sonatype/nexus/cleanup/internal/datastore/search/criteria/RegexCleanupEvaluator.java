@@ -16,10 +16,13 @@ import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import javax.annotation.Nullable;
 import javax.inject.Named;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.cleanup.datastore.search.criteria.AssetCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.SqlCleanupQuery;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
 
@@ -33,8 +36,16 @@ import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.REGEX_KEY
 @Named(REGEX_KEY)
 public class RegexCleanupEvaluator
     extends ComponentSupport
-    implements AssetCleanupEvaluator
+    implements AssetCleanupEvaluator, SqlCleanupEvaluator
 {
+  /**
+   * Java regular expression constructs that PostgreSQL doesn't support, or interprets differently: embedded flags,
+   * lookarounds and named groups, escapes other than character classes and punctuation, possessive quantifiers and
+   * character class unions or intersections.
+   */
+  private static final Pattern NOT_POSTGRESQL_COMPATIBLE =
+      Pattern.compile("\\(\\?(?!:)|\\\\[a-zA-Z&&[^dDsSwW]]|\\\\\\d|[*+?}]\\+|\\[[^\\]]*\\[|&&");
+
   /*
    * Value is expected to be a regular expression which Java understands.
    */
@@ -52,4 +63,30 @@ public class RegexCleanupEvaluator
           String.format("Repository %s specifies an invalid regular expression.", repository.getName()), e);
     }
   }
+
+  /*
+   * H2 evaluates regular expressions with Java, while PostgreSQL only gets expressions which mean the same in both.
+   * Either way the expression is anchored, as the predicate requires the whole path to match.
+   */
+  @Nullable
+  @Override
+  public String getCondition(final Repository repository, final String value, final SqlCleanupQuery query) {
+    try {
+      Pattern.compile(value);
+    }
+    catch (PatternSyntaxException e) {
+      return null; // leave it to the predicate to report
+    }
+
+    String path = SqlCleanupQuery.ASSET + ".path";
+    String anchored = "^(?:" + value + ")$";
+    if (!query.isPostgresql()) {
+      return "REGEXP_LIKE(" + path + ", " + query.bind(anchored) + ")";
+    }
+    if (NOT_POSTGRESQL_COMPATIBLE.matcher(value).find()) {
+      log.debug("Regular expression '{}' of repository {} will be evaluated in memory", value, repository.getName());
+      return null;
+    }
+    return path + " ~ " + query.bind(anchored);
+  }
 }
@@ -54,6 +54,7 @@ import org.sonatype.nexus.cleanup.content.CleanupPolicyDeletedEvent;
 import org.sonatype.nexus.cleanup.content.CleanupPolicyUpdatedEvent;
 import org.sonatype.nexus.cleanup.internal.preview.CsvCleanupPreviewContentWriter;
 import org.sonatype.nexus.cleanup.preview.CleanupPreviewHelper;
+import org.sonatype.nexus.cleanup.preview.CleanupQueryPlanXO;
 import org.sonatype.nexus.cleanup.rest.CleanupPolicyRequestValidator;
 import org.sonatype.nexus.cleanup.rest.CleanupPolicyXO;
 import org.sonatype.nexus.cleanup.storage.CleanupPolicy;
@@ -302,12 +303,48 @@ public class CleanupPolicyResource
   @RequiresPermissions("nexus:*")
   public PageResult<ComponentXO> previewContent(PreviewRequestXO request)
   {
+    Repository repository = getPreviewRepository(request);
+    CleanupPolicyPreviewXO xo = toPreviewXO(request);
+    QueryOptions options = new QueryOptions(request.getFilter(), "name", "asc", 0, PREVIEW_ITEM_COUNT);
+
+    try {
+      PagedResponse<ComponentXO> response = cleanupPreviewHelper.get().getSearchResults(xo, repository, options);
+
+      return new PageResult<>(response.getTotal(), new ArrayList<>(response.getData()));
+    }
+    catch (IllegalArgumentException e) {
+      throw new ValidationErrorsException("filter", e.getMessage());
+    }
+  }
+
+  /**
+   * @since 3.next
+   */
+  @POST
+  @Path("preview/plan")
+  @RequiresAuthentication
+  @RequiresPermissions("nexus:*")
+  public CleanupQueryPlanXO previewPlan(PreviewRequestXO request)
+  {
+    Repository repository = getPreviewRepository(request);
+
+    CleanupQueryPlanXO plan = cleanupPreviewHelper.get().getQueryPlan(toPreviewXO(request), repository);
+    if (plan == null) {
+      throw new NotFoundException("Query plans are not available for repository " + repository.getName());
+    }
+    return plan;
+  }
+
+  private Repository getPreviewRepository(final PreviewRequestXO request) {
     Repository repository = repositoryManager.get(request.getRepository());
 
     if (repository == null) {
       throw new NotFoundException("Repository " + request.getRepository() + " not found.");
     }
+    return repository;
+  }
 
+  private static CleanupPolicyPreviewXO toPreviewXO(final PreviewRequestXO request) {
     CleanupPolicyPreviewXO xo = new CleanupPolicyPreviewXO();
     CleanupPolicyCriteria criteria = new CleanupPolicyCriteria(
         request.getCriteriaLastBlobUpdated(),
@@ -317,16 +354,7 @@ public class CleanupPolicyResource
         request.getCriteriaRetain(),
         request.getCriteriaSortBy());
     xo.setCriteria(criteria);
-    QueryOptions options = new QueryOptions(request.getFilter(), "name", "asc", 0, PREVIEW_ITEM_COUNT);
-
-    try {
-      PagedResponse<ComponentXO> response = cleanupPreviewHelper.get().getSearchResults(xo, repository, options);
-
-      return new PageResult<>(response.getTotal(), new ArrayList<>(response.getData()));
-    }
-    catch (IllegalArgumentException e) {
-      throw new ValidationErrorsException("filter", e.getMessage());
-    }
+    return xo;
   }
 
   @GET
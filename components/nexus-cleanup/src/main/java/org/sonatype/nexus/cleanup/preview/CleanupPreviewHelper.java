@@ -14,6 +14,8 @@ package org.sonatype.nexus.cleanup.preview;
 
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.nexus.cleanup.storage.CleanupPolicyPreviewXO;
 import org.sonatype.nexus.extdirect.model.PagedResponse;
 import org.sonatype.nexus.repository.Repository;
@@ -35,4 +37,15 @@ public interface CleanupPreviewHelper
       CleanupPolicyPreviewXO previewXO,
       Repository repository,
       QueryOptions queryOptions);
+
+  /**
+   * Describes how the criteria of the preview would be evaluated for the repository.
+   *
+   * @return the plan, or {@code null} if not supported
+   * @since 3.next
+   */
+  @Nullable
+  default CleanupQueryPlanXO getQueryPlan(CleanupPolicyPreviewXO previewXO, Repository repository) {
+    return null;
+  }
 }
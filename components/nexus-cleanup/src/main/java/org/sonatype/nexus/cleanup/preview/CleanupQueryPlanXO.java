@@ -0,0 +1,67 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.preview;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes which cleanup criteria are evaluated by the database, and which in memory.
+ *
+ * @since 3.next
+ */
+public class CleanupQueryPlanXO
+{
+  @Nullable
+  private final String sql;
+
+  private final Map<String, String> values;
+
+  private final List<String> sqlCriteria;
+
+  private final List<String> javaCriteria;
+
+  public CleanupQueryPlanXO(
+      @Nullable final String sql,
+      final Map<String, String> values,
+      final List<String> sqlCriteria,
+      final List<String> javaCriteria)
+  {
+    this.sql = sql;
+    this.values = values;
+    this.sqlCriteria = sqlCriteria;
+    this.javaCriteria = javaCriteria;
+  }
+
+  /**
+   * @return the query selecting components, or {@code null} if all components are browsed
+   */
+  @Nullable
+  public String getSql() {
+    return sql;
+  }
+
+  public Map<String, String> getValues() {
+    return values;
+  }
+
+  public List<String> getSqlCriteria() {
+    return sqlCriteria;
+  }
+
+  public List<String> getJavaCriteria() {
+    return javaCriteria;
+  }
+}
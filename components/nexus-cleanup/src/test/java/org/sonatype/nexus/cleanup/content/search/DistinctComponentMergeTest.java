@@ -0,0 +1,86 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.content.search;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+import org.sonatype.nexus.repository.content.store.ComponentData;
+import org.sonatype.nexus.repository.content.store.WrappedContent;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
+
+public class DistinctComponentMergeTest
+    extends TestSupport
+{
+  @Test
+  public void mergesByIdDroppingDuplicates() {
+    List<Integer> ids = merge(components(1, 4, 5, 9), components(2, 4, 9), components(), components(3, 4, 10));
+
+    assertThat(ids, contains(1, 2, 3, 4, 5, 9, 10));
+  }
+
+  @Test
+  public void mergeOfNothingIsEmpty() {
+    assertThat(DistinctComponentMerge.merge(emptyList()).collect(toList()), is(empty()));
+  }
+
+  @Test
+  public void closingTheMergeClosesEverySource() {
+    AtomicInteger closed = new AtomicInteger();
+    Stream<FluentComponent> first = components(1, 2).onClose(closed::incrementAndGet);
+    Stream<FluentComponent> second = components(2, 3).onClose(closed::incrementAndGet);
+
+    try (Stream<FluentComponent> merged = DistinctComponentMerge.merge(asList(first, second))) {
+      merged.findFirst();
+    }
+
+    assertThat(closed.get(), is(2));
+  }
+
+  @SafeVarargs
+  private static List<Integer> merge(final Stream<FluentComponent>... streams) {
+    try (Stream<FluentComponent> merged = DistinctComponentMerge.merge(asList(streams))) {
+      return merged.map(component -> internalComponentId(component)).collect(toList());
+    }
+  }
+
+  private static Stream<FluentComponent> components(final int... ids) {
+    return IntStream.of(ids).mapToObj(DistinctComponentMergeTest::component);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static FluentComponent component(final int id) {
+    ComponentData data = new ComponentData();
+    data.setComponentId(id);
+    FluentComponent component = mock(FluentComponent.class, withSettings().extraInterfaces(WrappedContent.class));
+    when(((WrappedContent) component).unwrap()).thenReturn(data);
+    return component;
+  }
+}
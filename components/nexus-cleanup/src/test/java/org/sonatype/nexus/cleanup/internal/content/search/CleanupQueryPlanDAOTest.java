@@ -0,0 +1,296 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.search;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.cleanup.datastore.search.criteria.AssetCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.ComponentCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.content.search.CleanupQueryPlan.Parameters;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.LastBlobUpdatedCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.LastDownloadedCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.RegexCleanupEvaluator;
+import org.sonatype.nexus.common.db.DatabaseCheck;
+import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.common.time.UTC;
+import org.sonatype.nexus.datastore.api.DataSession;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.store.AssetBlobData;
+import org.sonatype.nexus.repository.content.store.ComponentData;
+import org.sonatype.nexus.repository.content.store.ContentRepositoryData;
+import org.sonatype.nexus.repository.content.store.ExampleContentTestSupport;
+import org.sonatype.nexus.repository.content.store.example.TestAssetBlobDAO;
+import org.sonatype.nexus.repository.content.store.example.TestAssetDAO;
+import org.sonatype.nexus.repository.content.store.example.TestAssetData;
+import org.sonatype.nexus.repository.content.store.example.TestComponentDAO;
+import org.sonatype.nexus.repository.content.store.example.TestContentRepositoryDAO;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assume.assumeFalse;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_BLOB_UPDATED_KEY;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_DOWNLOADED_KEY;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.REGEX_KEY;
+import static org.sonatype.nexus.common.property.SystemPropertiesHelper.getBoolean;
+import static org.sonatype.nexus.datastore.api.DataStoreManager.DEFAULT_DATASTORE_NAME;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
+
+/**
+ * Runs {@link CleanupQueryPlan} queries against the content tables and checks they select the same components as the
+ * Java evaluators. Uses H2, or PostgreSQL when run with {@code -Dtest.postgres=true}.
+ */
+public class CleanupQueryPlanDAOTest
+    extends ExampleContentTestSupport
+{
+  private static final boolean POSTGRESQL = getBoolean("test.postgres", false);
+
+  private static final String FIVE_DAYS = "432000";
+
+  private static final int PAGE_SIZE = 2;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private DatabaseCheck databaseCheck;
+
+  private Map<String, ComponentCleanupEvaluator> componentCriteria;
+
+  private Map<String, AssetCleanupEvaluator> assetCriteria;
+
+  private CleanupQueryPlanner underTest;
+
+  private int repositoryId;
+
+  private final List<Component> components = new ArrayList<>();
+
+  private final Map<String, List<Asset>> assets = new HashMap<>();
+
+  @Before
+  public void setUp() {
+    when(repository.getName()).thenReturn("test-repo");
+    when(repository.getFormat()).thenReturn(new Format("test") { });
+    when(databaseCheck.isPostgresql()).thenReturn(POSTGRESQL);
+
+    componentCriteria = ImmutableMap.of(
+        LAST_BLOB_UPDATED_KEY, new LastBlobUpdatedCleanupEvaluator(),
+        LAST_DOWNLOADED_KEY, new LastDownloadedCleanupEvaluator());
+    assetCriteria = ImmutableMap.of(REGEX_KEY, new RegexCleanupEvaluator());
+    underTest = new CleanupQueryPlanner(componentCriteria, assetCriteria, databaseCheck, true);
+
+    ContentRepositoryData contentRepository = randomContentRepository();
+    ContentRepositoryData otherRepository = randomContentRepository();
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      session.access(TestContentRepositoryDAO.class).createContentRepository(contentRepository);
+      session.access(TestContentRepositoryDAO.class).createContentRepository(otherRepository);
+      session.getTransaction().commit();
+    }
+    repositoryId = contentRepository.contentRepositoryId();
+
+    OffsetDateTime old = UTC.now().minusDays(10);
+    OffsetDateTime recent = UTC.now().minusHours(1);
+
+    createComponent(repositoryId, "old-jar", new AssetFixture("/org/example/old.jar", old, null));
+    createComponent(repositoryId, "new-jar", new AssetFixture("/org/example/new.jar", recent, null));
+    createComponent(repositoryId, "old-pom", new AssetFixture("/org/example/old.pom", old, old));
+    createComponent(repositoryId, "downloaded-pom", new AssetFixture("/org/example/downloaded.pom", old, recent));
+    createComponent(repositoryId, "mixed",
+        new AssetFixture("/com/other/mixed.jar", old, null),
+        new AssetFixture("/org/example/mixed.txt", recent, null));
+    createComponent(repositoryId, "no-blob", new AssetFixture("/org/example/no-blob.jar", null, null));
+    createComponent(repositoryId, "no-assets");
+    createComponent(otherRepository.contentRepositoryId(), "other-repository",
+        new AssetFixture("/org/example/other.jar", old, null));
+  }
+
+  @Test
+  public void lastBlobUpdated() {
+    assertSameMatches(ImmutableMap.of(LAST_BLOB_UPDATED_KEY, FIVE_DAYS), "downloaded-pom", "old-jar", "old-pom");
+  }
+
+  @Test
+  public void lastDownloaded() {
+    assertSameMatches(ImmutableMap.of(LAST_DOWNLOADED_KEY, FIVE_DAYS), "old-jar", "old-pom");
+  }
+
+  @Test
+  public void regex() {
+    assertSameMatches(ImmutableMap.of(REGEX_KEY, "/org/example/.*\\.jar"), "new-jar", "no-blob", "old-jar");
+  }
+
+  @Test
+  public void regexWithJavaOnlyConstructsOnH2() {
+    assumeFalse(POSTGRESQL);
+
+    assertSameMatches(ImmutableMap.of(REGEX_KEY, "(?i)/ORG/EXAMPLE/.*\\.JAR"), "new-jar", "no-blob", "old-jar");
+  }
+
+  @Test
+  public void componentAndAssetCriteria() {
+    assertSameMatches(ImmutableMap.of(LAST_BLOB_UPDATED_KEY, FIVE_DAYS, REGEX_KEY, "/org/example/.*"),
+        "downloaded-pom", "old-jar", "old-pom");
+  }
+
+  @Test
+  public void anyOfSeveralPolicies() {
+    List<Map<String, String>> policies = asList(
+        ImmutableMap.of(LAST_DOWNLOADED_KEY, FIVE_DAYS),
+        ImmutableMap.of(REGEX_KEY, ".*\\.pom"));
+
+    CleanupQueryPlan plan = underTest.planAny(repository, policies);
+
+    assertThat(plan, notNullValue());
+    Set<String> expected = new TreeSet<>();
+    policies.forEach(criteria -> expected.addAll(javaMatches(criteria)));
+    assertThat(expected, contains("downloaded-pom", "old-jar", "old-pom"));
+    assertThat(sqlMatches(plan, false), is(expected));
+    assertThat(sqlMatches(plan, true), is(expected));
+  }
+
+  private void assertSameMatches(final Map<String, String> criteria, final String... expectedNames) {
+    CleanupQueryPlan plan = underTest.plan(repository, criteria);
+
+    assertThat(plan, notNullValue());
+    assertThat(plan.getJavaCriteria(), empty());
+    Set<String> expected = javaMatches(criteria);
+    assertThat(expected, contains(expectedNames));
+    assertThat(sqlMatches(plan, false), is(expected));
+    assertThat(sqlMatches(plan, true), is(expected));
+  }
+
+  /**
+   * Names of the repository's components matched by the Java predicates of the criteria.
+   */
+  private Set<String> javaMatches(final Map<String, String> criteria) {
+    List<BiPredicate<Component, Iterable<Asset>>> componentFilters = criteria.entrySet().stream()
+        .filter(entry -> componentCriteria.containsKey(entry.getKey()))
+        .map(entry -> componentCriteria.get(entry.getKey()).getPredicate(repository, entry.getValue()))
+        .collect(toList());
+    List<Predicate<Asset>> assetFilters = criteria.entrySet().stream()
+        .filter(entry -> assetCriteria.containsKey(entry.getKey()))
+        .map(entry -> assetCriteria.get(entry.getKey()).getPredicate(repository, entry.getValue()))
+        .collect(toList());
+
+    return components.stream()
+        .filter(component -> {
+          List<Asset> componentAssets = assets.get(component.name());
+          return componentFilters.stream().allMatch(filter -> filter.test(component, componentAssets))
+              && componentAssets.stream().anyMatch(asset -> assetFilters.stream().allMatch(f -> f.test(asset)));
+        })
+        .map(Component::name)
+        .collect(toCollection(TreeSet::new));
+  }
+
+  /**
+   * Names of the components selected by the plan, fetched a page at a time.
+   */
+  private Set<String> sqlMatches(final CleanupQueryPlan plan, final boolean withAssets) {
+    Set<String> names = new TreeSet<>();
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      TestComponentDAO dao = session.access(TestComponentDAO.class);
+      Integer continuationToken = null;
+      Continuation<Component> page;
+      do {
+        Parameters params = new Parameters(repositoryId, PAGE_SIZE, continuationToken, plan.getValues(), withAssets);
+        page = withAssets ? dao.selectComponentsWithAssets(plan, params) : dao.selectComponents(plan, params);
+        for (Component component : page) {
+          names.add(component.name());
+          if (withAssets) {
+            assertThat(((ComponentData) component).getAssets().size(), is(assets.get(component.name()).size()));
+          }
+        }
+        if (!page.isEmpty()) {
+          continuationToken = Integer.valueOf(page.nextContinuationToken());
+        }
+      }
+      while (page.size() == PAGE_SIZE);
+    }
+    return names;
+  }
+
+  private void createComponent(final int contentRepositoryId, final String name, final AssetFixture... fixtures) {
+    List<Asset> componentAssets = new ArrayList<>();
+    ComponentData component = component(contentRepositoryId, "org.example", name, "1.0");
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      session.access(TestComponentDAO.class).createComponent(component, false);
+      for (AssetFixture fixture : fixtures) {
+        TestAssetData asset = generateAsset(contentRepositoryId, fixture.path);
+        asset.setComponent(component);
+        session.access(TestAssetDAO.class).createAsset(asset, false);
+        if (fixture.blobCreated != null) {
+          AssetBlobData assetBlob = randomAssetBlob();
+          assetBlob.setBlobCreated(fixture.blobCreated);
+          session.access(TestAssetBlobDAO.class).createAssetBlob(assetBlob);
+          asset.setAssetBlob(assetBlob);
+          session.access(TestAssetDAO.class).updateAssetBlobLink(asset, false);
+        }
+        if (fixture.lastDownloaded != null) {
+          session.access(TestAssetDAO.class).lastDownloaded(internalAssetId(asset), fixture.lastDownloaded);
+          asset.setLastDownloaded(fixture.lastDownloaded);
+        }
+        componentAssets.add(asset);
+      }
+      session.getTransaction().commit();
+    }
+    if (contentRepositoryId == repositoryId) {
+      components.add(component);
+      assets.put(name, componentAssets);
+    }
+  }
+
+  private static class AssetFixture
+  {
+    private final String path;
+
+    @Nullable
+    private final OffsetDateTime blobCreated;
+
+    @Nullable
+    private final OffsetDateTime lastDownloaded;
+
+    private AssetFixture(
+        final String path,
+        @Nullable final OffsetDateTime blobCreated,
+        @Nullable final OffsetDateTime lastDownloaded)
+    {
+      this.path = path;
+      this.blobCreated = blobCreated;
+      this.lastDownloaded = lastDownloaded;
+    }
+  }
+}
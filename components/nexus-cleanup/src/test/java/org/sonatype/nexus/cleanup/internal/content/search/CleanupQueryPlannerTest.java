@@ -0,0 +1,142 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.search;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.AssetCleanupEvaluator;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.ComponentCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.LastBlobUpdatedCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.PrereleaseCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.datastore.search.criteria.RegexCleanupEvaluator;
+import org.sonatype.nexus.common.db.DatabaseCheck;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.IS_PRERELEASE_KEY;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_BLOB_UPDATED_KEY;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.REGEX_KEY;
+
+public class CleanupQueryPlannerTest
+    extends TestSupport
+{
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private DatabaseCheck databaseCheck;
+
+  private Map<String, ComponentCleanupEvaluator> componentCriteria;
+
+  private Map<String, AssetCleanupEvaluator> assetCriteria;
+
+  @Before
+  public void setUp() {
+    when(repository.getName()).thenReturn("maven-releases");
+    when(repository.getFormat()).thenReturn(new Format("maven2") { });
+    when(databaseCheck.isPostgresql()).thenReturn(true);
+
+    componentCriteria = ImmutableMap.of(
+        LAST_BLOB_UPDATED_KEY, new LastBlobUpdatedCleanupEvaluator(),
+        IS_PRERELEASE_KEY, new PrereleaseCleanupEvaluator(emptyMap()));
+    assetCriteria = ImmutableMap.of(REGEX_KEY, new RegexCleanupEvaluator());
+  }
+
+  @Test
+  public void translatableCriteriaAreEvaluatedInSql() {
+    CleanupQueryPlan plan = planner(true).plan(repository, ImmutableMap.of(
+        LAST_BLOB_UPDATED_KEY, "86400",
+        REGEX_KEY, "org/example/.*\\.jar",
+        IS_PRERELEASE_KEY, "true"));
+
+    assertThat(plan.getSqlCriteria(), contains(LAST_BLOB_UPDATED_KEY, REGEX_KEY));
+    assertThat(plan.getJavaCriteria(), contains(IS_PRERELEASE_KEY));
+    assertThat(plan.getSql(), containsString("FROM maven2_component AS component"));
+    assertThat(plan.getSql(), containsString("MAX(ab.blob_created)"));
+    assertThat(plan.getSql(), containsString("asset.path ~ #{params.values.v1}"));
+    assertThat(plan.getValues().get("v0"), instanceOf(OffsetDateTime.class));
+    assertThat(plan.getValues().get("v1"), is("^(?:org/example/.*\\.jar)$"));
+  }
+
+  @Test
+  public void regexUsesJavaSemanticsOnH2() {
+    when(databaseCheck.isPostgresql()).thenReturn(false);
+
+    CleanupQueryPlan plan = planner(true).plan(repository, ImmutableMap.of(REGEX_KEY, "(?i)ORG/.*"));
+
+    assertThat(plan.getSqlCriteria(), contains(REGEX_KEY));
+    assertThat(plan.getSql(), containsString("REGEXP_LIKE(asset.path, #{params.values.v0})"));
+  }
+
+  @Test
+  public void incompatibleRegexIsEvaluatedInJava() {
+    CleanupQueryPlan plan = planner(true).plan(repository, ImmutableMap.of(
+        LAST_BLOB_UPDATED_KEY, "86400",
+        REGEX_KEY, "(?i)ORG/.*"));
+
+    assertThat(plan.getSqlCriteria(), contains(LAST_BLOB_UPDATED_KEY));
+    assertThat(plan.getJavaCriteria(), contains(REGEX_KEY));
+    assertThat(plan.getSql(), not(containsString(" ~ ")));
+    assertThat(plan.getSql(), containsString("EXISTS (SELECT 1 FROM maven2_asset AS asset"));
+  }
+
+  @Test
+  public void noPlanWhenNothingCanBeTranslated() {
+    assertThat(planner(true).plan(repository, ImmutableMap.of(IS_PRERELEASE_KEY, "true")), nullValue());
+    assertThat(planner(false).plan(repository, ImmutableMap.of(LAST_BLOB_UPDATED_KEY, "86400")), nullValue());
+  }
+
+  @Test
+  public void continuationTokenIsOnlyUsedForLaterPages() {
+    CleanupQueryPlan plan = planner(true).plan(repository, ImmutableMap.of(LAST_BLOB_UPDATED_KEY, "86400"));
+
+    assertThat(plan.getJavaCriteria(), empty());
+    assertThat(plan.getSql(), not(containsString("continuationToken")));
+    assertThat(plan.generateSelectStatement(new CleanupQueryPlan.Parameters(1, 10, 42, plan.getValues(), false)),
+        containsString("component.component_id > #{params.continuationToken}"));
+  }
+
+  @Test
+  public void assetsAreJoinedToAPageOfMatchingComponents() {
+    CleanupQueryPlan plan = planner(true).plan(repository, ImmutableMap.of(LAST_BLOB_UPDATED_KEY, "86400"));
+
+    String sql = plan.generateSelectStatement(new CleanupQueryPlan.Parameters(1, 10, null, plan.getValues(), true));
+
+    assertThat(sql, startsWith("WITH matches AS (SELECT component.component_id FROM maven2_component AS component"));
+    assertThat(sql, containsString("LIMIT #{params.limit}) SELECT component.*, asset.*"));
+    assertThat(sql, containsString("LEFT JOIN maven2_asset AS asset ON component.component_id = asset.component_id"));
+    assertThat(sql, containsString("component.component_id AS orderedToken"));
+  }
+
+  private CleanupQueryPlanner planner(final boolean enabled) {
+    return new CleanupQueryPlanner(componentCriteria, assetCriteria, databaseCheck, enabled);
+  }
+}
@@ -13,8 +13,10 @@
 package org.sonatype.nexus.cleanup.internal.content.service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BooleanSupplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Stream;
 
 import org.sonatype.goodies.testsupport.TestSupport;
@@ -51,6 +53,7 @@ import static java.util.stream.Stream.empty;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -342,6 +345,28 @@ public class CleanupServiceImplTest
     verify(cleanupMethod, times(3)).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
   }
 
+  @Test
+  public void parallelCleanupEvaluatesAllPoliciesOfARepositoryInOnePass() {
+    ParallelCleanupExecutor parallelExecutor = mock(ParallelCleanupExecutor.class);
+    when(parallelExecutor.isEnabled()).thenReturn(true);
+    when(parallelExecutor.cleanup(any(), any(), any())).thenAnswer(invocation -> {
+      List<Repository> repositories = invocation.getArgument(0);
+      ToLongFunction<Repository> cleanup = invocation.getArgument(1);
+      return repositories.stream().mapToLong(cleanup).sum();
+    });
+    underTest.setParallelExecutor(parallelExecutor);
+
+    setupForMultiplePolicies(repository1, "abc", "def", "ghi");
+    Stream<FluentComponent> components = ImmutableList.of(component1, component2).stream();
+    when(browseService.browse(anyList(), eq(repository1))).thenReturn(components);
+
+    underTest.cleanup(cancelledCheck);
+
+    verify(parallelExecutor).cleanup(eq(asList(repository1, repository2)), any(), eq(cancelledCheck));
+    verify(cleanupMethod).run(repository1, components, cancelledCheck);
+    verify(cleanupMethod).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
+  }
+
   private void setupRepository(final Repository repository, final String... policyName) {
     Configuration repositoryConfig = mock(Configuration.class);
     when(repository.getConfiguration()).thenReturn(repositoryConfig);
@@ -0,0 +1,182 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.cleanup.internal.content.service.ParallelCleanupExecutor.BatchIterator;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.config.Configuration;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.STORAGE;
+
+public class ParallelCleanupExecutorTest
+    extends TestSupport
+{
+  private ParallelCleanupExecutor underTest;
+
+  @Before
+  public void setUp() {
+    ThreadContext.bind(FakeAlmightySubject.forUserId("testUser"));
+    underTest = new ParallelCleanupExecutor(true, 4, 1, 2);
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void cleansUpRepositoriesWithinTheBlobStoreLimit() {
+    List<Repository> repositories = asList(
+        repository("r1", "a"), repository("r2", "a"), repository("r3", "b"), repository("r4", "b"));
+
+    Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<String> cleaned = new CopyOnWriteArrayList<>();
+
+    long deleted = underTest.cleanup(repositories, repository -> {
+      String blobStore = repository.getName().equals("r1") || repository.getName().equals("r2") ? "a" : "b";
+      int count = running.computeIfAbsent(blobStore, key -> new AtomicInteger()).incrementAndGet();
+      maxRunning.accumulateAndGet(count, Math::max);
+      try {
+        Thread.sleep(20);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.get(blobStore).decrementAndGet();
+      cleaned.add(repository.getName());
+      return 2;
+    }, () -> false);
+
+    assertThat(deleted, is(8L));
+    assertThat(maxRunning.get(), is(1));
+    assertThat(cleaned, containsInAnyOrder("r1", "r2", "r3", "r4"));
+  }
+
+  @Test
+  public void failedRepositoryDoesNotStopTheOthers() {
+    List<Repository> repositories = asList(repository("r1", "a"), repository("r2", "b"));
+
+    long deleted = underTest.cleanup(repositories, repository -> {
+      if (repository.getName().equals("r1")) {
+        throw new IllegalStateException("expected");
+      }
+      return 3;
+    }, () -> false);
+
+    assertThat(deleted, is(3L));
+  }
+
+  @Test
+  public void cancelledCleanupStartsNoRepositories() {
+    List<String> cleaned = new ArrayList<>();
+
+    long deleted = underTest.cleanup(asList(repository("r1", "a")), repository -> {
+      cleaned.add(repository.getName());
+      return 1;
+    }, () -> true);
+
+    assertThat(deleted, is(0L));
+    assertThat(cleaned.isEmpty(), is(true));
+  }
+
+  @Test
+  public void repositoriesAreCleanedUpInlineWhenNoThreadIsAvailable() {
+    underTest = new ParallelCleanupExecutor(true, 1, 1, 1);
+    List<String> cleaned = new CopyOnWriteArrayList<>();
+
+    // both of the pool's threads are kept busy prefetching batches that are never consumed
+    try (BatchIterator<Integer> first = underTest.prefetch(Iterators.cycle(1), 1);
+         BatchIterator<Integer> second = underTest.prefetch(Iterators.cycle(2), 1)) {
+      long deleted = underTest.cleanup(asList(repository("r1", "a"), repository("r2", "b")), repository -> {
+        cleaned.add(repository.getName());
+        return 1;
+      }, () -> false);
+
+      assertThat(deleted, is(2L));
+      assertThat(cleaned, contains("r1", "r2"));
+    }
+  }
+
+  @Test
+  public void prefetchReturnsAllBatchesInOrder() {
+    List<List<Integer>> batches = new ArrayList<>();
+    try (BatchIterator<Integer> iterator = underTest.prefetch(IntStream.range(0, 10).boxed().iterator(), 3)) {
+      iterator.forEachRemaining(batches::add);
+    }
+
+    assertThat(batches, contains(asList(0, 1, 2), asList(3, 4, 5), asList(6, 7, 8), asList(9)));
+  }
+
+  @Test
+  public void prefetchIsInlineWhenDisabled() {
+    underTest = new ParallelCleanupExecutor(false, 4, 1, 2);
+
+    List<List<Integer>> batches = new ArrayList<>();
+    try (BatchIterator<Integer> iterator = underTest.prefetch(IntStream.range(0, 4).boxed().iterator(), 2)) {
+      iterator.forEachRemaining(batches::add);
+    }
+
+    assertThat(batches, contains(asList(0, 1), asList(2, 3)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void prefetchRethrowsBrowseFailures() {
+    List<Integer> items = IntStream.range(0, 4).boxed().collect(toList());
+    try (BatchIterator<Integer> iterator = underTest.prefetch(items.stream().map(item -> {
+      if (item == 3) {
+        throw new IllegalStateException("expected");
+      }
+      return item;
+    }).iterator(), 2)) {
+      iterator.forEachRemaining(batch -> { });
+    }
+  }
+
+  private static Repository repository(final String name, final String blobStore) {
+    Repository repository = mock(Repository.class);
+    Configuration configuration = mock(Configuration.class);
+    when(repository.getName()).thenReturn(name);
+    when(repository.getConfiguration()).thenReturn(configuration);
+    when(configuration.attributes(STORAGE))
+        .thenReturn(new NestedAttributesMap(STORAGE, ImmutableMap.of(BLOB_STORE_NAME, blobStore)));
+    return repository;
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.event;
+
+import javax.annotation.Nullable;
+
+/**
+ * Event mix-in that declares which pending events it supersedes during bounded asynchronous event delivery.
+ *
+ * When a subscriber queue coalesces events, a new event replaces any pending event with an equal key that has
+ * not yet been delivered to that subscriber. Only events whose subscribers just need the latest state should
+ * implement this.
+ *
+ * @since 3.next
+ */
+public interface HasCoalescingKey
+{
+  /**
+   * @return coalescing key; {@code null} if this event should never be coalesced
+   */
+  @Nullable
+  Object getCoalescingKey();
+}
@@ -0,0 +1,122 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.httpclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Per-route metrics for outbound HTTP connections: how long connects and TLS handshakes take, how many TLS sessions
+ * were resumed, and how many connections are in use.
+ *
+ * Metrics are registered as {@code nexus.httpclient.route.<host:port>.<metric>} when the first connection to the
+ * route is opened.
+ *
+ * @since 3.next
+ */
+class HttpRouteMetrics
+{
+  static final String PREFIX = "nexus.httpclient.route.";
+
+  static final String CONNECT = "connect";
+
+  static final String HANDSHAKE = "handshake";
+
+  static final String RESUMED = "tls.resumed";
+
+  static final String FULL_HANDSHAKES = "tls.full";
+
+  static final String LEASED = "leased";
+
+  static final String AVAILABLE = "available";
+
+  static final String PENDING = "pending";
+
+  private final MetricRegistry registry;
+
+  private final ConnPoolControl<HttpRoute> pool;
+
+  private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+  HttpRouteMetrics(final MetricRegistry registry, final ConnPoolControl<HttpRoute> pool) {
+    this.registry = checkNotNull(registry);
+    this.pool = checkNotNull(pool);
+  }
+
+  /**
+   * Records a new connection to the route, or TLS being layered over a tunnelled connection.
+   *
+   * @param connectNanos   time taken to connect, including any TLS handshake; absent when upgrading a tunnel
+   * @param handshakeNanos time taken by the TLS handshake, if there was one
+   * @param resumed        whether the TLS session was resumed, if there was one
+   */
+  void connected(
+      final HttpRoute route,
+      @Nullable final Long connectNanos,
+      @Nullable final Long handshakeNanos,
+      @Nullable final Boolean resumed)
+  {
+    Route metrics = routes.computeIfAbsent(name(route), name -> new Route(name, route));
+    if (connectNanos != null) {
+      metrics.connect.update(connectNanos, TimeUnit.NANOSECONDS);
+    }
+    if (handshakeNanos != null) {
+      metrics.handshake.update(handshakeNanos, TimeUnit.NANOSECONDS);
+    }
+    if (resumed != null) {
+      (resumed ? metrics.resumed : metrics.fullHandshakes).inc();
+    }
+  }
+
+  static String name(final HttpRoute route) {
+    return PREFIX + route.getTargetHost().toHostString();
+  }
+
+  private class Route
+  {
+    private final Timer connect;
+
+    private final Timer handshake;
+
+    private final Counter resumed;
+
+    private final Counter fullHandshakes;
+
+    private Route(final String name, final HttpRoute route) {
+      connect = registry.timer(MetricRegistry.name(name, CONNECT));
+      handshake = registry.timer(MetricRegistry.name(name, HANDSHAKE));
+      resumed = registry.counter(MetricRegistry.name(name, RESUMED));
+      fullHandshakes = registry.counter(MetricRegistry.name(name, FULL_HANDSHAKES));
+      gauge(MetricRegistry.name(name, LEASED), () -> pool.getStats(route).getLeased());
+      gauge(MetricRegistry.name(name, AVAILABLE), () -> pool.getStats(route).getAvailable());
+      gauge(MetricRegistry.name(name, PENDING), () -> pool.getStats(route).getPending());
+    }
+
+    private void gauge(final String name, final Gauge<Integer> gauge) {
+      registry.remove(name); // replace any gauge left over from an earlier pool
+      registry.register(name, gauge);
+    }
+  }
+}
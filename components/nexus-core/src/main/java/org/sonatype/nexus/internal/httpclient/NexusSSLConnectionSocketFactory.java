@@ -19,6 +19,8 @@ import java.util.List;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
 
 import org.sonatype.nexus.common.text.Strings2;
 import org.sonatype.nexus.httpclient.SSLContextSelector;
@@ -40,8 +42,17 @@ import static org.apache.http.conn.ssl.SSLConnectionSocketFactory.getDefaultHost
 public class NexusSSLConnectionSocketFactory
     implements LayeredConnectionSocketFactory
 {
+  /**
+   * Context attribute holding the duration of the last TLS handshake, in nanoseconds.
+   *
+   * @since 3.next
+   */
+  static final String HANDSHAKE_NANOS = NexusSSLConnectionSocketFactory.class.getName() + ".handshakeNanos";
+
   private static final Splitter propertiesSplitter = Splitter.on(',').trimResults().omitEmptyStrings();
 
+  private static final ThreadLocal<Long> handshakeStart = new ThreadLocal<>();
+
   private final SSLConnectionSocketFactory defaultSocketFactory;
 
   @Nullable
@@ -52,10 +63,12 @@ public class NexusSSLConnectionSocketFactory
   private final String[] supportedCipherSuites;
 
   public NexusSSLConnectionSocketFactory(@Nullable final List<SSLContextSelector> sslContextSelectors) {
-    this.defaultSocketFactory = SSLConnectionSocketFactory.getSystemSocketFactory();
     this.sslContextSelectors = sslContextSelectors; // might be null
     this.supportedProtocols = split(System.getProperty("https.protocols"));
     this.supportedCipherSuites = split(System.getProperty("https.cipherSuites"));
+    // same as SSLConnectionSocketFactory.getSystemSocketFactory(), but timing handshakes
+    this.defaultSocketFactory = new TimedSSLConnectionSocketFactory(
+        (SSLSocketFactory) SSLSocketFactory.getDefault(), supportedProtocols, supportedCipherSuites);
   }
 
   private SSLConnectionSocketFactory select(final HttpContext context) {
@@ -63,8 +76,8 @@ public class NexusSSLConnectionSocketFactory
       for (SSLContextSelector selector : sslContextSelectors) {
         SSLContext sslContext = selector.select(context);
         if (sslContext != null) {
-          return new SSLConnectionSocketFactory(
-              sslContext, supportedProtocols, supportedCipherSuites, getDefaultHostnameVerifier()
+          return new TimedSSLConnectionSocketFactory(
+              sslContext.getSocketFactory(), supportedProtocols, supportedCipherSuites
           );
         }
       }
@@ -86,14 +99,31 @@ public class NexusSSLConnectionSocketFactory
                               final HttpContext context)
       throws IOException
   {
-    return select(context).connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+    handshakeStart.remove();
+    Socket connected =
+        select(context).connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+    recordHandshake(context);
+    return connected;
   }
 
   @Override
   public Socket createLayeredSocket(final Socket socket, final String target, final int port, final HttpContext context)
       throws IOException
   {
-    return select(context).createLayeredSocket(socket, target, port, context);
+    handshakeStart.remove();
+    Socket layered = select(context).createLayeredSocket(socket, target, port, context);
+    recordHandshake(context);
+    return layered;
+  }
+
+  private static void recordHandshake(@Nullable final HttpContext context) {
+    Long start = handshakeStart.get();
+    if (start != null) {
+      handshakeStart.remove();
+      if (context != null) {
+        context.setAttribute(HANDSHAKE_NANOS, System.nanoTime() - start);
+      }
+    }
   }
 
   private static String[] split(final String s) {
@@ -102,4 +132,24 @@ public class NexusSSLConnectionSocketFactory
     }
     return Iterables.toArray(propertiesSplitter.split(s), String.class);
   }
+
+  /**
+   * Notes when the TLS handshake starts, so it can be timed once the layered socket is returned.
+   */
+  private static class TimedSSLConnectionSocketFactory
+      extends SSLConnectionSocketFactory
+  {
+    TimedSSLConnectionSocketFactory(
+        final SSLSocketFactory socketFactory,
+        @Nullable final String[] supportedProtocols,
+        @Nullable final String[] supportedCipherSuites)
+    {
+      super(socketFactory, supportedProtocols, supportedCipherSuites, getDefaultHostnameVerifier());
+    }
+
+    @Override
+    protected void prepareSocket(final SSLSocket socket) throws IOException {
+      handshakeStart.set(System.nanoTime());
+    }
+  }
 }
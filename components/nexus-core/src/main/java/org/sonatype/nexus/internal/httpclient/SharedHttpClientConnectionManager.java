@@ -12,24 +12,32 @@
  */
 package org.sonatype.nexus.internal.httpclient;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import javax.net.ssl.SSLSession;
 
 import org.sonatype.goodies.common.Time;
 import org.sonatype.goodies.lifecycle.Lifecycle;
 import org.sonatype.nexus.httpclient.SSLContextSelector;
 
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
 import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +67,9 @@ public class SharedHttpClientConnectionManager
 
   private ConnectionEvictionThread evictionThread;
 
+  @Nullable
+  private HttpRouteMetrics routeMetrics;
+
   @Inject
   public SharedHttpClientConnectionManager(
       final List<SSLContextSelector> sslContextSelectors,
@@ -92,6 +103,65 @@ public class SharedHttpClientConnectionManager
     log.debug("Default socket timeout {}", defaultSocketTimeout);
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.routeMetrics = new HttpRouteMetrics(metricRegistry, this);
+  }
+
+  @Override
+  public void connect(
+      final HttpClientConnection managedConn,
+      final HttpRoute route,
+      final int connectTimeout,
+      final HttpContext context) throws IOException
+  {
+    long startMillis = System.currentTimeMillis();
+    long start = System.nanoTime();
+    super.connect(managedConn, route, connectTimeout, context);
+    recordConnect(managedConn, route, context, startMillis, System.nanoTime() - start);
+  }
+
+  @Override
+  public void upgrade(
+      final HttpClientConnection managedConn,
+      final HttpRoute route,
+      final HttpContext context) throws IOException
+  {
+    // TLS over a tunnelling proxy happens here rather than in connect
+    long startMillis = System.currentTimeMillis();
+    super.upgrade(managedConn, route, context);
+    recordConnect(managedConn, route, context, startMillis, null);
+  }
+
+  private void recordConnect(
+      final HttpClientConnection managedConn,
+      final HttpRoute route,
+      @Nullable final HttpContext context,
+      final long startMillis,
+      @Nullable final Long elapsedNanos)
+  {
+    if (routeMetrics == null) {
+      return;
+    }
+    Long handshakeNanos = null;
+    if (context != null) {
+      handshakeNanos = (Long) context.getAttribute(NexusSSLConnectionSocketFactory.HANDSHAKE_NANOS);
+      context.removeAttribute(NexusSSLConnectionSocketFactory.HANDSHAKE_NANOS);
+    }
+    Boolean resumed = null;
+    if (managedConn instanceof ManagedHttpClientConnection) {
+      SSLSession session = ((ManagedHttpClientConnection) managedConn).getSSLSession();
+      if (session != null) {
+        // a resumed session was created by an earlier handshake
+        resumed = session.getCreationTime() < startMillis;
+      }
+    }
+    routeMetrics.connected(route, elapsedNanos, handshakeNanos, resumed);
+  }
+
   private static Registry<ConnectionSocketFactory> createRegistry(final List<SSLContextSelector> sslContextSelectors) {
     RegistryBuilder<ConnectionSocketFactory> builder = RegistryBuilder.create();
     builder.register(HTTP, PlainConnectionSocketFactory.getSocketFactory());
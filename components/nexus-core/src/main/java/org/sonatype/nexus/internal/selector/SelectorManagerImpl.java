@@ -35,6 +35,7 @@ import org.sonatype.nexus.cache.CacheHelper;
 import org.sonatype.nexus.common.app.ManagedLifecycle;
 import org.sonatype.nexus.common.entity.EntityId;
 import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport;
 import org.sonatype.nexus.datastore.api.DuplicateKeyException;
@@ -54,6 +55,7 @@ import org.sonatype.nexus.security.role.RoleIdentifier;
 import org.sonatype.nexus.security.user.User;
 import org.sonatype.nexus.security.user.UserManager;
 import org.sonatype.nexus.security.user.UserNotFoundException;
+import org.sonatype.nexus.selector.CselSelector;
 import org.sonatype.nexus.selector.CselToSql;
 import org.sonatype.nexus.selector.Selector;
 import org.sonatype.nexus.selector.SelectorConfiguration;
@@ -64,6 +66,7 @@ import org.sonatype.nexus.selector.SelectorManager;
 import org.sonatype.nexus.selector.SelectorSqlBuilder;
 import org.sonatype.nexus.selector.VariableSource;
 
+import com.codahale.metrics.annotation.Timed;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -98,12 +101,19 @@ public class SelectorManagerImpl
 
   private static final String USER_CACHE_KEY = "SelectorManager";
 
+  /**
+   * Each distinct set of selectors held by a user gets its own combined selector, so bound how many are kept.
+   */
+  private static final int ANY_OF_CACHE_SIZE = SystemPropertiesHelper.getInteger("nexus.selector.anyOfCacheSize", 1000);
+
   private final SelectorConfigurationStore store;
 
   private final SecuritySystem securitySystem;
 
   private final LoadingCache<SelectorConfiguration, Selector> selectorCache;
 
+  private final LoadingCache<List<SelectorConfiguration>, Selector> anyOfSelectorCache;
+
   private final CacheHelper cacheHelper;
 
   private final Duration userCacheTimeout;
@@ -132,6 +142,9 @@ public class SelectorManagerImpl
       String expression = config.getAttributes().get(SelectorConfiguration.EXPRESSION);
       return selectorFactory.createSelector(type, expression);
     }));
+    anyOfSelectorCache = CacheBuilder.newBuilder().maximumSize(ANY_OF_CACHE_SIZE).softValues()
+        .build(CacheLoader.from(configs -> CselSelector.anyOf(
+            configs.stream().map(selectorCache::getUnchecked).collect(toList()))));
   }
 
   @Override
@@ -227,6 +240,7 @@ public class SelectorManagerImpl
     rolesCache = Collections.emptyMap();
 
     selectorCache.invalidateAll();
+    anyOfSelectorCache.invalidateAll();
   }
 
   @Subscribe
@@ -246,6 +260,7 @@ public class SelectorManagerImpl
     cachedBrowseResult = EMPTY_CACHE;
     rolesCache = Collections.emptyMap();
     selectorCache.invalidateAll();
+    anyOfSelectorCache.invalidateAll();
   }
 
   /**
@@ -260,6 +275,7 @@ public class SelectorManagerImpl
 
   @Override
   @Guarded(by = STARTED)
+  @Timed
   public boolean evaluate(final SelectorConfiguration selectorConfiguration, final VariableSource variableSource)
       throws SelectorEvaluationException
   {
@@ -272,6 +288,31 @@ public class SelectorManagerImpl
     }
   }
 
+  /**
+   * Evaluates the selectors as one, so conditions they have in common are merged and checked together.
+   */
+  @Override
+  @Guarded(by = STARTED)
+  @Timed
+  public boolean evaluateAny(
+      final List<SelectorConfiguration> selectorConfigurations,
+      final VariableSource variableSource)
+  {
+    if (selectorConfigurations.size() <= 1) {
+      return SelectorManager.super.evaluateAny(selectorConfigurations, variableSource);
+    }
+
+    Selector selector;
+    try {
+      selector = anyOfSelectorCache.getUnchecked(ImmutableList.copyOf(selectorConfigurations));
+    }
+    catch (Exception e) {
+      log.debug("Unable to combine selectors {}", selectorConfigurations, e);
+      return SelectorManager.super.evaluateAny(selectorConfigurations, variableSource);
+    }
+    return selector.evaluate(variableSource);
+  }
+
   @Override
   public void toSql(final SelectorConfiguration selectorConfiguration, final SelectorSqlBuilder sqlBuilder)
       throws SelectorEvaluationException
@@ -0,0 +1,89 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.httpclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.AVAILABLE;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.CONNECT;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.FULL_HANDSHAKES;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.HANDSHAKE;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.LEASED;
+import static org.sonatype.nexus.internal.httpclient.HttpRouteMetrics.RESUMED;
+
+/**
+ * Tests for {@link HttpRouteMetrics}.
+ */
+public class HttpRouteMetricsTest
+    extends TestSupport
+{
+  private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("example.com", 443, "https"));
+
+  private static final String PREFIX = "nexus.httpclient.route.example.com:443.";
+
+  @Mock
+  private ConnPoolControl<HttpRoute> pool;
+
+  private final MetricRegistry registry = new MetricRegistry();
+
+  private HttpRouteMetrics underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new HttpRouteMetrics(registry, pool);
+  }
+
+  @Test
+  public void recordsConnectsAndHandshakesPerRoute() {
+    underTest.connected(ROUTE, TimeUnit.MILLISECONDS.toNanos(30), TimeUnit.MILLISECONDS.toNanos(20), false);
+    underTest.connected(ROUTE, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(2), true);
+    underTest.connected(ROUTE, TimeUnit.MILLISECONDS.toNanos(8), TimeUnit.MILLISECONDS.toNanos(1), true);
+
+    assertThat(registry.timer(PREFIX + CONNECT).getCount(), is(3L));
+    assertThat(registry.timer(PREFIX + HANDSHAKE).getCount(), is(3L));
+    assertThat(registry.counter(PREFIX + FULL_HANDSHAKES).getCount(), is(1L));
+    assertThat(registry.counter(PREFIX + RESUMED).getCount(), is(2L));
+  }
+
+  @Test
+  public void tunnelUpgradesOnlyRecordHandshakes() {
+    underTest.connected(ROUTE, null, TimeUnit.MILLISECONDS.toNanos(20), false);
+
+    assertThat(registry.timer(PREFIX + CONNECT).getCount(), is(0L));
+    assertThat(registry.timer(PREFIX + HANDSHAKE).getCount(), is(1L));
+  }
+
+  @Test
+  public void poolUsageIsReportedForTheRoute() {
+    when(pool.getStats(ROUTE)).thenReturn(new PoolStats(4, 0, 2, 20));
+
+    underTest.connected(ROUTE, 1L, null, null);
+
+    assertThat(registry.getGauges().get(PREFIX + LEASED).getValue(), is(4));
+    assertThat(registry.getGauges().get(PREFIX + AVAILABLE).getValue(), is(2));
+  }
+}
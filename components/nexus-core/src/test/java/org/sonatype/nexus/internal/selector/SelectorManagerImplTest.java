@@ -162,6 +162,27 @@ public class SelectorManagerImplTest
     manager.evaluate(selectorConfiguration, variableSource);
   }
 
+  @Test
+  public void combinedSelectorsAreRebuiltWhenSelectorsChange() throws Exception {
+    SelectorConfiguration first = getSelectorConfiguration(JexlSelector.TYPE, "false");
+    first.setName("first");
+    SelectorConfiguration second = getSelectorConfiguration(JexlSelector.TYPE, "false");
+    second.setName("second");
+    List<SelectorConfiguration> configurations = asList(first, second);
+
+    assertThat(manager.evaluateAny(configurations, variableSource), is(false));
+
+    Selector changedSelector = mock(Selector.class);
+    when(changedSelector.evaluate(variableSource)).thenReturn(true);
+    when(selectorFactory.createSelector(JexlSelector.TYPE, "false")).thenReturn(changedSelector);
+
+    assertThat(manager.evaluateAny(configurations, variableSource), is(false));
+
+    manager.on(mock(SelectorConfigurationEvent.class));
+
+    assertThat(manager.evaluateAny(configurations, variableSource), is(true));
+  }
+
   @Test
   public void testBrowseJexl() {
     List<SelectorConfiguration> configs = asList(getSelectorConfiguration(JexlSelector.TYPE, "true"),
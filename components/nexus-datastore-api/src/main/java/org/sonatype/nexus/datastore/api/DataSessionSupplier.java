@@ -37,6 +37,17 @@ public interface DataSessionSupplier
    */
   DataSession<?> openSerializableTransactionSession(String storeName);
 
+  /**
+   * Opens a new read-only {@link DataSession} against the named data store; this may be served by a read replica and
+   * so may not see the most recent writes. Falls back to {@link #openSession} by default.
+   *
+   * @throws DataStoreNotFoundException if the store does not exist
+   * @since 3.next
+   */
+  default DataSession<?> openReadOnlySession(final String storeName) {
+    return openSession(storeName);
+  }
+
   /**
    * Opens a new JDBC {@link Connection} to the named data store.
    *
@@ -14,6 +14,7 @@ package org.sonatype.nexus.datastore.api;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -36,6 +37,13 @@ public class DataStoreConfiguration
 {
   public static final String REDACTED = "**REDACTED**";
 
+  /**
+   * Prefix of attributes that configure an optional read replica, for example {@code replica.jdbcUrl}.
+   *
+   * @since 3.next
+   */
+  public static final String REPLICA_PREFIX = "replica.";
+
   private static final String JDBC_URL = "jdbcUrl";
 
   private static final Predicate<String> SENSITIVE_KEYS =
@@ -88,6 +96,40 @@ public class DataStoreConfiguration
     return SENSITIVE_KEYS.test(key);
   }
 
+  /**
+   * Returns the attributes of the primary data store, without any read replica attributes.
+   *
+   * @since 3.next
+   */
+  public static Map<String, String> primaryAttributes(final Map<String, String> attributes) {
+    Map<String, String> primary = new HashMap<>();
+    attributes.forEach((key, value) -> {
+      if (!key.startsWith(REPLICA_PREFIX)) {
+        primary.put(key, value);
+      }
+    });
+    return primary;
+  }
+
+  /**
+   * Returns the attributes of the read replica, which inherits any primary attributes it doesn't override. Returns an
+   * empty map when no replica {@code jdbcUrl} has been configured.
+   *
+   * @since 3.next
+   */
+  public static Map<String, String> replicaAttributes(final Map<String, String> attributes) {
+    if (!attributes.containsKey(REPLICA_PREFIX + JDBC_URL)) {
+      return new HashMap<>();
+    }
+    Map<String, String> replica = primaryAttributes(attributes);
+    for (Entry<String, String> entry : attributes.entrySet()) {
+      if (entry.getKey().startsWith(REPLICA_PREFIX)) {
+        replica.put(entry.getKey().substring(REPLICA_PREFIX.length()), entry.getValue());
+      }
+    }
+    return replica;
+  }
+
   @Override
   public String toString() {
     return "{" +
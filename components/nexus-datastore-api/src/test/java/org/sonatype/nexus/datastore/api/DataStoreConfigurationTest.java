@@ -24,7 +24,10 @@ import static java.lang.String.format;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.sonatype.nexus.datastore.api.DataStoreConfiguration.REDACTED;
 
 public class DataStoreConfigurationTest
@@ -119,4 +122,33 @@ public class DataStoreConfigurationTest
         format("localhost:5432/nexus?password=%s&username=user", REDACTED))
     );
   }
+
+  @Test
+  public void replicaAttributesInheritFromPrimary() {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("jdbcUrl", "jdbc:postgresql://primary/nexus");
+    attributes.put("username", "nexus");
+    attributes.put("maximumPoolSize", "100");
+    attributes.put("replica.jdbcUrl", "jdbc:postgresql://replica/nexus");
+    attributes.put("replica.maximumPoolSize", "20");
+
+    Map<String, String> primary = DataStoreConfiguration.primaryAttributes(attributes);
+    assertThat(primary.keySet(), containsInAnyOrder("jdbcUrl", "username", "maximumPoolSize"));
+
+    Map<String, String> replica = DataStoreConfiguration.replicaAttributes(attributes);
+    assertThat(replica.keySet(), containsInAnyOrder("jdbcUrl", "username", "maximumPoolSize"));
+    assertThat(replica, hasEntry("jdbcUrl", "jdbc:postgresql://replica/nexus"));
+    assertThat(replica, hasEntry("username", "nexus"));
+    assertThat(replica, hasEntry("maximumPoolSize", "20"));
+  }
+
+  @Test
+  public void noReplicaWithoutReplicaJdbcUrl() {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("jdbcUrl", "jdbc:postgresql://primary/nexus");
+    attributes.put("replica.maximumPoolSize", "20");
+
+    assertThat(DataStoreConfiguration.replicaAttributes(attributes), anEmptyMap());
+    assertThat(DataStoreConfiguration.primaryAttributes(attributes), not(hasEntry("replica.maximumPoolSize", "20")));
+  }
 }
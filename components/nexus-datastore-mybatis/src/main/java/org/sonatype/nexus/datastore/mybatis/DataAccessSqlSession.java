@@ -15,10 +15,12 @@ package org.sonatype.nexus.datastore.mybatis;
 import java.util.List;
 
 import javax.annotation.Nullable;
+import javax.sql.DataSource;
 
 import org.sonatype.nexus.common.app.FrozenException;
 import org.sonatype.nexus.datastore.api.DataAccessException;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -49,7 +51,17 @@ final class DataAccessSqlSession
   }
 
   public DataAccessSqlSession(final Configuration configuration, final TransactionIsolationLevel isolationLevel) {
-    super(configuration, newExecutor(configuration, isolationLevel));
+    super(configuration, newExecutor(configuration, null, isolationLevel));
+  }
+
+  /**
+   * Creates a session against a different {@link DataSource}, such as a read replica. The connection is acquired
+   * up-front so the caller can fall back to the primary data source if it isn't available.
+   *
+   * @since 3.next
+   */
+  public DataAccessSqlSession(final Configuration configuration, final DataSource dataSource) {
+    super(configuration, newExecutor(configuration, dataSource, null));
   }
 
   @Override
@@ -77,6 +89,16 @@ final class DataAccessSqlSession
     }
   }
 
+  @Override
+  public <T> Cursor<T> selectCursor(final String statement, final Object parameter, final RowBounds rowBounds) {
+    try {
+      return super.selectCursor(statement, parameter, rowBounds);
+    }
+    catch (PersistenceException e) {
+      throw unwrapMyBatisException(e);
+    }
+  }
+
   @Override
   public int update(final String statement, final Object parameter) {
     try {
@@ -126,17 +148,25 @@ final class DataAccessSqlSession
   }
 
   /**
-   * Creates a new session {@link Executor} without auto-commit, using the specified isolation level.
+   * Creates a new session {@link Executor} without auto-commit, using the specified isolation level. When a specific
+   * data source is given its connection is acquired immediately, otherwise the environment's data source is used.
    */
   private static Executor newExecutor(
       final Configuration configuration,
-      @Nullable TransactionIsolationLevel isolationLevel)
+      @Nullable final DataSource dataSource,
+      @Nullable final TransactionIsolationLevel isolationLevel)
   {
     Transaction tx = null;
     try {
       Environment environment = configuration.getEnvironment();
       TransactionFactory txFactory = environment.getTransactionFactory();
-      tx = txFactory.newTransaction(environment.getDataSource(), isolationLevel, false);
+      if (dataSource != null) {
+        tx = txFactory.newTransaction(dataSource, isolationLevel, false);
+        tx.getConnection();
+      }
+      else {
+        tx = txFactory.newTransaction(environment.getDataSource(), isolationLevel, false);
+      }
       return configuration.newExecutor(tx);
     }
     catch (Exception e) {
@@ -26,11 +26,14 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -76,6 +79,8 @@ import org.sonatype.nexus.datastore.mybatis.handlers.TokenizingTypeHandler;
 import org.sonatype.nexus.security.PasswordHelper;
 import org.sonatype.nexus.transaction.TransactionIsolation;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Splitter.MapSplitter;
@@ -125,6 +130,8 @@ import static org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport.St
 import static org.sonatype.nexus.common.text.Strings2.isBlank;
 import static org.sonatype.nexus.common.text.Strings2.lower;
 import static org.sonatype.nexus.common.thread.TcclBlock.begin;
+import static org.sonatype.nexus.datastore.api.DataStoreConfiguration.primaryAttributes;
+import static org.sonatype.nexus.datastore.api.DataStoreConfiguration.replicaAttributes;
 import static org.sonatype.nexus.datastore.mybatis.MyBatisDataStoreDescriptor.ADVANCED;
 import static org.sonatype.nexus.datastore.mybatis.MyBatisDataStoreDescriptor.JDBC_URL;
 import static org.sonatype.nexus.datastore.mybatis.MyBatisDataStoreDescriptor.SCHEMA;
@@ -160,12 +167,19 @@ public class MyBatisDataStore
 
   private static final int DEFAULT_CONTENT_STORE_MAX_POOL_SIZE = 100;
 
+  private static final long DEFAULT_HIKARI_CONNECTION_TIMEOUT_MILLIS = 30_000;
+
+  private static final long REPLICA_CONNECTION_TIMEOUT_MILLIS = 2_000;
+
   private final Iterable<? extends BeanEntry<Named, Class<DataAccess>>> declaredAccessTypes;
 
   private final Set<Class<?>> registeredAccessTypes = new HashSet<>();
 
   private final AtomicBoolean frozenMarker = new AtomicBoolean();
 
+  // mapper namespaces of format-specific DAOs, mapped to their format
+  private final Map<String, String> namespaceFormats = new ConcurrentHashMap<>();
+
   private final PbeCipher databaseCipher;
 
   private final PasswordHelper passwordHelper;
@@ -182,6 +196,25 @@ public class MyBatisDataStore
 
   private HikariDataSource dataSource;
 
+  @Nullable
+  private ReadReplica readReplica;
+
+  @Nullable
+  private MetricRegistry metricRegistry;
+
+  @Nullable
+  private Counter primarySessions;
+
+  @Nullable
+  private Counter replicaSessions;
+
+  @Nullable
+  private Counter replicaFallbacks;
+
+  private boolean statementMetricsEnabled;
+
+  private Duration slowStatementThreshold = Duration.ZERO;
+
   private Configuration mybatisConfig;
 
   private  H2VersionUpgrader h2VersionUpgrader;
@@ -253,7 +286,10 @@ public class MyBatisDataStore
       verifyOrientDatabaseDoesNotExist();
     }
 
-    HikariConfig hikariConfig = configureHikari(storeName, attributes);
+    HikariConfig hikariConfig = configureHikari(storeName, primaryAttributes(attributes));
+    if (metricRegistry != null) {
+      hikariConfig.setMetricRegistry(metricRegistry);
+    }
 
     try {
       dataSource = new HikariDataSource(hikariConfig);
@@ -271,6 +307,10 @@ public class MyBatisDataStore
       logManager.setLoggerLevelDirect(HikariPool.class.getName(), originalHikariPoolLogLevel);
     }
 
+    readReplica = configureReadReplica(storeName, replicaAttributes(attributes));
+
+    configureMetrics(storeName);
+
     Environment environment = new Environment(storeName, new JdbcTransactionFactory(), dataSource);
 
     if (previousConfig.isPresent()) {
@@ -294,10 +334,18 @@ public class MyBatisDataStore
     mybatisConfig = null;
     registeredAccessTypes.clear();
     try {
-      dataSource.close();
+      if (readReplica != null) {
+        readReplica.close();
+      }
     }
     finally {
-      dataSource = null;
+      readReplica = null;
+      try {
+        dataSource.close();
+      }
+      finally {
+        dataSource = null;
+      }
     }
   }
 
@@ -352,6 +400,7 @@ public class MyBatisDataStore
   @Guarded(by = STARTED)
   @Override
   public MyBatisDataSession openSession() {
+    count(primarySessions);
     return new MyBatisDataSession(new DataAccessSqlSession(mybatisConfig));
   }
 
@@ -360,12 +409,35 @@ public class MyBatisDataStore
   public MyBatisDataSession openSession(final TransactionIsolation isolationLevel) {
     switch (isolationLevel) {
       case SERIALIZABLE:
+        count(primarySessions);
         return new MyBatisDataSession(new DataAccessSqlSession(mybatisConfig, SERIALIZABLE));
+      case READ_ONLY:
+        return openReadOnlySession();
       default:
-        return new MyBatisDataSession(new DataAccessSqlSession(mybatisConfig));
+        return openSession();
     }
   }
 
+  /**
+   * Opens a session against the read replica when one is configured and usable, otherwise against the primary.
+   */
+  private MyBatisDataSession openReadOnlySession() {
+    ReadReplica replica = readReplica;
+    if (replica != null && replica.isUsable()) {
+      try {
+        MyBatisDataSession session =
+            new MyBatisDataSession(new DataAccessSqlSession(mybatisConfig, replica.getDataSource()));
+        count(replicaSessions);
+        return session;
+      }
+      catch (DataAccessException e) {
+        replica.failed(e);
+        count(replicaFallbacks);
+      }
+    }
+    return openSession();
+  }
+
   @Guarded(by = STARTED)
   @Override
   public Connection openConnection() throws SQLException {
@@ -414,6 +486,34 @@ public class MyBatisDataStore
     this.h2VersionUpgrader = checkNotNull(h2VersionUpgrader);
   }
 
+  /**
+   * Publishes connection pool metrics and per-pool session counts; only applies to pools created after this is set.
+   *
+   * @since 3.next
+   */
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = checkNotNull(metricRegistry);
+  }
+
+  /**
+   * Configures per-statement metrics, published to the {@link MetricRegistry}, and the slow-statement log; only
+   * applies to stores started after this is set.
+   *
+   * @param enabled   record latency, row count and error metrics per mapped statement and per format
+   * @param threshold log statements that take at least this long, zero disables the slow-statement log
+   *
+   * @since 3.next
+   */
+  @Inject
+  public void setStatementMetrics(
+      @Named("${nexus.datastore.statementMetrics.enabled:-false}") final boolean enabled,
+      @Named("${nexus.datastore.slowStatementThreshold:-0s}") final Duration threshold)
+  {
+    this.statementMetricsEnabled = enabled;
+    this.slowStatementThreshold = checkNotNull(threshold);
+  }
+
   @Inject
   public void setManagedLifecycleManager(final ManagedLifecycleManager managedLifecycleManager) {
     this.managedLifecycleManager = checkNotNull(managedLifecycleManager);
@@ -512,6 +612,60 @@ public class MyBatisDataStore
     return new HikariConfig(properties);
   }
 
+  /**
+   * Creates the optional read replica; its pool starts without waiting for the replica so an unavailable replica
+   * doesn't stop the store from starting.
+   */
+  @Nullable
+  private ReadReplica configureReadReplica(final String storeName, final Map<String, String> attributes) {
+    if (attributes.isEmpty()) {
+      return null;
+    }
+    Map<String, String> replicaAttributes = new HashMap<>(attributes);
+    long maxLagMillis = parseMillis(replicaAttributes.remove(ReadReplica.MAX_LAG_MILLIS),
+        ReadReplica.DEFAULT_MAX_LAG_MILLIS);
+    long lagCheckMillis = parseMillis(replicaAttributes.remove(ReadReplica.LAG_CHECK_MILLIS),
+        ReadReplica.DEFAULT_LAG_CHECK_MILLIS);
+
+    String replicaName = storeName + "-replica";
+    HikariConfig hikariConfig = configureHikari(replicaName, replicaAttributes);
+    hikariConfig.setReadOnly(true);
+    hikariConfig.setInitializationFailTimeout(-1);
+    if (hikariConfig.getConnectionTimeout() == DEFAULT_HIKARI_CONNECTION_TIMEOUT_MILLIS) {
+      // give up on an unreachable replica quickly, sessions fall back to the primary meanwhile
+      hikariConfig.setConnectionTimeout(REPLICA_CONNECTION_TIMEOUT_MILLIS);
+    }
+    if (metricRegistry != null) {
+      hikariConfig.setMetricRegistry(metricRegistry);
+    }
+
+    String lagQuery = attributes.get(JDBC_URL).startsWith("jdbc:postgresql") ? ReadReplica.POSTGRES_LAG_QUERY : null;
+
+    info("Configured read replica {} with maximum lag of {}ms", replicaName, maxLagMillis);
+    ReadReplica replica =
+        new ReadReplica(replicaName, new HikariDataSource(hikariConfig), lagQuery, maxLagMillis, lagCheckMillis);
+    replica.start();
+    return replica;
+  }
+
+  private static long parseMillis(@Nullable final String value, final long defaultValue) {
+    return isBlank(value) ? defaultValue : Long.parseLong(value.trim());
+  }
+
+  private void configureMetrics(final String storeName) {
+    if (metricRegistry != null) {
+      primarySessions = metricRegistry.counter(MetricRegistry.name(storeName, "sessions"));
+      replicaSessions = metricRegistry.counter(MetricRegistry.name(storeName + "-replica", "sessions"));
+      replicaFallbacks = metricRegistry.counter(MetricRegistry.name(storeName + "-replica", "fallbacks"));
+    }
+  }
+
+  private static void count(@Nullable final Counter counter) {
+    if (counter != null) {
+      counter.inc();
+    }
+  }
+
   /**
    * Supplies the populated MyBatis configuration for this store.
    */
@@ -572,6 +726,12 @@ public class MyBatisDataStore
     // generate new entity ids on-demand
     register(new EntityInterceptor(new FrozenChecker(frozenMarker, uberClassLoader)));
 
+    // record per-statement metrics and log slow statements
+    if (statementMetricsEnabled || !slowStatementThreshold.isZero()) {
+      register(new StatementMetricsInterceptor(mybatisConfig.getEnvironment().getId(),
+          statementMetricsEnabled ? metricRegistry : null, slowStatementThreshold, namespaceFormats::get));
+    }
+
     // security handlers that used to only exist in the config store
     register(new PasswordCharacterArrayTypeHandler(passwordHelper));
     register(new PrincipalCollectionTypeHandler());
@@ -716,6 +876,9 @@ public class MyBatisDataStore
 
     // the variable in the schema XML that we'll replace with the local prefix
     String placeholder = templateType.getAnnotation(SchemaTemplate.class).value();
+    if ("format".equals(placeholder)) {
+      namespaceFormats.put(accessType.getName(), prefix);
+    }
 
     // load and populate the template's mapper XML
     String xml = loadMapperXml(templateType, true)
@@ -0,0 +1,192 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+import org.sonatype.goodies.common.ComponentSupport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Read replica of a {@link MyBatisDataStore}. Read-only sessions are only routed here while the replica is reachable
+ * and its replication lag is within the configured staleness bound; otherwise they use the primary. The replica is
+ * checked by a background task so sessions never wait on the check.
+ *
+ * @since 3.next
+ */
+class ReadReplica
+    extends ComponentSupport
+    implements Closeable
+{
+  /**
+   * Replica attribute: maximum replication lag in milliseconds before sessions are routed back to the primary.
+   */
+  static final String MAX_LAG_MILLIS = "maxLagMillis";
+
+  /**
+   * Replica attribute: how often in milliseconds to check the replica's health and replication lag.
+   */
+  static final String LAG_CHECK_MILLIS = "lagCheckMillis";
+
+  static final long DEFAULT_MAX_LAG_MILLIS = 5000;
+
+  static final long DEFAULT_LAG_CHECK_MILLIS = 1000;
+
+  /**
+   * Reports zero lag when the replica has replayed everything it has received, so an idle primary doesn't make the
+   * replica look stale.
+   */
+  static final String POSTGRES_LAG_QUERY = "SELECT CASE"
+      + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+      + " ELSE CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS BIGINT) END";
+
+  private final String name;
+
+  private final DataSource dataSource;
+
+  @Nullable
+  private final String lagQuery;
+
+  private final long maxLagMillis;
+
+  private final long lagCheckMillis;
+
+  @Nullable
+  private ScheduledExecutorService checker;
+
+  private volatile boolean usable;
+
+  /**
+   * @param lagQuery optional query returning the replication lag in milliseconds; without it only connectivity is
+   *                 checked
+   */
+  ReadReplica(
+      final String name,
+      final DataSource dataSource,
+      @Nullable final String lagQuery,
+      final long maxLagMillis,
+      final long lagCheckMillis)
+  {
+    this.name = checkNotNull(name);
+    this.dataSource = checkNotNull(dataSource);
+    this.lagQuery = lagQuery;
+    this.maxLagMillis = maxLagMillis;
+    this.lagCheckMillis = lagCheckMillis;
+  }
+
+  /**
+   * Starts checking the replica every {@link #LAG_CHECK_MILLIS}; it is not used until the first check passes.
+   */
+  synchronized void start() {
+    if (checker == null) {
+      checker = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat(name + "-check").setDaemon(true).build());
+      checker.scheduleWithFixedDelay(this::check, 0, lagCheckMillis, MILLISECONDS);
+    }
+  }
+
+  DataSource getDataSource() {
+    return dataSource;
+  }
+
+  /**
+   * Is the replica currently usable for read-only sessions, according to the last check?
+   */
+  boolean isUsable() {
+    return usable;
+  }
+
+  /**
+   * Checks the replica's health and replication lag.
+   */
+  void check() {
+    try {
+      updateUsable(checkReplica());
+    }
+    catch (RuntimeException e) { // NOSONAR: keep the scheduled check running
+      log.warn("Unable to check read replica {}", name, e);
+      usable = false;
+    }
+  }
+
+  /**
+   * Marks the replica as unusable until the next check, for example after failing to connect.
+   */
+  void failed(final Exception cause) {
+    if (usable) {
+      log.warn("Read replica {} failed, using primary until it recovers", name, log.isDebugEnabled() ? cause : null);
+    }
+    usable = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    usable = false;
+    synchronized (this) {
+      if (checker != null) {
+        checker.shutdownNow();
+        checker = null;
+      }
+    }
+    if (dataSource instanceof Closeable) {
+      ((Closeable) dataSource).close();
+    }
+  }
+
+  private boolean checkReplica() {
+    try (Connection connection = dataSource.getConnection()) {
+      long lagMillis = lagQuery != null ? queryLag(connection) : 0;
+      if (lagMillis > maxLagMillis) {
+        if (usable) {
+          log.info("Read replica {} is {}ms behind, using primary until it catches up", name, lagMillis);
+        }
+        return false;
+      }
+      return true;
+    }
+    catch (SQLException e) {
+      if (usable) {
+        log.warn("Read replica {} is unavailable, using primary until it recovers", name,
+            log.isDebugEnabled() ? e : null);
+      }
+      return false;
+    }
+  }
+
+  private long queryLag(final Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(lagQuery)) {
+      return resultSet.next() ? resultSet.getLong(1) : 0;
+    }
+  }
+
+  private void updateUsable(final boolean nowUsable) {
+    if (nowUsable && !usable) {
+      log.info("Routing read-only sessions to read replica {}", name);
+    }
+    usable = nowUsable;
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * MyBatis {@link Interceptor} that records latency, row counts and errors per mapped statement (and per format for
+ * statements declared by format-specific DAOs) and logs statements that take longer than the given threshold.
+ *
+ * Slow statements are logged with the shape of their parameters, never their values.
+ *
+ * @since 3.next
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "queryCursor",
+        args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+final class StatementMetricsInterceptor
+    extends ComponentSupport
+    implements Interceptor
+{
+  private static final String METRIC_PREFIX = "nexus.datastore";
+
+  // MyBatis adds generic aliases alongside the named parameters
+  private static final Pattern GENERIC_PARAM = Pattern.compile("param\\d+");
+
+  private final String storeName;
+
+  @Nullable
+  private final MetricRegistry metricRegistry;
+
+  private final long slowThresholdNanos;
+
+  private final Function<String, String> formatOfNamespace;
+
+  private final ConcurrentMap<String, StatementMetrics> statements = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, StatementMetrics> formats = new ConcurrentHashMap<>();
+
+  /**
+   * @param metricRegistry    optional registry, when {@code null} only slow statements are logged
+   * @param slowThreshold     statements taking at least this long are logged, zero disables the slow-statement log
+   * @param formatOfNamespace returns the format of the given mapper namespace, or {@code null} if it's not format
+   *                          specific
+   */
+  StatementMetricsInterceptor(
+      final String storeName,
+      @Nullable final MetricRegistry metricRegistry,
+      final Duration slowThreshold,
+      final Function<String, String> formatOfNamespace)
+  {
+    this.storeName = checkNotNull(storeName);
+    this.metricRegistry = metricRegistry;
+    this.slowThresholdNanos = slowThreshold.isZero() ? Long.MAX_VALUE : slowThreshold.toNanos();
+    this.formatOfNamespace = checkNotNull(formatOfNamespace);
+  }
+
+  @Override
+  public Object plugin(final Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public Object intercept(final Invocation invocation) throws Throwable {
+    MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+    long start = System.nanoTime();
+    try {
+      Object result = invocation.proceed();
+      long elapsed = System.nanoTime() - start;
+      int rows = rowCount(result);
+      record(statement.getId(), metrics -> metrics.succeeded(elapsed, rows));
+      if (elapsed >= slowThresholdNanos) {
+        logSlowStatement(statement, invocation.getArgs()[1], elapsed, rows);
+      }
+      return result;
+    }
+    catch (Throwable e) { // NOSONAR: rethrown after counting
+      record(statement.getId(), StatementMetrics::failed);
+      throw e;
+    }
+  }
+
+  private void record(final String statementId, final Consumer<StatementMetrics> action) {
+    if (metricRegistry == null) {
+      return;
+    }
+    StatementMetrics metrics = statements.computeIfAbsent(statementId, this::newStatementMetrics);
+    action.accept(metrics);
+    if (metrics.format != null) {
+      action.accept(metrics.format);
+    }
+  }
+
+  private StatementMetrics newStatementMetrics(final String statementId) {
+    String format = null;
+    int lastDot = statementId.lastIndexOf('.');
+    if (lastDot > 0) {
+      format = formatOfNamespace.apply(statementId.substring(0, lastDot));
+    }
+    StatementMetrics formatMetrics = null;
+    if (format != null) {
+      formatMetrics = formats.computeIfAbsent(format,
+          f -> new StatementMetrics(MetricRegistry.name(METRIC_PREFIX, storeName, "format", f), null));
+    }
+    return new StatementMetrics(MetricRegistry.name(METRIC_PREFIX, storeName, "statement", statementId), formatMetrics);
+  }
+
+  /**
+   * Number of rows returned or updated by the statement, -1 when unknown (such as when streaming results).
+   */
+  private static int rowCount(@Nullable final Object result) {
+    if (result instanceof Collection<?>) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof Integer) {
+      return (Integer) result;
+    }
+    return -1;
+  }
+
+  private void logSlowStatement(
+      final MappedStatement statement,
+      @Nullable final Object parameter,
+      final long elapsedNanos,
+      final int rows)
+  {
+    log.warn("Slow statement {} took {}ms (rows={}, parameters={})",
+        statement.getId(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, parameterShape(parameter));
+  }
+
+  /**
+   * Describes the parameter types, including collection sizes, without revealing any values.
+   */
+  static String parameterShape(@Nullable final Object parameter) {
+    if (parameter == null) {
+      return "null";
+    }
+    if (parameter instanceof Map<?, ?>) {
+      StringJoiner shape = new StringJoiner(", ", "{", "}");
+      ((Map<?, ?>) parameter).forEach((key, value) -> {
+        if (!GENERIC_PARAM.matcher(String.valueOf(key)).matches()) {
+          shape.add(key + "=" + valueShape(value));
+        }
+      });
+      return shape.toString();
+    }
+    return valueShape(parameter);
+  }
+
+  private static String valueShape(@Nullable final Object value) {
+    if (value == null) {
+      return "null";
+    }
+    if (value instanceof Collection<?>) {
+      return value.getClass().getSimpleName() + "[" + ((Collection<?>) value).size() + "]";
+    }
+    if (value instanceof Map<?, ?>) {
+      return value.getClass().getSimpleName() + "[" + ((Map<?, ?>) value).size() + "]";
+    }
+    if (value.getClass().isArray()) {
+      return value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+    }
+    return value.getClass().getSimpleName();
+  }
+
+  /**
+   * Latency, row count and error metrics for a statement or format.
+   */
+  private final class StatementMetrics
+  {
+    private final Timer latency;
+
+    private final Histogram rows;
+
+    private final Counter errors;
+
+    @Nullable
+    private final StatementMetrics format;
+
+    private StatementMetrics(final String name, @Nullable final StatementMetrics format) {
+      this.latency = metricRegistry.timer(MetricRegistry.name(name, "latency"));
+      this.rows = metricRegistry.histogram(MetricRegistry.name(name, "rows"));
+      this.errors = metricRegistry.counter(MetricRegistry.name(name, "errors"));
+      this.format = format;
+    }
+
+    private void succeeded(final long elapsedNanos, final int rowCount) {
+      latency.update(elapsedNanos, TimeUnit.NANOSECONDS);
+      if (rowCount >= 0) {
+        rows.update(rowCount);
+      }
+    }
+
+    private void failed() {
+      errors.inc();
+    }
+  }
+}
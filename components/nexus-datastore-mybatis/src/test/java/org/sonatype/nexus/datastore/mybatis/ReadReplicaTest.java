@@ -0,0 +1,152 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ReadReplica}.
+ */
+public class ReadReplicaTest
+    extends TestSupport
+{
+  private static final String LAG_QUERY = "SELECT lag";
+
+  @Mock
+  private DataSource dataSource;
+
+  @Mock
+  private Connection connection;
+
+  @Mock
+  private Statement statement;
+
+  @Mock
+  private ResultSet resultSet;
+
+  private ReadReplica underTest;
+
+  @Before
+  public void setUp() throws SQLException {
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(LAG_QUERY)).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+
+    underTest = new ReadReplica("test-replica", dataSource, LAG_QUERY, 5000, 1000);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    underTest.close();
+  }
+
+  @Test
+  public void notUsableUntilChecked() {
+    lag(100);
+    assertThat(underTest.isUsable(), is(false));
+
+    underTest.check();
+    assertThat(underTest.isUsable(), is(true));
+  }
+
+  @Test
+  public void notUsableWhenTooStale() {
+    lag(6000);
+    underTest.check();
+    assertThat(underTest.isUsable(), is(false));
+
+    lag(0);
+    assertThat(underTest.isUsable(), is(false)); // still using the previous check
+
+    underTest.check();
+    assertThat(underTest.isUsable(), is(true));
+  }
+
+  @Test
+  public void notUsableWhenUnreachable() throws SQLException {
+    when(dataSource.getConnection()).thenThrow(new SQLException("down"));
+    underTest.check();
+    assertThat(underTest.isUsable(), is(false));
+  }
+
+  @Test
+  public void sessionsDoNotCheckTheReplica() throws SQLException {
+    lag(0);
+    underTest.check();
+    for (int i = 0; i < 10; i++) {
+      assertThat(underTest.isUsable(), is(true));
+    }
+    verify(dataSource, times(1)).getConnection();
+  }
+
+  @Test
+  public void replicaIsCheckedInTheBackground() throws Exception {
+    lag(0);
+    underTest.start();
+
+    for (int i = 0; i < 50 && !underTest.isUsable(); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(underTest.isUsable(), is(true));
+  }
+
+  @Test
+  public void failuresRouteToPrimaryUntilNextCheck() {
+    lag(0);
+    underTest.check();
+    assertThat(underTest.isUsable(), is(true));
+
+    underTest.failed(new SQLException("connection reset"));
+    assertThat(underTest.isUsable(), is(false));
+
+    underTest.check();
+    assertThat(underTest.isUsable(), is(true));
+  }
+
+  @Test
+  public void connectivityOnlyWithoutLagQuery() throws SQLException {
+    underTest = new ReadReplica("test-replica", dataSource, null, 5000, 1000);
+    underTest.check();
+    assertThat(underTest.isUsable(), is(true));
+    verify(connection).close();
+  }
+
+  private void lag(final long millis) {
+    try {
+      when(resultSet.getLong(1)).thenReturn(millis);
+    }
+    catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link StatementMetricsInterceptor}.
+ */
+public class StatementMetricsInterceptorTest
+    extends TestSupport
+{
+  private static final String NAMESPACE = "org.example.RawAssetDAO";
+
+  private static final String STATEMENT = "nexus.datastore.content.statement." + NAMESPACE + ".browseAssets";
+
+  private static final String FORMAT = "nexus.datastore.content.format.raw";
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+
+  private final Map<String, String> formats = ImmutableMap.of(NAMESPACE, "raw");
+
+  private final StatementMetricsInterceptor underTest =
+      new StatementMetricsInterceptor("content", metricRegistry, Duration.ZERO, formats::get);
+
+  @Test
+  public void recordsLatencyAndRowsPerStatementAndFormat() throws Throwable {
+    underTest.intercept(invocation(asList("a", "b", "c")));
+    underTest.intercept(invocation(asList("d")));
+
+    assertThat(metricRegistry.timer(STATEMENT + ".latency").getCount(), is(2L));
+    assertThat(metricRegistry.histogram(STATEMENT + ".rows").getSnapshot().getMax(), is(3L));
+    assertThat(metricRegistry.timer(FORMAT + ".latency").getCount(), is(2L));
+    assertThat(metricRegistry.counter(STATEMENT + ".errors").getCount(), is(0L));
+  }
+
+  @Test
+  public void countsErrors() throws Throwable {
+    try {
+      underTest.intercept(invocation(new IllegalStateException("expected")));
+      fail("Expected exception");
+    }
+    catch (InvocationTargetException e) {
+      // expected, MyBatis unwraps this after the interceptor
+    }
+
+    assertThat(metricRegistry.counter(STATEMENT + ".errors").getCount(), is(1L));
+    assertThat(metricRegistry.counter(FORMAT + ".errors").getCount(), is(1L));
+    assertThat(metricRegistry.timer(STATEMENT + ".latency").getCount(), is(0L));
+  }
+
+  @Test
+  public void slowStatementLogWorksWithoutRegistry() throws Throwable {
+    StatementMetricsInterceptor slowLogOnly =
+        new StatementMetricsInterceptor("content", null, Duration.ofNanos(1), formats::get);
+
+    assertThat(slowLogOnly.intercept(invocation(asList("a"))), is(asList("a")));
+    assertThat(metricRegistry.getMetrics(), anEmptyMap());
+  }
+
+  @Test
+  public void parameterShapeDoesNotRevealValues() {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    parameters.put("repositoryId", 42);
+    parameters.put("paths", ImmutableList.of("secret/one", "secret/two"));
+    parameters.put("filter", null);
+    parameters.put("param1", 42);
+
+    assertThat(StatementMetricsInterceptor.parameterShape(parameters),
+        is("{repositoryId=Integer, paths=RegularImmutableList[2], filter=null}"));
+    assertThat(StatementMetricsInterceptor.parameterShape("secret"), is("String"));
+    assertThat(StatementMetricsInterceptor.parameterShape(new byte[16]), is("byte[16]"));
+  }
+
+  private static Invocation invocation(final Object result) throws NoSuchMethodException {
+    MappedStatement statement = new MappedStatement.Builder(
+        new Configuration(), NAMESPACE + ".browseAssets", parameter -> null, SqlCommandType.SELECT).build();
+    Method query = FakeExecutor.class.getMethod("query", MappedStatement.class, Object.class);
+    return new Invocation(new FakeExecutor(result), query, new Object[]{statement, null});
+  }
+
+  public static class FakeExecutor
+  {
+    private final Object result;
+
+    FakeExecutor(final Object result) {
+      this.result = result;
+    }
+
+    public Object query(final MappedStatement statement, final Object parameter) {
+      if (result instanceof RuntimeException) {
+        throw (RuntimeException) result;
+      }
+      return result;
+    }
+  }
+}
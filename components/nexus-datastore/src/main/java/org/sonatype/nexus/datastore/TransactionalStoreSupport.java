@@ -44,6 +44,8 @@ public abstract class TransactionalStoreSupport
       case SERIALIZABLE:
         log.debug("Opening session with serializable transaction isolation");
         return sessionSupplier.openSerializableTransactionSession(storeName);
+      case READ_ONLY:
+        return sessionSupplier.openReadOnlySession(storeName);
       default:
         return sessionSupplier.openSession(storeName);
     }
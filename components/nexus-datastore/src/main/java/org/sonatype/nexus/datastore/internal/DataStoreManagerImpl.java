@@ -151,6 +151,12 @@ public class DataStoreManagerImpl
         .openSession(TransactionIsolation.SERIALIZABLE);
   }
 
+  @Override
+  public DataSession<?> openReadOnlySession(final String storeName) {
+    return get(storeName).orElseThrow(() -> new DataStoreNotFoundException(storeName))
+        .openSession(TransactionIsolation.READ_ONLY);
+  }
+
   @Override
   public Connection openConnection(final String storeName) throws SQLException {
     return get(storeName).orElseThrow(() -> new DataStoreNotFoundException(storeName)).openConnection();
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -33,7 +34,9 @@ import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.browse.node.BrowseNode;
 import org.sonatype.nexus.repository.browse.node.BrowsePath;
 import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.browse.store.BrowseNodeBatch;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeDAO;
+import org.sonatype.nexus.repository.content.browse.store.BrowseNodeData;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeManager;
 import org.sonatype.nexus.repository.content.browse.store.BrowseNodeStore;
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
@@ -79,6 +82,14 @@ public class BrowseFacetImpl
 
   private final int pageSize;
 
+  private final boolean bulkRebuild;
+
+  private final int rebuildSliceSize;
+
+  private final int insertBatchSize;
+
+  private final int parentCacheSize;
+
   private String format;
 
   private BrowseNodeGenerator browseNodeGenerator;
@@ -90,12 +101,20 @@ public class BrowseFacetImpl
       final Map<String, FormatStoreManager> formatStoreManagersByFormat,
       final Map<String, BrowseNodeGenerator> browseNodeGeneratorsByFormat,
       final PackageUrlService packageUrlService,
-      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize)
+      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize,
+      @Named("${nexus.browse.rebuild.bulk.enabled:-true}") final boolean bulkRebuild,
+      @Named("${nexus.browse.rebuild.sliceSize:-20000}") final int rebuildSliceSize,
+      @Named("${nexus.browse.rebuild.insertBatchSize:-500}") final int insertBatchSize,
+      @Named("${nexus.browse.parentCache.size:-10000}") final int parentCacheSize)
   {
     this.formatStoreManagersByFormat = checkNotNull(formatStoreManagersByFormat);
     this.browseNodeGeneratorsByFormat = checkNotNull(browseNodeGeneratorsByFormat);
     this.packageUrlService = checkNotNull(packageUrlService);
     this.pageSize = max(pageSize, 1);
+    this.bulkRebuild = bulkRebuild;
+    this.rebuildSliceSize = max(rebuildSliceSize, 1);
+    this.insertBatchSize = insertBatchSize;
+    this.parentCacheSize = parentCacheSize;
   }
 
   @Override
@@ -110,7 +129,7 @@ public class BrowseFacetImpl
         lookupFormatStoreManager(format).formatStore(storeName, BrowseNodeDAO.class);
 
     browseNodeGenerator = lookupBrowseNodeGenerator(format);
-    browseNodeManager = new BrowseNodeManager(browseNodeStore, repositoryId);
+    browseNodeManager = new BrowseNodeManager(browseNodeStore, repositoryId, parentCacheSize, insertBatchSize);
   }
 
   @Guarded(by = STARTED)
@@ -136,7 +155,8 @@ public class BrowseFacetImpl
         .filter(Optional::isPresent)
         .map(Optional::get)
         .filter(fluentAsset -> !browseNodeManager.hasAssetNode(fluentAsset))
-        .forEach(fluentAsset -> createBrowseNodes(fluentAsset, componentsProcessed));
+        .forEach(fluentAsset -> createBrowseNodes(fluentAsset, componentsProcessed,
+            browseNodeManager::createBrowseNodes));
   }
 
   @Guarded(by = STARTED)
@@ -159,6 +179,9 @@ public class BrowseFacetImpl
 
   /**
    * Create browse nodes for every asset and their components in the repository.
+   *
+   * When bulk rebuilding is enabled the nodes for each slice of assets are built up in memory and then written a level
+   * at a time, so shared ancestors are written once per slice instead of being merged once per asset.
    */
   private void createAllBrowseNodes(final Consumer<String> progressUpdater) {
     String repositoryName = getRepository().getName();
@@ -174,11 +197,19 @@ public class BrowseFacetImpl
 
         long processed = 0;
 
+        BrowseNodeBatch batch = bulkRebuild ? browseNodeManager.newBatch() : null;
+        BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator =
+            batch != null ? batch::add : browseNodeManager::createBrowseNodes;
+
         Continuation<FluentAsset> page = assets.browse(pageSize, null);
         while (!page.isEmpty()) {
-          page.forEach(fluentAsset -> createBrowseNodes(fluentAsset, processedComponents));
+          page.forEach(fluentAsset -> createBrowseNodes(fluentAsset, processedComponents, nodeCreator));
           processed += page.size();
 
+          if (batch != null && batch.size() >= rebuildSliceSize) {
+            flushBatch(batch);
+          }
+
           long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
           progressLogger.info("Processed {} / {} {} assets in {} ms",
               processed, total, repositoryName, elapsed);
@@ -194,6 +225,10 @@ public class BrowseFacetImpl
           page = assets.browse(pageSize, page.nextContinuationToken());
         }
 
+        if (batch != null && !batch.isEmpty()) {
+          flushBatch(batch);
+        }
+
         progressLogger.flush(); // ensure the final progress message is flushed
       }
     }
@@ -202,27 +237,46 @@ public class BrowseFacetImpl
     }
   }
 
+  /**
+   * Writes a slice of browse nodes built up during a rebuild, leaving the batch empty for the next slice.
+   */
+  private void flushBatch(final BrowseNodeBatch batch) {
+    Stopwatch sw = Stopwatch.createStarted();
+    browseNodeManager.createBrowseNodes(batch);
+    log.debug("Wrote {} browse nodes for repository {} in {} ms",
+        batch.size(), getRepository().getName(), sw.elapsed(TimeUnit.MILLISECONDS));
+    batch.clear();
+  }
+
   /**
    * Create browse nodes for an asset and it's component.  Using a cache of component ids to limit component
    * nodes being recreated
    */
-  private void createBrowseNodes(final FluentAsset asset, final Map<Integer,Integer> componentsProcessed) {
+  private void createBrowseNodes(
+      final FluentAsset asset,
+      final Map<Integer,Integer> componentsProcessed,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     if (browseNodeGenerator.hasMultipleAssetsPerComponent()) {
-      createAssetBrowseNodes(asset);
-      asset.component().ifPresent(component -> createComponentBrowseNodes(asset, component, componentsProcessed));
+      createAssetBrowseNodes(asset, nodeCreator);
+      asset.component().ifPresent(
+          component -> createComponentBrowseNodes(asset, component, componentsProcessed, nodeCreator));
     }
     else {
-      createCombinedAssetAndComponentBrowseNodes(asset);
+      createCombinedAssetAndComponentBrowseNodes(asset, nodeCreator);
     }
   }
 
   /**
    * Create browse nodes for each segment in an asset's path, assigning the asset to the final node
    */
-  private void createAssetBrowseNodes(final FluentAsset asset) {
+  private void createAssetBrowseNodes(
+      final FluentAsset asset,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     List<BrowsePath> assetPaths = browseNodeGenerator.computeAssetPaths(asset);
     if (!assetPaths.isEmpty()) {
-      browseNodeManager.createBrowseNodes(assetPaths, node -> node.setAsset(asset));
+      nodeCreator.accept(assetPaths, node -> node.setAsset(asset));
     }
   }
 
@@ -233,14 +287,15 @@ public class BrowseFacetImpl
   private void createComponentBrowseNodes(
       final FluentAsset asset,
       final Component component,
-      final Map<Integer, Integer> componentsProcessed)
+      final Map<Integer, Integer> componentsProcessed,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
   {
     Integer internalComponentId = internalComponentId(component);
     // null will be returned when adding a key that isn't already in the cache
     if (componentsProcessed.put(internalComponentId, internalComponentId) == null) {
       List<BrowsePath> componentPaths = browseNodeGenerator.computeComponentPaths(asset);
       if (!componentPaths.isEmpty()) {
-        browseNodeManager.createBrowseNodes(componentPaths, node -> {
+        nodeCreator.accept(componentPaths, node -> {
           node.setComponent(component);
           findPackageUrl(component).map(PackageUrl::toString).ifPresent(node::setPackageUrl);
         });
@@ -251,10 +306,13 @@ public class BrowseFacetImpl
   /**
    * Create browse nodes for each segment in the asset's path, and assign the asset and component to the final node
    */
-  private void createCombinedAssetAndComponentBrowseNodes(final FluentAsset asset) {
+  private void createCombinedAssetAndComponentBrowseNodes(
+      final FluentAsset asset,
+      final BiConsumer<List<BrowsePath>, Consumer<BrowseNodeData>> nodeCreator)
+  {
     List<BrowsePath> assetPaths = browseNodeGenerator.computeAssetPaths(asset);
     if (!assetPaths.isEmpty()) {
-      browseNodeManager.createBrowseNodes(assetPaths, node -> {
+      nodeCreator.accept(assetPaths, node -> {
         node.setAsset(asset);
         asset.component().ifPresent(component -> {
           node.setComponent(component);
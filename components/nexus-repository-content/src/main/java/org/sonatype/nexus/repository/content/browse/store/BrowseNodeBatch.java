@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.browse.store;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
+
+/**
+ * Browse nodes for a slice of a repository, built up in memory so that shared ancestors are only written once and
+ * each level of the tree can be written using multi-row inserts.
+ *
+ * @see BrowseNodeManager#createBrowseNodes(BrowseNodeBatch)
+ *
+ * @since 3.next
+ */
+public class BrowseNodeBatch
+{
+  private final int repositoryId;
+
+  private final Map<String, PendingNode> roots = new LinkedHashMap<>();
+
+  private int size;
+
+  BrowseNodeBatch(final int repositoryId) {
+    this.repositoryId = repositoryId;
+  }
+
+  /**
+   * Adds browse nodes for the path, applying a final step to the last node.
+   */
+  public void add(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
+    Map<String, PendingNode> siblings = roots;
+    PendingNode node = null;
+    for (BrowsePath path : paths) {
+      node = siblings.get(path.getDisplayName());
+      if (node == null) {
+        node = new PendingNode(repositoryId, path);
+        siblings.put(path.getDisplayName(), node);
+        size++;
+      }
+      else if (path.getRequestPath().endsWith("/")) {
+        // same as merging, folders prefer the request path with a trailing slash
+        node.data.setRequestPath(path.getRequestPath());
+      }
+      siblings = node.children;
+    }
+    if (node != null) {
+      finalStep.accept(node.data);
+      node.hasContent = true;
+    }
+  }
+
+  /**
+   * @return number of browse nodes in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Removes all browse nodes from the batch so it can be reused for the next slice.
+   */
+  public void clear() {
+    roots.clear();
+    size = 0;
+  }
+
+  Collection<PendingNode> roots() {
+    return roots.values();
+  }
+
+  /**
+   * Browse node waiting to be written, along with its children.
+   */
+  static class PendingNode
+  {
+    final BrowseNodeData data = new BrowseNodeData();
+
+    final Map<String, PendingNode> children = new LinkedHashMap<>();
+
+    boolean hasContent;
+
+    PendingNode(final int repositoryId, final BrowsePath path) {
+      data.setRepositoryId(repositoryId);
+      data.setRequestPath(path.getRequestPath());
+      data.setDisplayName(path.getDisplayName());
+    }
+  }
+}
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -72,6 +73,41 @@ public interface BrowseNodeDAO
    */
   void mergeBrowseNode(BrowseNodeData browseNode);
 
+  /**
+   * Creates the given browse nodes using a single multi-row insert. Unlike {@link #mergeBrowseNode} this fails if any
+   * of the nodes already exist and does not populate the generated node ids.
+   *
+   * @param browseNodes the nodes to create
+   *
+   * @since 3.next
+   */
+  void createBrowseNodes(@Param("browseNodes") List<BrowseNodeData> browseNodes);
+
+  /**
+   * Retrieves the internal ids of the browse nodes with the given request paths; only the node id, parent id,
+   * display name, and request path are populated.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param requestPaths the request paths of the browse nodes
+   * @return browse nodes found with the given request paths
+   *
+   * @since 3.next
+   */
+  List<BrowseNodeData> findBrowseNodeIds(@Param("repositoryId") int repositoryId,
+                                         @Param("requestPaths") Collection<String> requestPaths);
+
+  /**
+   * Retrieves which of the given internal node ids still exist.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param nodeIds the internal node ids to check
+   * @return the node ids that still exist
+   *
+   * @since 3.next
+   */
+  List<Long> findExistingNodeIds(@Param("repositoryId") int repositoryId,
+                                 @Param("nodeIds") Collection<Long> nodeIds);
+
   /**
    * Trims leaf browse nodes in the given repository that no longer have a component or asset.
    *
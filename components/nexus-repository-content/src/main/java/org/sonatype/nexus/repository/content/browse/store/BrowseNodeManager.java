@@ -12,8 +12,13 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -25,11 +30,17 @@ import org.sonatype.nexus.repository.browse.node.BrowseNode;
 import org.sonatype.nexus.repository.browse.node.BrowsePath;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.browse.store.BrowseNodeBatch.PendingNode;
 import org.sonatype.nexus.transaction.Transactional;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.max;
+import static java.util.Collections.singletonList;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 
@@ -41,13 +52,42 @@ import static org.sonatype.nexus.repository.content.store.InternalIds.internalCo
 public class BrowseNodeManager
     extends ComponentSupport
 {
+  private static final int DEFAULT_INSERT_BATCH_SIZE = 500;
+
+  // bounds how long we trust a cached parent, as it may be trimmed by another node
+  private static final long PARENT_CACHE_TTL_MINUTES = 1;
+
   private final BrowseNodeStore<BrowseNodeDAO> browseNodeStore;
 
   private final int repositoryId;
 
+  private final int insertBatchSize;
+
+  private final Cache<String, Long> parentIds;
+
   public BrowseNodeManager(final BrowseNodeStore<BrowseNodeDAO> browseNodeStore, final int repositoryId) {
+    this(browseNodeStore, repositoryId, 0, DEFAULT_INSERT_BATCH_SIZE);
+  }
+
+  /**
+   * @param parentCacheSize maximum number of parent node ids to remember between calls, zero disables the cache
+   * @param insertBatchSize maximum number of browse nodes written per multi-row insert
+   *
+   * @since 3.next
+   */
+  public BrowseNodeManager(
+      final BrowseNodeStore<BrowseNodeDAO> browseNodeStore,
+      final int repositoryId,
+      final int parentCacheSize,
+      final int insertBatchSize)
+  {
     this.browseNodeStore = checkNotNull(browseNodeStore);
     this.repositoryId = repositoryId;
+    this.insertBatchSize = max(insertBatchSize, 1);
+    this.parentIds = CacheBuilder.newBuilder()
+        .maximumSize(max(parentCacheSize, 0))
+        .expireAfterWrite(PARENT_CACHE_TTL_MINUTES, TimeUnit.MINUTES)
+        .build();
   }
 
   /**
@@ -86,15 +126,46 @@ public class BrowseNodeManager
    * Creates browse nodes for the path, applying a final step to the last node.
    */
   public void createBrowseNodes(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
-    Transactional.operation.withStore(browseNodeStore).run(() -> doCreateBrowseNodes(paths, finalStep));
+    Map<String, Long> ancestors = new HashMap<>();
+    Transactional.operation.withStore(browseNodeStore).run(() -> doCreateBrowseNodes(paths, finalStep, ancestors));
+    // only remember ancestors once they've been committed
+    parentIds.putAll(ancestors);
   }
 
   /**
-   * Creates browse nodes for the path (runs in a single transaction).
+   * Creates browse nodes for the path (runs in a single transaction), skipping ancestors already known to exist.
    */
-  protected void doCreateBrowseNodes(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
+  protected void doCreateBrowseNodes(
+      final List<BrowsePath> paths,
+      final Consumer<BrowseNodeData> finalStep,
+      final Map<String, Long> ancestors)
+  {
+    ancestors.clear(); // in case the transaction is retried
     Long parentId = null;
-    for (int i = 0; i < paths.size(); i++) {
+    int first = 0;
+    List<String> cachedKeys = new ArrayList<>();
+    while (first < paths.size() - 1) {
+      String nodeKey = parentKey(parentId != null ? parentId : 0L, paths.get(first).getDisplayName());
+      Long cachedId = parentIds.getIfPresent(nodeKey);
+      if (cachedId == null) {
+        break;
+      }
+      cachedKeys.add(nodeKey);
+      parentId = cachedId;
+      first++;
+    }
+    // ancestors are only trimmed once childless, so checking the deepest cached ancestor is enough
+    if (parentId != null && browseNodeStore.findExistingNodeIds(repositoryId, singletonList(parentId)).isEmpty()) {
+      log.debug("Cached browse node {} in repositoryId = {} no longer exists, merging its path again",
+          parentId, repositoryId);
+      parentIds.invalidateAll(cachedKeys);
+      parentId = null;
+      first = 0;
+    }
+
+    for (int i = first; i < paths.size(); i++) {
+      boolean last = i == paths.size() - 1;
+      String nodeKey = parentKey(parentId != null ? parentId : 0L, paths.get(i).getDisplayName());
       BrowseNodeData node = new BrowseNodeData();
       node.setRepositoryId(repositoryId);
       node.setRequestPath(paths.get(i).getRequestPath());
@@ -102,7 +173,7 @@ public class BrowseNodeManager
       if (parentId != null) {
         node.setParentId(parentId);
       }
-      if (i == paths.size() - 1) {
+      if (last) {
         finalStep.accept(node);
       }
       try {
@@ -123,13 +194,138 @@ public class BrowseNodeManager
         return;
       }
       parentId = node.nodeId;
+      if (!last && parentId != null) {
+        ancestors.put(nodeKey, parentId);
+      }
     }
   }
 
+  /**
+   * Starts a new batch of browse nodes for this repository.
+   *
+   * @since 3.next
+   */
+  public BrowseNodeBatch newBatch() {
+    return new BrowseNodeBatch(repositoryId);
+  }
+
+  /**
+   * Creates the browse nodes in the batch a level at a time, using multi-row inserts where possible. Nodes that clash
+   * with existing nodes are merged one at a time instead.
+   *
+   * @since 3.next
+   */
+  public void createBrowseNodes(final BrowseNodeBatch batch) {
+    List<PendingNode> level = new ArrayList<>(batch.roots());
+    while (!level.isEmpty()) {
+      List<PendingNode> nextLevel = new ArrayList<>();
+      for (List<PendingNode> chunk : Lists.partition(level, insertBatchSize)) {
+        createLevel(chunk);
+        for (PendingNode node : chunk) {
+          if (node.children.isEmpty()) {
+            continue;
+          }
+          Long nodeId = node.data.nodeId;
+          if (nodeId != null) {
+            parentIds.put(parentKey(node.data.parentId, node.data.getName()), nodeId);
+            node.children.values().forEach(child -> {
+              child.data.setParentId(nodeId);
+              nextLevel.add(child);
+            });
+          }
+          else {
+            log.warn("Unable to create browse nodes under {} in repositoryId = {}; a rebuild may be necessary",
+                node.data.getPath(), repositoryId);
+          }
+        }
+      }
+      level = nextLevel;
+    }
+  }
+
+  /**
+   * Creates browse nodes at the same level of the tree, skipping ancestors already known to exist.
+   */
+  private void createLevel(final List<PendingNode> nodes) {
+    List<PendingNode> newNodes = new ArrayList<>(nodes.size());
+    Map<Long, PendingNode> cachedNodes = new HashMap<>();
+    for (PendingNode node : nodes) {
+      Long cachedId = parentIds.getIfPresent(parentKey(node.data.parentId, node.data.getName()));
+      if (cachedId == null) {
+        newNodes.add(node);
+      }
+      else {
+        cachedNodes.put(cachedId, node);
+      }
+    }
+    if (!cachedNodes.isEmpty()) {
+      // the cached nodes may have been trimmed since, in which case they are created again
+      Set<Long> existing = new HashSet<>(browseNodeStore.findExistingNodeIds(repositoryId, cachedNodes.keySet()));
+      cachedNodes.forEach((cachedId, node) -> {
+        if (!existing.contains(cachedId)) {
+          parentIds.invalidate(parentKey(node.data.parentId, node.data.getName()));
+          newNodes.add(node);
+          return;
+        }
+        if (node.hasContent) {
+          mergeBrowseNode(node.data);
+        }
+        if (node.data.nodeId == null) {
+          node.data.setNodeId(cachedId);
+        }
+      });
+    }
+    if (newNodes.isEmpty()) {
+      return;
+    }
+
+    try {
+      browseNodeStore.createBrowseNodes(newNodes.stream().map(node -> node.data).collect(Collectors.toList()));
+    }
+    catch (DuplicateKeyException e) {
+      log.debug("Some of {} browse nodes already exist in repositoryId = {}, merging them instead",
+          newNodes.size(), repositoryId, e);
+      newNodes.forEach(node -> mergeBrowseNode(node.data));
+      return;
+    }
+
+    // the multi-row insert doesn't return generated ids, so fetch them for nodes that will be parents
+    Map<String, PendingNode> parentsByPath = new HashMap<>();
+    newNodes.stream()
+        .filter(node -> !node.children.isEmpty())
+        .forEach(node -> parentsByPath.put(node.data.getPath(), node));
+    if (!parentsByPath.isEmpty()) {
+      for (BrowseNodeData found : browseNodeStore.findBrowseNodeIds(repositoryId, parentsByPath.keySet())) {
+        PendingNode node = parentsByPath.get(found.getPath());
+        if (node != null && found.nodeId != null) {
+          node.data.setNodeId(found.nodeId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Merges a single browse node, logging rather than failing if it clashes with an existing node.
+   */
+  private void mergeBrowseNode(final BrowseNodeData node) {
+    try {
+      browseNodeStore.mergeBrowseNode(node);
+    }
+    catch (DuplicateKeyException e) {
+      log.warn("Duplicate key for browse node found (repositoryId = {}, name = {}, path = {}); " +
+          "a rebuild will likely be necessary", repositoryId, node.getName(), node.getPath(), e);
+    }
+  }
+
+  private static String parentKey(final long parentId, final String displayName) {
+    return parentId + "/" + displayName;
+  }
+
   /**
    * Trims any dangling browse nodes from the repository.
    */
   public void trimBrowseNodes() {
+    parentIds.invalidateAll();
     browseNodeStore.trimBrowseNodes(repositoryId);
   }
 
@@ -137,6 +333,7 @@ public class BrowseNodeManager
    * Deletes all browse nodes associated with the repository.
    */
   public void deleteBrowseNodes() {
+    parentIds.invalidateAll();
     browseNodeStore.deleteBrowseNodes(repositoryId);
   }
 }
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -90,6 +91,42 @@ public class BrowseNodeStore<T extends BrowseNodeDAO>
     dao().mergeBrowseNode(browseNode);
   }
 
+  /**
+   * Creates the given browse nodes using a single multi-row insert.
+   *
+   * @param browseNodes the nodes to create
+   *
+   * @since 3.next
+   */
+  @Transactional
+  public void createBrowseNodes(final List<BrowseNodeData> browseNodes) {
+    dao().createBrowseNodes(browseNodes);
+  }
+
+  /**
+   * Retrieves the internal ids of the browse nodes with the given request paths.
+   *
+   * @param repositoryId the repository containing the browse nodes
+   * @param requestPaths the request paths of the browse nodes
+   * @return browse nodes found with the given request paths
+   *
+   * @since 3.next
+   */
+  @Transactional
+  public List<BrowseNodeData> findBrowseNodeIds(final int repositoryId, final Collection<String> requestPaths) {
+    return dao().findBrowseNodeIds(repositoryId, requestPaths);
+  }
+
+  /**
+   * Retrieves which of the given internal node ids still exist.
+   *
+   * @since 3.next
+   */
+  @Transactional
+  public List<Long> findExistingNodeIds(final int repositoryId, final Collection<Long> nodeIds) {
+    return dao().findExistingNodeIds(repositoryId, nodeIds);
+  }
+
   /**
    * Trims any dangling browse nodes from the given repository.
    *
@@ -119,4 +119,11 @@ public interface FluentComponents
    * Find if a component exists that has the given external id.
    */
   Optional<FluentComponent> find(EntityId externalId);
+
+  /**
+   * Find the components that exist with the given external ids, loading them in as few queries as possible.
+   *
+   * @since 3.next
+   */
+  Collection<FluentComponent> findAll(Collection<EntityId> externalIds);
 }
@@ -33,5 +33,15 @@ public interface FluentQuery<T>
    */
   Continuation<T> browse(int limit, @Nullable String continuationToken);
 
+  /**
+   * Browse like {@link #browse} but allow the read replica to serve the request, so recent writes may be missing.
+   * Only use this for listings whose results aren't written back.
+   *
+   * @since 3.next
+   */
+  default Continuation<T> browseReadOnly(int limit, @Nullable String continuationToken) {
+    return browse(limit, continuationToken);
+  }
+
   Continuation<T> browseEager(int limit, @Nullable String continuationToken);
 }
@@ -78,7 +78,12 @@ public class FluentAssetQueryImpl
 
   @Override
   public Continuation<FluentAsset> browse(final int limit, final String continuationToken) {
-    return assets.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints);
+    return assets.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints, false);
+  }
+
+  @Override
+  public Continuation<FluentAsset> browseReadOnly(final int limit, final String continuationToken) {
+    return assets.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints, true);
   }
 
   @Override
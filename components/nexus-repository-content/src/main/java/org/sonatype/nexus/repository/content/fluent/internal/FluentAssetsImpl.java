@@ -92,7 +92,16 @@ public class FluentAssetsImpl
     if (isGroupRepository(facet.repository())) {
       constraints.add(new GroupRepositoryConstraint(LOCAL));
     }
-    return doBrowse(limit, continuationToken, null, null, null, constraints);
+    return doBrowse(limit, continuationToken, null, null, null, constraints, false);
+  }
+
+  @Override
+  public Continuation<FluentAsset> browseReadOnly(final int limit, final String continuationToken) {
+    List<FluentQueryConstraint> constraints = new ArrayList<>();
+    if (isGroupRepository(facet.repository())) {
+      constraints.add(new GroupRepositoryConstraint(LOCAL));
+    }
+    return doBrowse(limit, continuationToken, null, null, null, constraints, true);
   }
 
   @Override
@@ -106,12 +115,15 @@ public class FluentAssetsImpl
       @Nullable final String kind,
       @Nullable final String filter,
       @Nullable final Map<String, Object> filterParams,
-      @Nullable final List<FluentQueryConstraint> constraints)
+      @Nullable final List<FluentQueryConstraint> constraints,
+      final boolean readOnly)
   {
     Set<Integer> repositoryIds = getRepositoryIds(constraints, facet, facet.repository());
 
-    return new FluentContinuation<>(assetStore.browseAssets(repositoryIds,
-        continuationToken, kind, filter, filterParams, limit), this::with);
+    return new FluentContinuation<>(readOnly
+        ? assetStore.browseAssetsReadOnly(repositoryIds, continuationToken, kind, filter, filterParams, limit)
+        : assetStore.browseAssets(repositoryIds, continuationToken, kind, filter, filterParams, limit),
+        this::with);
   }
 
   @Override
@@ -76,7 +76,12 @@ public class FluentComponentQueryImpl
 
   @Override
   public Continuation<FluentComponent> browse(final int limit, final String continuationToken) {
-    return components.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints);
+    return components.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints, false);
+  }
+
+  @Override
+  public Continuation<FluentComponent> browseReadOnly(final int limit, final String continuationToken) {
+    return components.doBrowse(limit, continuationToken, kind, filter, filterParams, constraints, true);
   }
 
   @Override
@@ -44,6 +44,8 @@ import org.sonatype.nexus.repository.content.store.InternalIds;
 import org.sonatype.nexus.repository.group.GroupFacet;
 import org.sonatype.nexus.repository.types.GroupType;
 
+import com.google.common.collect.Lists;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.singletonList;
 import static org.sonatype.nexus.repository.content.fluent.constraints.GroupRepositoryConstraint.GroupRepositoryLocation.BOTH;
@@ -62,6 +64,8 @@ import static org.sonatype.nexus.repository.content.store.InternalIds.toInternal
 public class FluentComponentsImpl
     implements FluentComponents
 {
+  private static final int FIND_ALL_PAGE_SIZE = 1000;
+
   private final ContentFacetSupport facet;
 
   private final ComponentStore<?> componentStore;
@@ -119,7 +123,16 @@ public class FluentComponentsImpl
     if (isGroupRepository(facet.repository())) {
       constraints.add(new GroupRepositoryConstraint(LOCAL));
     }
-    return doBrowse(limit, continuationToken, null, null, null, constraints);
+    return doBrowse(limit, continuationToken, null, null, null, constraints, false);
+  }
+
+  @Override
+  public Continuation<FluentComponent> browseReadOnly(final int limit, final String continuationToken) {
+    List<FluentQueryConstraint> constraints = new ArrayList<>();
+    if (isGroupRepository(facet.repository())) {
+      constraints.add(new GroupRepositoryConstraint(LOCAL));
+    }
+    return doBrowse(limit, continuationToken, null, null, null, constraints, true);
   }
 
   @Override
@@ -156,17 +169,23 @@ public class FluentComponentsImpl
       @Nullable final String kind,
       @Nullable final String filter,
       @Nullable final Map<String, Object> filterParams,
-      @Nullable final List<FluentQueryConstraint> constraints)
+      @Nullable final List<FluentQueryConstraint> constraints,
+      final boolean readOnly)
   {
     Set<Integer> repositoryIds = getRepositoryIds(constraints, facet, facet.repository());
 
     if (repositoryIds.size() > 1) {
       // with more than 1 repository, the kind/filter/filterParams all get ignored
-      return new FluentContinuation<>(componentStore.browseComponents(repositoryIds, limit, continuationToken),
+      return new FluentContinuation<>(readOnly
+          ? componentStore.browseComponentsReadOnly(repositoryIds, limit, continuationToken)
+          : componentStore.browseComponents(repositoryIds, limit, continuationToken),
           this::with);
     }
-    return new FluentContinuation<>(componentStore.browseComponents(repositoryIds.iterator().next(),
-        limit, continuationToken, kind, filter, filterParams), this::with);
+    int repositoryId = repositoryIds.iterator().next();
+    return new FluentContinuation<>(readOnly
+        ? componentStore.browseComponentsReadOnly(repositoryId, limit, continuationToken, kind, filter, filterParams)
+        : componentStore.browseComponents(repositoryId, limit, continuationToken, kind, filter, filterParams),
+        this::with);
   }
 
   @Override
@@ -236,6 +255,23 @@ public class FluentComponentsImpl
         .map(component -> new FluentComponentImpl(facet, component));
   }
 
+  @Override
+  public Collection<FluentComponent> findAll(final Collection<EntityId> externalIds) {
+    List<Integer> componentIds = externalIds.stream()
+        .map(InternalIds::toInternalId)
+        .distinct()
+        .collect(Collectors.toList());
+
+    List<FluentComponent> components = new ArrayList<>(componentIds.size());
+    for (List<Integer> page : Lists.partition(componentIds, FIND_ALL_PAGE_SIZE)) {
+      componentStore.readComponents(page).stream()
+          .filter(this::containedInRepository)
+          .map(component -> new FluentComponentImpl(facet, component))
+          .forEach(components::add);
+    }
+    return components;
+  }
+
   /**
    * Returns {@code true} if this component is contained in this repository or any of its members.
    */
@@ -48,9 +48,15 @@ public class LastDownloadedHandler
 {
   private final GlobalRepositorySettings globalSettings;
 
+  private final LastDownloadedTracker lastDownloadedTracker;
+
   @Inject
-  public LastDownloadedHandler(final GlobalRepositorySettings globalSettings) {
+  public LastDownloadedHandler(
+      final GlobalRepositorySettings globalSettings,
+      final LastDownloadedTracker lastDownloadedTracker)
+  {
     this.globalSettings = checkNotNull(globalSettings);
+    this.lastDownloadedTracker = checkNotNull(lastDownloadedTracker);
   }
 
   @Override
@@ -77,7 +83,7 @@ public class LastDownloadedHandler
   protected void maybeUpdateLastDownloaded(@Nullable final Asset asset) {
     if (asset != null && !isNextUpdateInFuture(asset.lastDownloaded())) {
       if (asset instanceof FluentAsset) {
-        ((FluentAsset) asset).markAsDownloaded();
+        markAsDownloaded((FluentAsset) asset);
       }
       else {
         log.debug("Cannot mark read-only asset {} as downloaded", asset.path());
@@ -85,6 +91,15 @@ public class LastDownloadedHandler
     }
   }
 
+  /**
+   * Defers the update to the write-behind tracker, unless it is disabled or has too many pending updates.
+   */
+  private void markAsDownloaded(final FluentAsset asset) {
+    if (!lastDownloadedTracker.track(asset)) {
+      asset.markAsDownloaded();
+    }
+  }
+
   private boolean isNextUpdateInFuture(Optional<OffsetDateTime> lastTime) {
     return lastTime.isPresent() && lastTime.get().plus(globalSettings.getLastDownloadedInterval()).isAfter(UTC.now());
   }
@@ -0,0 +1,202 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.FeatureFlag;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.store.AssetStore;
+import org.sonatype.nexus.scheduling.PeriodicJobService;
+import org.sonatype.nexus.scheduling.PeriodicJobService.PeriodicJob;
+
+import com.codahale.metrics.annotation.Gauge;
+import com.codahale.metrics.annotation.Timed;
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
+
+/**
+ * Write-behind tracker of asset downloads.
+ *
+ * Download requests only record the asset as touched in a concurrent map, repeated touches of the same asset are
+ * coalesced. A scheduled task periodically drains the map and updates the last downloaded time of each page of
+ * assets with a single batched statement per content store, so read requests no longer issue their own updates.
+ *
+ * At most {@code flushOnSeconds} worth of touches can be lost if the node stops abruptly; pending touches are
+ * flushed on a clean shutdown. When more than {@code maxPending} assets are waiting the tracker stops accepting
+ * touches and callers should fall back to updating the asset directly.
+ *
+ * @since 3.next
+ */
+@FeatureFlag(name = DATASTORE_ENABLED)
+@ManagedLifecycle(phase = SERVICES)
+@Named
+@Singleton
+public class LastDownloadedTracker
+    extends LifecycleSupport
+{
+  private static final String TRACKER_KEY_PREFIX = "nexus.assets.lastDownloaded.";
+
+  private static final String ENABLED_KEY = TRACKER_KEY_PREFIX + "writeBehind";
+
+  private static final String FLUSH_ON_COUNT_KEY = TRACKER_KEY_PREFIX + "flushOnCount";
+
+  private static final String FLUSH_ON_SECONDS_KEY = TRACKER_KEY_PREFIX + "flushOnSeconds";
+
+  private static final String MAX_PENDING_KEY = TRACKER_KEY_PREFIX + "maxPending";
+
+  private final PeriodicJobService periodicJobService;
+
+  private final boolean enabled;
+
+  private final int flushOnCount;
+
+  private final int flushOnSeconds;
+
+  private final int maxPending;
+
+  private final Map<AssetStore<?>, Map<Integer, Asset>> pendingAssets = new ConcurrentHashMap<>();
+
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  private final Object flushMutex = new Object();
+
+  private PeriodicJob flushTask;
+
+  @Inject
+  public LastDownloadedTracker(
+      final PeriodicJobService periodicJobService,
+      @Named("${" + ENABLED_KEY + ":-true}") final boolean enabled,
+      @Named("${" + FLUSH_ON_COUNT_KEY + ":-1000}") final int flushOnCount,
+      @Named("${" + FLUSH_ON_SECONDS_KEY + ":-5}") final int flushOnSeconds,
+      @Named("${" + MAX_PENDING_KEY + ":-100000}") final int maxPending)
+  {
+    this.periodicJobService = checkNotNull(periodicJobService);
+    this.enabled = enabled;
+    checkArgument(flushOnCount > 0, FLUSH_ON_COUNT_KEY + " must be positive");
+    this.flushOnCount = flushOnCount;
+    checkArgument(flushOnSeconds > 0, FLUSH_ON_SECONDS_KEY + " must be positive");
+    this.flushOnSeconds = flushOnSeconds;
+    checkArgument(maxPending >= flushOnCount, MAX_PENDING_KEY + " must not be less than " + FLUSH_ON_COUNT_KEY);
+    this.maxPending = maxPending;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      periodicJobService.startUsing();
+      flushTask = periodicJobService.schedule(this::flush, flushOnSeconds);
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (enabled) {
+      flushTask.cancel();
+      flush();
+      periodicJobService.stopUsing();
+    }
+  }
+
+  /**
+   * Records that the given asset was downloaded.
+   *
+   * @return {@code false} if the touch was not recorded and the caller should update the asset itself
+   */
+  public boolean track(final FluentAsset asset) {
+    if (!enabled || !isStarted() || pendingCount.get() >= maxPending) {
+      return false;
+    }
+
+    Map<Integer, Asset> assets = pendingAssets.computeIfAbsent(assetStore(asset), k -> new ConcurrentHashMap<>());
+
+    // only bump count if this is the first time we've seen this asset in this batch
+    if (assets.putIfAbsent(internalAssetId(asset), asset) == null
+        && pendingCount.incrementAndGet() >= flushOnCount
+        && flushRequested.compareAndSet(false, true)) {
+      periodicJobService.runOnce(this::flush, 0);
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes all pending touches to the content stores, a page of assets at a time.
+   */
+  @Timed(name = "nexus.assets.lastDownloaded.flush")
+  public void flush() {
+    synchronized (flushMutex) {
+      flushRequested.set(false);
+      pendingAssets.forEach(this::flush);
+    }
+  }
+
+  @Gauge(name = "nexus.assets.lastDownloaded.queueDepth")
+  public int queueDepth() {
+    return pendingCount.get();
+  }
+
+  private void flush(final AssetStore<?> assetStore, final Map<Integer, Asset> assets) {
+    List<Asset> page = new ArrayList<>();
+    Iterator<Entry<Integer, Asset>> itr = assets.entrySet().iterator();
+    while (itr.hasNext()) {
+      page.add(itr.next().getValue());
+      itr.remove();
+      pendingCount.decrementAndGet();
+      if (page.size() >= flushOnCount) {
+        markAllAsDownloaded(assetStore, page);
+        page = new ArrayList<>();
+      }
+    }
+    if (!page.isEmpty()) {
+      markAllAsDownloaded(assetStore, page);
+    }
+  }
+
+  private void markAllAsDownloaded(final AssetStore<?> assetStore, final List<Asset> page) {
+    try {
+      assetStore.markAllAsDownloaded(page);
+    }
+    catch (RuntimeException e) {
+      log.warn("Failed to update last downloaded time of {} assets", page.size(), e);
+    }
+  }
+
+  @VisibleForTesting
+  AssetStore<?> assetStore(final FluentAsset asset) {
+    return ((ContentFacetSupport) asset.repository().facet(ContentFacet.class)).stores().assetStore;
+  }
+}
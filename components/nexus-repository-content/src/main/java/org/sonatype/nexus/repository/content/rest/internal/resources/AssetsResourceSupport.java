@@ -64,9 +64,9 @@ abstract class AssetsResourceSupport
     // helper for users, if they query by group chances are they want the list of member content
     if (GroupType.NAME.equals(repository.getType().getValue())) {
       return repository.facet(ContentFacet.class).assets().withOnlyGroupMemberContent()
-          .browse(LIMIT, continuationToken);
+          .browseReadOnly(LIMIT, continuationToken);
     }
-    return repository.facet(ContentFacet.class).assets().browse(LIMIT, continuationToken);
+    return repository.facet(ContentFacet.class).assets().browseReadOnly(LIMIT, continuationToken);
   }
 
   private List<FluentAsset> removeAssetsNotPermitted(
@@ -73,9 +73,9 @@ abstract class ComponentsResourceSupport
   private Continuation<FluentComponent> getComponents(Repository repository, final String continuationToken) {
     if(GroupType.NAME.equals(repository.getType().getValue())) {
       return repository.facet(ContentFacet.class).components().withOnlyGroupMemberContent()
-          .browse(LIMIT, continuationToken);
+          .browseReadOnly(LIMIT, continuationToken);
     }
-    return repository.facet(ContentFacet.class).components().browse(LIMIT, continuationToken);
+    return repository.facet(ContentFacet.class).components().browseReadOnly(LIMIT, continuationToken);
   }
 
   private List<FluentComponent> removeComponentsNotPermitted(
@@ -21,8 +21,9 @@ import java.util.OptionalInt;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
@@ -59,6 +60,8 @@ import com.google.common.eventbus.Subscribe;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Integer.parseInt;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.Thread.MIN_PRIORITY;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
@@ -77,6 +80,11 @@ import static org.sonatype.nexus.repository.content.store.InternalIds.toExternal
  * If too many components build up events will start to be posted to flush additional pages.
  * These events are handled by an asynchronous receiver using threads from the event pool.
  *
+ * Pages grow as the backlog rises, up to {@code maxFlushOnCount}, so each flush does more work
+ * with fewer queries. Repeated requests for the same component are coalesced while pending.
+ * The queue of flush requests is bounded; once it's full the thread that triggered the event
+ * performs the flush itself, which applies backpressure instead of queueing without limit.
+ *
  * @since 3.26
  */
 public abstract class SearchEventHandler
@@ -93,6 +101,10 @@ public abstract class SearchEventHandler
 
   protected static final String FLUSH_POOL_SIZE = HANDLER_KEY_PREFIX + "flushPoolSize";
 
+  protected static final String MAX_FLUSH_ON_COUNT_KEY = HANDLER_KEY_PREFIX + "maxFlushOnCount";
+
+  protected static final String FLUSH_QUEUE_CAPACITY_KEY = HANDLER_KEY_PREFIX + "flushQueueCapacity";
+
   enum RequestType
   {
     INDEX, PURGE
@@ -108,12 +120,18 @@ public abstract class SearchEventHandler
 
   private final boolean noPurgeDelay;
 
-  private final Map<String, String> pendingRequests = new ConcurrentHashMap<>();
+  private final int maxFlushOnCount;
+
+  private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
 
   private final AtomicInteger pendingCount = new AtomicInteger();
 
+  private final AtomicBoolean purgeScheduled = new AtomicBoolean();
+
   private final int poolSize;
 
+  private final int flushQueueCapacity;
+
   protected ThreadPoolExecutor threadPoolExecutor;
 
   private Object flushMutex = new Object();
@@ -129,6 +147,23 @@ public abstract class SearchEventHandler
       @Named("${" + FLUSH_ON_SECONDS_KEY + ":-2}") final int flushOnSeconds,
       @Named("${" + NO_PURGE_DELAY_KEY + ":-true}") final boolean noPurgeDelay,
       @Named("${" + FLUSH_POOL_SIZE + ":-128}") final int poolSize)
+  {
+    this(repositoryManager, periodicJobService, flushOnCount, flushOnSeconds, noPurgeDelay, poolSize,
+        max(flushOnCount, 1000), 1000);
+  }
+
+  /**
+   * @since 3.next
+   */
+  public SearchEventHandler(
+      final RepositoryManager repositoryManager,
+      final PeriodicJobService periodicJobService,
+      @Named("${" + FLUSH_ON_COUNT_KEY + ":-100}") final int flushOnCount,
+      @Named("${" + FLUSH_ON_SECONDS_KEY + ":-2}") final int flushOnSeconds,
+      @Named("${" + NO_PURGE_DELAY_KEY + ":-true}") final boolean noPurgeDelay,
+      @Named("${" + FLUSH_POOL_SIZE + ":-128}") final int poolSize,
+      @Named("${" + MAX_FLUSH_ON_COUNT_KEY + ":-1000}") final int maxFlushOnCount,
+      @Named("${" + FLUSH_QUEUE_CAPACITY_KEY + ":-1000}") final int flushQueueCapacity)
   {
     this.repositoryManager = checkNotNull(repositoryManager);
     this.periodicJobService = checkNotNull(periodicJobService);
@@ -137,9 +172,14 @@ public abstract class SearchEventHandler
     checkArgument(flushOnSeconds > 0, FLUSH_ON_SECONDS_KEY + " must be positive");
     this.flushOnSeconds = flushOnSeconds;
     this.noPurgeDelay = noPurgeDelay;
+    checkArgument(maxFlushOnCount >= flushOnCount, MAX_FLUSH_ON_COUNT_KEY + " must not be less than "
+        + FLUSH_ON_COUNT_KEY);
+    this.maxFlushOnCount = maxFlushOnCount;
 
     checkArgument(poolSize > 0, "Pool size must be greater than zero");
     this.poolSize = poolSize;
+    checkArgument(flushQueueCapacity > 0, FLUSH_QUEUE_CAPACITY_KEY + " must be positive");
+    this.flushQueueCapacity = flushQueueCapacity;
   }
 
   @Override
@@ -154,9 +194,9 @@ public abstract class SearchEventHandler
         poolSize, // max-size
         0L, // keep-alive
         TimeUnit.MILLISECONDS,
-        new LinkedBlockingQueue<>(), // allow queueing up of requests
+        new LinkedBlockingQueue<>(flushQueueCapacity), // allow some queueing up of requests
         new NexusThreadFactory(getThreadPoolId(), "flushAndPurge", MIN_PRIORITY),
-        new AbortPolicy());
+        new CallerRunsPolicy()); // backpressure: flush on the triggering thread once the queue is full
   }
 
   protected String getThreadPoolId() {
@@ -178,6 +218,29 @@ public abstract class SearchEventHandler
     return threadPoolExecutor.getQueue().size();
   }
 
+  /**
+   * @since 3.next
+   */
+  @Gauge(name = "nexus.search.eventHandler.backlog.size")
+  public int searchBacklogSize() {
+    return pendingRequests.size();
+  }
+
+  /**
+   * Age in milliseconds of the oldest pending index/purge request.
+   *
+   * @since 3.next
+   */
+  @Gauge(name = "nexus.search.eventHandler.backlog.age")
+  public long searchBacklogAge() {
+    long now = System.nanoTime();
+    long oldest = pendingRequests.values().stream()
+        .mapToLong(request -> request.queuedAt)
+        .min()
+        .orElse(now);
+    return TimeUnit.NANOSECONDS.toMillis(now - oldest);
+  }
+
   /**
    * Allow event processing to be disabled.
    *
@@ -350,8 +413,10 @@ public abstract class SearchEventHandler
   }
 
   private void markComponentAsPending(final String requestKey, final String repoTag) {
-    // bump count if this is the first time we've seen this request key in this batch
-    if (pendingRequests.put(requestKey, repoTag) == null) {
+    PendingRequest request = new PendingRequest(repoTag, System.nanoTime());
+    // merge only returns our request if this is the first time we've seen this request key in this batch,
+    // otherwise the existing request is coalesced with ours and keeps its original queue time
+    if (pendingRequests.merge(requestKey, request, PendingRequest::coalesce) == request) {
       pendingCount.getAndIncrement();
     }
   }
@@ -359,8 +424,9 @@ public abstract class SearchEventHandler
   private boolean maybeTriggerAsyncFlush() {
     // if there are lots of pending requests then reduce count by a page and
     // trigger an asynchronous flush event (which will actually do the work)
-    if (pendingCount.getAndUpdate(c -> c >= flushOnCount ? c - flushOnCount : c) >= flushOnCount) {
-      threadPoolExecutor.execute(() -> flushPageOfComponents(null));
+    int pageSize = pageSize();
+    if (pendingCount.getAndUpdate(c -> c >= pageSize ? c - pageSize : c) >= pageSize) {
+      threadPoolExecutor.execute(() -> flushPageOfComponents(null, pageSize));
       return true;
     }
     return false;
@@ -369,19 +435,31 @@ public abstract class SearchEventHandler
   private boolean maybeTriggerAsyncPurge() {
     // if it's still too early to flush requests, but we don't want to delay
     // outstanding purge requests then trigger an asynchronous purge event
-    if (!maybeTriggerAsyncFlush() && noPurgeDelay) {
-      threadPoolExecutor.execute(() -> flushPageOfComponents(PURGE));
+    // (unless one is already waiting to run, in which case it will pick up this request)
+    if (!maybeTriggerAsyncFlush() && noPurgeDelay && purgeScheduled.compareAndSet(false, true)) {
+      threadPoolExecutor.execute(() -> {
+        purgeScheduled.set(false);
+        flushPageOfComponents(PURGE, pageSize());
+      });
       return true;
     }
     return false;
   }
 
+  /**
+   * Grows the page size with the backlog by spreading pending requests across the flush threads.
+   */
+  @VisibleForTesting
+  int pageSize() {
+    return min(maxFlushOnCount, max(flushOnCount, pendingRequests.size() / poolSize));
+  }
+
   /**
    * Used by scheduled flush task to poll for work.
    */
   void pollSearchUpdateRequest() {
     if (pendingCount.get() > 0) {
-      flushPageOfComponents(null);
+      flushPageOfComponents(null, pageSize());
     }
   }
 
@@ -389,21 +467,23 @@ public abstract class SearchEventHandler
    * Grabs a page of components and sends them to the appropriate {@link SearchFacet}.
    *
    * @param requestType optional request type to filter on
+   * @param pageSize    maximum number of pending requests to examine
    */
-  void flushPageOfComponents(@Nullable final RequestType requestType) {
+  void flushPageOfComponents(@Nullable final RequestType requestType, final int pageSize) {
     Multimap<String, EntityId> requestsByRepository = ArrayListMultimap.create();
 
     // only allow one thread to remove entries at a time while still allowing other threads to add entries
     synchronized (flushMutex) {
 
       // remove page and invert it to get mapping from repository to components
-      Iterator<Entry<String, String>> itr = pendingRequests.entrySet().iterator();
-      for (int i = 0; i < flushOnCount && itr.hasNext(); i++) {
-        Entry<String, String> entry = itr.next();
+      Iterator<Entry<String, PendingRequest>> itr = pendingRequests.entrySet().iterator();
+      for (int i = 0; i < pageSize && itr.hasNext(); i++) {
+        Entry<String, PendingRequest> entry = itr.next();
+        String repoTag = entry.getValue().repoTag;
 
-        if (requestType == null || entry.getValue().startsWith(requestType.name())) {
+        if (requestType == null || repoTag.startsWith(requestType.name())) {
           // requests are scoped per-repository so it's safe to drop the format here
-          requestsByRepository.put(entry.getValue(), componentId(entry.getKey()));
+          requestsByRepository.put(repoTag, componentId(entry.getKey()));
           itr.remove();
         }
       }
@@ -455,4 +535,26 @@ public abstract class SearchEventHandler
   private static String repositoryName(final String repoTag) {
     return repoTag.substring(repoTag.indexOf(':') + 1);
   }
+
+  /**
+   * Pending index/purge request for a component.
+   */
+  private static final class PendingRequest
+  {
+    private final String repoTag;
+
+    private final long queuedAt;
+
+    private PendingRequest(final String repoTag, final long queuedAt) {
+      this.repoTag = repoTag;
+      this.queuedAt = queuedAt;
+    }
+
+    /**
+     * The latest request decides whether to index or purge, but the backlog age is measured from the earliest.
+     */
+    private static PendingRequest coalesce(final PendingRequest earlier, final PendingRequest later) {
+      return new PendingRequest(later.repoTag, earlier.queuedAt);
+    }
+  }
 }
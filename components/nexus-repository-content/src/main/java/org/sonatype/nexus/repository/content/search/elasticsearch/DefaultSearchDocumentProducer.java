@@ -12,15 +12,15 @@
  */
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 
@@ -35,11 +35,16 @@ import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.search.normalize.VersionNumberExpander;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter.Inclusion;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.format.DateTimeFormatter.ofPattern;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.toExternalId;
@@ -48,6 +53,9 @@ import static org.sonatype.nexus.repository.search.index.SearchConstants.*;
 /**
  * Default {@link SearchDocumentProducer} that combines properties of components and their assets.
  *
+ * Documents are streamed as compact JSON into a per-thread buffer that is reused between documents. Subclasses that
+ * override {@link #getDocument} have their documents encoded from it instead.
+ *
  * @since 3.25
  */
 @Named
@@ -58,73 +66,148 @@ public class DefaultSearchDocumentProducer
 {
   private static final DateTimeFormatter DATE_TIME_FORMATTER = ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
 
-  private static final ObjectWriter WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
+  // generators from this factory can serialize attribute maps and other values as they're written
+  private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+
+  private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+  // buffers that grew beyond this for an unusually large document are not kept for reuse
+  private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+  private static final ThreadLocal<ByteArrayOutputStream> BUFFERS =
+      ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER_SIZE));
 
   private final Set<SearchDocumentExtension> documentExtensions;
 
+  private final boolean customDocument;
+
   @Inject
   public DefaultSearchDocumentProducer(final Set<SearchDocumentExtension> documentExtensions) {
     this.documentExtensions = checkNotNull(documentExtensions);
+    this.customDocument = overridesGetDocument(getClass());
   }
 
   @Override
   public String getDocument(final FluentComponent component, final Map<String, Object> commonFields) {
+    return new String(encodeDocument(component, commonFields), UTF_8);
+  }
+
+  @Override
+  public byte[] getDocumentBytes(final FluentComponent component, final Map<String, Object> commonFields) {
+    if (customDocument) {
+      return getDocument(component, commonFields).getBytes(UTF_8);
+    }
+    return encodeDocument(component, commonFields);
+  }
+
+  private byte[] encodeDocument(final FluentComponent component, final Map<String, Object> commonFields) {
     checkNotNull(component);
     checkNotNull(commonFields);
 
-    Map<String, Object> componentDoc = new HashMap<>();
-    componentDoc.put(GROUP, component.namespace());
-    componentDoc.put(NAME, component.name());
-    componentDoc.put(VERSION, component.version());
-    componentDoc.put(ATTRIBUTES, component.attributes().backing());
+    ByteArrayOutputStream buffer = BUFFERS.get();
+    buffer.reset();
+    try (JsonGenerator generator = new FilteringGeneratorDelegate(JSON_FACTORY.createGenerator(buffer),
+        new FirstFieldWins(), Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+      writeDocument(component, commonFields, generator);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    byte[] document = buffer.toByteArray();
+    if (document.length > MAX_POOLED_BUFFER_SIZE) {
+      BUFFERS.remove();
+    }
+    return document;
+  }
+
+  /**
+   * Writes the search document for the given component. Fields are written in order of precedence, common fields
+   * then extension fields then the component's own fields, and the generator drops any field already written.
+   */
+  private void writeDocument(
+      final FluentComponent component,
+      final Map<String, Object> commonFields,
+      final JsonGenerator generator) throws IOException
+  {
+    generator.writeStartObject();
+
+    for (Entry<String, Object> field : commonFields.entrySet()) {
+      generator.writeObjectField(field.getKey(), field.getValue());
+    }
+
+    for (SearchDocumentExtension extension : documentExtensions) {
+      extension.writeFields(component, generator);
+    }
 
-    componentDoc.put(NORMALIZED_VERSION, getNormalizedVersion(component));
-    componentDoc.put(IS_PRERELEASE_KEY, isPrerelease(component));
+    generator.writeObjectField(GROUP, component.namespace());
+    generator.writeObjectField(NAME, component.name());
+    generator.writeObjectField(VERSION, component.version());
+    generator.writeObjectField(ATTRIBUTES, component.attributes().backing());
+
+    generator.writeObjectField(NORMALIZED_VERSION, getNormalizedVersion(component));
+    generator.writeObjectField(IS_PRERELEASE_KEY, isPrerelease(component));
 
     Collection<FluentAsset> assets = component.assets();
 
-    lastBlobUpdated(assets).ifPresent(dateTime -> componentDoc.put(LAST_BLOB_UPDATED_KEY, format(dateTime)));
-    lastDownloaded(assets).ifPresent(dateTime -> componentDoc.put(LAST_DOWNLOADED_KEY, format(dateTime)));
-
-    List<Map<String, Object>> assetDocs = new ArrayList<>();
-    for (Asset asset : assets) {
-      Map<String, Object> assetDoc = new HashMap<>();
-      assetDoc.put(ID, toExternalId(internalAssetId(asset)).getValue());
-      assetDoc.put(NAME, asset.path());
-      Map<String, Object> attributes = new HashMap<>(asset.attributes().backing());
-      assetDoc.put(CONTENT_TYPE, "");
-      asset.blob().ifPresent(blob -> {
-        assetDoc.put(CONTENT_TYPE, blob.contentType());
-        assetDoc.put(UPLOADER, blob.createdBy().orElse(null));
-        assetDoc.put(UPLOADER_IP, blob.createdByIp().orElse(null));
-        assetDoc.put(FILE_SIZE, blob.blobSize());
-        asset.lastDownloaded().ifPresent(dateTime -> assetDoc.put(LAST_DOWNLOADED_KEY, format(dateTime)));
-        attributes.put("checksum", blob.checksums());
-
-        // Not ideal, but demonstrates why strongly typed objects would be better than Maps of attributes.
-        Map<String, Object> content = new HashMap<>();
-        content.put("last_modified", blob.blobCreated().toInstant().toEpochMilli());
-        attributes.put("content", content);
-      });
-      assetDoc.put(ATTRIBUTES, attributes);
-      assetDocs.add(assetDoc);
+    Optional<OffsetDateTime> lastBlobUpdated = lastBlobUpdated(assets);
+    if (lastBlobUpdated.isPresent()) {
+      generator.writeObjectField(LAST_BLOB_UPDATED_KEY, format(lastBlobUpdated.get()));
     }
-    if (!assetDocs.isEmpty()) {
-      componentDoc.put(ASSETS, assetDocs);
+    Optional<OffsetDateTime> lastDownloaded = lastDownloaded(assets);
+    if (lastDownloaded.isPresent()) {
+      generator.writeObjectField(LAST_DOWNLOADED_KEY, format(lastDownloaded.get()));
     }
 
-    for (SearchDocumentExtension extension : documentExtensions) {
-      componentDoc.putAll(extension.getFields(component));
+    if (!assets.isEmpty() && !commonFields.containsKey(ASSETS)) {
+      generator.writeArrayFieldStart(ASSETS);
+      for (Asset asset : assets) {
+        writeAsset(asset, generator);
+      }
+      generator.writeEndArray();
     }
 
-    componentDoc.putAll(commonFields);
+    generator.writeEndObject();
+  }
+
+  private static void writeAsset(final Asset asset, final JsonGenerator generator) throws IOException {
+    Optional<AssetBlob> blob = asset.blob();
 
-    try {
-      return WRITER.writeValueAsString(componentDoc);
+    generator.writeStartObject();
+    generator.writeStringField(ID, toExternalId(internalAssetId(asset)).getValue());
+    generator.writeStringField(NAME, asset.path());
+    generator.writeStringField(CONTENT_TYPE, blob.isPresent() ? blob.get().contentType() : "");
+    if (blob.isPresent()) {
+      generator.writeStringField(UPLOADER, blob.get().createdBy().orElse(null));
+      generator.writeStringField(UPLOADER_IP, blob.get().createdByIp().orElse(null));
+      generator.writeNumberField(FILE_SIZE, blob.get().blobSize());
+      Optional<OffsetDateTime> lastDownloaded = asset.lastDownloaded();
+      if (lastDownloaded.isPresent()) {
+        generator.writeStringField(LAST_DOWNLOADED_KEY, format(lastDownloaded.get()));
+      }
     }
-    catch (IOException e) {
-      throw new UncheckedIOException(e);
+
+    generator.writeObjectFieldStart(ATTRIBUTES);
+    for (Entry<String, Object> attribute : asset.attributes().backing().entrySet()) {
+      // blob details replace any stored attributes of the same name
+      if (!blob.isPresent() || !isBlobAttribute(attribute.getKey())) {
+        generator.writeObjectField(attribute.getKey(), attribute.getValue());
+      }
+    }
+    if (blob.isPresent()) {
+      generator.writeObjectField("checksum", blob.get().checksums());
+
+      // Not ideal, but demonstrates why strongly typed objects would be better than Maps of attributes.
+      generator.writeObjectFieldStart("content");
+      generator.writeNumberField("last_modified", blob.get().blobCreated().toInstant().toEpochMilli());
+      generator.writeEndObject();
     }
+    generator.writeEndObject();
+
+    generator.writeEndObject();
+  }
+
+  private static boolean isBlobAttribute(final String name) {
+    return "checksum".equals(name) || "content".equals(name);
   }
 
   /**
@@ -172,4 +255,28 @@ public class DefaultSearchDocumentProducer
   private static String format(final OffsetDateTime value) {
     return value.format(DATE_TIME_FORMATTER);
   }
+
+  private static boolean overridesGetDocument(final Class<?> type) {
+    try {
+      return type.getMethod("getDocument", FluentComponent.class, Map.class).getDeclaringClass()
+          != DefaultSearchDocumentProducer.class;
+    }
+    catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Keeps the first field written with each name at the top level of the document, along with its whole value.
+   */
+  private static class FirstFieldWins
+      extends TokenFilter
+  {
+    private final Set<String> written = new HashSet<>();
+
+    @Override
+    public TokenFilter includeProperty(final String name) {
+      return written.add(name) ? INCLUDE_ALL : null;
+    }
+  }
 }
@@ -39,8 +39,11 @@ public class DefaultSearchEventHandler
       @Named("${" + FLUSH_ON_COUNT_KEY + ":-100}") final int flushOnCount,
       @Named("${" + FLUSH_ON_SECONDS_KEY + ":-2}") final int flushOnSeconds,
       @Named("${" + NO_PURGE_DELAY_KEY + ":-true}") final boolean noPurgeDelay,
-      @Named("${" + FLUSH_POOL_SIZE + ":-128}") final int poolSize)
+      @Named("${" + FLUSH_POOL_SIZE + ":-128}") final int poolSize,
+      @Named("${" + MAX_FLUSH_ON_COUNT_KEY + ":-1000}") final int maxFlushOnCount,
+      @Named("${" + FLUSH_QUEUE_CAPACITY_KEY + ":-1000}") final int flushQueueCapacity)
   {
-    super(repositoryManager, periodicJobService, flushOnCount, flushOnSeconds, noPurgeDelay, poolSize);
+    super(repositoryManager, periodicJobService, flushOnCount, flushOnSeconds, noPurgeDelay, poolSize,
+        maxFlushOnCount, flushQueueCapacity);
   }
 }
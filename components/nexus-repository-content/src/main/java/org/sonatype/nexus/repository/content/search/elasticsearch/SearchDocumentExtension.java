@@ -12,10 +12,14 @@
  */
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 /**
  * Extension point to contribute fields to {@link SearchDocumentProducer}.
  *
@@ -29,4 +33,16 @@ public interface SearchDocumentExtension
    * @return additional field names and their values in Map format
    */
   Map<String, Object> getFields(FluentComponent component);
+
+  /**
+   * Writes additional fields to be indexed for the given component straight to the document being generated.
+   * Extensions that can stream their fields should override this to avoid building an intermediate map.
+   *
+   * @since 3.next
+   */
+  default void writeFields(final FluentComponent component, final JsonGenerator generator) throws IOException {
+    for (Entry<String, Object> field : getFields(component).entrySet()) {
+      generator.writeObjectField(field.getKey(), field.getValue());
+    }
+  }
 }
@@ -16,6 +16,8 @@ import java.util.Map;
 
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * Producer of search documents to be indexed by Elasticsearch.
  *
@@ -29,4 +31,15 @@ public interface SearchDocumentProducer
    * @return search document in JSON format
    */
   String getDocument(FluentComponent component, Map<String, Object> commonFields);
+
+  /**
+   * Retrieves the search document to be indexed for the given component.
+   *
+   * @return search document in UTF-8 encoded JSON format
+   *
+   * @since 3.next
+   */
+  default byte[] getDocumentBytes(final FluentComponent component, final Map<String, Object> commonFields) {
+    return getDocument(component, commonFields).getBytes(UTF_8);
+  }
 }
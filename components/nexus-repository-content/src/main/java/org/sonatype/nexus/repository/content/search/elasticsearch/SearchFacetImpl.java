@@ -12,9 +12,14 @@
  */
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -22,6 +27,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.common.entity.EntityHelper;
 import org.sonatype.nexus.common.entity.EntityId;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.logging.task.ProgressLogIntervalHelper;
@@ -36,10 +42,13 @@ import org.sonatype.nexus.repository.search.index.ElasticSearchIndexService;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.toExternalId;
@@ -65,6 +74,10 @@ public class SearchFacetImpl
 
   private final boolean bulkProcessing;
 
+  private final boolean shadowRebuild;
+
+  private final int maxPendingPages;
+
   private SearchDocumentProducer searchDocumentProducer;
 
   private Map<String, Object> repositoryFields;
@@ -73,12 +86,16 @@ public class SearchFacetImpl
   public SearchFacetImpl(final ElasticSearchIndexService elasticSearchIndexService,
                          final Map<String, SearchDocumentProducer> searchDocumentProducersByFormat,
                          @Named("${nexus.elasticsearch.reindex.pageSize:-1000}") final int pageSize,
-                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing)
+                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing,
+                         @Named("${nexus.elasticsearch.rebuild.shadow.enabled:-false}") final boolean shadowRebuild,
+                         @Named("${nexus.elasticsearch.rebuild.maxPendingPages:-4}") final int maxPendingPages)
   {
     this.elasticSearchIndexService = checkNotNull(elasticSearchIndexService);
     this.searchDocumentProducersByFormat = checkNotNull(searchDocumentProducersByFormat);
     this.pageSize = max(pageSize, 1);
     this.bulkProcessing = bulkProcessing;
+    this.shadowRebuild = shadowRebuild;
+    this.maxPendingPages = max(maxPendingPages, 1);
   }
 
   @Override
@@ -104,16 +121,12 @@ public class SearchFacetImpl
   @Guarded(by = STARTED)
   @Override
   public void index(final Collection<EntityId> componentIds) {
-    FluentComponents lookup = facet(ContentFacet.class).components();
-
-    Stream<FluentComponent> components = componentIds.stream()
-        .map(lookup::find)
-        .filter(Optional::isPresent)
-        .map(Optional::get);
+    // load the whole page of components with multi-id reads rather than one query per component
+    Stream<FluentComponent> components = facet(ContentFacet.class).components().findAll(componentIds).stream();
 
     Repository repository = getRepository();
     if (bulkProcessing) {
-      elasticSearchIndexService.bulkPut(repository, components::iterator, this::identifier, this::document);
+      elasticSearchIndexService.bulkPutBytes(repository, components::iterator, this::identifier, this::documentBytes);
     }
     else {
       components.forEach(c -> elasticSearchIndexService.put(repository, identifier(c), document(c)));
@@ -141,15 +154,74 @@ public class SearchFacetImpl
   public void rebuildIndex() {
     log.info("Rebuilding index of repository {}", getRepository().getName());
 
-    elasticSearchIndexService.rebuildIndex(getRepository()); // clears out old documents
+    if (shadowRebuild && elasticSearchIndexService.startShadowRebuild(getRepository())) {
+      rebuildShadowIndex();
+    }
+    else {
+      elasticSearchIndexService.rebuildIndex(getRepository()); // clears out old documents
+
+      rebuildComponentIndex(false);
+    }
+  }
+
+  /**
+   * Rebuilds the index into a shadow index while searches continue to use the old index, then switches over to it.
+   */
+  private void rebuildShadowIndex() {
+    Repository repository = getRepository();
+    boolean finished = false;
+    try {
+      if (rebuildComponentIndex(true)) {
+        // copies are queued asynchronously, so only replay once they have landed; the second pass covers
+        // updates whose own writes raced with the first replay while it was still queued
+        elasticSearchIndexService.flushShadowRebuild(repository);
+        replayShadowUpdates();
+        elasticSearchIndexService.flushShadowRebuild(repository);
+        replayShadowUpdates();
+        elasticSearchIndexService.finishShadowRebuild(repository);
+        finished = true;
+      }
+    }
+    catch (Exception e) {
+      log.error("Unable to switch over to rebuilt search index for repository {}", repository.getName(), e);
+    }
+    finally {
+      if (!finished) {
+        elasticSearchIndexService.abortShadowRebuild(repository);
+      }
+    }
+  }
+
+  /**
+   * Re-indexes components updated during the rebuild, in case an older copy from the rebuild overtook the update.
+   */
+  private void replayShadowUpdates() {
+    Repository repository = getRepository();
+    FluentComponents components = repository.facet(ContentFacet.class).components();
+
+    List<EntityId> componentIds = elasticSearchIndexService.getShadowUpdates(repository).stream()
+        .map(EntityHelper::id)
+        .collect(toList());
 
-    rebuildComponentIndex();
+    for (List<EntityId> chunk : Lists.partition(componentIds, pageSize)) {
+      Collection<FluentComponent> found = components.findAll(chunk);
+      Set<String> removed = chunk.stream().map(EntityId::getValue).collect(toSet());
+      found.forEach(component -> removed.remove(identifier(component)));
+
+      elasticSearchIndexService.bulkPutBytes(repository, found, this::identifier, this::documentBytes);
+      if (!removed.isEmpty()) {
+        elasticSearchIndexService.bulkDelete(repository, removed);
+      }
+    }
   }
 
   /**
    * Re-submit search documents for every component in the repository for indexing.
+   *
+   * @param shadow whether to submit the documents to the shadow index
+   * @return {@code true} if every component was submitted
    */
-  private void rebuildComponentIndex() {
+  private boolean rebuildComponentIndex(final boolean shadow) {
     String repositoryName = getRepository().getName();
     try {
       FluentComponents components = getRepository().facet(ContentFacet.class).components();
@@ -161,26 +233,52 @@ public class SearchFacetImpl
 
         long processed = 0;
 
-        Continuation<FluentComponent> page = components.browse(pageSize, null);
+        // bounds how far indexing can fall behind reading, so pages don't pile up in the bulk processor queues
+        Deque<List<Future<Void>>> pendingPages = new ArrayDeque<>();
+
+        // reading from the replica is fine here, updates made while rebuilding are indexed as they happen
+        Continuation<FluentComponent> page = components.browseReadOnly(pageSize, null);
         while (!page.isEmpty()) {
 
-          elasticSearchIndexService.bulkPut(getRepository(), page, this::identifier, this::document);
+          if (shadow) {
+            pendingPages.add(
+                elasticSearchIndexService.bulkPutShadow(getRepository(), page, this::identifier, this::documentBytes));
+          }
+          else {
+            pendingPages.add(
+                elasticSearchIndexService.bulkPutBytes(getRepository(), page, this::identifier, this::documentBytes));
+          }
+          while (pendingPages.size() > maxPendingPages) {
+            waitFor(pendingPages.remove());
+          }
           processed += page.size();
 
           long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
-          progressLogger.info("Indexed {} / {} {} components in {} ms",
-              processed, total, repositoryName, elapsed);
+          progressLogger.info("Indexed {} / {} {} components in {} ms ({} docs/s)",
+              processed, total, repositoryName, elapsed, processed * 1000 / max(elapsed, 1));
 
           checkCancellation();
 
-          page = components.browse(pageSize, page.nextContinuationToken());
+          page = components.browseReadOnly(pageSize, page.nextContinuationToken());
+        }
+
+        while (!pendingPages.isEmpty()) {
+          waitFor(pendingPages.remove());
         }
 
         progressLogger.flush(); // ensure the final progress message is flushed
       }
+      return true;
     }
     catch (Exception e) {
       log.error("Unable to rebuild search index for repository {}", repositoryName, e);
+      return false;
+    }
+  }
+
+  private static void waitFor(final List<Future<Void>> futures) throws InterruptedException, ExecutionException {
+    for (Future<Void> future : futures) {
+      future.get();
     }
   }
 
@@ -218,13 +316,30 @@ public class SearchFacetImpl
       return searchDocumentProducer.getDocument(component, repositoryFields);
     }
     catch (Exception e) {
-      if (log.isDebugEnabled()) {
-        log.warn("Error creating search document for {}", component, e);
-      }
-      else {
-        log.warn("Error '{}' creating search document for component: {}", e.getMessage(), component);
-      }
+      logDocumentError(component, e);
     }
     return null;
   }
+
+  /**
+   * Returns the UTF-8 encoded JSON document for the given component in the repository's index.
+   */
+  private byte[] documentBytes(final FluentComponent component) {
+    try {
+      return searchDocumentProducer.getDocumentBytes(component, repositoryFields);
+    }
+    catch (Exception e) {
+      logDocumentError(component, e);
+    }
+    return null;
+  }
+
+  private void logDocumentError(final FluentComponent component, final Exception e) {
+    if (log.isDebugEnabled()) {
+      log.warn("Error creating search document for {}", component, e);
+    }
+    else {
+      log.warn("Error '{}' creating search document for component: {}", e.getMessage(), component);
+    }
+  }
 }
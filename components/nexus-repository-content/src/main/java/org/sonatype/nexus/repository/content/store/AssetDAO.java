@@ -33,6 +33,7 @@ import org.sonatype.nexus.repository.content.AssetInfo;
 import org.sonatype.nexus.repository.content.Component;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 /**
  * Asset {@link ContentDataAccess}.
@@ -80,6 +81,34 @@ public interface AssetDAO
                                    @Nullable @Param("filter") String filter,
                                    @Nullable @Param(FILTER_PARAMS) Map<String, Object> filterParams);
 
+  /**
+   * Stream all assets in the given repository, ordered by asset id. Rows are fetched from the database in batches
+   * as the cursor is iterated; the cursor must be closed before its session.
+   *
+   * @param repositoryId the repository to stream
+   * @param kind optional kind of assets to return
+   * @return cursor over the assets
+   *
+   * @since 3.next
+   */
+  Cursor<Asset> streamAssets(@Param("repositoryId") int repositoryId,
+                             @Nullable @Param("kind") String kind);
+
+  /**
+   * Stream all assets in the given repository, ordered by asset id, only populating the given columns. Associated
+   * components and blobs are not fetched.
+   *
+   * @param repositoryId the repository to stream
+   * @param kind optional kind of assets to return
+   * @param columns the asset columns to fetch; these must be trusted column names
+   * @return cursor over the partially populated assets
+   *
+   * @since 3.next
+   */
+  Cursor<Asset> streamAssetColumns(@Param("repositoryId") int repositoryId,
+                                   @Nullable @Param("kind") String kind,
+                                   @Param("columns") Collection<String> columns);
+
   /**
    * Browse all assets with corresponding components and blobs in the given repository in a paged fashion.
    * The returned assets will be sorted by asset id in ascending order. Blob and the Component are eagerly populated.
@@ -262,6 +291,16 @@ public interface AssetDAO
    */
   void markAsDownloaded(Asset asset);
 
+  /**
+   * Updates the last downloaded time of the given assets in the content data store in a single statement.
+   *
+   * @param assetIds the internal ids of the assets to update
+   * @return the number of updated assets
+   *
+   * @since 3.next
+   */
+  int markAllAsDownloaded(@Param("assetIds") Collection<Integer> assetIds);
+
   /**
    * Deletes an asset from the content data store.
    *
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,6 +47,7 @@ import org.sonatype.nexus.repository.content.event.asset.AssetUploadedEvent;
 import org.sonatype.nexus.repository.content.event.repository.ContentRepositoryDeletedEvent;
 import org.sonatype.nexus.transaction.Transactional;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.assistedinject.Assisted;
 import org.apache.shiro.util.CollectionUtils;
 
@@ -53,6 +55,7 @@ import static java.util.Arrays.stream;
 import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_CLUSTERED_ENABLED_NAMED;
 import static org.sonatype.nexus.repository.content.AttributesHelper.applyAttributeChange;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
+import static org.sonatype.nexus.transaction.TransactionIsolation.READ_ONLY;
 
 /**
  * {@link Asset} store.
@@ -65,6 +68,9 @@ public class AssetStore<T extends AssetDAO>
 {
   private static final int LAST_UPDATED_LIMIT = 1000;
 
+  private static final Set<String> ASSET_COLUMNS = ImmutableSet.of("asset_id", "repository_id", "path", "kind",
+      "component_id", "asset_blob_id", "last_downloaded", "attributes", "created", "last_updated", "asset_blob_size");
+
   private final boolean clustered;
 
   @Inject
@@ -166,6 +172,60 @@ public class AssetStore<T extends AssetDAO>
     return dao().browseAssetsInRepositories(repositoryIds, continuationToken, kind, filter, filterParams, limit);
   }
 
+  /**
+   * Browse all assets in the given repositories like {@link #browseAssets(Set, String, String, String, Map, int)},
+   * but allow the read replica to serve the request, so recently written assets may be missing. Only use this for
+   * listings whose results aren't written back, never to decide what to store.
+   *
+   * @since 3.next
+   */
+  @Transactional(isolation = READ_ONLY)
+  public Continuation<Asset> browseAssetsReadOnly(
+      final Set<Integer> repositoryIds,
+      @Nullable final String continuationToken,
+      @Nullable final String kind,
+      @Nullable final String filter,
+      @Nullable final Map<String, Object> filterParams,
+      final int limit)
+  {
+    return dao().browseAssetsInRepositories(repositoryIds, continuationToken, kind, filter, filterParams, limit);
+  }
+
+  /**
+   * Stream all assets in the given repository, ordered by asset id. Assets are fetched lazily in batches from a
+   * read-only session that stays open until the stream is closed, so walking a large repository needs neither paged
+   * re-queries nor a whole page in memory:
+   *
+   * <pre>
+   * try (Stream&lt;Asset&gt; assets = assetStore.streamAssets(repositoryId, null, null)) {
+   *   assets.forEach(...);
+   * }
+   * </pre>
+   *
+   * Without {@code columns} each asset's component and blob are loaded lazily on first access, which costs an extra
+   * query per asset through the same session, so this fails once the stream has been closed. Read them while
+   * streaming, or project just the columns needed when they aren't.
+   *
+   * @param repositoryId the repository to stream
+   * @param kind optional kind of assets to return
+   * @param columns optional asset columns to fetch, such as {@code path}; the asset id is always fetched. When given
+   *                only those properties are populated and associated components and blobs are not available.
+   * @return stream of assets which must be closed
+   *
+   * @since 3.next
+   */
+  public Stream<Asset> streamAssets(
+      final int repositoryId,
+      @Nullable final String kind,
+      @Nullable final Collection<String> columns)
+  {
+    List<String> projection = projection(columns, ASSET_COLUMNS, "asset_id");
+    if (projection != null) {
+      return streamReadOnly(dao -> dao.streamAssetColumns(repositoryId, kind, projection));
+    }
+    return streamReadOnly(dao -> dao.streamAssets(repositoryId, kind));
+  }
+
   /**
    * Browse all assets associated with the given logical component.
    *
@@ -375,6 +435,28 @@ public class AssetStore<T extends AssetDAO>
     postCommitEvent(() -> new AssetDownloadedEvent(asset));
   }
 
+  /**
+   * Updates the last downloaded time of the given assets in the content data store using a single batched update.
+   *
+   * @param assets the assets to update
+   * @return the number of updated assets
+   *
+   * @since 3.next
+   */
+  @Transactional
+  public int markAllAsDownloaded(final Collection<? extends Asset> assets) {
+    if (assets.isEmpty()) {
+      return 0;
+    }
+
+    int updated = dao().markAllAsDownloaded(
+        assets.stream().map(InternalIds::internalAssetId).collect(Collectors.toList()));
+
+    assets.forEach(asset -> postCommitEvent(() -> new AssetDownloadedEvent(asset)));
+
+    return updated;
+  }
+
   /**
    * Deletes an asset from the content data store.
    *
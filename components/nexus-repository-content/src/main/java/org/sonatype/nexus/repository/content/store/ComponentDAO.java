@@ -32,6 +32,7 @@ import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.cursor.Cursor;
 
 /**
  * Component {@link ContentDataAccess}.
@@ -85,6 +86,23 @@ public interface ComponentDAO
       @Nullable @Param("filter") String filter,
       @Nullable @Param(FILTER_PARAMS) Map<String, Object> filterParams);
 
+  /**
+   * Stream all components in the given repository, ordered by component id. Rows are fetched from the database in
+   * batches as the cursor is iterated; the cursor must be closed before its session.
+   *
+   * @param repositoryId the repository to stream
+   * @param kind         optional kind of components to return
+   * @param columns      optional component columns to fetch, all columns are fetched when null; these must be
+   *                     trusted column names
+   * @return cursor over the components
+   *
+   * @since 3.next
+   */
+  Cursor<Component> streamComponents(
+      @Param("repositoryId") int repositoryId,
+      @Nullable @Param("kind") String kind,
+      @Nullable @Param("columns") Collection<String> columns);
+
   Continuation<ComponentData> browseComponentsEager(
       @Param("repositoryIds") Set<Integer> repositoryIds,
       @Param("limit") int limit,
@@ -223,6 +241,15 @@ public interface ComponentDAO
    */
   Optional<Component> readComponent(@Param("componentId") int componentId);
 
+  /**
+   * Retrieves several components from the content data store in a single query.
+   *
+   * @param componentIds the internal ids of the components
+   * @return the components that were found
+   * @since 3.next
+   */
+  Collection<Component> readComponents(@Param("componentIds") Collection<Integer> componentIds);
+
   /**
    * Retrieves a component located at the given coordinate in the content data store.
    *
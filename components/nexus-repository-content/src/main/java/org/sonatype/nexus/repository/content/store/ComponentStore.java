@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -42,6 +43,7 @@ import org.sonatype.nexus.repository.content.event.component.RepositoryDeletedCo
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.transaction.Transactional;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.assistedinject.Assisted;
 import org.apache.ibatis.annotations.Param;
 
@@ -49,6 +51,7 @@ import static java.util.Arrays.stream;
 import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_CLUSTERED_ENABLED_NAMED;
 import static org.sonatype.nexus.repository.content.AttributesHelper.applyAttributeChange;
 import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
+import static org.sonatype.nexus.transaction.TransactionIsolation.READ_ONLY;
 
 /**
  * {@link Component} store.
@@ -61,6 +64,9 @@ public class ComponentStore<T extends ComponentDAO>
 {
   private static final int BATCH_SIZE = SystemPropertiesHelper.getInteger("nexus.component.purge.size", 100);
 
+  private static final Set<String> COMPONENT_COLUMNS = ImmutableSet.of("component_id", "repository_id", "namespace",
+      "name", "kind", "version", "normalized_version", "attributes", "created", "last_updated");
+
   private final boolean clustered;
 
   @Inject
@@ -128,6 +134,25 @@ public class ComponentStore<T extends ComponentDAO>
         filterParams);
   }
 
+  /**
+   * Browse all components in the given repository like {@link #browseComponents(int, int, String, String, String,
+   * Map)}, but allow the read replica to serve the request, so recently written components may be missing. Only use
+   * this for listings whose results aren't written back, never to decide what to store.
+   *
+   * @since 3.next
+   */
+  @Transactional(isolation = READ_ONLY)
+  public Continuation<Component> browseComponentsReadOnly(
+      final int repositoryId,
+      final int limit,
+      @Nullable final String continuationToken,
+      @Nullable final String kind,
+      @Nullable final String filter,
+      @Nullable final Map<String, Object> filterParams)
+  {
+    return dao().browseComponents(repositoryId, limit, continuationToken, kind, filter, filterParams);
+  }
+
   @Transactional
   public Continuation<ComponentData> browseComponentsEager(
       final Set<Integer> repositoryIds,
@@ -140,6 +165,27 @@ public class ComponentStore<T extends ComponentDAO>
     return dao().browseComponentsEager(repositoryIds, limit, continuationToken, kind, filter, filterParams);
   }
 
+  /**
+   * Stream all components in the given repository, ordered by component id. Components are fetched lazily in batches
+   * from a read-only session that stays open until the stream is closed, so callers should use try-with-resources.
+   *
+   * @param repositoryId the repository to stream
+   * @param kind         optional kind of components to return
+   * @param columns      optional component columns to fetch, such as {@code name}; the component id is always
+   *                     fetched. When given only those properties are populated.
+   * @return stream of components which must be closed
+   *
+   * @since 3.next
+   */
+  public Stream<Component> streamComponents(
+      final int repositoryId,
+      @Nullable final String kind,
+      @Nullable final Collection<String> columns)
+  {
+    List<String> projection = projection(columns, COMPONENT_COLUMNS, "component_id");
+    return streamReadOnly(dao -> dao.streamComponents(repositoryId, kind, projection));
+  }
+
   /**
    * Browse all components without normalized_version
    *
@@ -174,6 +220,21 @@ public class ComponentStore<T extends ComponentDAO>
     return dao().browseComponentsInRepositories(repositoryIds, limit, continuationToken);
   }
 
+  /**
+   * Browse all components in the given repository ids like {@link #browseComponents(Set, int, String)}, but allow the
+   * read replica to serve the request, so recently written components may be missing.
+   *
+   * @since 3.next
+   */
+  @Transactional(isolation = READ_ONLY)
+  public Continuation<Component> browseComponentsReadOnly(
+      final Set<Integer> repositoryIds,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return dao().browseComponentsInRepositories(repositoryIds, limit, continuationToken);
+  }
+
   /**
    * Browse all components in the given repository and component set, in a paged fashion.
    *
@@ -300,6 +361,21 @@ public class ComponentStore<T extends ComponentDAO>
     return dao().readComponent(componentId);
   }
 
+  /**
+   * Retrieves several components from the content data store.
+   *
+   * @param componentIds the internal ids of the components
+   * @return the components that were found
+   * @since 3.next
+   */
+  @Transactional
+  public Collection<Component> readComponents(final Collection<Integer> componentIds) {
+    if (componentIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return dao().readComponents(componentIds);
+  }
+
   /**
    * Retrieves a component located at the given coordinate in the content data store.
    *
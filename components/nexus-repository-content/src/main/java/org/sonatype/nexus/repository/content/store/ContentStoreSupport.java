@@ -12,10 +12,21 @@
  */
 package org.sonatype.nexus.repository.content.store;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.datastore.TransactionalStoreSupport;
@@ -24,12 +35,15 @@ import org.sonatype.nexus.datastore.api.DataSession;
 import org.sonatype.nexus.datastore.api.DataSessionSupplier;
 import org.sonatype.nexus.datastore.api.DuplicateKeyException;
 import org.sonatype.nexus.transaction.Transaction;
+import org.sonatype.nexus.transaction.TransactionIsolation;
 import org.sonatype.nexus.transaction.Transactional;
 import org.sonatype.nexus.transaction.UnitOfWork;
 
 import com.google.inject.TypeLiteral;
+import org.apache.ibatis.cursor.Cursor;
 import org.eclipse.sisu.inject.TypeArguments;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
 
@@ -72,6 +86,59 @@ public abstract class ContentStoreSupport<T extends ContentDataAccess>
     return thisSession().access(daoClass);
   }
 
+  /**
+   * Streams the results of the given cursor query from a dedicated read-only session, which may be served by a read
+   * replica. The session is held open until the returned stream is closed, so callers should use try-with-resources.
+   *
+   * @since 3.next
+   */
+  protected <E> Stream<E> streamReadOnly(final Function<T, Cursor<E>> query) {
+    DataSession<?> session = openSession(TransactionIsolation.READ_ONLY);
+    try {
+      Cursor<E> cursor = query.apply(session.access(daoClass));
+      return StreamSupport.stream(cursor.spliterator(), false).onClose(() -> {
+        try {
+          cursor.close();
+        }
+        catch (IOException e) {
+          log.debug("Problem closing cursor", e);
+        }
+        finally {
+          session.close();
+        }
+      });
+    }
+    catch (RuntimeException e) {
+      session.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Checks the requested columns are allowed, always including the id column so results can still be identified.
+   *
+   * @return the columns to fetch, or {@code null} when no specific columns were requested
+   *
+   * @since 3.next
+   */
+  @Nullable
+  protected static List<String> projection(
+      @Nullable final Collection<String> columns,
+      final Set<String> allowedColumns,
+      final String idColumn)
+  {
+    if (columns == null || columns.isEmpty()) {
+      return null;
+    }
+    Set<String> projection = new LinkedHashSet<>();
+    projection.add(idColumn);
+    for (String column : columns) {
+      checkArgument(allowedColumns.contains(column), "Unknown column %s", column);
+      projection.add(column);
+    }
+    return new ArrayList<>(projection);
+  }
+
   /**
    * Commits any batched changes so far.
    *
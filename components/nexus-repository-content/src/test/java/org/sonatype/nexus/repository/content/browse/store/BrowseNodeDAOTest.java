@@ -337,6 +337,38 @@ public class BrowseNodeDAOTest
     }
   }
 
+  @Test
+  public void testBulkCreate() {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      BrowseNodeDAO dao = session.access(TestBrowseNodeDAO.class);
+
+      BrowseNodeData delta = createNode(null, "delta", "/d/");
+      BrowseNodeData epsilon = createNode(null, "epsilon", "/e");
+      dao.createBrowseNodes(asList(delta, epsilon));
+
+      List<BrowseNodeData> found = dao.findBrowseNodeIds(1, asList("/d/", "/missing"));
+      assertThat(found, hasSize(1));
+      assertThat(found.get(0).getName(), is("delta"));
+      delta.setNodeId(found.get(0).nodeId);
+
+      BrowseNodeData deltaOne = createNode(delta, "one", "/d/1");
+      BrowseNodeData deltaTwo = createNode(delta, "two", "/d/2");
+      deltaTwo.dbComponentId = internalComponentId(component1);
+      dao.createBrowseNodes(asList(deltaOne, deltaTwo));
+
+      session.getTransaction().commit();
+
+      List<BrowseNode> listing = getListing(dao);
+      assertThat(listing, hasSize(5));
+
+      listing = getListing(dao, "delta");
+      assertThat(listing, hasSize(2));
+      assertThat(listing.get(0), sameNode(deltaOne));
+      assertThat(listing.get(1), sameNode(deltaTwo));
+      assertThat(listing.get(1).getComponentId(), is(toExternalId(internalComponentId(component1))));
+    }
+  }
+
   @Test
   public void testFilterClauseIsolation() {
     try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
@@ -0,0 +1,224 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.browse.store;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.datastore.api.DuplicateKeyException;
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BrowseNodeManagerTest
+    extends TestSupport
+{
+  private static final int REPOSITORY_ID = 1;
+
+  @Mock
+  private BrowseNodeStore<BrowseNodeDAO> browseNodeStore;
+
+  // request path to node id of the nodes written so far
+  private final Map<String, Long> written = new HashMap<>();
+
+  private final List<List<String>> inserts = new ArrayList<>();
+
+  private final List<String> merges = new ArrayList<>();
+
+  private final AtomicLong nextId = new AtomicLong(100);
+
+  private BrowseNodeManager underTest;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    doAnswer(invocation -> {
+      List<BrowseNodeData> nodes = invocation.getArgument(0);
+      inserts.add(nodes.stream().map(BrowseNodeData::getName).collect(toList()));
+      nodes.forEach(node -> written.put(node.getPath(), nextId.incrementAndGet()));
+      return null;
+    }).when(browseNodeStore).createBrowseNodes(any());
+
+    doAnswer(invocation -> {
+      BrowseNodeData node = invocation.getArgument(0);
+      merges.add(node.getName());
+      node.setNodeId(written.computeIfAbsent(node.getPath(), path -> nextId.incrementAndGet()));
+      return null;
+    }).when(browseNodeStore).mergeBrowseNode(any());
+
+    when(browseNodeStore.findBrowseNodeIds(anyInt(), anyCollection())).thenAnswer(invocation -> {
+      Collection<String> paths = invocation.getArgument(1);
+      return paths.stream().filter(written::containsKey).map(path -> {
+        BrowseNodeData node = new BrowseNodeData();
+        node.setRequestPath(path);
+        node.setNodeId(written.get(path));
+        return node;
+      }).collect(toList());
+    });
+
+    when(browseNodeStore.findExistingNodeIds(anyInt(), anyCollection())).thenAnswer(invocation -> {
+      Collection<Long> nodeIds = invocation.getArgument(1);
+      return nodeIds.stream().filter(written::containsValue).collect(toList());
+    });
+
+    underTest = new BrowseNodeManager(browseNodeStore, REPOSITORY_ID, 100, 500);
+  }
+
+  @Test
+  public void batchAddSharesAncestors() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b", "c"), node -> { });
+    batch.add(paths("a", "b", "d"), node -> { });
+    batch.add(paths("a", "e"), node -> { });
+
+    assertThat(batch.size(), is(5));
+
+    batch.clear();
+
+    assertThat(batch.isEmpty(), is(true));
+  }
+
+  @Test
+  public void batchIsWrittenALevelAtATime() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    List<BrowseNodeData> leaves = new ArrayList<>();
+    batch.add(paths("a", "b", "c"), leaves::add);
+    batch.add(paths("a", "d"), leaves::add);
+
+    underTest.createBrowseNodes(batch);
+
+    assertThat(inserts, contains(asList("a"), asList("b", "d"), asList("c")));
+    assertThat(merges.isEmpty(), is(true));
+    assertThat(leaves.get(0).parentId, is(written.get("a/b/")));
+    assertThat(leaves.get(1).parentId, is(written.get("a/")));
+  }
+
+  @Test
+  public void clashingLevelIsMergedNodeByNode() {
+    doThrow(new DuplicateKeyException(null)).when(browseNodeStore).createBrowseNodes(any());
+
+    BrowseNodeBatch batch = underTest.newBatch();
+    List<BrowseNodeData> leaves = new ArrayList<>();
+    batch.add(paths("a", "b"), leaves::add);
+    batch.add(paths("a", "c"), leaves::add);
+
+    underTest.createBrowseNodes(batch);
+
+    assertThat(merges, contains("a", "b", "c"));
+    assertThat(leaves.get(0).parentId, is(written.get("a/")));
+    assertThat(leaves.get(1).parentId, is(written.get("a/")));
+  }
+
+  @Test
+  public void knownParentsAreSkippedInLaterSlices() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b", "c"), node -> { });
+    underTest.createBrowseNodes(batch);
+    inserts.clear();
+
+    batch.clear();
+    List<BrowseNodeData> leaves = new ArrayList<>();
+    batch.add(paths("a", "b", "d"), leaves::add);
+    underTest.createBrowseNodes(batch);
+
+    assertThat(inserts, contains(asList("d")));
+    assertThat(leaves.get(0).parentId, is(written.get("a/b/")));
+  }
+
+  @Test
+  public void trimmedParentsAreCreatedAgainInLaterSlices() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b", "c"), node -> { });
+    underTest.createBrowseNodes(batch);
+    inserts.clear();
+    written.clear(); // trimmed by another node, so the cache is out of date
+
+    batch.clear();
+    batch.add(paths("a", "b", "d"), node -> { });
+    underTest.createBrowseNodes(batch);
+
+    assertThat(inserts, contains(asList("a"), asList("b"), asList("d")));
+  }
+
+  @Test
+  public void knownAncestorsAreSkippedWhileTheyExist() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b", "c"), node -> { });
+    underTest.createBrowseNodes(batch);
+
+    underTest.doCreateBrowseNodes(paths("a", "b", "d"), node -> { }, new HashMap<>());
+
+    assertThat(merges, contains("d"));
+  }
+
+  @Test
+  public void trimmedAncestorsAreMergedAgain() {
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b", "c"), node -> { });
+    underTest.createBrowseNodes(batch);
+    written.clear();
+
+    Map<String, Long> ancestors = new HashMap<>();
+    underTest.doCreateBrowseNodes(paths("a", "b", "d"), node -> { }, ancestors);
+
+    assertThat(merges, contains("a", "b", "d"));
+    assertThat(ancestors.size(), is(2));
+  }
+
+  @Test
+  public void nothingIsSkippedWithoutACache() {
+    underTest = new BrowseNodeManager(browseNodeStore, REPOSITORY_ID, 0, 500);
+
+    BrowseNodeBatch batch = underTest.newBatch();
+    batch.add(paths("a", "b"), node -> { });
+    underTest.createBrowseNodes(batch);
+    underTest.doCreateBrowseNodes(paths("a", "c"), node -> { }, new HashMap<>());
+
+    assertThat(merges, contains("a", "c"));
+    verify(browseNodeStore, never()).findExistingNodeIds(anyInt(), anyCollection());
+  }
+
+  private static List<BrowsePath> paths(final String... names) {
+    List<BrowsePath> paths = new ArrayList<>();
+    StringBuilder requestPath = new StringBuilder();
+    for (int i = 0; i < names.length; i++) {
+      requestPath.append(names[i]);
+      if (i < names.length - 1) {
+        requestPath.append('/');
+      }
+      paths.add(new BrowsePath(names[i], requestPath.toString()));
+    }
+    return paths;
+  }
+}
@@ -70,6 +70,9 @@ public class LastDownloadedHandlerTest
   @Mock
   private GlobalRepositorySettings globalSettings;
 
+  @Mock
+  private LastDownloadedTracker lastDownloadedTracker;
+
   private AttributesMap attributes;
 
   private LastDownloadedHandler underTest;
@@ -78,7 +81,7 @@ public class LastDownloadedHandlerTest
   public void setup() throws Exception {
     configureHappyPath();
 
-    underTest = new LastDownloadedHandler(globalSettings);
+    underTest = new LastDownloadedHandler(globalSettings, lastDownloadedTracker);
   }
 
   @Test
@@ -112,6 +115,18 @@ public class LastDownloadedHandlerTest
     assertThat(handledResponse, is(equalTo(response)));
   }
 
+  @Test
+  public void shouldDeferToTrackerWhenItAcceptsTheAsset() throws Exception {
+    when(lastDownloadedTracker.track(asset)).thenReturn(true);
+
+    Response handledResponse = underTest.handle(context);
+
+    verify(lastDownloadedTracker).track(asset);
+    verify(asset, never()).markAsDownloaded();
+
+    assertThat(handledResponse, is(equalTo(response)));
+  }
+
   @Test
   public void shouldNotMarkAssetAsDownloadedOnFailure() throws Exception {
     when(response.getStatus()).thenReturn(new Status(false, 500));
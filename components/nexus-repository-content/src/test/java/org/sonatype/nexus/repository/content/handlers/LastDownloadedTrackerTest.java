@@ -0,0 +1,140 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.fluent.internal.FluentAssetImpl;
+import org.sonatype.nexus.repository.content.store.AssetData;
+import org.sonatype.nexus.repository.content.store.AssetStore;
+import org.sonatype.nexus.scheduling.PeriodicJobService;
+import org.sonatype.nexus.scheduling.PeriodicJobService.PeriodicJob;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LastDownloadedTrackerTest
+    extends TestSupport
+{
+  @Mock
+  private PeriodicJobService periodicJobService;
+
+  @Mock
+  private PeriodicJob periodicJob;
+
+  @Mock
+  private ContentFacetSupport contentFacet;
+
+  @Mock
+  private AssetStore<?> assetStore;
+
+  @Captor
+  private ArgumentCaptor<Collection<Asset>> assetsCaptor;
+
+  @Before
+  public void setUp() {
+    when(periodicJobService.schedule(any(Runnable.class), anyInt())).thenReturn(periodicJob);
+  }
+
+  @Test
+  public void touchesAreCoalescedAndFlushedInBatches() throws Exception {
+    LastDownloadedTracker underTest = start(true, 2, 10);
+
+    assertThat(underTest.track(asset(1)), is(true));
+    assertThat(underTest.track(asset(1)), is(true));
+    assertThat(underTest.queueDepth(), is(1));
+
+    underTest.track(asset(2));
+    underTest.track(asset(3));
+    assertThat(underTest.queueDepth(), is(3));
+    verify(periodicJobService).runOnce(any(Runnable.class), eq(0));
+
+    underTest.flush();
+
+    verify(assetStore, times(2)).markAllAsDownloaded(assetsCaptor.capture());
+    List<Collection<Asset>> batches = assetsCaptor.getAllValues();
+    assertThat(batches.get(0), hasSize(2));
+    assertThat(batches.get(1), hasSize(1));
+    assertThat(underTest.queueDepth(), is(0));
+  }
+
+  @Test
+  public void pendingTouchesAreFlushedOnStop() throws Exception {
+    LastDownloadedTracker underTest = start(true, 10, 10);
+
+    underTest.track(asset(1));
+    underTest.stop();
+
+    verify(periodicJob).cancel();
+    verify(assetStore).markAllAsDownloaded(assetsCaptor.capture());
+    assertThat(assetsCaptor.getValue(), hasSize(1));
+    assertThat(underTest.track(asset(2)), is(false));
+  }
+
+  @Test
+  public void touchesAreRejectedWhenTooManyArePending() throws Exception {
+    LastDownloadedTracker underTest = start(true, 2, 2);
+
+    assertThat(underTest.track(asset(1)), is(true));
+    assertThat(underTest.track(asset(2)), is(true));
+    assertThat(underTest.track(asset(3)), is(false));
+  }
+
+  @Test
+  public void touchesAreRejectedWhenDisabled() throws Exception {
+    LastDownloadedTracker underTest = start(false, 2, 2);
+
+    assertThat(underTest.track(asset(1)), is(false));
+    verify(periodicJobService, never()).startUsing();
+  }
+
+  private LastDownloadedTracker start(final boolean enabled, final int flushOnCount, final int maxPending)
+      throws Exception
+  {
+    LastDownloadedTracker tracker = new LastDownloadedTracker(periodicJobService, enabled, flushOnCount, 5, maxPending)
+    {
+      @Override
+      AssetStore<?> assetStore(final FluentAsset asset) {
+        return assetStore;
+      }
+    };
+    tracker.start();
+    return tracker;
+  }
+
+  private FluentAsset asset(final int assetId) {
+    AssetData asset = new AssetData();
+    asset.setAssetId(assetId);
+    asset.setPath("/asset" + assetId);
+    return new FluentAssetImpl(contentFacet, asset);
+  }
+}
@@ -119,7 +119,7 @@ public class AssetsResourceSupportTest
     List<FluentAsset> assets = underTest.browse(repository, null);
 
     assertThat(assets, empty());
-    verify(fluentAssets).browse(LIMIT, null);
+    verify(fluentAssets).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, never()).checkPathPermissions(ASSET_PATH, A_FORMAT, REPOSITORY_NAME);
   }
 
@@ -131,7 +131,7 @@ public class AssetsResourceSupportTest
     List<FluentAsset> assets = underTest.browse(repository, null);
 
     assertThat(assets, empty());
-    verify(fluentAssets, times(2)).browse(LIMIT, null);
+    verify(fluentAssets, times(2)).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, times(NUMBER_OF_ASSETS)).checkPathPermissions(ASSET_PATH, A_FORMAT, REPOSITORY_NAME);
   }
 
@@ -147,7 +147,7 @@ public class AssetsResourceSupportTest
     List<FluentAsset> assets = underTest.browse(repository, null);
 
     assertThat(assets, hasSize(numberOfPermittedAssets));
-    verify(fluentAssets, times(2)).browse(LIMIT, null);
+    verify(fluentAssets, times(2)).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, times(NUMBER_OF_ASSETS)).checkPathPermissions(ASSET_PATH, A_FORMAT, REPOSITORY_NAME);
   }
 
@@ -201,7 +201,7 @@ public class AssetsResourceSupportTest
   }
 
   private void mockFluentAssets() {
-    when(fluentAssets.browse(LIMIT, null))
+    when(fluentAssets.browseReadOnly(LIMIT, null))
         .thenReturn(new FluentContinuation<>(assetContinuation, asset -> aFluentAsset()));
 
     List<FluentAsset> assets = range(0, NUMBER_OF_ASSETS).mapToObj(i -> aFluentAsset()).collect(toList());
@@ -118,7 +118,7 @@ public class AssetsResourceTest
 
     assertNotNull(assets);
 
-    verify(fluentAssets).browse(LIMIT, null);
+    verify(fluentAssets).browseReadOnly(LIMIT, null);
   }
 
   @Test
@@ -165,7 +165,7 @@ public class AssetsResourceTest
     when(contentFacet.assets()).thenReturn(fluentAssets);
     when(contentFacetSupport.dependencies()).thenReturn(dependencies);
     when(dependencies.getMoveService()).thenReturn(Optional.of(moveService));
-    when(fluentAssets.browse(LIMIT, null)).thenReturn(assetContinuation);
+    when(fluentAssets.browseReadOnly(LIMIT, null)).thenReturn(assetContinuation);
     when(assetContinuation.isEmpty()).thenReturn(true);
     when(repository.getName()).thenReturn(REPOSITORY_NAME);
     when(repository.getUrl()).thenReturn(REPOSITORY_URL);
@@ -126,7 +126,7 @@ public class ComponentsResourceSupportTest
     List<FluentComponent> components = underTest.browse(repository, null);
 
     assertThat(components, empty());
-    verify(fluentComponents).browse(LIMIT, null);
+    verify(fluentComponents).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, never()).checkPathPermissions(COMPONENT_NAME, A_FORMAT, REPOSITORY_NAME);
   }
 
@@ -138,7 +138,7 @@ public class ComponentsResourceSupportTest
     List<FluentComponent> components = underTest.browse(repository, null);
 
     assertThat(components, empty());
-    verify(fluentComponents, times(2)).browse(LIMIT, null);
+    verify(fluentComponents, times(2)).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, times(NUMBER_OF_COMPONENTS))
         .checkPathPermissions(COMPONENT_NAME, A_FORMAT, REPOSITORY_NAME);
   }
@@ -155,7 +155,7 @@ public class ComponentsResourceSupportTest
     List<FluentComponent> components = underTest.browse(repository, null);
 
     assertThat(components, hasSize(numberOfPermittedComponents));
-    verify(fluentComponents, times(2)).browse(LIMIT, null);
+    verify(fluentComponents, times(2)).browseReadOnly(LIMIT, null);
     verify(contentAuthHelper, times(NUMBER_OF_COMPONENTS))
         .checkPathPermissions(COMPONENT_NAME, A_FORMAT, REPOSITORY_NAME);
   }
@@ -187,7 +187,7 @@ public class ComponentsResourceSupportTest
   }
 
   private void mockFluentComponents() {
-    when(fluentComponents.browse(LIMIT, null))
+    when(fluentComponents.browseReadOnly(LIMIT, null))
         .thenReturn(new FluentContinuation<>(componentContinuation, asset -> aFluentComponent()));
 
     List<FluentComponent> fluentComponentList =
@@ -30,6 +30,7 @@ import org.sonatype.nexus.repository.content.store.AssetData;
 import org.sonatype.nexus.repository.content.store.InternalIds;
 import org.sonatype.nexus.repository.search.index.SearchConstants;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
@@ -39,11 +40,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.temporal.ChronoUnit.MILLIS;
 import static java.util.Collections.emptyMap;
 import static java.util.Optional.empty;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -118,7 +122,100 @@ public class DefaultSearchDocumentProducerTest
     assertValue(jsonAsset, SearchConstants.NAME, NAME);
     assertThat(jsonAsset.get("id").asText(), is(InternalIds.toExternalId(1).getValue()));
 
-    verify(searchDocumentExtension).getFields(any(FluentComponent.class));
+    verify(searchDocumentExtension).writeFields(any(FluentComponent.class), any(JsonGenerator.class));
+  }
+
+  @Test
+  public void testDocumentIsCompactUtf8() throws IOException {
+    when(component.name()).thenReturn("n\u00e4me");
+
+    byte[] result = underTest.getDocumentBytes(component, commonFields);
+
+    String document = new String(result, UTF_8);
+    assertThat(document, not(containsString("\n")));
+    assertValue(mapper.readTree(result), SearchConstants.NAME, "n\u00e4me");
+    assertThat(underTest.getDocument(component, commonFields), is(document));
+  }
+
+  @Test
+  public void testExtensionFieldsAreStreamed() throws IOException {
+    SearchDocumentExtension extension = c -> ImmutableMap.of("extension", ImmutableMap.of("key", "value"));
+    underTest = new DefaultSearchDocumentProducer(ImmutableSet.of(extension));
+
+    JsonNode json = mapper.readTree(underTest.getDocument(component, commonFields));
+
+    assertValue(json.get("extension"), "key", "value");
+  }
+
+  @Test
+  public void testCommonFieldsTakePrecedence() throws IOException {
+    String result = underTest.getDocument(component, ImmutableMap.of(SearchConstants.GROUP, "common"));
+
+    assertThat(result.indexOf("\"" + SearchConstants.GROUP + "\""),
+        is(result.lastIndexOf("\"" + SearchConstants.GROUP + "\"")));
+    assertValue(mapper.readTree(result), SearchConstants.GROUP, "common");
+  }
+
+  @Test
+  public void testExtensionFieldsAreNotDuplicated() throws IOException {
+    SearchDocumentExtension extension = c -> ImmutableMap.of(
+        SearchConstants.REPOSITORY_NAME, "other",
+        SearchConstants.NAME, "extension",
+        "extra", "value");
+    underTest = new DefaultSearchDocumentProducer(ImmutableSet.of(extension));
+
+    String result = underTest.getDocument(component, commonFields);
+
+    for (String field : new String[]{SearchConstants.REPOSITORY_NAME, SearchConstants.NAME}) {
+      assertThat(result.indexOf("\"" + field + "\""), is(result.lastIndexOf("\"" + field + "\"")));
+    }
+    JsonNode json = mapper.readTree(result);
+    assertValue(json, SearchConstants.REPOSITORY_NAME, REPO_NAME);
+    assertValue(json, SearchConstants.NAME, "extension");
+    assertValue(json, "extra", "value");
+  }
+
+  @Test
+  public void testGetDocumentOverrideIsUsedForBytes() throws IOException {
+    underTest = new DefaultSearchDocumentProducer(ImmutableSet.of())
+    {
+      @Override
+      public String getDocument(final FluentComponent component, final Map<String, Object> commonFields) {
+        return super.getDocument(component, ImmutableMap.of("custom", "value"));
+      }
+    };
+
+    JsonNode json = mapper.readTree(underTest.getDocumentBytes(component, commonFields));
+
+    assertValue(json, "custom", "value");
+    assertThat(json.get(SearchConstants.REPOSITORY_NAME), equalTo(null));
+  }
+
+  @Test
+  public void testAssetBlobAttributes() throws IOException {
+    FluentAsset asset = mockAsset(NAME, 1);
+    asset.attributes().set("checksum", "stale");
+    asset.attributes().set("custom", "value");
+    AssetBlob blob = mockBlob(OffsetDateTime.now());
+    when(blob.contentType()).thenReturn("text/plain");
+    when(blob.createdBy()).thenReturn(Optional.of("admin"));
+    when(blob.createdByIp()).thenReturn(empty());
+    when(blob.blobSize()).thenReturn(42L);
+    when(blob.checksums()).thenReturn(ImmutableMap.of("sha1", "abc"));
+    when(asset.blob()).thenReturn(Optional.of(blob));
+    when(component.assets()).thenReturn(ImmutableList.of(asset));
+
+    JsonNode jsonAsset = mapper.readTree(underTest.getDocument(component, commonFields)).get(SearchConstants.ASSETS)
+        .get(0);
+
+    assertValue(jsonAsset, SearchConstants.CONTENT_TYPE, "text/plain");
+    assertValue(jsonAsset, SearchConstants.UPLOADER, "admin");
+    assertThat(jsonAsset.get(SearchConstants.UPLOADER_IP).isNull(), is(true));
+    assertThat(jsonAsset.get(SearchConstants.FILE_SIZE).asLong(), is(42L));
+    JsonNode attributes = jsonAsset.get(SearchConstants.ATTRIBUTES);
+    assertValue(attributes, "custom", "value");
+    assertValue(attributes.get("checksum"), "sha1", "abc");
+    assertThat(attributes.get("content").get("last_modified").isNumber(), is(true));
   }
 
   @Test
@@ -15,11 +15,14 @@ package org.sonatype.nexus.repository.content.store;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.sonatype.nexus.common.event.EventManager;
 import org.sonatype.nexus.datastore.api.DataSession;
+import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.AssetInfo;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.facet.ContentFacetFinder;
@@ -40,9 +43,12 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.sonatype.nexus.datastore.api.DataStoreManager.DEFAULT_DATASTORE_NAME;
 import static org.sonatype.nexus.repository.content.store.VersionedAssetDAOTest.browseAssets;
 import static org.sonatype.nexus.repository.content.store.VersionedAssetDAOTest.countAssets;
@@ -367,6 +373,44 @@ public class AssetStoreTestSupport
     });
   }
 
+  public void testStreamAssets() {
+    ComponentData component = randomComponent(repositoryId);
+    AssetData asset1 = generateAsset(repositoryId, "/asset1/asset1.jar");
+    AssetData asset2 = generateAsset(repositoryId, "/asset2/asset2.jar");
+    AssetData asset3 = generateAsset(repositoryId, "/asset3/asset3.jar");
+    asset1.setComponent(component);
+    asset2.setComponent(component);
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      session.access(TestComponentDAO.class).createComponent(component, entityVersioningEnabled);
+      AssetDAO dao = session.access(TestAssetDAO.class);
+      dao.createAsset(asset1, entityVersioningEnabled);
+      dao.createAsset(asset2, entityVersioningEnabled);
+      dao.createAsset(asset3, entityVersioningEnabled);
+      session.getTransaction().commit();
+    }
+
+    try (Stream<Asset> assets = underTest.streamAssets(repositoryId, null, null)) {
+      assertThat(assets.map(Asset::path).collect(Collectors.toList()),
+          contains(asset1.path(), asset2.path(), asset3.path()));
+    }
+
+    try (Stream<Asset> assets = underTest.streamAssets(repositoryId, null, asList("path"))) {
+      List<Asset> projected = assets.collect(Collectors.toList());
+      assertThat(projected.stream().map(Asset::path).collect(Collectors.toList()),
+          contains(asset1.path(), asset2.path(), asset3.path()));
+      assertThat(projected.stream().map(Asset::kind).collect(Collectors.toList()), everyItem(nullValue()));
+    }
+
+    try {
+      underTest.streamAssets(repositoryId, null, asList("path; DROP TABLE test_asset"));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   protected void createComponents(ComponentData... components) {
     stream(components).forEach(componentStore::createComponent);
   }
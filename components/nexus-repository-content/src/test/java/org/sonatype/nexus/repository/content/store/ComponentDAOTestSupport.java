@@ -37,7 +37,9 @@ import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.hamcrest.collection.IsIterableContainingInOrder;
 
 import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.summingInt;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -528,6 +530,33 @@ public class ComponentDAOTestSupport
     }
   }
 
+  public void testReadComponents() {
+    ComponentData component1 = randomComponent(repositoryId);
+    ComponentData component2 = randomComponent(repositoryId);
+    component2.setVersion(component1.version() + ".2"); // make sure versions are different
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+      dao.createComponent(component1, entityVersionEnabled);
+      dao.createComponent(component2, entityVersionEnabled);
+      session.getTransaction().commit();
+    }
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+
+      int missingComponentId = component2.componentId + 1000;
+      Collection<Component> components = dao.readComponents(
+          asList(component1.componentId, component2.componentId, missingComponentId));
+
+      // use hamcrest class directly as javac picks the wrong static varargs method
+      assertThat(components, new IsIterableContainingInAnyOrder<>(
+          asList(sameCoordinates(component1), sameCoordinates(component2))));
+
+      assertThat(dao.readComponents(singletonList(missingComponentId)), emptyIterable());
+    }
+  }
+
   public void testBrowseComponentsInRepositories() {
     ContentRepositoryData anotherContentRepository = randomContentRepository();
     createContentRepository(anotherContentRepository);
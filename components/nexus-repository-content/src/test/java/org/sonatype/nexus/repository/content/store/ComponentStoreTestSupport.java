@@ -12,15 +12,18 @@
  */
 package org.sonatype.nexus.repository.content.store;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.sonatype.nexus.common.event.EventManager;
 import org.sonatype.nexus.datastore.api.DataSession;
 import org.sonatype.nexus.datastore.api.DataSessionSupplier;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.event.component.ComponentPrePurgeEvent;
 import org.sonatype.nexus.repository.content.event.component.ComponentPurgedEvent;
 import org.sonatype.nexus.repository.content.event.component.ComponentsPurgedAuditEvent;
@@ -42,8 +45,12 @@ import org.eclipse.sisu.wire.WireModule;
 import org.mockito.Mock;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
@@ -134,6 +141,31 @@ public class ComponentStoreTestSupport
     verifyNoMoreInteractions(eventManager);
   }
 
+  public void testStreamComponents() {
+    int[] componentIds = getComponentIds();
+
+    try (Stream<Component> components = underTest.streamComponents(repositoryId, null, null)) {
+      List<Component> streamed = components.collect(Collectors.toList());
+      assertThat(streamed.stream().mapToInt(InternalIds::internalComponentId).toArray(), is(componentIds));
+      assertThat(streamed.stream().map(Component::version).collect(Collectors.toList()), everyItem(notNullValue()));
+    }
+
+    try (Stream<Component> components = underTest.streamComponents(repositoryId, null, Arrays.asList("name"))) {
+      List<Component> projected = components.collect(Collectors.toList());
+      assertThat(projected.stream().mapToInt(InternalIds::internalComponentId).toArray(), is(componentIds));
+      assertThat(projected.stream().map(Component::name).collect(Collectors.toList()), everyItem(notNullValue()));
+      assertThat(projected.stream().map(Component::version).collect(Collectors.toList()), everyItem(nullValue()));
+    }
+
+    try {
+      underTest.streamComponents(repositoryId, null, Arrays.asList("name; DROP TABLE test_component"));
+      fail("Expected IllegalArgumentException");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
   private int[] getComponentIds() {
     return underTest.browseComponents(Collections.singleton(repositoryId), Integer.MAX_VALUE, null)
         .stream()
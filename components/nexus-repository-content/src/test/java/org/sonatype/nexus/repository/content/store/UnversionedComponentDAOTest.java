@@ -56,6 +56,11 @@ public class UnversionedComponentDAOTest
     super.testRoundTrip();
   }
 
+  @Test
+  public void testReadComponents() {
+    super.testReadComponents();
+  }
+
   @Test
   public void testBrowseComponentsInRepositories() {
     super.testBrowseComponentsInRepositories();
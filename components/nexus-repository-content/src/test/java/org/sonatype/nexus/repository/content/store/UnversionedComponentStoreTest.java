@@ -32,4 +32,9 @@ public class UnversionedComponentStoreTest
   public void testPurge_byComponent() {
     super.testPurge_byComponent();
   }
+
+  @Test
+  public void testStreamComponents() {
+    super.testStreamComponents();
+  }
 }
@@ -42,4 +42,9 @@ public class VersionedAssetStoreTest
   public void testDeleteAssetsByPaths() {
     super.testDeleteAssetsByPaths();
   }
+
+  @Test
+  public void testStreamAssets() {
+    super.testStreamAssets();
+  }
 }
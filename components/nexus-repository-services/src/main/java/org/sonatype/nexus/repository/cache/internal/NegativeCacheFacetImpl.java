@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.cache.internal;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
@@ -34,6 +35,9 @@ import org.sonatype.nexus.repository.config.ConfigurationFacet;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -42,6 +46,10 @@ import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 /**
  * Default {@link NegativeCacheFacet} implementation.
  *
+ * Entries are kept in a JCache by default. When {@code nexus.negativeCache.trie.enabled} is set they are instead kept
+ * in a node-local {@link NegativeCacheTrie}, which invalidates subsets in time proportional to the depth of the path
+ * and is bounded by {@code nexus.negativeCache.trie.maxSize} entries per repository.
+ *
  * @since 3.0
  */
 @Named
@@ -49,8 +57,16 @@ public class NegativeCacheFacetImpl
     extends FacetSupport
     implements NegativeCacheFacet
 {
+  private static final String METRICS_PREFIX = "nexus.negativeCache.";
+
   private final CacheHelper cacheHelper;
 
+  private final boolean trieEnabled;
+
+  private final int trieMaxSize;
+
+  private MetricRegistry metricRegistry;
+
   @VisibleForTesting
   static final String CONFIG_KEY = "negativeCache";
 
@@ -80,9 +96,32 @@ public class NegativeCacheFacetImpl
 
   private Cache<NegativeCacheKey, Status> cache;
 
-  @Inject
+  private NegativeCacheTrie trie;
+
   public NegativeCacheFacetImpl(final CacheHelper cacheHelper) {
+    this(cacheHelper, false, 100_000);
+  }
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public NegativeCacheFacetImpl(
+      final CacheHelper cacheHelper,
+      @Named("${nexus.negativeCache.trie.enabled:-false}") final boolean trieEnabled,
+      @Named("${nexus.negativeCache.trie.maxSize:-100000}") final int trieMaxSize)
+  {
     this.cacheHelper = checkNotNull(cacheHelper);
+    this.trieEnabled = trieEnabled;
+    this.trieMaxSize = trieMaxSize;
+  }
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
   }
 
   @Override
@@ -104,6 +143,13 @@ public class NegativeCacheFacetImpl
     if (config.enabled) {
       maybeCreateCache();
     }
+
+    if (trieEnabled && metricRegistry != null) {
+      registerGauge("hits", NegativeCacheTrie::hitCount);
+      registerGauge("misses", NegativeCacheTrie::missCount);
+      registerGauge("evictions", NegativeCacheTrie::evictionCount);
+      registerGauge("size", NegativeCacheTrie::size);
+    }
   }
 
   @Override
@@ -132,11 +178,33 @@ public class NegativeCacheFacetImpl
 
   @Override
   protected void doDestroy() throws Exception {
+    if (trieEnabled && metricRegistry != null) {
+      metricRegistry.removeMatching(MetricFilter.startsWith(getMetricsPrefix()));
+    }
     cache = null;
+    trie = null;
     config = null;
   }
 
+  private void registerGauge(final String name, final ToLongFunction<NegativeCacheTrie> metric) {
+    metricRegistry.gauge(getMetricsPrefix() + name, () -> (Gauge<Long>) () -> {
+      NegativeCacheTrie current = trie;
+      return current != null ? metric.applyAsLong(current) : 0L;
+    });
+  }
+
+  private String getMetricsPrefix() {
+    return METRICS_PREFIX + getRepository().getName() + '.';
+  }
+
   private void maybeCreateCache() {
+    if (trieEnabled) {
+      if (trie == null) {
+        log.debug("Creating negative-cache trie for: {}", getRepository());
+        trie = new NegativeCacheTrie(TimeUnit.MINUTES.toMillis(config.timeToLive), trieMaxSize);
+      }
+      return;
+    }
     if (cache == null) {
       log.debug("Creating negative-cache for: {}", getRepository());
       cache = cacheHelper.maybeCreateCache(getCacheName(), NegativeCacheKey.class, Status.class,
@@ -146,6 +214,11 @@ public class NegativeCacheFacetImpl
   }
 
   private void maybeDestroyCache() {
+    if (trieEnabled) {
+      log.debug("Destroying negative-cache trie for: {}", getRepository());
+      trie = null;
+      return;
+    }
     log.debug("Destroying negative-cache for: {}", getRepository());
     cacheHelper.maybeDestroyCache(getCacheName());
     cache = null;
@@ -155,6 +228,10 @@ public class NegativeCacheFacetImpl
   @Guarded(by = STARTED)
   public Status get(final NegativeCacheKey key) {
     checkNotNull(key);
+    NegativeCacheTrie current = trie;
+    if (current != null) {
+      return current.get(key);
+    }
     if (cache != null) {
       return cache.get(key);
     }
@@ -166,7 +243,12 @@ public class NegativeCacheFacetImpl
   public void put(final NegativeCacheKey key, final Status status) {
     checkNotNull(key);
     checkNotNull(status);
-    if (cache != null) {
+    NegativeCacheTrie current = trie;
+    if (current != null) {
+      log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
+      current.put(key, status);
+    }
+    else if (cache != null) {
       log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
       cache.put(key, status);
     }
@@ -176,14 +258,24 @@ public class NegativeCacheFacetImpl
   @Guarded(by = STARTED)
   public void invalidate(final NegativeCacheKey key) {
     checkNotNull(key);
-    if (cache != null && cache.remove(key)) {
+    NegativeCacheTrie current = trie;
+    if (current != null) {
+      log.debug("Removing {} from negative-cache of {}", key, getRepository());
+      current.invalidate(key);
+    }
+    else if (cache != null && cache.remove(key)) {
       log.debug("Removing {} from negative-cache of {}", key, getRepository());
     }
   }
 
   @Override
   public void invalidateSubset(final NegativeCacheKey key) {
-    if (cache != null) {
+    NegativeCacheTrie current = trie;
+    if (current != null) {
+      log.debug("Removing {} and its children from negative-cache of {}", key, getRepository());
+      current.invalidateSubset(key);
+    }
+    else if (cache != null) {
       invalidate(key);
       for (final Entry<NegativeCacheKey, Status> entry : cache) {
         if (!key.equals(entry.getKey()) && key.isParentOf(entry.getKey())) {
@@ -196,7 +288,12 @@ public class NegativeCacheFacetImpl
   @Override
   @Guarded(by = STARTED)
   public void invalidate() {
-    if (cache != null) {
+    NegativeCacheTrie current = trie;
+    if (current != null) {
+      log.debug("Removing all from negative-cache of {}", getRepository());
+      current.invalidate();
+    }
+    else if (cache != null) {
       log.debug("Removing all from negative-cache of {}", getRepository());
       cache.removeAll();
     }
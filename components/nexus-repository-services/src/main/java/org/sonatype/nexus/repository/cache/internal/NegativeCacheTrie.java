@@ -0,0 +1,372 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.cache.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.cache.NegativeCacheKey;
+import org.sonatype.nexus.repository.view.Status;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.singletonList;
+
+/**
+ * Node-local negative cache keyed by a trie of path segments.
+ *
+ * {@link PathNegativeCacheKey} paths are split after each '/' so a key that is a parent of another (according to
+ * {@link PathNegativeCacheKey#isParentOf(NegativeCacheKey)}) is always one of its ancestors in the trie. This lets
+ * {@link #invalidateSubset(NegativeCacheKey)} detach a whole directory by walking the depth of its path rather than
+ * scanning every cached entry. Other keys are kept as direct children of the root.
+ *
+ * Every entry expires a fixed time after it was put. Entries are also tracked in put order, which is therefore the
+ * order in which they expire; the oldest entries are evicted first once the cache grows beyond its maximum size.
+ * Entries detached by subtree invalidation are dropped lazily from this queue.
+ *
+ * @since 3.next
+ */
+class NegativeCacheTrie
+{
+  private final long timeToLiveMillis;
+
+  private final int maxSize;
+
+  private final LongSupplier clock;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Node root = new Node(null, null);
+
+  private final Deque<QueueEntry> expiryQueue = new ArrayDeque<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private long putCount;
+
+  NegativeCacheTrie(final long timeToLiveMillis, final int maxSize) {
+    this(timeToLiveMillis, maxSize, System::currentTimeMillis);
+  }
+
+  NegativeCacheTrie(final long timeToLiveMillis, final int maxSize, final LongSupplier clock) {
+    checkArgument(timeToLiveMillis >= 0, "Time-to-live must not be negative");
+    checkArgument(maxSize > 0, "Maximum size must be positive");
+    this.timeToLiveMillis = timeToLiveMillis;
+    this.maxSize = maxSize;
+    this.clock = checkNotNull(clock);
+  }
+
+  @Nullable
+  public Status get(final NegativeCacheKey key) {
+    Status status = null;
+    lock.readLock().lock();
+    try {
+      Node node = find(key);
+      if (node != null && node.status != null && node.expiresAt > clock.getAsLong()) {
+        status = node.status;
+      }
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+    if (status != null) {
+      hits.increment();
+    }
+    else {
+      misses.increment();
+    }
+    return status;
+  }
+
+  public void put(final NegativeCacheKey key, final Status status) {
+    checkNotNull(status);
+    lock.writeLock().lock();
+    try {
+      long now = clock.getAsLong();
+      expire(now);
+
+      Node node = root;
+      for (Object segment : segments(key)) {
+        Node child = node.children.get(segment);
+        if (child == null) {
+          child = new Node(node, segment);
+          node.children.put(segment, child);
+        }
+        node = child;
+      }
+      if (node.status == null) {
+        adjustCount(node, 1);
+      }
+      node.status = status;
+      node.expiresAt = now + timeToLiveMillis;
+      node.putId = ++putCount;
+      expiryQueue.addLast(new QueueEntry(node, node.expiresAt, node.putId));
+
+      evict();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void invalidate(final NegativeCacheKey key) {
+    lock.writeLock().lock();
+    try {
+      Node node = find(key);
+      if (node != null && node.status != null) {
+        clear(node);
+      }
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the given key and, for a parent path key, every entry below it.
+   */
+  public void invalidateSubset(final NegativeCacheKey key) {
+    lock.writeLock().lock();
+    try {
+      if (key instanceof PathNegativeCacheKey) {
+        Node node = find(key);
+        if (node != null) {
+          if (key.isParentOf(key)) {
+            detach(node);
+          }
+          else if (node.status != null) {
+            clear(node);
+          }
+        }
+      }
+      else {
+        // non-path keys are not hierarchical so only live at the top of the trie
+        List<Node> matches = new ArrayList<>();
+        for (Node child : root.children.values()) {
+          if (child.segment instanceof NegativeCacheKey && key.isParentOf((NegativeCacheKey) child.segment)) {
+            matches.add(child);
+          }
+        }
+        Node node = root.children.get(key);
+        if (node != null) {
+          matches.add(node);
+        }
+        matches.forEach(this::detach);
+      }
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void invalidate() {
+    lock.writeLock().lock();
+    try {
+      root.children.clear();
+      root.status = null;
+      root.count = 0;
+      expiryQueue.clear();
+    }
+    finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return root.count;
+    }
+    finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long hitCount() {
+    return hits.sum();
+  }
+
+  public long missCount() {
+    return misses.sum();
+  }
+
+  public long evictionCount() {
+    return evictions.sum();
+  }
+
+  @Nullable
+  private Node find(final NegativeCacheKey key) {
+    Node node = root;
+    for (Object segment : segments(key)) {
+      node = node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Drops expired entries, and entries which were replaced or detached, from the head of the queue.
+   */
+  private void expire(final long now) {
+    QueueEntry head;
+    while ((head = expiryQueue.peekFirst()) != null && (!head.isLive() || head.expiresAt <= now)) {
+      expiryQueue.removeFirst();
+      if (head.isLive()) {
+        clear(head.node);
+      }
+    }
+  }
+
+  private void evict() {
+    while (root.count > maxSize) {
+      QueueEntry head = expiryQueue.removeFirst();
+      if (head.isLive()) {
+        clear(head.node);
+        evictions.increment();
+      }
+    }
+    // stop stale entries left behind by invalidation from accumulating ahead of the next expiry
+    if (expiryQueue.size() > 2 * maxSize) {
+      expiryQueue.removeIf(entry -> !entry.isLive());
+    }
+  }
+
+  private void clear(final Node node) {
+    node.status = null;
+    adjustCount(node, -1);
+    prune(node);
+  }
+
+  private void detach(final Node node) {
+    if (node == root) {
+      invalidate();
+      return;
+    }
+    adjustCount(node.parent, -node.count);
+    node.parent.children.remove(node.segment);
+    prune(node.parent);
+    node.parent = null;
+  }
+
+  private void adjustCount(final Node node, final int delta) {
+    for (Node n = node; n != null; n = n.parent) {
+      n.count += delta;
+    }
+  }
+
+  /**
+   * Removes nodes which no longer hold an entry or children.
+   */
+  private void prune(final Node node) {
+    Node n = node;
+    while (n != root && n.parent != null && n.status == null && n.children.isEmpty()) {
+      n.parent.children.remove(n.segment);
+      Node parent = n.parent;
+      n.parent = null;
+      n = parent;
+    }
+  }
+
+  private static List<Object> segments(final NegativeCacheKey key) {
+    if (!(key instanceof PathNegativeCacheKey)) {
+      return singletonList(checkNotNull(key));
+    }
+    String path = ((PathNegativeCacheKey) key).getPath();
+    List<Object> segments = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i < path.length(); i++) {
+      if (path.charAt(i) == '/') {
+        segments.add(path.substring(start, i + 1));
+        start = i + 1;
+      }
+    }
+    if (start < path.length()) {
+      segments.add(path.substring(start));
+    }
+    return segments;
+  }
+
+  private static class Node
+  {
+    @Nullable
+    private final Object segment;
+
+    private final Map<Object, Node> children = new HashMap<>(4);
+
+    @Nullable
+    private Node parent;
+
+    @Nullable
+    private Status status;
+
+    private long expiresAt;
+
+    private long putId;
+
+    /**
+     * Number of entries in this subtree, including this node.
+     */
+    private int count;
+
+    private Node(@Nullable final Node parent, @Nullable final Object segment) {
+      this.parent = parent;
+      this.segment = segment;
+    }
+
+    private boolean isAttached() {
+      Node n = this;
+      while (n.parent != null) {
+        n = n.parent;
+      }
+      return n.segment == null;
+    }
+  }
+
+  private static class QueueEntry
+  {
+    private final Node node;
+
+    private final long expiresAt;
+
+    private final long putId;
+
+    private QueueEntry(final Node node, final long expiresAt, final long putId) {
+      this.node = node;
+      this.expiresAt = expiresAt;
+      this.putId = putId;
+    }
+
+    /**
+     * Whether this is still the latest entry for the node, and the node has not been removed.
+     */
+    private boolean isLive() {
+      return node.status != null && node.putId == putId && node.isAttached();
+    }
+  }
+}
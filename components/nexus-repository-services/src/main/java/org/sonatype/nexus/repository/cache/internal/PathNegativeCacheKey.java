@@ -32,6 +32,13 @@ public class PathNegativeCacheKey
     this.path = checkNotNull(path);
   }
 
+  /**
+   * @since 3.next
+   */
+  String getPath() {
+    return path;
+  }
+
   /**
    * @param key child key
    * @return true if child key path starts with this key path
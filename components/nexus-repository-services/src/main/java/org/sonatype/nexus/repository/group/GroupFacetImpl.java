@@ -87,6 +87,9 @@ public class GroupFacetImpl
 
   protected CacheController cacheController;
 
+  @Nullable
+  private GroupMemberLocationCache memberLocationCache;
+
   @Inject
   public GroupFacetImpl(final RepositoryManager repositoryManager,
                         final ConstraintViolationFactory constraintViolationFactory,
@@ -99,6 +102,14 @@ public class GroupFacetImpl
     this.repositoryCacheInvalidationService = checkNotNull(repositoryCacheInvalidationService);
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setMemberLocationCache(final GroupMemberLocationCache memberLocationCache) {
+    this.memberLocationCache = memberLocationCache;
+  }
+
   @Override
   protected void doValidate(final Configuration configuration) throws Exception {
     facet(ConfigurationFacet.class).validateSection(configuration, CONFIG_KEY, Config.class);
@@ -153,6 +164,7 @@ public class GroupFacetImpl
     // check whether any members or their ordering have changed
     if (!Iterables.elementsEqual(config.memberNames, previousMemberNames)) {
       cacheController.invalidateCache();
+      invalidateMemberLocations();
     }
   }
 
@@ -233,10 +245,17 @@ public class GroupFacetImpl
     return members;
   }
 
+  private void invalidateMemberLocations() {
+    if (memberLocationCache != null) {
+      memberLocationCache.invalidateGroup(getRepository().getName());
+    }
+  }
+
   @Override
   public void invalidateGroupCaches() {
     log.info("Invalidating group caches of {}", getRepository().getName());
     cacheController.invalidateCache();
+    invalidateMemberLocations();
     for (Repository repository : members()) {
       repositoryCacheInvalidationService.processCachesInvalidation(repository);
     }
@@ -12,11 +12,16 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -25,15 +30,16 @@ import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Handler;
+import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.ViewFacet;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
-import static java.util.Collections.unmodifiableSet;
 import static org.sonatype.nexus.repository.http.HttpMethods.GET;
 import static org.sonatype.nexus.repository.http.HttpMethods.HEAD;
 import static org.sonatype.nexus.repository.proxy.ProxyFacetSupport.BYPASS_HTTP_ERRORS_HEADER_NAME;
@@ -59,11 +65,13 @@ public class GroupHandler
 
   /**
    * Request-context state container for set of repositories already dispatched to.
+   *
+   * Thread-safe, as members may be dispatched to in parallel.
    */
   @VisibleForTesting
   public static class DispatchedRepositories
   {
-    private final Set<String> dispatched = Sets.newLinkedHashSet();
+    private final Set<String> dispatched = Collections.synchronizedSet(Sets.newLinkedHashSet());
 
     public void add(final Repository repository) {
       dispatched.add(repository.getName());
@@ -84,10 +92,34 @@ public class GroupHandler
      * @return Unmodifiable {@link Set} of Dispatched repository names.
      */
     public Set<String> getDispatched() {
-      return unmodifiableSet(dispatched);
+      synchronized (dispatched) {
+        return ImmutableSet.copyOf(dispatched);
+      }
     }
   }
 
+  @Nullable
+  private ParallelGroupDispatcher parallelDispatcher;
+
+  @Nullable
+  private GroupMemberLocationCache memberLocationCache;
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setParallelDispatcher(final ParallelGroupDispatcher parallelDispatcher) {
+    this.parallelDispatcher = parallelDispatcher;
+  }
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setMemberLocationCache(final GroupMemberLocationCache memberLocationCache) {
+    this.memberLocationCache = memberLocationCache;
+  }
+
   @Nonnull
   @Override
   public Response handle(@Nonnull final Context context) throws Exception {
@@ -126,6 +158,35 @@ public class GroupHandler
       throws Exception
   {
     final Request request = context.getRequest();
+
+    final Response cached = getFromCachedMember(context, members, dispatched);
+    if (cached != null) {
+      return cached;
+    }
+
+    if (parallelDispatcher != null && parallelDispatcher.isEnabled() && members.size() > 1) {
+      final List<Repository> candidates = new ArrayList<>(members.size());
+      for (Repository member : members) {
+        // track repositories we have dispatched to, prevent circular dispatch for nested groups
+        if (dispatched.contains(member)) {
+          log.trace("Skipping already dispatched member: {}", member);
+          continue;
+        }
+        candidates.add(member);
+      }
+      final Entry<Repository, Response> first = parallelDispatcher.first(candidates, member -> {
+        dispatched.add(member);
+        final Response response = member.facet(ViewFacet.class).dispatch(request, context);
+        log.trace("Member {} response {}", member, response.getStatus());
+        return response;
+      }, this::isValidResponse);
+      if (first != null) {
+        rememberMember(context, first.getKey());
+        return first.getValue();
+      }
+      return notFoundResponse(context);
+    }
+
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
       // track repositories we have dispatched to, prevent circular dispatch for nested groups
@@ -139,12 +200,68 @@ public class GroupHandler
       final Response response = view.dispatch(request, context);
       log.trace("Member {} response {}", member, response.getStatus());
       if (isValidResponse(response)) {
+        rememberMember(context, member);
         return response;
       }
     }
     return notFoundResponse(context);
   }
 
+  /**
+   * Dispatches to the member that last served the requested path, if known. Returns {@code null} when there is no
+   * such member or it no longer has a valid response, in which case the caller asks the members in order.
+   */
+  @Nullable
+  private Response getFromCachedMember(final Context context,
+                                       final List<Repository> members,
+                                       final DispatchedRepositories dispatched)
+      throws Exception
+  {
+    if (memberLocationCache == null || !memberLocationCache.isEnabled()) {
+      return null;
+    }
+    final Repository group = context.getRepository();
+    final String path = context.getRequest().getPath();
+    final String memberName = memberLocationCache.get(group, path);
+    if (memberName == null) {
+      return null;
+    }
+    for (Repository member : members) {
+      if (member.getName().equals(memberName) && !dispatched.contains(member)) {
+        log.trace("Trying cached member: {}", member);
+        dispatched.add(member);
+        final Response response = member.facet(ViewFacet.class).dispatch(context.getRequest(), context);
+        log.trace("Member {} response {}", member, response.getStatus());
+        if (isValidResponse(response)) {
+          return response;
+        }
+        // the members are asked in order next, so this response won't be used
+        discard(response);
+        break;
+      }
+    }
+    memberLocationCache.invalidate(group, path);
+    return null;
+  }
+
+  private void discard(final Response response) {
+    Payload payload = response.getPayload();
+    if (payload != null) {
+      try {
+        payload.close();
+      }
+      catch (Exception e) {
+        log.debug("Unable to close discarded member response", e);
+      }
+    }
+  }
+
+  private void rememberMember(final Context context, final Repository member) {
+    if (memberLocationCache != null && memberLocationCache.isEnabled()) {
+      memberLocationCache.put(context.getRepository(), context.getRequest().getPath(), member);
+    }
+  }
+
   /**
    * Returns all responses from all members as a linked map, where order is group member order.
    */
@@ -174,6 +291,24 @@ public class GroupHandler
                                                        @Nonnull final DispatchedRepositories dispatched)
       throws Exception
   {
+    if (parallelDispatcher != null && parallelDispatcher.isEnabled()) {
+      final List<Repository> candidates = new ArrayList<>();
+      for (Repository member : members) {
+        // track repositories we have dispatched to, prevent circular dispatch for nested groups
+        if (dispatched.contains(member)) {
+          log.trace("Skipping already dispatched member: {}", member);
+          continue;
+        }
+        dispatched.add(member);
+        candidates.add(member);
+      }
+      return parallelDispatcher.all(candidates, member -> {
+        final Response response = member.facet(ViewFacet.class).dispatch(request, context);
+        log.trace("Member {} response {}", member, response.getStatus());
+        return response;
+      });
+    }
+
     final LinkedHashMap<Repository, Response> responses = Maps.newLinkedHashMap();
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
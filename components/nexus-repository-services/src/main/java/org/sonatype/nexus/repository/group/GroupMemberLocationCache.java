@@ -0,0 +1,119 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.Repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Remembers which member of a group last served a path, so later requests can go straight to that member.
+ *
+ * Entries are keyed by path, holding the serving member of each group, so asset events can invalidate a path for
+ * every group at once. Paths are normalized without their leading slash, so request paths and asset paths of the
+ * same content share an entry. The cache is best-effort: entries also expire after {@code nexus.group.memberCache.ttl}, which
+ * bounds how long a group keeps using a later member after an earlier member starts providing the same path.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class GroupMemberLocationCache
+    extends ComponentSupport
+{
+  private final boolean enabled;
+
+  private final Cache<String, Map<String, String>> locations;
+
+  @Inject
+  public GroupMemberLocationCache(
+      @Named("${nexus.group.memberCache.enabled:-false}") final boolean enabled,
+      @Named("${nexus.group.memberCache.maximumSize:-100000}") final long maximumSize,
+      @Named("${nexus.group.memberCache.ttl:-10m}") final Duration ttl)
+  {
+    checkArgument(maximumSize > 0, "nexus.group.memberCache.maximumSize must be positive");
+    this.enabled = enabled;
+    this.locations = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return name of the member that last served the path for the group, or {@code null} if not known
+   */
+  @Nullable
+  public String get(final Repository group, final String path) {
+    Map<String, String> members = locations.getIfPresent(normalize(path));
+    return members != null ? members.get(group.getName()) : null;
+  }
+
+  public void put(final Repository group, final String path, final Repository member) {
+    try {
+      locations.get(normalize(path), ConcurrentHashMap::new).put(group.getName(), member.getName());
+    }
+    catch (Exception e) {
+      // not expected as the loader can't fail
+      log.debug("Unable to cache member {} of group {} for {}", member, group, path, e);
+    }
+  }
+
+  /**
+   * Forgets the member serving the path for the given group.
+   */
+  public void invalidate(final Repository group, final String path) {
+    Map<String, String> members = locations.getIfPresent(normalize(path));
+    if (members != null) {
+      members.remove(group.getName());
+    }
+  }
+
+  /**
+   * Forgets the members serving the path for all groups, for example because an asset was added or removed.
+   */
+  public void invalidate(final String path) {
+    locations.invalidate(normalize(path));
+  }
+
+  /**
+   * Forgets all paths cached for the group, for example because its members changed.
+   */
+  public void invalidateGroup(final String groupName) {
+    checkNotNull(groupName);
+    locations.asMap().values().forEach(members -> members.remove(groupName));
+  }
+
+  private static String normalize(final String path) {
+    checkNotNull(path);
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+}
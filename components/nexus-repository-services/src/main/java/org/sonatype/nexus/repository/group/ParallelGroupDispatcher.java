@@ -0,0 +1,271 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.collect.Maps;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dispatches group requests to several members at once.
+ *
+ * {@link #first} asks the first member and, if it hasn't answered within the hedge delay, also asks the next member,
+ * continuing until {@code nexus.group.parallel.maxConcurrency} members are outstanding. Member order still decides
+ * which response wins: a response is only used once every earlier member has answered without a valid response.
+ * A hedge delay of zero asks up to the maximum number of members straight away.
+ *
+ * Dispatches run on a shared pool of {@code nexus.group.parallel.threads}; when it is exhausted members are asked on
+ * the requesting thread, one at a time, as before.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class ParallelGroupDispatcher
+    extends ComponentSupport
+{
+  /**
+   * Dispatches the request to a single member.
+   */
+  @FunctionalInterface
+  public interface MemberDispatch
+  {
+    Response dispatch(Repository member) throws Exception;
+  }
+
+  private static final Object COMPLETED = new Object();
+
+  private final boolean enabled;
+
+  private final int maxConcurrency;
+
+  private final long hedgeDelayNanos;
+
+  private final NexusExecutorService executor;
+
+  @Inject
+  public ParallelGroupDispatcher(
+      @Named("${nexus.group.parallel.enabled:-false}") final boolean enabled,
+      @Named("${nexus.group.parallel.maxConcurrency:-4}") final int maxConcurrency,
+      @Named("${nexus.group.parallel.hedgeDelay:-50ms}") final Duration hedgeDelay,
+      @Named("${nexus.group.parallel.threads:-64}") final int threads)
+  {
+    checkArgument(maxConcurrency > 0, "nexus.group.parallel.maxConcurrency must be positive");
+    checkArgument(threads > 0, "nexus.group.parallel.threads must be positive");
+    checkArgument(!hedgeDelay.isNegative(), "nexus.group.parallel.hedgeDelay must not be negative");
+    this.enabled = enabled;
+    this.maxConcurrency = maxConcurrency;
+    this.hedgeDelayNanos = hedgeDelay.toNanos();
+    this.executor = NexusExecutorService.forCurrentSubject(new ThreadPoolExecutor(
+        0,
+        threads,
+        60L,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(), // hand off directly, never queue
+        new NexusThreadFactory("group-dispatch", "group-dispatch"),
+        new AbortPolicy()));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the first valid response in member order, together with the member that produced it.
+   *
+   * Responses from later members that are no longer needed have their payloads closed as they complete.
+   *
+   * @return the member and its response, or {@code null} if no member returned a valid response
+   */
+  @Nullable
+  public Entry<Repository, Response> first(
+      final List<Repository> members,
+      final MemberDispatch dispatch,
+      final Predicate<Response> valid) throws Exception
+  {
+    checkNotNull(members);
+    checkNotNull(dispatch);
+    checkNotNull(valid);
+
+    BlockingQueue<Object> completions = new LinkedBlockingQueue<>();
+    List<CompletableFuture<Response>> launched = new ArrayList<>(members.size());
+    int next = 0;
+    boolean found = false;
+    try {
+      while (next < members.size()) {
+        if (launched.size() == next) {
+          launched.add(launch(members.get(next), dispatch, completions));
+        }
+
+        CompletableFuture<Response> current = launched.get(next);
+        if (current.isDone()) {
+          Response response = join(current);
+          if (valid.test(response)) {
+            found = true;
+            return Maps.immutableEntry(members.get(next), response);
+          }
+          next++;
+        }
+        else if (launched.size() < members.size() && launched.size() - next < maxConcurrency) {
+          // give the outstanding members a head start before also asking the next one
+          if (hedgeDelayNanos == 0 || completions.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS) == null) {
+            launched.add(launch(members.get(launched.size()), dispatch, completions));
+          }
+        }
+        else {
+          completions.take();
+        }
+      }
+      return null;
+    }
+    finally {
+      // members after the chosen one are no longer needed
+      for (int i = found ? next + 1 : next; i < launched.size(); i++) {
+        launched.get(i).whenComplete((response, failure) -> discard(response));
+      }
+    }
+  }
+
+  /**
+   * Returns the responses of all members, in member order.
+   *
+   * If any member fails the first failure in member order is thrown, once the other members have completed.
+   */
+  public LinkedHashMap<Repository, Response> all(
+      final List<Repository> members,
+      final MemberDispatch dispatch) throws Exception
+  {
+    checkNotNull(members);
+    checkNotNull(dispatch);
+
+    BlockingQueue<Object> completions = new LinkedBlockingQueue<>();
+    List<CompletableFuture<Response>> launched = new ArrayList<>(members.size());
+    int outstanding = 0;
+    while (launched.size() < members.size() || outstanding > 0) {
+      if (launched.size() < members.size() && outstanding < maxConcurrency) {
+        launched.add(launch(members.get(launched.size()), dispatch, completions));
+        outstanding++;
+      }
+      else {
+        completions.take();
+        outstanding--;
+      }
+    }
+
+    LinkedHashMap<Repository, Response> responses = new LinkedHashMap<>();
+    Exception failure = null;
+    for (int i = 0; i < members.size(); i++) {
+      try {
+        responses.put(members.get(i), join(launched.get(i)));
+      }
+      catch (Exception e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      responses.values().forEach(this::discard);
+      throw failure;
+    }
+    return responses;
+  }
+
+  private CompletableFuture<Response> launch(
+      final Repository member,
+      final MemberDispatch dispatch,
+      final BlockingQueue<Object> completions)
+  {
+    log.trace("Dispatching to member: {}", member);
+    CompletableFuture<Response> future;
+    try {
+      future = CompletableFuture.supplyAsync(() -> {
+        try {
+          return dispatch.dispatch(member);
+        }
+        catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    }
+    catch (RejectedExecutionException e) {
+      log.trace("No thread available, dispatching to member {} directly", member);
+      future = new CompletableFuture<>();
+      try {
+        future.complete(dispatch.dispatch(member));
+      }
+      catch (Exception ex) {
+        future.completeExceptionally(ex);
+      }
+    }
+    future.whenComplete((response, failure) -> completions.add(COMPLETED));
+    return future;
+  }
+
+  private static Response join(final CompletableFuture<Response> future) throws Exception {
+    try {
+      return future.join();
+    }
+    catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private void discard(@Nullable final Response response) {
+    Payload payload = response != null ? response.getPayload() : null;
+    if (payload != null) {
+      try {
+        payload.close();
+      }
+      catch (Exception e) {
+        log.debug("Unable to close discarded member response", e);
+      }
+    }
+  }
+}
@@ -18,8 +18,12 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -53,6 +57,7 @@ import org.sonatype.nexus.validation.constraint.Url;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
 import com.google.common.io.Closeables;
 import com.google.common.net.HttpHeaders;
 import org.apache.http.Header;
@@ -69,6 +74,7 @@ import org.joda.time.DateTime;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.lang.Boolean.TRUE;
 import static java.util.Objects.isNull;
 import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_CLUSTERED_ENABLED_NAMED;
@@ -86,6 +92,8 @@ public abstract class ProxyFacetSupport
 
   public static final String BYPASS_HTTP_ERRORS_HEADER_VALUE = "true";
 
+  private static final String HTTP_CLIENT_CONFIG_KEY = "httpclient";
+
   private static final String PROXY_REMOTE_FETCH_SKIP_MARKER =
       "proxy.remote-fetch.skip";
 
@@ -159,6 +167,10 @@ public abstract class ProxyFacetSupport
 
   private Cooperation2 proxyCooperation;
 
+  private UpstreamFetchCoordinator upstreamFetchCoordinator;
+
+  private StreamThroughService streamThroughService;
+
   @Override
   public ProxyRepositoryConfiguration getConfiguration() {
     return config;
@@ -210,6 +222,26 @@ public abstract class ProxyFacetSupport
         .threadsPerKey(threadsPerKey);
   }
 
+  /**
+   * Shares concurrent downloads of the same upstream content with other proxy repositories, when enabled.
+   *
+   * @since 3.next
+   */
+  @Inject
+  protected void setUpstreamFetchCoordinator(final UpstreamFetchCoordinator upstreamFetchCoordinator) {
+    this.upstreamFetchCoordinator = checkNotNull(upstreamFetchCoordinator);
+  }
+
+  /**
+   * Streams large downloads to clients while they are being stored, when enabled.
+   *
+   * @since 3.next
+   */
+  @Inject
+  protected void setStreamThroughService(final StreamThroughService streamThroughService) {
+    this.streamThroughService = checkNotNull(streamThroughService);
+  }
+
   @VisibleForTesting
   void buildCooperation() {
     buildCooperation(getRepository());
@@ -278,6 +310,8 @@ public abstract class ProxyFacetSupport
 
       optionalFacet(NegativeCacheFacet.class).ifPresent((nfc) -> nfc.invalidate());
     }
+
+    httpClient.prewarm(config.remoteUrl);
   }
 
   @Override
@@ -352,7 +386,13 @@ public abstract class ProxyFacetSupport
         downloading.set(TRUE);
       }
       remote = fetch(context, content);
-      if (remote != null) {
+      Content streaming = remote != null && !nested ? maybeStreamThrough(context, remote, content) : null;
+      if (streaming != null) {
+        // remote is now owned by the background store; streaming content is reusable for cooperation
+        remote = null;
+        content = streaming;
+      }
+      else if (remote != null) {
         content = store(context, remote);
         if (remote.equals(content)) {
           // remote wasn't stored; make reusable copy for cooperation
@@ -381,6 +421,44 @@ public abstract class ProxyFacetSupport
     return content;
   }
 
+  /**
+   * Starts storing the remote content in the background while it's streamed to clients, if allowed.
+   *
+   * @return content streaming the download, or {@code null} if the content should be stored first
+   */
+  @Nullable
+  private Content maybeStreamThrough(
+      final Context context,
+      final Content remote,
+      @Nullable final Content staleContent) throws IOException
+  {
+    // replacing stale content is stored first, so that if the store fails the stale content is served instead
+    if (streamThroughService == null || staleContent != null || !isStreamThroughAllowed(context, remote)) {
+      return null;
+    }
+    return streamThroughService.streamThrough(remote, storeContent -> {
+      downloading.set(TRUE);
+      try {
+        return store(context, storeContent);
+      }
+      finally {
+        downloading.remove();
+      }
+    });
+  }
+
+  /**
+   * Can this content be streamed to clients while it's being stored? By default only large (or unknown size) content
+   * governed by the content cache controller qualifies; metadata is always stored first as formats often rely on the
+   * stored attributes when serving it.
+   *
+   * @since 3.next
+   */
+  protected boolean isStreamThroughAllowed(final Context context, final Content remote) {
+    return streamThroughService.isStreamable(remote.getSize())
+        && getCacheController(context) == cacheControllerHolder.getContentCacheController();
+  }
+
   /**
    * Path + query parameters provide a unique enough request key for known formats. If a format needs to add more
    * context then they should customize this method.
@@ -521,6 +599,26 @@ public abstract class ProxyFacetSupport
     log.debug("Fetching: {}", request);
     log.debug("Fetching Request Headers: {}", Arrays.toString(request.getAllHeaders()));
 
+    if (upstreamFetchCoordinator != null && upstreamFetchCoordinator.isEnabled()) {
+      Content result = upstreamFetchCoordinator.fetch(sharedFetchKey(request),
+          () -> executeFetch(context, client, uri, request, stale));
+      if (result != null) {
+        // content may have been fetched by another repository, so apply our own cache controller
+        result.getAttributes().set(CacheInfo.class, getCacheController(context).current());
+      }
+      return result;
+    }
+    return executeFetch(context, client, uri, request, stale);
+  }
+
+  @Nullable
+  private Content executeFetch(
+      final Context context,
+      final HttpClient client,
+      final URI uri,
+      final HttpRequestBase request,
+      @Nullable final Content stale) throws IOException
+  {
     HttpResponse response = execute(context, client, request);
     log.debug("Response: {}", response);
 
@@ -568,6 +666,43 @@ public abstract class ProxyFacetSupport
     return null;
   }
 
+  /**
+   * Key that identifies equivalent upstream requests across proxy repositories. It includes the format, a digest of
+   * the HTTP client configuration (which holds any credentials) and every request header, so content is only shared
+   * between repositories that would have made exactly the same request.
+   */
+  private String sharedFetchKey(final HttpRequestBase request) {
+    Map<String, Object> httpClientConfig = getRepository().getConfiguration().attributes(HTTP_CLIENT_CONFIG_KEY)
+        .backing();
+    String headers = Arrays.stream(request.getAllHeaders())
+        .map(header -> header.getName().toLowerCase(Locale.ENGLISH) + ':' + header.getValue())
+        .sorted()
+        .collect(Collectors.joining("\n"));
+
+    return getRepository().getFormat().getValue() + '|'
+        + Hashing.sha256().hashString(canonical(httpClientConfig), UTF_8) + '|'
+        + request.getMethod() + ' ' + request.getURI().normalize() + '|'
+        + Hashing.sha256().hashString(headers, UTF_8);
+  }
+
+  /**
+   * Renders configuration with map entries sorted by key, so equal configurations always render the same way.
+   */
+  @VisibleForTesting
+  static String canonical(@Nullable final Object value) {
+    if (value instanceof Map) {
+      Map<String, String> sorted = new TreeMap<>();
+      ((Map<?, ?>) value).forEach((key, entry) -> sorted.put(String.valueOf(key), canonical(entry)));
+      return sorted.toString();
+    }
+    if (value instanceof Collection) {
+      return ((Collection<?>) value).stream()
+          .map(ProxyFacetSupport::canonical)
+          .collect(Collectors.joining(", ", "[", "]"));
+    }
+    return String.valueOf(value);
+  }
+
   protected String encodeUrl(final String url) throws UnsupportedEncodingException { //NOSONAR
     // some formats can use special characters in url
     // override this method if necessary
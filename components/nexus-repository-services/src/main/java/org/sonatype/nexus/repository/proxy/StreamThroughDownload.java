@@ -0,0 +1,426 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Upstream download that is stored and served to clients at the same time.
+ *
+ * The remote stream is copied to a spool file as the store reads it. Clients read the spool file as it grows, but
+ * only see the end of the stream once the store has completed successfully; if the store fails, for example because
+ * the content failed validation, their reads fail instead so the response is aborted rather than completed.
+ *
+ * Once stored, new readers are served from the stored content, the stored content's attributes (such as its asset)
+ * are copied onto the client content, and the spool file is deleted as soon as the last spool reader has closed.
+ *
+ * @since 3.next
+ */
+class StreamThroughDownload
+    extends ComponentSupport
+{
+  private enum State
+  {
+    STREAMING, STORED, FAILED
+  }
+
+  private final Path spool;
+
+  private final Content remote;
+
+  private final Object lock = new Object();
+
+  // the following fields are guarded by the lock
+
+  private State state = State.STREAMING;
+
+  private long spooled;
+
+  private boolean spoolComplete;
+
+  private boolean teeOpened;
+
+  private int spoolReaders;
+
+  private boolean spoolDeleted;
+
+  @Nullable
+  private Content stored;
+
+  @Nullable
+  private Content client;
+
+  @Nullable
+  private Throwable failure;
+
+  StreamThroughDownload(final Path spool, final Content remote) {
+    this.spool = checkNotNull(spool);
+    this.remote = checkNotNull(remote);
+  }
+
+  /**
+   * Content to pass to the store; reading it copies the remote stream to the spool file.
+   */
+  Content storeContent() {
+    return new Content(remote, new TeePayload());
+  }
+
+  /**
+   * Content to return to clients; each call to {@link Content#openInputStream()} follows the download.
+   */
+  Content clientContent() {
+    Content content = new ClientContent(new ClientPayload());
+    copyAttributes(remote, content);
+    synchronized (lock) {
+      client = content;
+    }
+    return content;
+  }
+
+  /**
+   * Marks the download as stored; clients see the end of the stream and new readers use the stored content.
+   */
+  void stored(final Content content) {
+    Content clientContent;
+    synchronized (lock) {
+      clientContent = client;
+    }
+    if (clientContent != null) {
+      // attach the stored attributes before the end of the stream is seen, so clients can rely on them once read
+      copyAttributes(content, clientContent);
+    }
+    synchronized (lock) {
+      stored = content;
+      state = State.STORED;
+      lock.notifyAll();
+      maybeDeleteSpool();
+    }
+  }
+
+  private static void copyAttributes(final Content from, final Content to) {
+    for (Entry<String, Object> entry : from.getAttributes()) {
+      if (entry.getValue() != null) {
+        to.getAttributes().set(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Marks the download as failed; clients still reading are aborted.
+   */
+  void failed(final Throwable cause) {
+    synchronized (lock) {
+      failure = cause;
+      state = State.FAILED;
+      lock.notifyAll();
+      maybeDeleteSpool();
+    }
+  }
+
+  /**
+   * Opens a reader over the spool file, used to copy content that wasn't stored before the spool is deleted.
+   */
+  InputStream openSpool() throws IOException {
+    return openSpoolReader(false);
+  }
+
+  private InputStream openSpoolReader(final boolean awaitStore) throws IOException {
+    synchronized (lock) {
+      if (spoolDeleted) {
+        throw new IOException("Download of " + remote + " is no longer available");
+      }
+      spoolReaders++;
+    }
+    try {
+      return new SpoolInputStream(FileChannel.open(spool, READ), awaitStore);
+    }
+    catch (IOException | RuntimeException e) {
+      releaseSpoolReader();
+      throw e;
+    }
+  }
+
+  private void releaseSpoolReader() {
+    synchronized (lock) {
+      spoolReaders--;
+      maybeDeleteSpool();
+    }
+  }
+
+  private void maybeDeleteSpool() {
+    if (state != State.STREAMING && spoolReaders == 0 && !spoolDeleted) {
+      spoolDeleted = true;
+      try {
+        Files.deleteIfExists(spool);
+      }
+      catch (IOException e) {
+        log.warn("Unable to delete stream-through spool {}", spool, e);
+      }
+    }
+  }
+
+  private void spooled(final int count) {
+    synchronized (lock) {
+      spooled += count;
+      lock.notifyAll();
+    }
+  }
+
+  private void spoolComplete() {
+    synchronized (lock) {
+      spoolComplete = true;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Reads the remote stream, copying everything read to the spool file.
+   */
+  private class TeePayload
+      implements Payload
+  {
+    @Override
+    public InputStream openInputStream() throws IOException {
+      synchronized (lock) {
+        if (teeOpened) {
+          // the remote stream can only be read once, so later readers follow the spool instead
+          return openSpoolReader(false);
+        }
+        teeOpened = true;
+      }
+      return new TeeInputStream(remote.openInputStream(), Files.newOutputStream(spool));
+    }
+
+    @Override
+    public long getSize() {
+      return remote.getSize();
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+      return remote.getContentType();
+    }
+  }
+
+  /**
+   * Content handed to clients; its attributes are updated from another thread once the download is stored.
+   */
+  private static class ClientContent
+      extends Content
+  {
+    private ClientContent(final Payload payload) {
+      super(payload, new AttributesMap(new ConcurrentHashMap<>()));
+    }
+  }
+
+  /**
+   * Serves clients from the spool while streaming, then from the stored content.
+   */
+  private class ClientPayload
+      implements Payload
+  {
+    @Override
+    public InputStream openInputStream() throws IOException {
+      synchronized (lock) {
+        if (state == State.FAILED) {
+          throw new IOException("Download of " + remote + " failed", failure);
+        }
+        if (state == State.STORED && stored != null) {
+          return stored.openInputStream();
+        }
+      }
+      return openSpoolReader(true);
+    }
+
+    @Override
+    public long getSize() {
+      return remote.getSize();
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+      return remote.getContentType();
+    }
+  }
+
+  private class TeeInputStream
+      extends FilterInputStream
+  {
+    private final OutputStream spoolOut;
+
+    private boolean closed;
+
+    private TeeInputStream(final InputStream in, final OutputStream spoolOut) {
+      super(in);
+      this.spoolOut = spoolOut;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        spoolOut.write(b, off, n);
+        spooled(n);
+      }
+      else if (n < 0) {
+        spoolOut.flush();
+        spoolComplete();
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      // skipped bytes must still reach the spool
+      byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          super.close();
+        }
+        finally {
+          spoolOut.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Follows the spool file as it grows.
+   */
+  private class SpoolInputStream
+      extends InputStream
+  {
+    private final FileChannel channel;
+
+    private final boolean awaitStore;
+
+    private long position;
+
+    private boolean closed;
+
+    private SpoolInputStream(final FileChannel channel, final boolean awaitStore) {
+      this.channel = channel;
+      this.awaitStore = awaitStore;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long available = awaitAvailable();
+      if (available < 0) {
+        return -1;
+      }
+      int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    /**
+     * Waits until there are spooled bytes past our position, returning -1 once the end of the stream is reached.
+     */
+    private long awaitAvailable() throws IOException {
+      synchronized (lock) {
+        while (true) {
+          if (state == State.FAILED) {
+            throw new IOException("Download of " + remote + " failed", failure);
+          }
+          if (spooled > position) {
+            return spooled - position;
+          }
+          if (spoolComplete && (!awaitStore || state == State.STORED)) {
+            return -1;
+          }
+          if (state == State.STORED) {
+            // the store finished without reading all of the remote stream
+            if (awaitStore) {
+              throw new IOException("Download of " + remote + " is incomplete");
+            }
+            return -1;
+          }
+          try {
+            lock.wait();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for download of " + remote);
+          }
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          channel.close();
+        }
+        finally {
+          releaseSpoolReader();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores proxied content in the background while it is streamed to the requesting clients.
+ *
+ * Without this a client requesting content that isn't cached yet only receives its first byte once the whole file has
+ * been fetched and stored. When enabled, the store runs on a background thread reading the upstream response, while
+ * clients follow the bytes as they arrive. Clients only see the end of the content once the store has succeeded, so
+ * a download that fails validation aborts their responses instead of completing them.
+ *
+ * Stores are limited to {@code nexus.proxy.streamThrough.threads} at a time; downloads beyond that are handled as
+ * before, storing first and serving afterwards.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class StreamThroughService
+    extends ComponentSupport
+{
+  /**
+   * Stores the given content, returning the stored content.
+   */
+  @FunctionalInterface
+  public interface Store
+  {
+    Content store(Content content) throws IOException;
+  }
+
+  private final boolean enabled;
+
+  private final long minimumSize;
+
+  private final Path spoolDirectory;
+
+  private final NexusExecutorService executor;
+
+  private volatile boolean spoolDirectoryReady;
+
+  @Inject
+  public StreamThroughService(
+      final ApplicationDirectories applicationDirectories,
+      @Named("${nexus.proxy.streamThrough.enabled:-false}") final boolean enabled,
+      @Named("${nexus.proxy.streamThrough.minimumSize:-10485760}") final long minimumSize,
+      @Named("${nexus.proxy.streamThrough.threads:-32}") final int threads)
+  {
+    this(applicationDirectories.getTemporaryDirectory().toPath().resolve("proxy-stream-through"), enabled,
+        minimumSize, threads);
+  }
+
+  @VisibleForTesting
+  StreamThroughService(final Path spoolDirectory, final boolean enabled, final long minimumSize, final int threads) {
+    checkArgument(threads > 0, "nexus.proxy.streamThrough.threads must be positive");
+    this.spoolDirectory = checkNotNull(spoolDirectory);
+    this.enabled = enabled;
+    this.minimumSize = minimumSize;
+    this.executor = NexusExecutorService.forCurrentSubject(new ThreadPoolExecutor(
+        0,
+        threads,
+        60L,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(), // hand off directly, never queue
+        new NexusThreadFactory("proxy-stream-through", "proxy-stream-through"),
+        new AbortPolicy()));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Should content of the given size be streamed through? Content of unknown size always qualifies.
+   */
+  public boolean isStreamable(final long size) {
+    return enabled && (size < 0 || size >= minimumSize);
+  }
+
+  /**
+   * Starts storing the remote content in the background.
+   *
+   * @return content that streams the download to clients, or {@code null} if no thread was available; the caller
+   * should then store the content itself. Once content is returned the remote content is owned by the download and
+   * will be closed when the store completes.
+   */
+  @Nullable
+  public Content streamThrough(final Content remote, final Store store) throws IOException {
+    checkNotNull(remote);
+    checkNotNull(store);
+
+    StreamThroughDownload download = new StreamThroughDownload(
+        Files.createTempFile(spoolDirectory(), "download-", ".tmp"), remote);
+    Content storeContent = download.storeContent();
+
+    try {
+      executor.execute(() -> store(download, remote, storeContent, store));
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("No thread available to stream {} through, storing it first", remote);
+      download.failed(e); // removes the spool file
+      return null;
+    }
+    return download.clientContent();
+  }
+
+  private void store(
+      final StreamThroughDownload download,
+      final Content remote,
+      final Content storeContent,
+      final Store store)
+  {
+    try {
+      Content stored = store.store(storeContent);
+      if (stored == null || stored == storeContent) {
+        // content wasn't stored, keep a reusable copy before the spool goes away
+        stored = new TempContent(new Content(remote, new SpoolPayload(download, remote)));
+      }
+      download.stored(stored);
+    }
+    catch (Exception e) { // NOSONAR: any failure must abort the clients
+      if (log.isDebugEnabled()) {
+        log.warn("Failed to store {} while streaming it to clients", remote, e);
+      }
+      else {
+        log.warn("Failed to store {} while streaming it to clients: {}", remote, e.toString());
+      }
+      download.failed(e);
+    }
+    finally {
+      try {
+        remote.close();
+      }
+      catch (IOException e) {
+        log.debug("Failed to close {}", remote, e);
+      }
+    }
+  }
+
+  /**
+   * Creates the spool directory on first use, removing any files left behind by a previous run.
+   */
+  private Path spoolDirectory() throws IOException {
+    if (!spoolDirectoryReady) {
+      synchronized (this) {
+        if (!spoolDirectoryReady) {
+          Files.createDirectories(spoolDirectory);
+          try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDirectory, "download-*.tmp")) {
+            for (Path leftover : leftovers) {
+              Files.deleteIfExists(leftover);
+            }
+          }
+          spoolDirectoryReady = true;
+        }
+      }
+    }
+    return spoolDirectory;
+  }
+
+  /**
+   * Reads content back from the spool file.
+   */
+  private static class SpoolPayload
+      implements Payload
+  {
+    private final StreamThroughDownload download;
+
+    private final Content remote;
+
+    private SpoolPayload(final StreamThroughDownload download, final Content remote) {
+      this.download = download;
+      this.remote = remote;
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      return download.openSpool();
+    }
+
+    @Override
+    public long getSize() {
+      return remote.getSize();
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+      return remote.getContentType();
+    }
+  }
+}
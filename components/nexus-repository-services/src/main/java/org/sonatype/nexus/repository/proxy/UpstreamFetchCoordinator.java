@@ -0,0 +1,581 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Node-wide coordinator that lets proxy repositories share downloads of the same upstream object.
+ *
+ * The first repository to fetch a given key becomes the leader and gets content that streams straight from upstream,
+ * copying everything it reads to a temporary spool file. Every other repository that asks for the same key while the
+ * download is in flight gets content that follows the spool file as it grows, so nobody waits for the whole download
+ * before seeing the first byte. Each repository stores the shared content through its own facets. Followers only see
+ * the end of the stream once the leader has read all of it; if the leader fails or gives up early their reads fail
+ * instead. The spool file is deleted once all participants have closed their content.
+ *
+ * Only successful responses are shared; when the leader gets no content (for example a 304 or an error) the other
+ * participants fetch for themselves.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class UpstreamFetchCoordinator
+    extends ComponentSupport
+{
+  /**
+   * Fetches content from upstream, returning {@code null} when there is no new content.
+   */
+  @FunctionalInterface
+  public interface Fetch
+  {
+    @Nullable
+    Content fetch() throws IOException;
+  }
+
+  private final boolean enabled;
+
+  private final Duration followerTimeout;
+
+  private final Path spoolDirectory;
+
+  private final Map<String, Flight> flights = new HashMap<>();
+
+  private final AtomicBoolean spoolDirectoryReady = new AtomicBoolean();
+
+  @Inject
+  public UpstreamFetchCoordinator(
+      final ApplicationDirectories applicationDirectories,
+      @Named("${nexus.proxy.sharedFetch.enabled:-false}") final boolean enabled,
+      @Named("${nexus.proxy.sharedFetch.followerTimeout:-60s}") final Duration followerTimeout)
+  {
+    this(applicationDirectories.getTemporaryDirectory().toPath().resolve("proxy-shared-fetch"), enabled,
+        followerTimeout);
+  }
+
+  @VisibleForTesting
+  UpstreamFetchCoordinator(final Path spoolDirectory, final boolean enabled, final Duration followerTimeout) {
+    this.spoolDirectory = checkNotNull(spoolDirectory);
+    this.enabled = enabled;
+    this.followerTimeout = checkNotNull(followerTimeout);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Fetches the content for the given key, sharing the download with concurrent requests for the same key.
+   *
+   * @param key   identifies the upstream request, including anything that could change the response
+   * @param fetch performs the actual upstream request
+   * @return content streaming a shared download, or the result of {@code fetch} when it couldn't be shared
+   */
+  @Nullable
+  public Content fetch(final String key, final Fetch fetch) throws IOException {
+    checkNotNull(key);
+    checkNotNull(fetch);
+
+    Flight flight;
+    boolean leader = false;
+    synchronized (flights) {
+      flight = flights.get(key);
+      if (flight == null) {
+        flight = new Flight(key);
+        flights.put(key, flight);
+        leader = true;
+      }
+      flight.participants++;
+      if (flight.download != null) {
+        flight.download.references++;
+      }
+    }
+
+    if (leader) {
+      return lead(flight, fetch);
+    }
+    return follow(flight, fetch);
+  }
+
+  @VisibleForTesting
+  int participants(final String key) {
+    synchronized (flights) {
+      Flight flight = flights.get(key);
+      return flight != null ? flight.participants : 0;
+    }
+  }
+
+  @Nullable
+  private Content lead(final Flight flight, final Fetch fetch) throws IOException {
+    SharedDownload download = null;
+    try {
+      Content remote = fetch.fetch();
+      if (remote != null) {
+        try {
+          download = new SharedDownload(flight, Files.createTempFile(spoolDirectory(), "fetch-", ".tmp"), remote);
+        }
+        catch (IOException | RuntimeException e) {
+          remote.close();
+          throw e;
+        }
+      }
+    }
+    finally {
+      synchronized (flights) {
+        if (download != null) {
+          // the leader and every follower that has joined so far will release one reference, later joiners add theirs
+          download.references = flight.participants;
+          flight.download = download;
+        }
+        else {
+          flights.remove(flight.key, flight);
+        }
+      }
+      flight.result.complete(download);
+    }
+    return download != null ? download.leaderContent() : null;
+  }
+
+  @Nullable
+  private Content follow(final Flight flight, final Fetch fetch) throws IOException {
+    SharedDownload download;
+    try {
+      download = followerTimeout.isZero()
+          ? flight.result.get()
+          : flight.result.get(followerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e) {
+      log.debug("Timed out waiting for shared fetch of {}, fetching separately", flight.key);
+      // still release our reference when the shared download starts
+      flight.result.thenAccept(shared -> {
+        if (shared != null) {
+          shared.release();
+        }
+      });
+      return fetch.fetch();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for shared fetch of " + flight.key, e);
+    }
+    catch (ExecutionException e) {
+      // not expected as the leader always completes normally
+      throw new IOException(e.getCause());
+    }
+
+    if (download == null) {
+      log.debug("Shared fetch of {} had no content, fetching separately", flight.key);
+      return fetch.fetch();
+    }
+    log.debug("Sharing download of {}", flight.key);
+    return download.followerContent();
+  }
+
+  /**
+   * Creates the spool directory on first use, removing any files left behind by a previous run.
+   */
+  private Path spoolDirectory() throws IOException {
+    if (spoolDirectoryReady.compareAndSet(false, true)) {
+      Files.createDirectories(spoolDirectory);
+      try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(spoolDirectory, "fetch-*.tmp")) {
+        for (Path leftover : leftovers) {
+          Files.deleteIfExists(leftover);
+        }
+      }
+    }
+    return spoolDirectory;
+  }
+
+  private static class Flight
+  {
+    private final String key;
+
+    private final CompletableFuture<SharedDownload> result = new CompletableFuture<>();
+
+    // the following fields are guarded by the flights map
+
+    private int participants;
+
+    @Nullable
+    private SharedDownload download;
+
+    private Flight(final String key) {
+      this.key = key;
+    }
+  }
+
+  /**
+   * Upstream response shared by all participants of a flight, spooled to a file as the leader reads it.
+   */
+  private class SharedDownload
+  {
+    private final Flight flight;
+
+    private final Path spool;
+
+    private final Content remote;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    /**
+     * Guarded by the flights map.
+     */
+    private int references;
+
+    private final Object lock = new Object();
+
+    // the following fields are guarded by the lock
+
+    private boolean teeOpened;
+
+    private long spooled;
+
+    private boolean complete;
+
+    @Nullable
+    private IOException failure;
+
+    private SharedDownload(final Flight flight, final Path spool, final Content remote) {
+      this.flight = flight;
+      this.spool = spool;
+      this.remote = remote;
+      for (Entry<String, Object> entry : remote.getAttributes()) {
+        this.attributes.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    private Content leaderContent() {
+      return newContent(new SharedPayload(true));
+    }
+
+    private Content followerContent() {
+      return newContent(new SharedPayload(false));
+    }
+
+    private Content newContent(final SharedPayload payload) {
+      Content content = new Content(payload);
+      attributes.forEach(content.getAttributes()::set);
+      return content;
+    }
+
+    private InputStream openTee() throws IOException {
+      synchronized (lock) {
+        if (teeOpened) {
+          // the remote stream can only be read once, so later readers follow the spool instead
+          return openSpool();
+        }
+        teeOpened = true;
+      }
+      OutputStream spoolOut = null;
+      try {
+        spoolOut = Files.newOutputStream(spool);
+        return new TeeInputStream(remote.openInputStream(), spoolOut);
+      }
+      catch (IOException | RuntimeException e) {
+        if (spoolOut != null) {
+          spoolOut.close();
+        }
+        failed(new IOException("Shared download of " + flight.key + " could not be started", e));
+        throw e;
+      }
+    }
+
+    private InputStream openSpool() throws IOException {
+      return new SpoolInputStream(FileChannel.open(spool, READ));
+    }
+
+    private void spooled(final int count) {
+      synchronized (lock) {
+        spooled += count;
+        lock.notifyAll();
+      }
+    }
+
+    private void completed() {
+      synchronized (lock) {
+        complete = true;
+        lock.notifyAll();
+      }
+      finished();
+    }
+
+    private void failed(final IOException cause) {
+      synchronized (lock) {
+        if (complete || failure != null) {
+          return;
+        }
+        failure = cause;
+        lock.notifyAll();
+      }
+      finished();
+    }
+
+    /**
+     * Stops new requests joining this download once the leader is done with the upstream response.
+     */
+    private void finished() {
+      synchronized (flights) {
+        flights.remove(flight.key, flight);
+      }
+    }
+
+    private void release() {
+      synchronized (flights) {
+        if (--references > 0) {
+          return;
+        }
+        flights.remove(flight.key, flight);
+      }
+      try {
+        Files.deleteIfExists(spool);
+      }
+      catch (IOException e) {
+        log.warn("Unable to delete shared download {}", spool, e);
+      }
+    }
+
+    /**
+     * Payload of a participant; the leader's reads the remote stream, closing it releases the participant's reference.
+     */
+    private class SharedPayload
+        implements Payload
+    {
+      private final boolean leader;
+
+      private final AtomicBoolean closed = new AtomicBoolean();
+
+      private SharedPayload(final boolean leader) {
+        this.leader = leader;
+      }
+
+      @Override
+      public InputStream openInputStream() throws IOException {
+        return leader ? openTee() : openSpool();
+      }
+
+      @Override
+      public long getSize() {
+        return remote.getSize();
+      }
+
+      @Nullable
+      @Override
+      public String getContentType() {
+        return remote.getContentType();
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+          try {
+            if (leader) {
+              failed(new IOException("Shared download of " + flight.key + " was abandoned by its leader"));
+              remote.close();
+            }
+          }
+          finally {
+            release();
+          }
+        }
+      }
+    }
+
+    /**
+     * Reads the remote stream, copying everything read to the spool file.
+     */
+    private class TeeInputStream
+        extends FilterInputStream
+    {
+      private final OutputStream spoolOut;
+
+      private boolean closed;
+
+      private TeeInputStream(final InputStream in, final OutputStream spoolOut) {
+        super(in);
+        this.spoolOut = spoolOut;
+      }
+
+      @Override
+      public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        int n;
+        try {
+          n = super.read(b, off, len);
+          if (n > 0) {
+            spoolOut.write(b, off, n);
+            spoolOut.flush();
+          }
+        }
+        catch (IOException e) {
+          failed(new IOException("Shared download of " + flight.key + " failed", e));
+          throw e;
+        }
+        if (n > 0) {
+          spooled(n);
+        }
+        else if (n < 0) {
+          completed();
+        }
+        return n;
+      }
+
+      @Override
+      public long skip(final long n) throws IOException {
+        // skipped bytes must still reach the spool
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+      }
+
+      @Override
+      public boolean markSupported() {
+        return false;
+      }
+
+      @Override
+      public void close() throws IOException {
+        if (!closed) {
+          closed = true;
+          try {
+            super.close();
+          }
+          finally {
+            spoolOut.close();
+            // closing before the end of the stream leaves followers with an incomplete download
+            failed(new IOException("Shared download of " + flight.key + " was closed early by its leader"));
+          }
+        }
+      }
+    }
+
+    /**
+     * Follows the spool file as it grows.
+     */
+    private class SpoolInputStream
+        extends InputStream
+    {
+      private final FileChannel channel;
+
+      private long position;
+
+      private SpoolInputStream(final FileChannel channel) {
+        this.channel = channel;
+      }
+
+      @Override
+      public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n < 0 ? -1 : b[0] & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+          return 0;
+        }
+        long available = awaitAvailable();
+        if (available < 0) {
+          return -1;
+        }
+        int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+        if (n > 0) {
+          position += n;
+        }
+        return n;
+      }
+
+      /**
+       * Waits until there are spooled bytes past our position, returning -1 once the end of the stream is reached.
+       * Gives up when the leader makes no progress within the follower timeout.
+       */
+      private long awaitAvailable() throws IOException {
+        long deadline = System.nanoTime() + followerTimeout.toNanos();
+        synchronized (lock) {
+          while (true) {
+            if (spooled > position) {
+              return spooled - position;
+            }
+            if (complete) {
+              return -1;
+            }
+            if (failure != null) {
+              throw new IOException(failure.getMessage(), failure.getCause());
+            }
+            long remaining = deadline - System.nanoTime();
+            if (!followerTimeout.isZero() && remaining <= 0) {
+              throw new IOException("Timed out waiting for shared download of " + flight.key);
+            }
+            try {
+              if (followerTimeout.isZero()) {
+                lock.wait();
+              }
+              else {
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+              }
+            }
+            catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new InterruptedIOException("Interrupted waiting for shared download of " + flight.key);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void close() throws IOException {
+        channel.close();
+      }
+    }
+  }
+}
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.search.index;
 
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 
@@ -44,6 +45,56 @@ public interface ElasticSearchIndexService
    */
   void rebuildIndex(Repository repository);
 
+  /**
+   * Starts rebuilding the index for the given repository into a new shadow index, while searches continue to use
+   * the existing index. Until the rebuild is finished or aborted, updates to the existing index are also written to
+   * the shadow index.
+   *
+   * @return {@code true} if the shadow index was created, {@code false} if the repository has no index
+   *
+   * @since 3.next
+   */
+  boolean startShadowRebuild(Repository repository);
+
+  /**
+   * Operation used to populate the shadow index of a rebuild, see {@link #bulkPutBytes} for details. Documents
+   * already updated while the rebuild was in progress are skipped, as the shadow index has a more recent copy.
+   *
+   * @since 3.next
+   */
+  <T> List<Future<Void>> bulkPutShadow(Repository repository,
+                                       Iterable<T> components,
+                                       Function<T, String> identifierProducer,
+                                       Function<T, byte[]> jsonDocumentProducer);
+
+  /**
+   * Returns the identifiers of documents updated or removed while the shadow index was being rebuilt.
+   *
+   * @since 3.next
+   */
+  Set<String> getShadowUpdates(Repository repository);
+
+  /**
+   * Waits for queued updates, including copies submitted by the rebuild, to reach the shadow index.
+   *
+   * @since 3.next
+   */
+  void flushShadowRebuild(Repository repository);
+
+  /**
+   * Atomically switches searches over to the shadow index and drops the old index.
+   *
+   * @since 3.next
+   */
+  void finishShadowRebuild(Repository repository);
+
+  /**
+   * Drops the shadow index, leaving the existing index in place.
+   *
+   * @since 3.next
+   */
+  void abortShadowRebuild(Repository repository);
+
   /**
    * Check search index exists for specific repository
    */
@@ -79,6 +130,18 @@ public interface ElasticSearchIndexService
                                  Function<T, String> identifierProducer,
                                  Function<T, String> jsonDocumentProducer);
 
+  /**
+   * Operation used for bulk updating of component index, with documents supplied as UTF-8 encoded JSON.
+   *
+   * This avoids building and then re-encoding a string for every document, see {@link #bulkPut} for details.
+   *
+   * @since 3.next
+   */
+  <T> List<Future<Void>> bulkPutBytes(Repository repository,
+                                      Iterable<T> components,
+                                      Function<T, String> identifierProducer,
+                                      Function<T, byte[]> jsonDocumentProducer);
+
   /**
    * Removes data with given identifier from index of given repository.
    */
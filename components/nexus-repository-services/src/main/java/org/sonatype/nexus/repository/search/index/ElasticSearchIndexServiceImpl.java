@@ -23,12 +23,16 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import javax.annotation.Nullable;
@@ -50,27 +54,35 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import org.elasticsearch.action.ActionListener;
-import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.stream.Collectors.toList;
@@ -90,6 +102,8 @@ public class ElasticSearchIndexServiceImpl
     extends ComponentSupport
     implements ElasticSearchIndexService
 {
+  private static final String CONAN = "conan";
+
   private final Provider<Client> client;
 
   private final List<IndexSettingsContributor> indexSettingsContributors;
@@ -108,6 +122,8 @@ public class ElasticSearchIndexServiceImpl
 
   private final ConcurrentMap<String, String> repositoryIndexNames = Maps.newConcurrentMap();
 
+  private final ConcurrentMap<String, ShadowIndex> shadowIndexes = Maps.newConcurrentMap();
+
   private Map<Integer, Entry<BulkProcessor, ExecutorService>> bulkProcessorToExecutors;
 
   /**
@@ -179,6 +195,11 @@ public class ElasticSearchIndexServiceImpl
   }
 
   private void createIndex(final Repository repository, final String indexName) {
+    createPhysicalIndex(repository, indexName);
+    repositoryIndexNames.put(repository.getName(), indexName);
+  }
+
+  private void createPhysicalIndex(final Repository repository, final String indexName) {
     // TODO we should calculate the checksum of index settings and compare it with a value stored in index _meta tags
     // in case that they not match (settings changed) we should drop the index, recreate it and re-index all components
     IndicesAdminClient indices = indicesAdminClient();
@@ -216,7 +237,6 @@ public class ElasticSearchIndexServiceImpl
         throw new UncheckedIOException(e);
       }
     }
-    repositoryIndexNames.put(repository.getName(), indexName);
   }
 
   @Override
@@ -227,6 +247,10 @@ public class ElasticSearchIndexServiceImpl
       log.debug("Removing index of {}", repository);
       deleteIndex(indexName);
     }
+    ShadowIndex shadowIndex = shadowIndexes.remove(repository.getName());
+    if (shadowIndex != null) {
+      deleteIndex(shadowIndex.indexName);
+    }
   }
 
   private void deleteIndex(final String indexName) {
@@ -234,9 +258,31 @@ public class ElasticSearchIndexServiceImpl
     flushBulkProcessors();
 
     IndicesAdminClient indices = indicesAdminClient();
+    for (String physicalIndexName : physicalIndexNames(indexName)) {
+      indices.prepareDelete(physicalIndexName).execute().actionGet();
+    }
+  }
+
+  /**
+   * Returns the names of the physical indexes behind the given index name, which may be an alias.
+   */
+  private List<String> physicalIndexNames(final String indexName) {
+    IndicesAdminClient indices = indicesAdminClient();
+    if (indices.prepareAliasesExist(indexName).execute().actionGet().exists()) {
+      ImmutableOpenMap<String, List<AliasMetaData>> aliases =
+          indices.prepareGetAliases(indexName).execute().actionGet().getAliases();
+      List<String> physicalIndexNames = new ArrayList<>();
+      aliases.keysIt().forEachRemaining(name -> {
+        if (!aliases.get(name).isEmpty()) {
+          physicalIndexNames.add(name);
+        }
+      });
+      return physicalIndexNames;
+    }
     if (indices.prepareExists(indexName).execute().actionGet().isExists()) {
-      indices.prepareDelete(indexName).execute().actionGet();
+      return singletonList(indexName);
     }
+    return emptyList();
   }
 
   @Override
@@ -250,6 +296,127 @@ public class ElasticSearchIndexServiceImpl
     }
   }
 
+  @Override
+  public boolean startShadowRebuild(final Repository repository) {
+    checkNotNull(repository);
+    String indexName = repositoryIndexNames.get(repository.getName());
+    if (indexName == null) {
+      return false;
+    }
+    abortShadowRebuild(repository);
+    dropOrphanedIndexes(indexName);
+
+    String shadowIndexName = indexNamingPolicy.newIndexName(repository);
+    log.debug("Rebuilding index for {} into shadow index {}", repository, shadowIndexName);
+    createPhysicalIndex(repository, shadowIndexName);
+    shadowIndexes.put(repository.getName(), new ShadowIndex(shadowIndexName));
+    return true;
+  }
+
+  /**
+   * Drops shadow indexes left behind by rebuilds that never finished, for example because the node was stopped.
+   */
+  private void dropOrphanedIndexes(final String indexName) {
+    IndicesAdminClient indices = indicesAdminClient();
+    List<String> liveIndexNames = physicalIndexNames(indexName);
+    for (String candidate : indices.prepareGetIndex().setIndices(indexName + "-*").execute().actionGet().getIndices()) {
+      if (!liveIndexNames.contains(candidate)) {
+        log.info("Dropping orphaned search index {}", candidate);
+        indices.prepareDelete(candidate).execute().actionGet();
+      }
+    }
+  }
+
+  @Override
+  public <T> List<Future<Void>> bulkPutShadow(final Repository repository,
+                                              final Iterable<T> components,
+                                              final Function<T, String> identifierProducer,
+                                              final Function<T, byte[]> jsonDocumentProducer)
+  {
+    checkNotNull(repository);
+    checkNotNull(components);
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    if (shadowIndex == null) {
+      return emptyList();
+    }
+    // documents updated during the rebuild are already more recent in the shadow index
+    return bulkPut(components, identifierProducer, filterConanAssetAttributes(repository, jsonDocumentProducer),
+        IndexRequestBuilder::setSource,
+        identifier -> shadowIndex.updates.contains(identifier)
+            ? emptyList()
+            : singletonList(shadowIndex.indexName));
+  }
+
+  @Override
+  public Set<String> getShadowUpdates(final Repository repository) {
+    checkNotNull(repository);
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    return shadowIndex != null ? ImmutableSet.copyOf(shadowIndex.updates) : ImmutableSet.of();
+  }
+
+  @Override
+  public void flushShadowRebuild(final Repository repository) {
+    checkNotNull(repository);
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    if (shadowIndex != null) {
+      flushBulkProcessors().forEach(this::waitForFlush);
+      indicesAdminClient().prepareRefresh(shadowIndex.indexName).execute().actionGet();
+    }
+  }
+
+  @Override
+  public void finishShadowRebuild(final Repository repository) {
+    checkNotNull(repository);
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    if (shadowIndex == null) {
+      return;
+    }
+    String indexName = repositoryIndexNames.get(repository.getName());
+    if (indexName == null) {
+      abortShadowRebuild(repository); // repository has gone
+      return;
+    }
+
+    // make sure pending updates have reached the shadow index before searches switch over to it; the shadow index
+    // stays registered until the switch is done so updates arriving meanwhile still reach it
+    flushBulkProcessors().forEach(this::waitForFlush);
+    IndicesAdminClient indices = indicesAdminClient();
+    indices.prepareRefresh(shadowIndex.indexName).execute().actionGet();
+
+    // drop the old indexes in the same request, so there's no moment where a live update could auto-create a
+    // concrete index under the alias name (the live index may predate aliases and have that name itself)
+    IndicesAliasesRequestBuilder swap = indices.prepareAliases().addAlias(shadowIndex.indexName, indexName);
+    physicalIndexNames(indexName).forEach(
+        oldIndexName -> swap.addAliasAction(AliasActions.removeIndex().index(oldIndexName)));
+    swap.execute().actionGet();
+
+    shadowIndexes.remove(repository.getName(), shadowIndex);
+    log.debug("Switched index for {} over to {}", repository, shadowIndex.indexName);
+  }
+
+  @Override
+  public void abortShadowRebuild(final Repository repository) {
+    checkNotNull(repository);
+    ShadowIndex shadowIndex = shadowIndexes.remove(repository.getName());
+    if (shadowIndex != null) {
+      log.debug("Dropping shadow index {} of {}", shadowIndex.indexName, repository);
+      deleteIndex(shadowIndex.indexName);
+    }
+  }
+
+  private void waitForFlush(final Future<Void> flush) {
+    try {
+      flush.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for search index updates", e);
+    }
+    catch (ExecutionException e) {
+      log.warn("Problem flushing search index updates", e.getCause());
+    }
+  }
+
   @Override
   public boolean indexExist(final Repository repository) {
     checkNotNull(repository);
@@ -265,10 +432,10 @@ public class ElasticSearchIndexServiceImpl
     checkNotNull(repository);
     String indexName = indexNamingPolicy.indexName(repository);
 
-    IndexStats indexStats = indicesAdminClient().prepareStats(indexName).get().getIndex(indexName);
+    // the index name may be an alias, so use the total across the physical indexes behind it
     long count = 0;
-    if (indexStats != null) {
-      count = indexStats.getTotal().getDocs().getCount();
+    if (!physicalIndexNames(indexName).isEmpty()) {
+      count = indicesAdminClient().prepareStats(indexName).get().getTotal().getDocs().getCount();
     }
 
     boolean isEmpty = count == 0;
@@ -287,6 +454,16 @@ public class ElasticSearchIndexServiceImpl
     }
     updateCount.getAndIncrement();
     log.debug("Adding to index document {} from {}: {}", identifier, repository, json);
+    putDocument(indexName, identifier, json);
+
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    if (shadowIndex != null) {
+      shadowIndex.updates.add(identifier);
+      putDocument(shadowIndex.indexName, identifier, json);
+    }
+  }
+
+  private void putDocument(final String indexName, final String identifier, final String json) {
     client.get().prepareIndex(indexName, TYPE, identifier).setSource(json).execute(
         new ActionListener<IndexResponse>() {
           @Override
@@ -315,6 +492,69 @@ public class ElasticSearchIndexServiceImpl
       return emptyList();
     }
 
+    Function<T, String> filteredDocumentProducer = component -> {
+      String json = jsonDocumentProducer.apply(component);
+      return json != null ? filterConanAssetAttributes(json) : null;
+    };
+    return bulkPut(components, identifierProducer, filteredDocumentProducer, IndexRequestBuilder::setSource,
+        liveIndexNames(repository, indexName));
+  }
+
+  @Override
+  public <T> List<Future<Void>> bulkPutBytes(final Repository repository,
+                                             final Iterable<T> components,
+                                             final Function<T, String> identifierProducer,
+                                             final Function<T, byte[]> jsonDocumentProducer)
+  {
+    checkNotNull(repository);
+    checkNotNull(components);
+    String indexName = repositoryIndexNames.get(repository.getName());
+    if (indexName == null) {
+      return emptyList();
+    }
+
+    return bulkPut(components, identifierProducer, filterConanAssetAttributes(repository, jsonDocumentProducer),
+        IndexRequestBuilder::setSource, liveIndexNames(repository, indexName));
+  }
+
+  /**
+   * Returns the indexes that should receive updates to the given repository's index, including any shadow index.
+   */
+  private Function<String, List<String>> liveIndexNames(final Repository repository, final String indexName) {
+    return identifier -> {
+      ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+      if (shadowIndex == null) {
+        return singletonList(indexName);
+      }
+      shadowIndex.updates.add(identifier);
+      return asList(indexName, shadowIndex.indexName);
+    };
+  }
+
+  /**
+   * Only Conan documents need filtering, so avoid decoding documents from other repositories.
+   */
+  private static <T> Function<T, byte[]> filterConanAssetAttributes(final Repository repository,
+                                                                    final Function<T, byte[]> jsonDocumentProducer)
+  {
+    if (!CONAN.equals(repository.getFormat().getValue())) {
+      return jsonDocumentProducer;
+    }
+    return component -> {
+      byte[] json = jsonDocumentProducer.apply(component);
+      return json != null ? filterConanAssetAttributes(new String(json, UTF_8)).getBytes(UTF_8) : null;
+    };
+  }
+
+  /**
+   * Submits index requests for the components to the indexes picked for each identifier.
+   */
+  private <T, D> List<Future<Void>> bulkPut(final Iterable<T> components,
+                                            final Function<T, String> identifierProducer,
+                                            final Function<T, D> jsonDocumentProducer,
+                                            final BiFunction<IndexRequestBuilder, D, IndexRequestBuilder> source,
+                                            final Function<String, List<String>> indexNamesProducer)
+  {
     final Entry<BulkProcessor, ExecutorService> bulkProcessorToExecutorPair = pickABulkProcessor();
     final BulkProcessor bulkProcessor = bulkProcessorToExecutorPair.getKey();
     final ExecutorService executorService = bulkProcessorToExecutorPair.getValue();
@@ -323,14 +563,19 @@ public class ElasticSearchIndexServiceImpl
     components.forEach(component -> {
       checkCancellation();
       String identifier = identifierProducer.apply(component);
-      String json = jsonDocumentProducer.apply(component);
+      List<String> indexNames = indexNamesProducer.apply(identifier);
+      if (indexNames.isEmpty()) {
+        return;
+      }
+      D json = jsonDocumentProducer.apply(component);
       if (json != null) {
-        json = filterConanAssetAttributes(json);
         updateCount.getAndIncrement();
 
-        log.debug("Bulk adding to index document {} from {}: {}", identifier, repository, json);
-        futures.add(executorService.submit(
-            new BulkProcessorUpdater<>(bulkProcessor, createIndexRequest(indexName, identifier, json))));
+        log.debug("Bulk adding to index document {} in {}", identifier, indexNames);
+        for (String indexName : indexNames) {
+          IndexRequest request = source.apply(client.get().prepareIndex(indexName, TYPE, identifier), json).request();
+          futures.add(executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, request)));
+        }
       }
     });
 
@@ -393,12 +638,6 @@ public class ElasticSearchIndexServiceImpl
     }
   }
 
-  private IndexRequest createIndexRequest(final String indexName, final String identifier, final String json) {
-    return client.get()
-        .prepareIndex(indexName, TYPE, identifier)
-        .setSource(json).request();
-  }
-
   @Override
   public void delete(final Repository repository, final String identifier) {
     checkNotNull(repository);
@@ -408,6 +647,16 @@ public class ElasticSearchIndexServiceImpl
       return;
     }
     log.debug("Removing from index document {} from {}", identifier, repository);
+    deleteDocument(indexName, identifier);
+
+    ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+    if (shadowIndex != null) {
+      shadowIndex.updates.add(identifier);
+      deleteDocument(shadowIndex.indexName, identifier);
+    }
+  }
+
+  private void deleteDocument(final String indexName, final String identifier) {
     client.get().prepareDelete(indexName, TYPE, identifier).execute(new ActionListener<DeleteResponse>() {
       @Override
       public void onResponse(final DeleteResponse deleteResponse) {
@@ -439,6 +688,13 @@ public class ElasticSearchIndexServiceImpl
         log.debug("Bulk removing from index document {} from {}", id, repository);
         final DeleteRequest deleteRequest = client.get().prepareDelete(indexName, TYPE, id).request();
         executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, deleteRequest));  //NOSONAR
+
+        ShadowIndex shadowIndex = shadowIndexes.get(repository.getName());
+        if (shadowIndex != null) {
+          shadowIndex.updates.add(id);
+          final DeleteRequest shadowRequest = client.get().prepareDelete(shadowIndex.indexName, TYPE, id).request();
+          executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, shadowRequest));  //NOSONAR
+        }
       });
     }
     else {
@@ -578,4 +834,21 @@ public class ElasticSearchIndexServiceImpl
   private IndicesAdminClient indicesAdminClient() {
     return client.get().admin().indices();
   }
+
+  /**
+   * Physical index being rebuilt in the background for a repository.
+   */
+  private static class ShadowIndex
+  {
+    private final String indexName;
+
+    /**
+     * Identifiers of documents updated or removed since the rebuild started.
+     */
+    private final Set<String> updates = ConcurrentHashMap.newKeySet();
+
+    private ShadowIndex(final String indexName) {
+      this.indexName = indexName;
+    }
+  }
 }
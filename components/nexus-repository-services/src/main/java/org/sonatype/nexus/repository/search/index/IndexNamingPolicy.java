@@ -25,4 +25,14 @@ public interface IndexNamingPolicy
    * Returns the index name for the given repository.
    */
   String indexName(Repository repository);
+
+  /**
+   * Returns a new physical index name for the given repository; used when rebuilding its index in the background,
+   * after which {@link #indexName} becomes an alias of this index.
+   *
+   * @since 3.next
+   */
+  default String newIndexName(final Repository repository) {
+    return indexName(repository) + "-" + System.currentTimeMillis();
+  }
 }
@@ -13,11 +13,15 @@
  */
 package org.sonatype.nexus.repository.security.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -50,6 +54,9 @@ public class ContentPermissionCheckerImpl
 
   private final SelectorManager selectorManager;
 
+  @Nullable
+  private RepositoryPermissionIndex permissionIndex;
+
   @Inject
   public ContentPermissionCheckerImpl(final SecurityHelper securityHelper,
                                       final SelectorManager selectorManager) {
@@ -57,21 +64,93 @@ public class ContentPermissionCheckerImpl
     this.selectorManager = checkNotNull(selectorManager);
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setPermissionIndex(final RepositoryPermissionIndex permissionIndex) {
+    this.permissionIndex = permissionIndex;
+  }
+
   @VisibleForTesting
   public boolean isViewPermitted(final String repositoryName, final String repositoryFormat, final String action) {
+    if (isIndexed()) {
+      return permissionIndex.isViewPermitted(repositoryName, repositoryFormat, action);
+    }
     return securityHelper.anyPermitted(new RepositoryViewPermission(repositoryFormat, repositoryName, action));
   }
 
   @VisibleForTesting
   public boolean isViewPermitted(final String repositoryName, final String repositoryFormat, final String... actions) {
+    if (isIndexed()) {
+      return isIndexedViewPermitted(Collections.singleton(repositoryName), repositoryFormat, actions);
+    }
     return securityHelper.anyPermitted(permissionsFor(repositoryName, repositoryFormat, actions));
   }
 
   @VisibleForTesting
   public boolean isViewPermitted(final Set<String> repoNames, final String repositoryFormat, final String... actions) {
+    if (isIndexed()) {
+      return isIndexedViewPermitted(repoNames, repositoryFormat, actions);
+    }
     return securityHelper.anyPermitted(permissionsFor(repoNames, repositoryFormat, actions));
   }
 
+  private boolean isIndexed() {
+    return permissionIndex != null && permissionIndex.isEnabled();
+  }
+
+  private boolean isIndexedViewPermitted(
+      final Collection<String> repositoryNames,
+      final String repositoryFormat,
+      final String... actions)
+  {
+    for (String repositoryName : repositoryNames) {
+      for (String action : actions) {
+        if (permissionIndex.isViewPermitted(repositoryName, repositoryFormat, action)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Evaluates the selectors the subject has privileges for together, so their common conditions are only checked once.
+   */
+  private boolean anyPermittedSelectorMatches(
+      final List<SelectorConfiguration> selectors,
+      final Collection<String> repositoryNames,
+      final String repositoryFormat,
+      final VariableSource variableSource,
+      final String... actions)
+  {
+    List<SelectorConfiguration> permitted = new ArrayList<>();
+    for (SelectorConfiguration selector : selectors) {
+      if (isIndexedSelectorPermitted(selector, repositoryNames, repositoryFormat, actions)) {
+        permitted.add(selector);
+      }
+    }
+    return !permitted.isEmpty() && selectorManager.evaluateAny(permitted, variableSource);
+  }
+
+  private boolean isIndexedSelectorPermitted(
+      final SelectorConfiguration selectorConfiguration,
+      final Collection<String> repositoryNames,
+      final String repositoryFormat,
+      final String... actions)
+  {
+    for (String repositoryName : repositoryNames) {
+      for (String action : actions) {
+        if (permissionIndex.isSelectorPermitted(
+            selectorConfiguration.getName(), repositoryName, repositoryFormat, action)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private static RepositoryViewPermission[] permissionsFor(final String repositoryName, final String repositoryFormat, final String... actions) {
     return permissionsStreamFor(repositoryName, repositoryFormat, actions)
         .toArray(RepositoryViewPermission[]::new);
@@ -103,6 +182,9 @@ public class ContentPermissionCheckerImpl
 
   @VisibleForTesting
   public boolean isViewPermitted(final Set<String> repositoryNames, final String repositoryFormat, final String action) {
+    if (isIndexed()) {
+      return isIndexedViewPermitted(repositoryNames, repositoryFormat, action);
+    }
     RepositoryViewPermission[] perms = permissionsFor(repositoryNames, repositoryFormat, action);
     if (perms.length > 0) {
       return securityHelper.anyPermitted(perms);
@@ -117,10 +199,14 @@ public class ContentPermissionCheckerImpl
                                     final SelectorConfiguration selectorConfiguration,
                                     final VariableSource variableSource)
   {
-    RepositoryContentSelectorPermission perm = new RepositoryContentSelectorPermission(
-        selectorConfiguration.getName(), repositoryFormat, repositoryName, Arrays.asList(action));
-
     try {
+      if (isIndexed()) {
+        return isIndexedSelectorPermitted(selectorConfiguration, Collections.singleton(repositoryName),
+            repositoryFormat, action) && selectorManager.evaluate(selectorConfiguration, variableSource);
+      }
+
+      RepositoryContentSelectorPermission perm = new RepositoryContentSelectorPermission(
+          selectorConfiguration.getName(), repositoryFormat, repositoryName, Arrays.asList(action));
       // make sure subject has the selector permission before evaluating it, because that's a cheaper/faster check
       return securityHelper.anyPermitted(perm) && selectorManager.evaluate(selectorConfiguration, variableSource);
     }
@@ -144,6 +230,11 @@ public class ContentPermissionCheckerImpl
                                          final String... actions)
   {
     try {
+      if (isIndexed()) {
+        return isIndexedSelectorPermitted(selectorConfiguration, Collections.singleton(repositoryName),
+            repositoryFormat, actions) && selectorManager.evaluate(selectorConfiguration, variableSource);
+      }
+
       Permission[] permissions = contentPermissionsFor(repositoryName, repositoryFormat, selectorConfiguration, actions);
       // make sure subject has the selector permission before evaluating it, because that's a cheaper/faster check
       return securityHelper.anyPermitted(permissions) && selectorManager.evaluate(selectorConfiguration, variableSource);
@@ -164,6 +255,11 @@ public class ContentPermissionCheckerImpl
                                          final String... actions)
   {
     try {
+      if (isIndexed()) {
+        return isIndexedSelectorPermitted(selectorConfiguration, repositoryNames, repositoryFormat, actions)
+            && selectorManager.evaluate(selectorConfiguration, variableSource);
+      }
+
       Permission[] permissions = repositoryNames.stream()
           .flatMap(repoName -> contentPermissionsStreamFor(selectorConfiguration.getName(), repositoryFormat, repoName, actions))
           .toArray(Permission[]::new);
@@ -193,6 +289,17 @@ public class ContentPermissionCheckerImpl
                                     final SelectorConfiguration selectorConfiguration,
                                     final VariableSource variableSource)
   {
+    if (isIndexed()) {
+      try {
+        return isIndexedSelectorPermitted(selectorConfiguration, repositoryNames, repositoryFormat, action)
+            && selectorManager.evaluate(selectorConfiguration, variableSource);
+      }
+      catch (SelectorEvaluationException e) {
+        logMsgAndMaybeException(e);
+      }
+      return false;
+    }
+
     RepositoryContentSelectorPermission[] perms = repositoryNames.stream().map(
         repositoryName -> new RepositoryContentSelectorPermission(selectorConfiguration.getName(), repositoryFormat,
             repositoryName, Arrays.asList(action))).toArray(RepositoryContentSelectorPermission[]::new);
@@ -224,6 +331,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryName, repositoryFormat, action)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browse(), Collections.singleton(repositoryName),
+          repositoryFormat, variableSource, action);
+    }
     //otherwise check the content selector perms
     return selectorManager.browse().stream()
         .anyMatch(config -> isContentPermitted(repositoryName, repositoryFormat, action, config, variableSource));
@@ -239,6 +350,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryName, repositoryFormat, action)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browseJexl(), Collections.singleton(repositoryName),
+          repositoryFormat, variableSource, action);
+    }
     // otherwise check the content selector perms
     return selectorManager.browseJexl().stream()
         .anyMatch(config -> isContentPermitted(repositoryName, repositoryFormat, action, config, variableSource));
@@ -257,6 +372,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryNames, repositoryFormat, action)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browse(), repositoryNames, repositoryFormat, variableSource,
+          action);
+    }
     return selectorManager.browseActive(repositoryNames, Collections.singletonList(repositoryFormat)).stream()
         .anyMatch(config -> isContentPermitted(repositoryNames, repositoryFormat, action, config, variableSource));
   }
@@ -272,6 +391,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryName, repositoryFormat, actions)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browseJexl(), Collections.singleton(repositoryName),
+          repositoryFormat, variableSource, actions);
+    }
     // otherwise check the content selector perms
     return selectorManager.browseJexl().stream()
         .anyMatch(config -> isContentPermittedAnyOf(repositoryName, repositoryFormat, config, variableSource, actions));
@@ -288,6 +411,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryName, repositoryFormat, actions)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browse(), Collections.singleton(repositoryName),
+          repositoryFormat, variableSource, actions);
+    }
     //otherwise check the content selector perms
     return selectorManager.browse().stream()
         .anyMatch(config -> isContentPermittedAnyOf(repositoryName, repositoryFormat, config, variableSource, actions));
@@ -307,6 +434,10 @@ public class ContentPermissionCheckerImpl
     if (isViewPermitted(repositoryNames, repositoryFormat, actions)) {
       return true;
     }
+    if (isIndexed()) {
+      return anyPermittedSelectorMatches(selectorManager.browse(), repositoryNames, repositoryFormat, variableSource,
+          actions);
+    }
     return selectorManager.browse().stream()
         .anyMatch(config -> isContentPermittedAnyOf(repositoryNames, repositoryFormat, config, variableSource, actions));
   }
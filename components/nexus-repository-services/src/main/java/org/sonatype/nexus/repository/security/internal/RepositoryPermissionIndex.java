@@ -0,0 +1,262 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.common.event.EventHelper;
+import org.sonatype.nexus.distributed.event.service.api.common.AuthorizationChangedDistributedEvent;
+import org.sonatype.nexus.repository.security.RepositoryContentSelectorPermission;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.selector.SelectorConfiguration;
+import org.sonatype.nexus.selector.SelectorManager;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Per-subject index of repository view decisions and permitted content selectors.
+ *
+ * Repository view and content selector permissions only change when the authorization configuration does, so the
+ * outcome of checking them is recorded per subject, keyed by format, repository and action. Later checks are then
+ * plain map lookups rather than matching freshly built permissions against every permission of the subject. For
+ * content selectors the index records which selectors the subject holds a privilege for, so only those have to be
+ * evaluated.
+ *
+ * Subjects are identified by their principals, entries expire after {@code nexus.shiro.cache.defaultTimeToLive} like
+ * the realm authorization caches (roles from external realms can change without notice), and the whole index is
+ * cleared whenever the authorization configuration changes. Each change also bumps the version of the index, so
+ * decisions that were still being computed under the previous configuration are discarded rather than recorded.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+class RepositoryPermissionIndex
+    extends ComponentSupport
+    implements EventAware
+{
+  private final SecurityHelper securityHelper;
+
+  private final SelectorManager selectorManager;
+
+  private final boolean enabled;
+
+  private final Cache<PrincipalCollection, SubjectPermissions> subjects;
+
+  private final AtomicLong version = new AtomicLong();
+
+  @Inject
+  public RepositoryPermissionIndex(
+      final SecurityHelper securityHelper,
+      final SelectorManager selectorManager,
+      @Named("${nexus.security.permissionIndex.enabled:-true}") final boolean enabled,
+      @Named("${nexus.security.permissionIndex.maxSubjects:-10000}") final int maxSubjects,
+      @Named("${nexus.shiro.cache.defaultTimeToLive:-2m}") final Time timeToLive)
+  {
+    checkArgument(maxSubjects > 0, "nexus.security.permissionIndex.maxSubjects must be positive");
+    this.securityHelper = checkNotNull(securityHelper);
+    this.selectorManager = checkNotNull(selectorManager);
+    this.enabled = enabled;
+    this.subjects = CacheBuilder.newBuilder()
+        .maximumSize(maxSubjects)
+        .expireAfterWrite(timeToLive.toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Does the current subject have the repository view permission for the given action?
+   */
+  public boolean isViewPermitted(final String repositoryName, final String repositoryFormat, final String action) {
+    Subject subject = securityHelper.subject();
+    long current = version.get();
+    Decisions decisions = decisions(subject, repositoryName, repositoryFormat, action, current);
+    if (decisions == null) {
+      return securityHelper.anyPermitted(subject, new RepositoryViewPermission(repositoryFormat, repositoryName, action));
+    }
+
+    Boolean permitted = decisions.view;
+    if (permitted == null) {
+      permitted = securityHelper.anyPermitted(subject,
+          new RepositoryViewPermission(repositoryFormat, repositoryName, action));
+      if (version.get() == current) {
+        decisions.view = permitted;
+      }
+    }
+    return permitted;
+  }
+
+  /**
+   * Does the current subject have the content selector permission of the given selector for the given action?
+   */
+  public boolean isSelectorPermitted(
+      final String selectorName,
+      final String repositoryName,
+      final String repositoryFormat,
+      final String action)
+  {
+    Subject subject = securityHelper.subject();
+    long current = version.get();
+    Decisions decisions = decisions(subject, repositoryName, repositoryFormat, action, current);
+    if (decisions == null) {
+      return securityHelper.anyPermitted(subject, new RepositoryContentSelectorPermission(
+          selectorName, repositoryFormat, repositoryName, Collections.singletonList(action)));
+    }
+
+    Set<String> selectors = decisions.selectors;
+    if (selectors == null) {
+      selectors = selectorManager.browse().stream()
+          .map(SelectorConfiguration::getName)
+          .filter(name -> securityHelper.anyPermitted(subject, new RepositoryContentSelectorPermission(
+              name, repositoryFormat, repositoryName, Collections.singletonList(action))))
+          .collect(toSet());
+      if (version.get() == current) {
+        decisions.selectors = selectors;
+      }
+    }
+    return selectors.contains(selectorName);
+  }
+
+  @VisibleForTesting
+  long size() {
+    return subjects.size();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationConfigurationChanged event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationChangedDistributedEvent event) {
+    if (EventHelper.isReplicating()) {
+      invalidate();
+    }
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserPrincipalsExpired event) {
+    invalidate();
+  }
+
+  private void invalidate() {
+    version.incrementAndGet();
+    subjects.invalidateAll();
+    log.trace("Permission index invalidated");
+  }
+
+  /**
+   * Returns the recorded decisions of the subject for the given format, repository and action, or {@code null} when
+   * the subject has no principals to identify it by. Decisions recorded under an older version of the index are
+   * replaced.
+   */
+  @Nullable
+  private Decisions decisions(
+      final Subject subject,
+      final String repositoryName,
+      final String repositoryFormat,
+      final String action,
+      final long current)
+  {
+    if (!enabled) {
+      return null;
+    }
+    PrincipalCollection principals = subject.getPrincipals();
+    if (principals == null || principals.isEmpty()) {
+      return null;
+    }
+
+    SubjectPermissions permissions = subjects.getIfPresent(principals);
+    if (permissions == null || permissions.version < current) {
+      // entries can be added by a lookup racing with invalidation, so keep whichever is the most recent
+      permissions = subjects.asMap().merge(principals, new SubjectPermissions(current),
+          (existing, created) -> existing.version < created.version ? created : existing);
+    }
+    return permissions.get(repositoryFormat, repositoryName, action);
+  }
+
+  /**
+   * Decisions of a single subject, by format, repository and action.
+   */
+  private static class SubjectPermissions
+  {
+    private final long version;
+
+    private final Map<String, Map<String, Map<String, Decisions>>> formats = new ConcurrentHashMap<>();
+
+    private SubjectPermissions(final long version) {
+      this.version = version;
+    }
+
+    private Decisions get(final String repositoryFormat, final String repositoryName, final String action) {
+      // look up before computing so the common case doesn't allocate
+      Map<String, Map<String, Decisions>> repositories = formats.get(repositoryFormat);
+      if (repositories == null) {
+        repositories = formats.computeIfAbsent(repositoryFormat, key -> new ConcurrentHashMap<>());
+      }
+      Map<String, Decisions> actions = repositories.get(repositoryName);
+      if (actions == null) {
+        actions = repositories.computeIfAbsent(repositoryName, key -> new ConcurrentHashMap<>());
+      }
+      Decisions decisions = actions.get(action);
+      if (decisions == null) {
+        decisions = actions.computeIfAbsent(action, key -> new Decisions());
+      }
+      return decisions;
+    }
+  }
+
+  /**
+   * Decisions for a format, repository and action; computing them twice concurrently is harmless.
+   */
+  private static class Decisions
+  {
+    @Nullable
+    private volatile Boolean view;
+
+    @Nullable
+    private volatile Set<String> selectors;
+  }
+}
@@ -292,6 +292,32 @@ class NegativeCacheFacetImplTest
     verify(cache).remove(key2)
   }
 
+  /**
+   * Given:
+   * - configuration present
+   * - enabled = true
+   * - trie enabled
+   * Then:
+   * - no JCache is created
+   * - entries are cached and invalidated by subset
+   */
+  @Test
+  void 'trie caches and invalidates subsets'() {
+    config.enabled = true
+    underTest = new NegativeCacheFacetImpl(cacheHelper, true, 10)
+    underTest.installDependencies(mock(EventManager))
+    underTest.attach(repository)
+    underTest.init()
+    underTest.start()
+    verify(cacheHelper, never()).maybeCreateCache(any(), any(), any(), any())
+    def parent = new PathNegativeCacheKey('/a/')
+    def child = new PathNegativeCacheKey('/a/b.jar')
+    underTest.put(child, status)
+    assert underTest.get(child) == status
+    underTest.invalidateSubset(parent)
+    assert underTest.get(child) == null
+  }
+
   static void mockIterable(Cache<?,?> iterable, Object... values) {
     Iterator<?> mockIterator = mock(Iterator)
     when(iterable.iterator()).thenReturn(mockIterator)
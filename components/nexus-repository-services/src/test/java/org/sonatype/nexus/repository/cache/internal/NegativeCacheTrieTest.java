@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.cache.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.cache.NegativeCacheKey;
+import org.sonatype.nexus.repository.http.HttpStatus;
+import org.sonatype.nexus.repository.view.Status;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link NegativeCacheTrie}.
+ */
+public class NegativeCacheTrieTest
+    extends TestSupport
+{
+  private static final Status NOT_FOUND = Status.failure(HttpStatus.NOT_FOUND, "404");
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private NegativeCacheTrie underTest = new NegativeCacheTrie(1000, 100, clock::get);
+
+  @Test
+  public void putAndGet() {
+    underTest.put(path("/a/b/c.jar"), NOT_FOUND);
+    underTest.put(new ValueNegativeCacheKey("value"), NOT_FOUND);
+
+    assertThat(underTest.get(path("/a/b/c.jar")), is(NOT_FOUND));
+    assertThat(underTest.get(new ValueNegativeCacheKey("value")), is(NOT_FOUND));
+    assertThat(underTest.get(path("/a/b/")), nullValue());
+    assertThat(underTest.get(path("/a/b/c.ja")), nullValue());
+    assertThat(underTest.size(), is(2));
+    assertThat(underTest.hitCount(), is(2L));
+    assertThat(underTest.missCount(), is(2L));
+  }
+
+  @Test
+  public void invalidateSubsetRemovesParentAndChildren() {
+    underTest.put(path("/a/"), NOT_FOUND);
+    underTest.put(path("/a/b/c.jar"), NOT_FOUND);
+    underTest.put(path("/a/b/d.jar"), NOT_FOUND);
+    underTest.put(path("/ab/c.jar"), NOT_FOUND);
+    underTest.put(path("/a"), NOT_FOUND);
+
+    underTest.invalidateSubset(path("/a/"));
+
+    assertThat(underTest.get(path("/a/")), nullValue());
+    assertThat(underTest.get(path("/a/b/c.jar")), nullValue());
+    assertThat(underTest.get(path("/a/b/d.jar")), nullValue());
+    assertThat(underTest.get(path("/ab/c.jar")), is(NOT_FOUND));
+    assertThat(underTest.get(path("/a")), is(NOT_FOUND));
+    assertThat(underTest.size(), is(2));
+  }
+
+  @Test
+  public void invalidateSubsetOfFileOnlyRemovesFile() {
+    underTest.put(path("/a/b"), NOT_FOUND);
+    underTest.put(path("/a/b/c.jar"), NOT_FOUND);
+
+    underTest.invalidateSubset(path("/a/b"));
+
+    assertThat(underTest.get(path("/a/b")), nullValue());
+    assertThat(underTest.get(path("/a/b/c.jar")), is(NOT_FOUND));
+  }
+
+  @Test
+  public void entriesExpire() {
+    underTest.put(path("/a/b.jar"), NOT_FOUND);
+    clock.set(500);
+    underTest.put(path("/a/c.jar"), NOT_FOUND);
+    clock.set(1000);
+
+    assertThat(underTest.get(path("/a/b.jar")), nullValue());
+    assertThat(underTest.get(path("/a/c.jar")), is(NOT_FOUND));
+
+    underTest.put(path("/a/d.jar"), NOT_FOUND);
+    assertThat(underTest.size(), is(2));
+  }
+
+  @Test
+  public void oldestEntriesAreEvicted() {
+    underTest = new NegativeCacheTrie(1000, 2, clock::get);
+    underTest.put(path("/a/1"), NOT_FOUND);
+    underTest.put(path("/a/2"), NOT_FOUND);
+    underTest.put(path("/a/1"), NOT_FOUND);
+    underTest.put(path("/a/3"), NOT_FOUND);
+
+    assertThat(underTest.get(path("/a/2")), nullValue());
+    assertThat(underTest.get(path("/a/1")), is(NOT_FOUND));
+    assertThat(underTest.get(path("/a/3")), is(NOT_FOUND));
+    assertThat(underTest.evictionCount(), is(1L));
+  }
+
+  @Test
+  public void detachedEntriesAreNotEvicted() {
+    underTest = new NegativeCacheTrie(1000, 2, clock::get);
+    underTest.put(path("/a/1"), NOT_FOUND);
+    underTest.invalidateSubset(path("/a/"));
+    underTest.put(path("/a/1"), NOT_FOUND);
+    underTest.put(path("/a/2"), NOT_FOUND);
+
+    assertThat(underTest.get(path("/a/1")), is(NOT_FOUND));
+    assertThat(underTest.get(path("/a/2")), is(NOT_FOUND));
+    assertThat(underTest.evictionCount(), is(0L));
+  }
+
+  private static NegativeCacheKey path(final String path) {
+    return new PathNegativeCacheKey(path);
+  }
+}
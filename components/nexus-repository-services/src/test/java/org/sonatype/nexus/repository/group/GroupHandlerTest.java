@@ -12,14 +12,17 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.group.GroupHandler.DispatchedRepositories;
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
 import org.sonatype.nexus.repository.view.ViewFacet;
 
 import org.junit.Before;
@@ -30,6 +33,8 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -51,6 +56,9 @@ public class GroupHandlerTest
   @Mock
   private Request request;
 
+  @Mock
+  private Repository group;
+
   @Mock
   private Repository proxy1;
 
@@ -152,6 +160,61 @@ public class GroupHandlerTest
     verify(viewFacet2, times(0)).dispatch(request, context);
   }
 
+  @Test
+  public void cachedMemberIsTriedFirst() throws Exception {
+    GroupMemberLocationCache memberLocationCache = new GroupMemberLocationCache(true, 100, Duration.ofMinutes(10));
+    underTest.setMemberLocationCache(memberLocationCache);
+    when(group.getName()).thenReturn("Group");
+    when(context.getRepository()).thenReturn(group);
+    when(request.getPath()).thenReturn("/foo/bar.jar");
+
+    Response ok2 = ok();
+    setupDispatch(notFound(), ok2);
+
+    assertGetFirst(ok2);
+    assertThat(memberLocationCache.get(group, "/foo/bar.jar"), is("Proxy 2"));
+
+    assertGetFirst(ok2);
+    verify(viewFacet1, times(1)).dispatch(request, context);
+    verify(viewFacet2, times(2)).dispatch(request, context);
+
+    // the cached member no longer has the path, so all members are asked again
+    Response ok1 = ok();
+    setupDispatch(ok1, notFound());
+
+    assertGetFirst(ok1);
+    assertThat(memberLocationCache.get(group, "/foo/bar.jar"), is("Proxy 1"));
+  }
+
+  @Test
+  public void invalidResponseFromCachedMemberIsClosed() throws Exception {
+    GroupMemberLocationCache memberLocationCache = new GroupMemberLocationCache(true, 100, Duration.ofMinutes(10));
+    underTest.setMemberLocationCache(memberLocationCache);
+    when(group.getName()).thenReturn("Group");
+    when(context.getRepository()).thenReturn(group);
+    when(request.getPath()).thenReturn("/foo/bar.jar");
+    memberLocationCache.put(group, "/foo/bar.jar", proxy2);
+
+    Payload payload = mock(Payload.class);
+    Response ok1 = ok();
+    setupDispatch(ok1, new Response.Builder().status(Status.failure(NOT_FOUND)).payload(payload).build());
+
+    assertGetFirst(ok1);
+    verify(payload).close();
+  }
+
+  @Test
+  public void cachedMembersAreSharedByRequestAndAssetPaths() {
+    GroupMemberLocationCache memberLocationCache = new GroupMemberLocationCache(true, 100, Duration.ofMinutes(10));
+    when(group.getName()).thenReturn("Group");
+
+    memberLocationCache.put(group, "/foo/bar.jar", proxy1);
+    assertThat(memberLocationCache.get(group, "foo/bar.jar"), is("Proxy 1"));
+
+    memberLocationCache.invalidate("foo/bar.jar");
+    assertThat(memberLocationCache.get(group, "/foo/bar.jar"), is(nullValue()));
+  }
+
   private void setupDispatch(final Response response1, final Response response2) throws Exception {
     when(viewFacet1.dispatch(request, context)).thenReturn(response1);
     when(viewFacet2.dispatch(request, context)).thenReturn(response2);
@@ -0,0 +1,151 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.sonatype.nexus.repository.http.HttpResponses.notFound;
+import static org.sonatype.nexus.repository.http.HttpResponses.ok;
+
+/**
+ * Tests for {@link ParallelGroupDispatcher}.
+ */
+public class ParallelGroupDispatcherTest
+    extends TestSupport
+{
+  @Mock
+  private Repository member1;
+
+  @Mock
+  private Repository member2;
+
+  @Mock
+  private Repository member3;
+
+  @Mock
+  private Payload payload2;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final CountDownLatch member2Dispatched = new CountDownLatch(1);
+
+  private ParallelGroupDispatcher underTest;
+
+  @Before
+  public void setUp() {
+    underTest = new ParallelGroupDispatcher(true, 2, Duration.ofMillis(10), 4);
+    ThreadContext.bind(FakeAlmightySubject.forUserId("testUser"));
+  }
+
+  @After
+  public void tearDown() {
+    release.countDown();
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void slowMemberIsHedged() throws Exception {
+    Response ok2 = ok();
+
+    Entry<Repository, Response> first = underTest.first(asList(member1, member2), member -> {
+      if (member == member1) {
+        // only answers once the next member has also been asked
+        awaitUninterruptibly(member2Dispatched, 5, TimeUnit.SECONDS);
+        return notFound();
+      }
+      member2Dispatched.countDown();
+      return ok2;
+    }, response -> response.getStatus().isSuccessful());
+
+    assertThat(first.getKey(), is(member2));
+    assertThat(first.getValue(), is(ok2));
+  }
+
+  @Test
+  public void earlierMemberTakesPrecedence() throws Exception {
+    Response ok1 = ok();
+
+    Entry<Repository, Response> first = underTest.first(asList(member1, member2, member3), member -> {
+      if (member == member1) {
+        awaitUninterruptibly(member2Dispatched, 5, TimeUnit.SECONDS);
+        return ok1;
+      }
+      if (member == member2) {
+        member2Dispatched.countDown();
+        return ok(payload2);
+      }
+      throw new IllegalStateException("Should not be asked while two members are outstanding");
+    }, response -> response.getStatus().isSuccessful());
+
+    assertThat(first.getKey(), is(member1));
+    assertThat(first.getValue(), is(ok1));
+    // the unused response is released
+    verify(payload2, timeout(5000)).close();
+  }
+
+  @Test
+  public void noValidResponse() throws Exception {
+    Entry<Repository, Response> first = underTest.first(asList(member1, member2, member3), member -> notFound(),
+        response -> response.getStatus().isSuccessful());
+
+    assertThat(first, nullValue());
+  }
+
+  @Test
+  public void allResponsesAreInMemberOrder() throws Exception {
+    Response ok1 = ok();
+    Response ok2 = ok(payload2);
+    Response ok3 = ok();
+
+    LinkedHashMap<Repository, Response> all = underTest.all(asList(member1, member2, member3), member -> {
+      if (member == member1) {
+        awaitUninterruptibly(release, 5, TimeUnit.SECONDS);
+        return ok1;
+      }
+      if (member == member2) {
+        release.countDown();
+        return ok2;
+      }
+      return ok3;
+    });
+
+    assertThat(all.keySet(), contains(member1, member2, member3));
+    assertThat(all.values(), contains(ok1, ok2, ok3));
+    verify(payload2, never()).close();
+  }
+}
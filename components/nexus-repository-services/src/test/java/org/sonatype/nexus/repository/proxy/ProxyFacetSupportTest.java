@@ -15,6 +15,8 @@ package org.sonatype.nexus.repository.proxy;
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -510,4 +512,23 @@ public class ProxyFacetSupportTest
         underTest.normalizeURLPath(URI.create("https://remoteserver/com/foo/thisisaspace"))
     );
   }
+
+  @Test
+  public void canonicalConfigurationIgnoresEntryOrder() {
+    Map<String, Object> authentication = new LinkedHashMap<>();
+    authentication.put("type", "username");
+    authentication.put("username", "admin");
+    Map<String, Object> first = new LinkedHashMap<>();
+    first.put("blocked", false);
+    first.put("authentication", authentication);
+
+    Map<String, Object> reordered = new LinkedHashMap<>();
+    reordered.put("username", "admin");
+    reordered.put("type", "username");
+    Map<String, Object> second = new LinkedHashMap<>();
+    second.put("authentication", reordered);
+    second.put("blocked", false);
+
+    assertThat(ProxyFacetSupport.canonical(first), is(ProxyFacetSupport.canonical(second)));
+  }
 }
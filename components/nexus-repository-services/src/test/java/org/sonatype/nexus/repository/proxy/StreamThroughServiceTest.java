@@ -0,0 +1,161 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.google.common.io.ByteStreams;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link StreamThroughService}.
+ */
+public class StreamThroughServiceTest
+    extends TestSupport
+{
+  private static final byte[] DATA = new byte[64 * 1024];
+
+  private Path spoolDirectory;
+
+  private StreamThroughService underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    spoolDirectory = util.createTempDir().toPath();
+    underTest = new StreamThroughService(spoolDirectory, true, 0, 1);
+    // background stores run as the current subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("testUser"));
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void clientsReceiveContentBeforeStoreCompletes() throws Exception {
+    CountDownLatch releaseStore = new CountDownLatch(1);
+
+    Content client = underTest.streamThrough(remote(), content -> {
+      byte[] bytes = read(content);
+      awaitUninterruptibly(releaseStore, 5, TimeUnit.SECONDS); // validation, commit, etc.
+      return new Content(new BytesPayload(bytes, "application/octet-stream"));
+    });
+    assertThat(client, notNullValue());
+
+    try (InputStream in = client.openInputStream()) {
+      // all bytes arrive while the store is still in progress
+      assertThat(ByteStreams.read(in, new byte[DATA.length], 0, DATA.length), is(DATA.length));
+      releaseStore.countDown();
+      assertThat(in.read(), is(-1));
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> spooledFiles() == 0);
+
+    // later readers are served from the stored content
+    assertThat(read(client).length, is(DATA.length));
+  }
+
+  @Test
+  public void storedAttributesAreAttachedToClientContent() throws Exception {
+    Content remote = remote();
+    remote.getAttributes().set("remote", "value");
+
+    Content client = underTest.streamThrough(remote, content -> {
+      Content stored = new Content(new BytesPayload(read(content), "application/octet-stream"));
+      stored.getAttributes().set("asset", "stored");
+      return stored;
+    });
+    assertThat(client, notNullValue());
+    assertThat(client.getAttributes().get("remote"), is("value"));
+
+    read(client);
+
+    // the end of the stream is only seen once stored
+    assertThat(client.getAttributes().get("asset"), is("stored"));
+  }
+
+  @Test
+  public void clientsAreAbortedWhenStoreFails() throws Exception {
+    Content client = underTest.streamThrough(remote(), content -> {
+      read(content);
+      throw new IOException("checksum mismatch");
+    });
+    assertThat(client, notNullValue());
+
+    try {
+      read(client);
+      fail("Expected the download to be aborted");
+    }
+    catch (IOException e) {
+      // expected
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> spooledFiles() == 0);
+  }
+
+  @Test
+  public void contentIsStoredFirstWhenNoThreadIsAvailable() throws Exception {
+    CountDownLatch releaseStore = new CountDownLatch(1);
+    Content first = underTest.streamThrough(remote(), content -> {
+      awaitUninterruptibly(releaseStore, 5, TimeUnit.SECONDS);
+      return new Content(new BytesPayload(read(content), "application/octet-stream"));
+    });
+    assertThat(first, notNullValue());
+
+    assertThat(underTest.streamThrough(remote(), content -> content), nullValue());
+
+    releaseStore.countDown();
+    assertThat(read(first).length, is(DATA.length));
+  }
+
+  private static Content remote() {
+    return new Content(new StreamPayload(() -> new ByteArrayInputStream(DATA), DATA.length, "application/octet-stream"));
+  }
+
+  private static byte[] read(final Content content) throws IOException {
+    try (InputStream in = content.openInputStream()) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+
+  private long spooledFiles() throws IOException {
+    try (Stream<Path> files = Files.list(spoolDirectory)) {
+      return files.count();
+    }
+  }
+}
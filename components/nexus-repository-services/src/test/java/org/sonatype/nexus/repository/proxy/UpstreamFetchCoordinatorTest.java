@@ -0,0 +1,265 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.payloads.StringPayload;
+
+import com.google.common.io.CharStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link UpstreamFetchCoordinator}.
+ */
+public class UpstreamFetchCoordinatorTest
+    extends TestSupport
+{
+  private static final String KEY = "maven2|config|GET http://example.com/foo.jar|headers";
+
+  private Path spoolDirectory;
+
+  private ExecutorService executor;
+
+  private UpstreamFetchCoordinator underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    spoolDirectory = util.createTempDir().toPath();
+    executor = Executors.newCachedThreadPool();
+    underTest = new UpstreamFetchCoordinator(spoolDirectory, true, Duration.ofSeconds(5));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentFetchesShareOneDownload() throws Exception {
+    AtomicInteger downloads = new AtomicInteger();
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLeader = new CountDownLatch(1);
+
+    Future<Content> leader = executor.submit(() -> underTest.fetch(KEY, () -> {
+      downloads.incrementAndGet();
+      leaderStarted.countDown();
+      awaitUninterruptibly(releaseLeader, 5, TimeUnit.SECONDS);
+      Content content = new Content(new StringPayload("payload", "text/plain"));
+      content.getAttributes().set(Content.CONTENT_ETAG, "etag");
+      return content;
+    }));
+    leaderStarted.await(5, TimeUnit.SECONDS);
+
+    List<Future<Content>> followers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      followers.add(executor.submit(() -> underTest.fetch(KEY, () -> {
+        downloads.incrementAndGet();
+        return new Content(new StringPayload("separate", "text/plain"));
+      })));
+    }
+    awaitParticipants(4);
+    releaseLeader.countDown();
+
+    List<Content> results = new ArrayList<>();
+    results.add(leader.get(5, TimeUnit.SECONDS));
+    for (Future<Content> follower : followers) {
+      results.add(follower.get(5, TimeUnit.SECONDS));
+    }
+
+    assertThat(downloads.get(), is(1));
+    for (Content result : results) {
+      assertThat(read(result), is("payload"));
+      assertThat(result.getContentType(), is("text/plain"));
+      assertThat(result.getAttributes().get(Content.CONTENT_ETAG, String.class), is("etag"));
+    }
+    assertThat(underTest.participants(KEY), is(0));
+
+    // the shared file is only removed once every participant has closed its content
+    for (Content result : results.subList(1, results.size())) {
+      result.close();
+    }
+    assertThat(spooledFiles(), is(1L));
+    results.get(0).close();
+    assertThat(spooledFiles(), is(0L));
+  }
+
+  @Test
+  public void followersFetchSeparatelyWhenLeaderHasNoContent() throws Exception {
+    CountDownLatch leaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLeader = new CountDownLatch(1);
+
+    Future<Content> leader = executor.submit(() -> underTest.fetch(KEY, () -> {
+      leaderStarted.countDown();
+      awaitUninterruptibly(releaseLeader, 5, TimeUnit.SECONDS);
+      return null;
+    }));
+    leaderStarted.await(5, TimeUnit.SECONDS);
+
+    Future<Content> follower = executor.submit(() -> underTest.fetch(KEY,
+        () -> new Content(new StringPayload("separate", "text/plain"))));
+    awaitParticipants(2);
+    releaseLeader.countDown();
+
+    assertThat(leader.get(5, TimeUnit.SECONDS), nullValue());
+    Content content = follower.get(5, TimeUnit.SECONDS);
+    assertThat(content, notNullValue());
+    assertThat(read(content), is("separate"));
+    assertThat(spooledFiles(), is(0L));
+  }
+
+  @Test
+  public void followersReadWhileLeaderIsStillDownloading() throws Exception {
+    CountDownLatch releaseRest = new CountDownLatch(1);
+    Content leader = underTest.fetch(KEY, () -> new Content(new SlowPayload("first", "second", releaseRest)));
+    Future<Content> follower = executor.submit(() -> underTest.fetch(KEY, () -> null));
+    Content followerContent = follower.get(5, TimeUnit.SECONDS);
+
+    Future<String> leaderRead = executor.submit(() -> read(leader));
+    try (InputStream in = followerContent.openInputStream()) {
+      byte[] first = new byte[5];
+      int n = 0;
+      while (n < first.length) {
+        n += in.read(first, n, first.length - n);
+      }
+      // the follower sees the start of the download before the leader has finished reading it
+      assertThat(new String(first, UTF_8), is("first"));
+      assertThat(leaderRead.isDone(), is(false));
+
+      releaseRest.countDown();
+      assertThat(CharStreams.toString(new InputStreamReader(in, UTF_8)), is("second"));
+    }
+    assertThat(leaderRead.get(5, TimeUnit.SECONDS), is("firstsecond"));
+
+    leader.close();
+    followerContent.close();
+    assertThat(spooledFiles(), is(0L));
+  }
+
+  @Test(expected = IOException.class)
+  public void followersFailWhenLeaderAbandonsDownload() throws Exception {
+    Content leader = underTest.fetch(KEY, () -> new Content(new StringPayload("payload", "text/plain")));
+    Content follower = underTest.fetch(KEY, () -> null);
+
+    leader.close();
+
+    read(follower);
+  }
+
+  @Test(expected = IOException.class)
+  public void leaderFailureIsPropagated() throws Exception {
+    underTest.fetch(KEY, () -> {
+      throw new IOException("upstream failed");
+    });
+  }
+
+  private void awaitParticipants(final int participants) {
+    await().atMost(5, TimeUnit.SECONDS).until(() -> underTest.participants(KEY) == participants);
+  }
+
+  private long spooledFiles() throws IOException {
+    try (Stream<Path> files = Files.list(spoolDirectory)) {
+      return files.count();
+    }
+  }
+
+  /**
+   * Returns the first part straight away and the second part once released.
+   */
+  private static class SlowPayload
+      implements Payload
+  {
+    private final String first;
+
+    private final String second;
+
+    private final CountDownLatch releaseSecond;
+
+    private SlowPayload(final String first, final String second, final CountDownLatch releaseSecond) {
+      this.first = first;
+      this.second = second;
+      this.releaseSecond = releaseSecond;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+      return new InputStream()
+      {
+        private final InputStream firstPart = new ByteArrayInputStream(first.getBytes(UTF_8));
+
+        private final InputStream secondPart = new ByteArrayInputStream(second.getBytes(UTF_8));
+
+        @Override
+        public int read() throws IOException {
+          byte[] b = new byte[1];
+          int n = read(b, 0, 1);
+          return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+          int n = firstPart.read(b, off, len);
+          if (n >= 0) {
+            return n;
+          }
+          awaitUninterruptibly(releaseSecond, 5, TimeUnit.SECONDS);
+          return secondPart.read(b, off, len);
+        }
+      };
+    }
+
+    @Override
+    public long getSize() {
+      return first.length() + second.length();
+    }
+
+    @Override
+    public String getContentType() {
+      return "text/plain";
+    }
+  }
+
+  private static String read(final Content content) throws IOException {
+    try (InputStream in = content.openInputStream()) {
+      return CharStreams.toString(new InputStreamReader(in, UTF_8));
+    }
+  }
+}
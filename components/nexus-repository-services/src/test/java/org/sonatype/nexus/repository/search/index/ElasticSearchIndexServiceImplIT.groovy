@@ -44,11 +44,13 @@ import org.junit.Test
 import org.mockito.Mock
 
 import static com.google.common.collect.DiscreteDomain.integers
+import static java.nio.charset.StandardCharsets.UTF_8
 import static java.util.concurrent.TimeUnit.MINUTES
 import static org.awaitility.Awaitility.await
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery
+import static org.hamcrest.Matchers.contains
 import static org.hamcrest.Matchers.is
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.mockito.Mockito.any
@@ -205,6 +207,37 @@ class ElasticSearchIndexServiceImplIT
     assert !searchResponse.hits.contains(secondPage.hits[1])
   }
 
+  @Test
+  public void testShadowRebuild() throws Exception {
+    seedComponentIndex()
+
+    Repository repository = componentsByRepository.keySet().first()
+    List<Map> rebuilt = componentsByRepository.get(repository)
+    Map added = [format: 'test-format', group: 'example', name: "$TEST_COMPONENT_COUNT" as String, version: '1.0']
+
+    // first rebuild replaces the original index with an alias
+    assert searchIndexService.startShadowRebuild(repository)
+    searchIndexService.bulkPut(repository, [added], { component -> component.name as String }, this.&document)
+    searchIndexService.bulkPutShadow(repository, rebuilt, { component -> component.name as String },
+        { component -> document(component).getBytes(UTF_8) })
+    searchIndexService.flushShadowRebuild(repository)
+    assertThat(searchIndexService.getShadowUpdates(repository), contains(added.name))
+    searchIndexService.finishShadowRebuild(repository)
+
+    await().atMost(1, MINUTES).untilAsserted({
+        assertThat(Iterables.size(searchQueryService.browse(unrestricted(exampleQuery))), is(TEST_COMPONENT_COUNT + 1)) })
+
+    // second rebuild swaps the alias over to the new index
+    assert searchIndexService.startShadowRebuild(repository)
+    searchIndexService.bulkPutShadow(repository, rebuilt + [added], { component -> component.name as String },
+        { component -> document(component).getBytes(UTF_8) })
+    searchIndexService.finishShadowRebuild(repository)
+
+    await().atMost(1, MINUTES).untilAsserted({
+        assertThat(Iterables.size(searchQueryService.browse(unrestricted(exampleQuery))), is(TEST_COMPONENT_COUNT + 1)) })
+    assert !searchIndexService.indexEmpty(repository)
+  }
+
   private seedComponentIndex() {
     Random random = new SecureRandom()
 
@@ -218,19 +251,21 @@ class ElasticSearchIndexServiceImplIT
           repository,
           componentsByRepository.get(repository),
           { component -> component.name as String },
-          { component ->
-            """
-              { "format":"${component.format}",
-                "group":"${component.group}",
-                "name":"${component.name}",
-                "version":"${component.version}"
-              }
-              """ as String
-          })
+          this.&document)
     })
 
     // wait for all documents to be indexed
     await().atMost(1, MINUTES).untilAsserted({
         assertThat(Iterables.size(searchQueryService.browse(unrestricted(exampleQuery))), is(TEST_COMPONENT_COUNT)) })
   }
+
+  private String document(Map component) {
+    """
+      { "format":"${component.format}",
+        "group":"${component.group}",
+        "name":"${component.name}",
+        "version":"${component.version}"
+      }
+      """ as String
+  }
 }
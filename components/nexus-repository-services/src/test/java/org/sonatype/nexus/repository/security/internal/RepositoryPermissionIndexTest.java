@@ -0,0 +1,166 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.sonatype.goodies.common.Time;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.security.RepositoryContentSelectorPermission;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.BreadActions;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.nexus.selector.SelectorConfiguration;
+import org.sonatype.nexus.selector.SelectorManager;
+
+import org.apache.shiro.subject.SimplePrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RepositoryPermissionIndexTest
+    extends TestSupport
+{
+  private static final RepositoryViewPermission VIEW_READ =
+      new RepositoryViewPermission("maven2", "releases", BreadActions.READ);
+
+  @Mock
+  private SecurityHelper securityHelper;
+
+  @Mock
+  private SelectorManager selectorManager;
+
+  @Mock
+  private Subject subject;
+
+  private RepositoryPermissionIndex underTest;
+
+  @Before
+  public void setUp() {
+    when(securityHelper.subject()).thenReturn(subject);
+    when(subject.getPrincipals()).thenReturn(new SimplePrincipalCollection("user", "realm"));
+    when(selectorManager.browse()).thenReturn(Arrays.asList(selector("allowed"), selector("other")));
+
+    underTest = new RepositoryPermissionIndex(securityHelper, selectorManager, true, 100, Time.minutes(2));
+  }
+
+  @Test
+  public void viewDecisionsAreRecordedPerSubject() {
+    when(securityHelper.anyPermitted(subject, VIEW_READ)).thenReturn(true);
+
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(true));
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(true));
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.EDIT), is(false));
+
+    verify(securityHelper, times(1)).anyPermitted(subject, VIEW_READ);
+    assertThat(underTest.size(), is(1L));
+  }
+
+  @Test
+  public void onlySelectorsWithPrivilegesArePermitted() {
+    when(securityHelper.anyPermitted(subject, contentPermission("allowed"))).thenReturn(true);
+
+    assertThat(underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ), is(true));
+    assertThat(underTest.isSelectorPermitted("other", "releases", "maven2", BreadActions.READ), is(false));
+    assertThat(underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ), is(true));
+
+    verify(selectorManager, times(1)).browse();
+    verify(securityHelper, times(1)).anyPermitted(subject, contentPermission("allowed"));
+    verify(securityHelper, times(1)).anyPermitted(subject, contentPermission("other"));
+  }
+
+  @Test
+  public void authorizationChangesClearTheIndex() {
+    when(securityHelper.anyPermitted(subject, VIEW_READ)).thenReturn(false);
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(false));
+
+    underTest.on(new AuthorizationConfigurationChanged());
+    when(securityHelper.anyPermitted(subject, VIEW_READ)).thenReturn(true);
+
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(true));
+  }
+
+  @Test
+  public void decisionsComputedDuringAuthorizationChangesAreDiscarded() {
+    when(securityHelper.anyPermitted(subject, VIEW_READ)).thenAnswer(invocation -> {
+      underTest.on(new AuthorizationConfigurationChanged());
+      return false;
+    });
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(false));
+
+    when(securityHelper.anyPermitted(subject, VIEW_READ)).thenReturn(true);
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(true));
+    assertThat(underTest.isViewPermitted("releases", "maven2", BreadActions.READ), is(true));
+
+    verify(securityHelper, times(2)).anyPermitted(subject, VIEW_READ);
+  }
+
+  @Test
+  public void selectorsComputedDuringAuthorizationChangesAreDiscarded() {
+    when(securityHelper.anyPermitted(subject, contentPermission("allowed"))).thenAnswer(invocation -> {
+      underTest.on(new AuthorizationConfigurationChanged());
+      return false;
+    });
+    assertThat(underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ), is(false));
+
+    when(securityHelper.anyPermitted(subject, contentPermission("allowed"))).thenReturn(true);
+    assertThat(underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ), is(true));
+
+    verify(selectorManager, times(2)).browse();
+  }
+
+  @Test
+  public void subjectsWithoutPrincipalsAreNotRecorded() {
+    when(subject.getPrincipals()).thenReturn(null);
+
+    underTest.isViewPermitted("releases", "maven2", BreadActions.READ);
+    underTest.isViewPermitted("releases", "maven2", BreadActions.READ);
+
+    verify(securityHelper, times(2)).anyPermitted(subject, VIEW_READ);
+    assertThat(underTest.size(), is(0L));
+  }
+
+  @Test
+  public void disabledIndexChecksEveryTime() {
+    underTest = new RepositoryPermissionIndex(securityHelper, selectorManager, false, 100, Time.minutes(2));
+
+    underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ);
+    underTest.isSelectorPermitted("allowed", "releases", "maven2", BreadActions.READ);
+
+    verify(securityHelper, times(2)).anyPermitted(eq(subject), any(RepositoryContentSelectorPermission.class));
+    assertThat(underTest.size(), is(0L));
+  }
+
+  private static SelectorConfiguration selector(final String name) {
+    SelectorConfiguration selector = mock(SelectorConfiguration.class);
+    when(selector.getName()).thenReturn(name);
+    return selector;
+  }
+
+  private static RepositoryContentSelectorPermission contentPermission(final String selector) {
+    return new RepositoryContentSelectorPermission(selector, "maven2", "releases",
+        Collections.singletonList(BreadActions.READ));
+  }
+}
@@ -17,6 +17,7 @@ import java.io.InputStream;
 
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 
 import com.google.common.collect.Range;
@@ -63,4 +64,14 @@ class PartialPayload
   public String getContentType() {
     return payload.getContentType();
   }
+
+  @Nullable
+  @Override
+  public BlobFileRegion getFileRegion() {
+    BlobFileRegion region = payload.getFileRegion();
+    if (region == null || rangeToSend.upperEndpoint() >= region.getCount()) {
+      return null;
+    }
+    return region.slice(rangeToSend.lowerEndpoint(), partialSize);
+  }
 }
@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.repository.httpclient;
 
+import java.net.URI;
+
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.Facet;
@@ -41,4 +43,13 @@ public interface HttpClientFacet
    */
   @Nullable
   String getBearerToken();
+
+  /**
+   * Opens connections to the remote ahead of the first requests, when enabled.
+   *
+   * @since 3.next
+   */
+  default void prewarm(URI remoteUrl) {
+    // no-op by default
+  }
 }
@@ -0,0 +1,116 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpclient.internal;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.util.EntityUtils;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.max;
+
+/**
+ * Opens connections to proxy remotes ahead of the first real requests.
+ *
+ * Concurrent {@code HEAD} requests are sent to the remote URL in the background, leaving their connections in the
+ * shared pool ready for reuse. This also negotiates TLS sessions up-front, which the JSSE caches so that later
+ * connections to the same remote can resume them instead of repeating the full handshake.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class ConnectionPrewarmer
+    extends ComponentSupport
+{
+  private final int connections;
+
+  @Nullable
+  private final ExecutorService executor;
+
+  @Inject
+  public ConnectionPrewarmer(
+      @Named("${nexus.httpclient.prewarm.connections:-0}") final int connections,
+      @Named("${nexus.httpclient.prewarm.threads:-16}") final int threads)
+  {
+    this.connections = max(connections, 0);
+    if (this.connections > 0) {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(max(threads, 1), max(threads, 1), 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat("httpclient-prewarm-%d").setDaemon(true).build());
+      pool.allowCoreThreadTimeOut(true);
+      this.executor = pool;
+    }
+    else {
+      this.executor = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return executor != null;
+  }
+
+  /**
+   * Opens the configured number of connections to the remote in the background.
+   *
+   * @param repositoryName the repository being prewarmed, used for logging
+   * @param httpClient     client to send the requests with; should not apply auto-blocking
+   * @param remoteUrl      the remote to connect to
+   */
+  public void prewarm(final String repositoryName, final HttpClient httpClient, final URI remoteUrl) {
+    checkNotNull(httpClient);
+    checkNotNull(remoteUrl);
+    if (executor == null || !remoteUrl.isAbsolute()) {
+      return;
+    }
+    log.debug("Opening {} connections to {} for {}", connections, remoteUrl, repositoryName);
+    try {
+      for (int i = 0; i < connections; i++) {
+        executor.execute(() -> open(repositoryName, httpClient, remoteUrl));
+      }
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("Unable to prewarm connections to {} for {}", remoteUrl, repositoryName, e);
+    }
+  }
+
+  private void open(final String repositoryName, final HttpClient httpClient, final URI remoteUrl) {
+    HttpHead request = new HttpHead(remoteUrl);
+    try {
+      HttpResponse response = httpClient.execute(request);
+      // HEAD responses have no body, so this returns the connection to the pool for reuse
+      EntityUtils.consumeQuietly(response.getEntity());
+      log.trace("Prewarmed connection to {} for {}: {}", remoteUrl, repositoryName, response.getStatusLine());
+    }
+    catch (IOException | RuntimeException e) {
+      log.debug("Unable to prewarm connection to {} for {}", remoteUrl, repositoryName, e);
+    }
+  }
+}
@@ -13,6 +13,7 @@
 package org.sonatype.nexus.repository.httpclient.internal;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.Base64;
 import java.util.Map;
 
@@ -60,6 +61,7 @@ import static java.util.Optional.ofNullable;
 import static org.apache.http.HttpHeaders.AUTHORIZATION;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 import static org.sonatype.nexus.repository.httpclient.RemoteConnectionStatusType.AUTO_BLOCKED_UNAVAILABLE;
+import static org.sonatype.nexus.repository.httpclient.RemoteConnectionStatusType.READY;
 import static org.sonatype.nexus.repository.httpclient.RemoteConnectionStatusType.UNINITIALISED;
 
 /**
@@ -112,6 +114,11 @@ public class HttpClientFacetImpl
   @VisibleForTesting
   BlockingHttpClient httpClient;
 
+  private CloseableHttpClient delegateHttpClient;
+
+  @Nullable
+  private ConnectionPrewarmer connectionPrewarmer;
+
   @Inject
   public HttpClientFacetImpl(final HttpClientManager httpClientManager,
                              final Map<String, AutoBlockConfiguration> autoBlockConfiguration,
@@ -143,6 +150,14 @@ public class HttpClientFacetImpl
     checkNotNull(autoBlockConfiguration.get(DEFAULT));
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setConnectionPrewarmer(final ConnectionPrewarmer connectionPrewarmer) {
+    this.connectionPrewarmer = connectionPrewarmer;
+  }
+
   @Override
   protected void doValidate(final Configuration configuration) throws Exception {
     facet(ConfigurationFacet.class).validateSection(configuration, CONFIG_KEY, Config.class);
@@ -202,6 +217,16 @@ public class HttpClientFacetImpl
     return null;
   }
 
+  @Override
+  public void prewarm(final URI remoteUrl) {
+    BlockingHttpClient client = httpClient;
+    if (connectionPrewarmer != null && connectionPrewarmer.isEnabled() && client != null
+        && client.getStatus().getType() == READY) {
+      // bypass auto-blocking, a remote that doesn't like HEAD requests for its root shouldn't be blocked
+      connectionPrewarmer.prewarm(getRepository().getName(), delegateHttpClient, remoteUrl);
+    }
+  }
+
   @Override
   @Guarded(by = STARTED)
   public RemoteConnectionStatus getStatus() {
@@ -283,6 +308,7 @@ public class HttpClientFacetImpl
   private void createHttpClient() {
     HttpClientConfiguration delegateConfig = getHttpClientConfiguration(httpClientManager, config);
     CloseableHttpClient delegate = httpClientManager.create(new ConfigurationCustomizer(delegateConfig));
+    delegateHttpClient = delegate;
 
     boolean online = getRepository().getConfiguration().isOnline();
     // wrap delegate with auto-block aware client
@@ -339,6 +365,7 @@ public class HttpClientFacetImpl
     log.debug("Closing HTTP client: {}", httpClient);
     httpClient.close();
     httpClient = null;
+    delegateHttpClient = null;
   }
 
   private void distributeRepositoryConnectionStatusChangedEvent(
@@ -0,0 +1,334 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.view.matchers.ActionMatcher;
+import org.sonatype.nexus.repository.view.matchers.LiteralMatcher;
+import org.sonatype.nexus.repository.view.matchers.NeverMatcher;
+import org.sonatype.nexus.repository.view.matchers.PrefixMatcher;
+import org.sonatype.nexus.repository.view.matchers.SuffixMatcher;
+import org.sonatype.nexus.repository.view.matchers.logic.AndMatcher;
+import org.sonatype.nexus.repository.view.matchers.logic.OrMatcher;
+import org.sonatype.nexus.repository.view.matchers.token.LiteralToken;
+import org.sonatype.nexus.repository.view.matchers.token.PatternParser;
+import org.sonatype.nexus.repository.view.matchers.token.Token;
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Routes compiled into a dispatch trie.
+ *
+ * Each route matcher is analysed for the literal path prefix and suffix and the request actions it requires, as far
+ * as this can be derived from the known matcher types. Routes are indexed by prefix in a character trie whose nodes
+ * hold the ordered candidates for every path reaching them, so finding the candidates for a request only walks the
+ * request path once and allocates nothing. Candidates are then checked against their required suffix and actions
+ * before their matcher is evaluated, in route order, so the first matching route still wins.
+ *
+ * Custom matchers (including subclasses of the known types) are opaque; routes using them have no requirements and
+ * are always evaluated, in their original position.
+ *
+ * @since 3.next
+ */
+class CompiledRoutes
+{
+  private final List<Route> routes;
+
+  private final Guard[] guards;
+
+  @Nullable
+  private final RouteStatistics[] statistics;
+
+  private final Node root = new Node();
+
+  CompiledRoutes(final List<Route> routes, final boolean timed) {
+    this.routes = ImmutableList.copyOf(routes);
+    this.guards = new Guard[this.routes.size()];
+    this.statistics = timed ? new RouteStatistics[this.routes.size()] : null;
+
+    for (int i = 0; i < guards.length; i++) {
+      Route route = this.routes.get(i);
+      guards[i] = Guard.of(route.getMatcher());
+      if (!guards[i].never) {
+        root.add(guards[i].prefix, 0, i);
+      }
+      if (statistics != null) {
+        statistics[i] = new RouteStatistics(route);
+      }
+    }
+    root.seal(new int[0]);
+  }
+
+  /**
+   * Find the first matching route for the given context.
+   */
+  @Nullable
+  Route find(final Context context) {
+    Request request = context.getRequest();
+    String path = Strings.nullToEmpty(request.getPath());
+    String action = request.getAction();
+
+    Node node = root;
+    for (int i = 0; i < path.length(); i++) {
+      Node child = node.children.get(Guard.fold(path.charAt(i)));
+      if (child == null) {
+        break;
+      }
+      node = child;
+    }
+
+    for (int index : node.candidates) {
+      if (guards[index].accepts(path, action) && matches(index, context)) {
+        return routes.get(index);
+      }
+    }
+    return null;
+  }
+
+  List<RouteStatistics> statistics() {
+    return statistics != null ? ImmutableList.copyOf(statistics) : ImmutableList.of();
+  }
+
+  private boolean matches(final int index, final Context context) {
+    Matcher matcher = routes.get(index).getMatcher();
+    if (statistics == null) {
+      return matcher.matches(context);
+    }
+    long start = System.nanoTime();
+    boolean matched = matcher.matches(context);
+    statistics[index].record(matched, System.nanoTime() - start);
+    return matched;
+  }
+
+  /**
+   * Trie of normalized route prefixes. Each node holds the indexes of the routes whose prefix ends there and, once
+   * sealed, the ordered indexes of the routes whose prefix ends there or at any of its ancestors.
+   */
+  private static class Node
+  {
+    private final Map<Character, Node> children = new HashMap<>();
+
+    private final List<Integer> routes = new ArrayList<>();
+
+    private int[] candidates;
+
+    private void add(final String prefix, final int depth, final int index) {
+      if (depth == prefix.length()) {
+        routes.add(index);
+      }
+      else {
+        children.computeIfAbsent(prefix.charAt(depth), c -> new Node()).add(prefix, depth + 1, index);
+      }
+    }
+
+    private void seal(final int[] inherited) {
+      if (routes.isEmpty()) {
+        candidates = inherited; // shared with the parent
+      }
+      else {
+        candidates = Arrays.copyOf(inherited, inherited.length + routes.size());
+        for (int i = 0; i < routes.size(); i++) {
+          candidates[inherited.length + i] = routes.get(i);
+        }
+        Arrays.sort(candidates);
+      }
+      children.values().forEach(child -> child.seal(candidates));
+    }
+  }
+
+  /**
+   * Necessary conditions for a matcher to match a request.
+   *
+   * Prefixes and suffixes are {@link #normalize normalized} so they also cover case-insensitive matchers.
+   */
+  static class Guard
+  {
+    static final Guard ANY = new Guard(null, "", "", false);
+
+    static final Guard NEVER = new Guard(null, "", "", true);
+
+    /**
+     * Allowed actions, {@code null} if any action is allowed.
+     */
+    @Nullable
+    final Set<String> actions;
+
+    final String prefix;
+
+    final String suffix;
+
+    final boolean never;
+
+    private Guard(@Nullable final Set<String> actions, final String prefix, final String suffix, final boolean never) {
+      this.actions = actions;
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.never = never;
+    }
+
+    static Guard of(final Matcher matcher) {
+      if (isExactly(matcher, TokenMatcher.class)) {
+        List<Token> tokens = new PatternParser(((TokenMatcher) matcher).getPattern()).getTokens();
+        if (tokens.isEmpty()) {
+          return ANY;
+        }
+        Token first = tokens.get(0);
+        Token last = tokens.get(tokens.size() - 1);
+        return new Guard(null,
+            first instanceof LiteralToken ? normalize(first.getValue()) : "",
+            last instanceof LiteralToken ? normalize(last.getValue()) : "",
+            false);
+      }
+      if (isExactly(matcher, LiteralMatcher.class)) {
+        LiteralMatcher literal = (LiteralMatcher) matcher;
+        String path = pathGuard(literal.getLiteral(), literal.isIgnoreCase());
+        return new Guard(null, path, path, false);
+      }
+      if (isExactly(matcher, PrefixMatcher.class)) {
+        PrefixMatcher prefix = (PrefixMatcher) matcher;
+        return new Guard(null, pathGuard(prefix.getPrefix(), prefix.isIgnoreCase()), "", false);
+      }
+      if (isExactly(matcher, SuffixMatcher.class)) {
+        SuffixMatcher suffix = (SuffixMatcher) matcher;
+        return new Guard(null, "", pathGuard(suffix.getSuffix(), suffix.isIgnoreCase()), false);
+      }
+      if (isExactly(matcher, ActionMatcher.class)) {
+        return new Guard(new HashSet<>(((ActionMatcher) matcher).getAllowedActions()), "", "", false);
+      }
+      if (isExactly(matcher, NeverMatcher.class)) {
+        return NEVER;
+      }
+      if (isExactly(matcher, AndMatcher.class)) {
+        Guard guard = ANY;
+        for (Matcher each : ((AndMatcher) matcher).getMatchers()) {
+          guard = guard.and(of(each));
+        }
+        return guard;
+      }
+      if (isExactly(matcher, OrMatcher.class)) {
+        Guard guard = NEVER;
+        for (Matcher each : ((OrMatcher) matcher).getMatchers()) {
+          guard = guard.or(of(each));
+        }
+        return guard;
+      }
+      return ANY;
+    }
+
+    /**
+     * Checks the path, folding its characters as it goes rather than copying it into normalized form.
+     */
+    boolean accepts(final String path, final String action) {
+      return !never
+          && matchesFolded(path, 0, prefix)
+          && matchesFolded(path, path.length() - suffix.length(), suffix)
+          && (actions == null || actions.contains(action));
+    }
+
+    private static boolean matchesFolded(final String path, final int offset, final String normalized) {
+      if (offset < 0 || offset + normalized.length() > path.length()) {
+        return false;
+      }
+      for (int i = 0; i < normalized.length(); i++) {
+        if (fold(path.charAt(offset + i)) != normalized.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Guard and(final Guard other) {
+      if (never || other.never) {
+        return NEVER;
+      }
+      Set<String> allowed = actions;
+      if (allowed == null) {
+        allowed = other.actions;
+      }
+      else if (other.actions != null) {
+        allowed = new HashSet<>(actions);
+        allowed.retainAll(other.actions);
+      }
+      String longestPrefix = prefix.length() >= other.prefix.length() ? prefix : other.prefix;
+      String longestSuffix = suffix.length() >= other.suffix.length() ? suffix : other.suffix;
+      if ((allowed != null && allowed.isEmpty())
+          || !longestPrefix.startsWith(prefix) || !longestPrefix.startsWith(other.prefix)
+          || !longestSuffix.endsWith(suffix) || !longestSuffix.endsWith(other.suffix)) {
+        return NEVER;
+      }
+      return new Guard(allowed, longestPrefix, longestSuffix, false);
+    }
+
+    private Guard or(final Guard other) {
+      if (never) {
+        return other;
+      }
+      if (other.never) {
+        return this;
+      }
+      Set<String> allowed = null;
+      if (actions != null && other.actions != null) {
+        allowed = new HashSet<>(actions);
+        allowed.addAll(other.actions);
+      }
+      return new Guard(allowed,
+          Strings.commonPrefix(prefix, other.prefix),
+          Strings.commonSuffix(suffix, other.suffix),
+          false);
+    }
+
+    private static boolean isExactly(@Nullable final Matcher matcher, final Class<? extends Matcher> type) {
+      return matcher != null && matcher.getClass() == type;
+    }
+
+    /**
+     * Returns the normalized path literal, or an empty string when a case-insensitive match can't be guarded.
+     *
+     * Lower-casing non-ASCII strings may change their length, so only ASCII literals are used to guard
+     * case-insensitive matchers.
+     */
+    private static String pathGuard(final String literal, final boolean ignoreCase) {
+      return !ignoreCase || CharMatcher.ascii().matchesAllOf(literal) ? normalize(literal) : "";
+    }
+
+    /**
+     * Folds the case of each character the same way as {@link String#equalsIgnoreCase}, so that any two strings
+     * matching with or without case have the same normalized form.
+     */
+    static String normalize(final String value) {
+      char[] chars = value.toCharArray();
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = fold(chars[i]);
+      }
+      return new String(chars);
+    }
+
+    static char fold(final char c) {
+      return Character.toLowerCase(Character.toUpperCase(c));
+    }
+  }
+}
@@ -12,17 +12,28 @@
  */
 package org.sonatype.nexus.repository.view;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.nexus.repository.FacetSupport;
+import org.sonatype.nexus.repository.config.Configuration;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Configurable {@link ViewFacet} implementation.
  *
+ * When route timing is enabled the {@link RouteStatistics} of the router are published as metrics under
+ * {@code nexus.repository.<format>.<repository>.route.<route index>}.
+ *
  * @since 3.0
  */
 @Named
@@ -30,8 +41,21 @@ public class ConfigurableViewFacet
     extends FacetSupport
     implements ViewFacet
 {
+  private static final String METRICS_PREFIX = "nexus.repository";
+
   private Router router;
 
+  @Nullable
+  private MetricRegistry metricRegistry;
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setMetricRegistry(final MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
   public void configure(final Router router) {
     checkNotNull(router);
     checkState(this.router == null, "Router already configured");
@@ -51,4 +75,31 @@ public class ConfigurableViewFacet
     checkState(router != null, "Router not configured");
     return router.dispatch(getRepository(), request, context);
   }
+
+  @Override
+  protected void doInit(final Configuration configuration) throws Exception {
+    super.doInit(configuration);
+
+    if (metricRegistry != null && router != null) {
+      List<RouteStatistics> statistics = router.getRouteStatistics();
+      if (!statistics.isEmpty()) {
+        String prefix = getMetricsPrefix();
+        metricRegistry.removeMatching(MetricFilter.startsWith(prefix));
+        for (int i = 0; i < statistics.size(); i++) {
+          metricRegistry.register(prefix + i, statistics.get(i));
+        }
+      }
+    }
+  }
+
+  @Override
+  protected void doDestroy() throws Exception {
+    if (metricRegistry != null && router != null && !router.getRouteStatistics().isEmpty()) {
+      metricRegistry.removeMatching(MetricFilter.startsWith(getMetricsPrefix()));
+    }
+  }
+
+  private String getMetricsPrefix() {
+    return name(METRICS_PREFIX, getRepository().getFormat().getValue(), getRepository().getName(), "route") + '.';
+  }
 }
@@ -19,6 +19,7 @@ import java.io.OutputStream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.common.collect.AttributesMap;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -101,6 +102,12 @@ public class Content
     payload.copy(inputStream, outputStream);
   }
 
+  @Nullable
+  @Override
+  public BlobFileRegion getFileRegion() {
+    return payload.getFileRegion();
+  }
+
   public Payload getPayload() {
     return payload;
   }
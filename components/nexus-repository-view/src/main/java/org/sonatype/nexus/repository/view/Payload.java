@@ -19,6 +19,8 @@ import java.io.OutputStream;
 
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
+
 import com.google.common.io.ByteStreams;
 
 /**
@@ -60,4 +62,16 @@ public interface Payload
   default void copy(final InputStream input, final OutputStream output) throws IOException {
     ByteStreams.copy(input, output);
   }
+
+  /**
+   * Returns the region of a local file holding exactly the bytes of this payload, allowing senders to transfer it
+   * without copying through {@link #openInputStream()}. Payloads which override {@link #copy(InputStream, OutputStream)}
+   * or transform their content must not expose a region. By default no region is available.
+   *
+   * @since 3.next
+   */
+  @Nullable
+  default BlobFileRegion getFileRegion() {
+    return null;
+  }
 }
@@ -0,0 +1,92 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Matching statistics of a single {@link Route}.
+ *
+ * Only routes whose matcher was actually evaluated are counted; routes skipped by the compiled dispatch are not. The
+ * statistics are a {@link MetricSet} of an {@code evaluations} timer and a {@code matches} counter.
+ *
+ * @since 3.next
+ */
+public class RouteStatistics
+    implements MetricSet
+{
+  private final Route route;
+
+  private final Timer evaluations = new Timer();
+
+  private final Counter matches = new Counter();
+
+  RouteStatistics(final Route route) {
+    this.route = checkNotNull(route);
+  }
+
+  void record(final boolean matched, final long nanos) {
+    evaluations.update(nanos, TimeUnit.NANOSECONDS);
+    if (matched) {
+      matches.inc();
+    }
+  }
+
+  public Route getRoute() {
+    return route;
+  }
+
+  /**
+   * Number of times the route matcher was evaluated.
+   */
+  public long getEvaluations() {
+    return evaluations.getCount();
+  }
+
+  /**
+   * Number of times the route matcher matched.
+   */
+  public long getMatches() {
+    return matches.getCount();
+  }
+
+  /**
+   * Time spent evaluating the route matcher.
+   */
+  public Timer getEvaluationTimer() {
+    return evaluations;
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    return ImmutableMap.of("evaluations", evaluations, "matches", matches);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "route=" + route +
+        ", evaluations=" + getEvaluations() +
+        ", matches=" + getMatches() +
+        '}';
+  }
+}
@@ -19,6 +19,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.recipe.RouterBuilder;
 
@@ -37,14 +38,22 @@ import static org.sonatype.nexus.repository.view.ViewUtils.copyLocalContextAttri
 public class Router
     extends ComponentSupport
 {
-  private final List<Route> routes;
+  private static final boolean TIMING_ENABLED =
+      SystemPropertiesHelper.getBoolean("nexus.view.router.timing", false);
+
+  private final CompiledRoutes routes;
 
   private final DefaultRoute defaultRoute;
 
   public static final String LOCAL_ATTRIBUTE_PREFIX = "local.attribute.";
 
   public Router(final List<Route> routes, final DefaultRoute defaultRoute) {
-    this.routes = checkNotNull(routes, "Missing routes");
+    this(routes, defaultRoute, TIMING_ENABLED);
+  }
+
+  @VisibleForTesting
+  Router(final List<Route> routes, final DefaultRoute defaultRoute, final boolean timed) {
+    this.routes = new CompiledRoutes(checkNotNull(routes, "Missing routes"), timed);
     this.defaultRoute = checkNotNull(defaultRoute, "Missing default route");
   }
 
@@ -67,6 +76,16 @@ public class Router
     return response;
   }
 
+  /**
+   * Returns the matching statistics of each route, in route order; empty unless route timing is enabled with
+   * {@code nexus.view.router.timing}. {@link ConfigurableViewFacet} publishes them as metrics.
+   *
+   * @since 3.next
+   */
+  public List<RouteStatistics> getRouteStatistics() {
+    return routes.statistics();
+  }
+
   @VisibleForTesting
   Context maybeCopyContextAttributes(final Repository repository,
                                      final Request request,
@@ -141,12 +160,8 @@ public class Router
    * Find the first matching route for the given context.
    */
   private Route findRoute(final Context context) {
-    for (Route route : routes) {
-      if (route.getMatcher().matches(context)) {
-        return route;
-      }
-    }
-    return defaultRoute;
+    Route route = routes.find(context);
+    return route != null ? route : defaultRoute;
   }
 
   //
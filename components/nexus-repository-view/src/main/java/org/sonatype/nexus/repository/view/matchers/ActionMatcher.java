@@ -40,6 +40,15 @@ public class ActionMatcher
     this.allowedActions = asList(allowedActions);
   }
 
+  /**
+   * Returns the allowed request actions.
+   *
+   * @since 3.next
+   */
+  public List<String> getAllowedActions() {
+    return allowedActions;
+  }
+
   @Override
   public boolean matches(final Context context) {
     final String action = context.getRequest().getAction();
@@ -40,6 +40,24 @@ public class LiteralMatcher
     this(literal, true);
   }
 
+  /**
+   * Returns the literal path to match.
+   *
+   * @since 3.next
+   */
+  public String getLiteral() {
+    return literal;
+  }
+
+  /**
+   * Returns whether the path is matched ignoring case.
+   *
+   * @since 3.next
+   */
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
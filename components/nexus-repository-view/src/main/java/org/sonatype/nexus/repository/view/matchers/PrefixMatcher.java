@@ -48,6 +48,24 @@ public class PrefixMatcher
     return new PrefixMatcher(prefix, ignoreCase);
   }
 
+  /**
+   * Returns the path prefix to match.
+   *
+   * @since 3.next
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Returns whether the path is matched ignoring case.
+   *
+   * @since 3.next
+   */
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
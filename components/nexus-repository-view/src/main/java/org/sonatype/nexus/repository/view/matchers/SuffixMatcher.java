@@ -48,6 +48,24 @@ public class SuffixMatcher
     return new SuffixMatcher(suffix, ignoreCase);
   }
 
+  /**
+   * Returns the path suffix to match.
+   *
+   * @since 3.next
+   */
+  public String getSuffix() {
+    return suffix;
+  }
+
+  /**
+   * Returns whether the path is matched ignoring case.
+   *
+   * @since 3.next
+   */
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
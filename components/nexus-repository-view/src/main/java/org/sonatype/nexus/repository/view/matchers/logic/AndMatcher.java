@@ -41,6 +41,15 @@ public class AndMatcher
     this.matchers = checkNotNull(matchers);
   }
 
+  /**
+   * Returns the matchers which must all match.
+   *
+   * @since 3.next
+   */
+  public List<Matcher> getMatchers() {
+    return matchers;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
@@ -41,6 +41,15 @@ public class OrMatcher
     this.matchers = checkNotNull(matchers);
   }
 
+  /**
+   * Returns the matchers of which any one must match.
+   *
+   * @since 3.next
+   */
+  public List<Matcher> getMatchers() {
+    return matchers;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
@@ -32,6 +32,15 @@ public abstract class Token
 
   public abstract String toRegexp();
 
+  /**
+   * Returns the literal value or variable regular expression of this token.
+   *
+   * @since 3.next
+   */
+  public String getValue() {
+    return value;
+  }
+
   private static final List<Character> REGEXP_CHARS = Arrays.asList('[', ']', '{', '}', '(', ')', '\\', '.');
 
   @Override
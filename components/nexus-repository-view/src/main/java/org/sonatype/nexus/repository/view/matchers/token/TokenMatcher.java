@@ -49,6 +49,15 @@ public class TokenMatcher
     this.parser = new TokenParser(pattern);
   }
 
+  /**
+   * Returns the template pattern to match.
+   *
+   * @since 3.next
+   */
+  public String getPattern() {
+    return pattern;
+  }
+
   @Override
   public boolean matches(final Context context) {
     checkNotNull(context);
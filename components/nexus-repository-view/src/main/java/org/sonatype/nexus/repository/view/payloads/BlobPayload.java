@@ -18,6 +18,7 @@ import java.io.InputStream;
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.Blob;
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.repository.view.Payload;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -55,6 +56,12 @@ public class BlobPayload
     return contentType;
   }
 
+  @Nullable
+  @Override
+  public BlobFileRegion getFileRegion() {
+    return blob.getFileRegion();
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -0,0 +1,85 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpclient.internal;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ConnectionPrewarmer}.
+ */
+public class ConnectionPrewarmerTest
+    extends TestSupport
+{
+  private static final URI REMOTE = URI.create("https://example.com/repository/");
+
+  @Mock
+  private CloseableHttpClient httpClient;
+
+  @Mock
+  private CloseableHttpResponse httpResponse;
+
+  @Test
+  public void opensConfiguredNumberOfConnections() throws IOException {
+    when(httpClient.execute(any(HttpUriRequest.class))).thenReturn(httpResponse);
+
+    ConnectionPrewarmer underTest = new ConnectionPrewarmer(3, 2);
+    assertThat(underTest.isEnabled(), is(true));
+
+    underTest.prewarm("test", httpClient, REMOTE);
+
+    ArgumentCaptor<HttpUriRequest> requests = ArgumentCaptor.forClass(HttpUriRequest.class);
+    verify(httpClient, timeout(5000).times(3)).execute(requests.capture());
+    assertThat(requests.getAllValues(), everyItem(instanceOf(HttpHead.class)));
+    assertThat(requests.getValue().getURI(), is(REMOTE));
+  }
+
+  @Test
+  public void failuresAreIgnored() throws IOException {
+    when(httpClient.execute(any(HttpUriRequest.class))).thenThrow(new IOException("refused"));
+
+    new ConnectionPrewarmer(2, 1).prewarm("test", httpClient, REMOTE);
+
+    verify(httpClient, timeout(5000).times(2)).execute(any(HttpUriRequest.class));
+  }
+
+  @Test
+  public void disabledByDefault() throws IOException {
+    ConnectionPrewarmer underTest = new ConnectionPrewarmer(0, 16);
+    assertThat(underTest.isEnabled(), is(false));
+
+    underTest.prewarm("test", httpClient, REMOTE);
+
+    verify(httpClient, after(100).never()).execute(any(HttpUriRequest.class));
+  }
+}
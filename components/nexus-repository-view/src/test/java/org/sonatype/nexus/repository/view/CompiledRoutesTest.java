@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.view.matchers.ActionMatcher;
+import org.sonatype.nexus.repository.view.matchers.LiteralMatcher;
+import org.sonatype.nexus.repository.view.matchers.PrefixMatcher;
+import org.sonatype.nexus.repository.view.matchers.SuffixMatcher;
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.and;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.not;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.or;
+
+/**
+ * Tests for {@link CompiledRoutes}.
+ */
+public class CompiledRoutesTest
+    extends TestSupport
+{
+  @Mock
+  private Repository repository;
+
+  @Test
+  public void firstMatchingRouteWins() {
+    Route metadata = route(and(new ActionMatcher("GET"), new TokenMatcher("/{group:.+}/maven-metadata.xml")));
+    Route any = route(new PrefixMatcher("/"));
+    Route never = route(new LiteralMatcher("/org/maven-metadata.xml", false));
+
+    CompiledRoutes underTest = new CompiledRoutes(Arrays.asList(metadata, any, never), false);
+
+    assertThat(underTest.find(context("GET", "/org/maven-metadata.xml")), is(metadata));
+    assertThat(underTest.find(context("PUT", "/org/maven-metadata.xml")), is(any));
+    assertThat(underTest.find(context("GET", "/org/foo.jar")), is(any));
+    assertThat(underTest.find(context("GET", "foo.jar")), nullValue());
+  }
+
+  @Test
+  public void opaqueMatchersKeepTheirPosition() {
+    Route jar = route(new SuffixMatcher(".jar"));
+    Route custom = route(context -> context.getRequest().getPath().contains("special"));
+    Route negated = route(not(new PrefixMatcher("/private/")));
+    Route pom = route(new TokenMatcher("/{path:.+}.pom"));
+
+    CompiledRoutes underTest = new CompiledRoutes(Arrays.asList(jar, custom, negated, pom), false);
+
+    assertThat(underTest.find(context("GET", "/special.jar")), is(jar));
+    assertThat(underTest.find(context("GET", "/private/special.pom")), is(custom));
+    assertThat(underTest.find(context("GET", "/public/foo.pom")), is(negated));
+    assertThat(underTest.find(context("GET", "/private/foo.pom")), is(pom));
+    assertThat(underTest.find(context("GET", "/private/foo.txt")), nullValue());
+  }
+
+  @Test
+  public void caseInsensitiveMatchersAreGuardedByFoldedCase() {
+    Route literal = route(new LiteralMatcher("/Index.HTML"));
+    Route prefix = route(new PrefixMatcher("/Static/", true));
+
+    CompiledRoutes underTest = new CompiledRoutes(Arrays.asList(literal, prefix), false);
+
+    assertThat(underTest.find(context("GET", "/index.html")), is(literal));
+    assertThat(underTest.find(context("GET", "/STATIC/app.js")), is(prefix));
+    assertThat(underTest.find(context("GET", "/other/app.js")), nullValue());
+  }
+
+  @Test
+  public void alternativesAreAllCandidates() {
+    Route route = route(or(
+        and(new ActionMatcher("GET", "HEAD"), new PrefixMatcher("/a/")),
+        and(new ActionMatcher("PUT"), new PrefixMatcher("/b/"))));
+    Route contradiction = route(and(new PrefixMatcher("/a/"), new PrefixMatcher("/b/")));
+
+    CompiledRoutes underTest = new CompiledRoutes(Arrays.asList(contradiction, route), false);
+
+    assertThat(underTest.find(context("HEAD", "/a/1")), is(route));
+    assertThat(underTest.find(context("PUT", "/b/1")), is(route));
+    assertThat(underTest.find(context("PUT", "/a/1")), nullValue());
+    assertThat(underTest.find(context("DELETE", "/b/1")), nullValue());
+  }
+
+  @Test
+  public void candidatesOfEveryPrefixKeepRouteOrder() {
+    Route deep = route(new PrefixMatcher("/a/b/"));
+    Route shallow = route(new PrefixMatcher("/"));
+    Route middle = route(and(new PrefixMatcher("/a/"), new SuffixMatcher(".txt")));
+
+    CompiledRoutes deepFirst = new CompiledRoutes(Arrays.asList(middle, deep, shallow), false);
+
+    assertThat(deepFirst.find(context("GET", "/a/b/c.txt")), is(middle));
+    assertThat(deepFirst.find(context("GET", "/a/b/c.jar")), is(deep));
+    assertThat(deepFirst.find(context("GET", "/a/bc")), is(shallow));
+
+    CompiledRoutes shallowFirst = new CompiledRoutes(Arrays.asList(shallow, deep), false);
+
+    assertThat(shallowFirst.find(context("GET", "/a/b/c.jar")), is(shallow));
+  }
+
+  @Test
+  public void evaluatedRoutesAreTimed() {
+    Route jar = route(new SuffixMatcher(".jar"));
+    Route pom = route(new SuffixMatcher(".pom"));
+
+    CompiledRoutes underTest = new CompiledRoutes(Arrays.asList(jar, pom), true);
+    underTest.find(context("GET", "/foo.jar"));
+    underTest.find(context("GET", "/foo.jar"));
+    underTest.find(context("GET", "/foo.pom"));
+
+    List<RouteStatistics> statistics = underTest.statistics();
+    assertThat(statistics.get(0).getRoute(), is(jar));
+    assertThat(statistics.get(0).getEvaluations(), is(2L));
+    assertThat(statistics.get(0).getMatches(), is(2L));
+    assertThat(statistics.get(1).getEvaluations(), is(1L));
+    assertThat(statistics.get(1).getMatches(), is(1L));
+  }
+
+  private Context context(final String action, final String path) {
+    return new Context(repository, new Request.Builder().action(action).path(path).build());
+  }
+
+  private static Route route(final Matcher matcher) {
+    return new Route(matcher, singletonList(mock(Handler.class)));
+  }
+}
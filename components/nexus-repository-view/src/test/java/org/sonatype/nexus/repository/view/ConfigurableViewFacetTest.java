@@ -0,0 +1,92 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Arrays;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.view.matchers.SuffixMatcher;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link ConfigurableViewFacet}.
+ */
+public class ConfigurableViewFacetTest
+    extends TestSupport
+{
+  private static final String METRICS_PREFIX = "nexus.repository.test.test-repo.route.";
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private DefaultRoute defaultRoute;
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+
+  private ConfigurableViewFacet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(repository.getName()).thenReturn("test-repo");
+    when(repository.getFormat()).thenReturn(new Format("test") { });
+
+    underTest = new ConfigurableViewFacet();
+    underTest.setMetricRegistry(metricRegistry);
+  }
+
+  @Test
+  public void routeStatisticsArePublishedAsMetrics() throws Exception {
+    Route jar = new Route(new SuffixMatcher(".jar"), singletonList(mock(Handler.class)));
+    Route pom = new Route(new SuffixMatcher(".pom"), singletonList(mock(Handler.class)));
+    Router router = new Router(Arrays.asList(jar, pom), defaultRoute, true);
+    underTest.configure(router);
+    underTest.attach(repository);
+    underTest.init();
+
+    router.dispatch(repository, new Request.Builder().action("GET").path("/foo.jar").build(), null);
+    router.dispatch(repository, new Request.Builder().action("GET").path("/foo.pom").build(), null);
+
+    assertThat(metricRegistry.timer(METRICS_PREFIX + "0.evaluations").getCount(), is(1L));
+    assertThat(metricRegistry.counter(METRICS_PREFIX + "0.matches").getCount(), is(1L));
+    assertThat(metricRegistry.timer(METRICS_PREFIX + "1.evaluations").getCount(), is(1L));
+    assertThat(metricRegistry.counter(METRICS_PREFIX + "1.matches").getCount(), is(1L));
+
+    underTest.destroy();
+
+    assertThat(metricRegistry.getMetrics().keySet(), is(empty()));
+  }
+
+  @Test
+  public void nothingIsPublishedWithoutRouteTiming() throws Exception {
+    Route jar = new Route(new SuffixMatcher(".jar"), singletonList(mock(Handler.class)));
+    underTest.configure(new Router(singletonList(jar), defaultRoute, false));
+    underTest.attach(repository);
+    underTest.init();
+
+    assertThat(metricRegistry.getMetrics().keySet(), is(empty()));
+  }
+}
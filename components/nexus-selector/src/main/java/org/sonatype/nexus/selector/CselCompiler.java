@@ -0,0 +1,493 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.jexl3.parser.ASTAndNode;
+import org.apache.commons.jexl3.parser.ASTEQNode;
+import org.apache.commons.jexl3.parser.ASTERNode;
+import org.apache.commons.jexl3.parser.ASTIdentifier;
+import org.apache.commons.jexl3.parser.ASTJexlScript;
+import org.apache.commons.jexl3.parser.ASTNENode;
+import org.apache.commons.jexl3.parser.ASTOrNode;
+import org.apache.commons.jexl3.parser.ASTReferenceExpression;
+import org.apache.commons.jexl3.parser.ASTSWNode;
+import org.apache.commons.jexl3.parser.ASTStringLiteral;
+import org.apache.commons.jexl3.parser.JexlNode;
+
+/**
+ * Walks a CSEL script, compiling it into a tree of predicates that can be evaluated without interpreting the script.
+ *
+ * Regular expressions are compiled once, and conditions or-ed together on the same variable are merged into a single
+ * lookup: equality into a hash set and prefixes into a sorted prefix set. Only string values are handled; when a
+ * variable is missing or not a string, evaluation throws {@link Fallback} so the caller can defer to JEXL, keeping
+ * its semantics for those cases.
+ *
+ * @since 3.next
+ */
+class CselCompiler
+    extends ParserVisitorSupport
+{
+  private static final CselCompiler INSTANCE = new CselCompiler();
+
+  private CselCompiler() {
+    // utility class
+  }
+
+  /**
+   * Compiles the given CSEL expression (in script form).
+   *
+   * @return the compiled expression, {@code null} if it uses anything that isn't compiled
+   */
+  @Nullable
+  static Condition compile(final ASTJexlScript script) {
+    if (script.jjtGetNumChildren() != 1) {
+      return null;
+    }
+    try {
+      Object compiled = script.jjtGetChild(0).jjtAccept(INSTANCE, null);
+      return compiled instanceof Condition ? (Condition) compiled : null;
+    }
+    catch (Unsupported e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns a condition that is true when any of the given conditions are.
+   */
+  static Condition anyOf(final List<Condition> conditions) {
+    List<Condition> flattened = new ArrayList<>();
+    for (Condition condition : conditions) {
+      if (condition instanceof AnyOf) {
+        flattened.addAll(Arrays.asList(((AnyOf) condition).conditions));
+      }
+      else {
+        flattened.add(condition);
+      }
+    }
+
+    // merge conditions on the same variable into a single lookup
+    Map<String, Set<String>> equalsByVariable = new LinkedHashMap<>();
+    Map<String, Set<String>> prefixesByVariable = new LinkedHashMap<>();
+    List<Condition> others = new ArrayList<>();
+    for (Condition condition : flattened) {
+      if (condition instanceof EqualsAny) {
+        equalsByVariable.computeIfAbsent(((EqualsAny) condition).variable, key -> new HashSet<>())
+            .addAll(((EqualsAny) condition).values);
+      }
+      else if (condition instanceof StartsWithAny) {
+        prefixesByVariable.computeIfAbsent(((StartsWithAny) condition).variable, key -> new HashSet<>())
+            .addAll(Arrays.asList(((StartsWithAny) condition).prefixes));
+      }
+      else {
+        others.add(condition);
+      }
+    }
+
+    List<Condition> merged = new ArrayList<>();
+    equalsByVariable.forEach((variable, values) -> merged.add(new EqualsAny(variable, values)));
+    prefixesByVariable.forEach((variable, prefixes) -> merged.add(new StartsWithAny(variable, prefixes)));
+    merged.addAll(others);
+
+    return merged.size() == 1 ? merged.get(0) : new AnyOf(merged);
+  }
+
+  @Override
+  protected Object doVisit(final JexlNode node, final Object data) {
+    throw Unsupported.INSTANCE;
+  }
+
+  /**
+   * Compile `a || b`
+   */
+  @Override
+  protected Object visit(final ASTOrNode node, final Object data) {
+    return anyOf(conditions(node));
+  }
+
+  /**
+   * Compile `a && b`
+   */
+  @Override
+  protected Object visit(final ASTAndNode node, final Object data) {
+    List<Condition> conditions = new ArrayList<>();
+    for (Condition condition : conditions(node)) {
+      if (condition instanceof AllOf) {
+        conditions.addAll(Arrays.asList(((AllOf) condition).conditions));
+      }
+      else {
+        conditions.add(condition);
+      }
+    }
+    return new AllOf(conditions);
+  }
+
+  /**
+   * Compile `a == b`
+   */
+  @Override
+  protected Object visit(final ASTEQNode node, final Object data) {
+    return equalsCondition(node);
+  }
+
+  /**
+   * Compile `a != b`
+   */
+  @Override
+  protected Object visit(final ASTNENode node, final Object data) {
+    return new Not(equalsCondition(node));
+  }
+
+  /**
+   * Compile `a =~ "regex"`
+   */
+  @Override
+  protected Object visit(final ASTERNode node, final Object data) {
+    Object left = operand(node, LEFT);
+    Object right = operand(node, RIGHT);
+    if (left instanceof Variable && right instanceof String) {
+      try {
+        return new Matches(((Variable) left).name, Pattern.compile((String) right));
+      }
+      catch (PatternSyntaxException e) {
+        throw Unsupported.INSTANCE;
+      }
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  /**
+   * Compile `a =^ "something"`
+   */
+  @Override
+  protected Object visit(final ASTSWNode node, final Object data) {
+    Object left = operand(node, LEFT);
+    Object right = operand(node, RIGHT);
+    if (left instanceof Variable && right instanceof String) {
+      return new StartsWithAny(((Variable) left).name, new HashSet<>(Arrays.asList((String) right)));
+    }
+    if (left instanceof String && right instanceof Variable) {
+      return new PrefixOf(((Variable) right).name, (String) left);
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  /**
+   * Compile `( expression )`
+   */
+  @Override
+  protected Object visit(final ASTReferenceExpression node, final Object data) {
+    if (node.jjtGetNumChildren() != 1) {
+      throw Unsupported.INSTANCE;
+    }
+    return node.jjtGetChild(0).jjtAccept(this, data);
+  }
+
+  /**
+   * String literals are compiled to their value.
+   */
+  @Override
+  protected Object visit(final ASTStringLiteral node, final Object data) {
+    return node.getLiteral();
+  }
+
+  /**
+   * Identifiers are compiled to variable lookups.
+   */
+  @Override
+  protected Object visit(final ASTIdentifier node, final Object data) {
+    return new Variable(node.getName());
+  }
+
+  private List<Condition> conditions(final JexlNode node) {
+    List<Condition> conditions = new ArrayList<>();
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      Object child = node.jjtGetChild(i).jjtAccept(this, null);
+      if (!(child instanceof Condition)) {
+        throw Unsupported.INSTANCE;
+      }
+      conditions.add((Condition) child);
+    }
+    return conditions;
+  }
+
+  private Object operand(final JexlNode node, final int index) {
+    if (node.jjtGetNumChildren() != 2) {
+      throw Unsupported.INSTANCE;
+    }
+    Object operand = node.jjtGetChild(index).jjtAccept(this, null);
+    if (operand instanceof Variable || operand instanceof String) {
+      return operand;
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  private Condition equalsCondition(final JexlNode node) {
+    Object left = operand(node, LEFT);
+    Object right = operand(node, RIGHT);
+    if (left instanceof Variable && right instanceof String) {
+      return new EqualsAny(((Variable) left).name, new HashSet<>(Arrays.asList((String) right)));
+    }
+    if (left instanceof String && right instanceof Variable) {
+      return new EqualsAny(((Variable) right).name, new HashSet<>(Arrays.asList((String) left)));
+    }
+    throw Unsupported.INSTANCE;
+  }
+
+  /**
+   * Compiled condition.
+   */
+  abstract static class Condition
+  {
+    abstract boolean test(Bindings bindings);
+  }
+
+  /**
+   * Values of the variables used while evaluating a condition, each looked up at most once.
+   */
+  static class Bindings
+  {
+    private final VariableSource source;
+
+    private String[] names = new String[4];
+
+    private String[] values = new String[4];
+
+    private int size;
+
+    Bindings(final VariableSource source) {
+      this.source = source;
+    }
+
+    String get(final String name) {
+      for (int i = 0; i < size; i++) {
+        if (names[i].equals(name)) {
+          return values[i];
+        }
+      }
+      if (!source.getVariableSet().contains(name)) {
+        throw Fallback.INSTANCE;
+      }
+      Object value = source.get(name).orElse(null);
+      if (!(value instanceof String)) {
+        throw Fallback.INSTANCE;
+      }
+      if (size == names.length) {
+        names = Arrays.copyOf(names, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      names[size] = name;
+      values[size] = (String) value;
+      size++;
+      return (String) value;
+    }
+  }
+
+  /**
+   * Thrown during evaluation when a value isn't one the compiled condition can handle.
+   */
+  static final class Fallback
+      extends RuntimeException
+  {
+    static final Fallback INSTANCE = new Fallback();
+
+    private Fallback() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Thrown during compilation when the script uses something that isn't compiled.
+   */
+  private static final class Unsupported
+      extends RuntimeException
+  {
+    private static final Unsupported INSTANCE = new Unsupported();
+
+    private Unsupported() {
+      super(null, null, false, false);
+    }
+  }
+
+  private static class Variable
+  {
+    private final String name;
+
+    private Variable(final String name) {
+      this.name = name;
+    }
+  }
+
+  private static class AnyOf
+      extends Condition
+  {
+    private final Condition[] conditions;
+
+    private AnyOf(final List<Condition> conditions) {
+      this.conditions = conditions.toArray(new Condition[0]);
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      for (Condition condition : conditions) {
+        if (condition.test(bindings)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static class AllOf
+      extends Condition
+  {
+    private final Condition[] conditions;
+
+    private AllOf(final List<Condition> conditions) {
+      this.conditions = conditions.toArray(new Condition[0]);
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      for (Condition condition : conditions) {
+        if (!condition.test(bindings)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class Not
+      extends Condition
+  {
+    private final Condition condition;
+
+    private Not(final Condition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      return !condition.test(bindings);
+    }
+  }
+
+  private static class EqualsAny
+      extends Condition
+  {
+    private final String variable;
+
+    private final Set<String> values;
+
+    private EqualsAny(final String variable, final Set<String> values) {
+      this.variable = variable;
+      this.values = values;
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      return values.contains(bindings.get(variable));
+    }
+  }
+
+  private static class Matches
+      extends Condition
+  {
+    private final String variable;
+
+    private final Pattern pattern;
+
+    private Matches(final String variable, final Pattern pattern) {
+      this.variable = variable;
+      this.pattern = pattern;
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      return pattern.matcher(bindings.get(variable)).matches();
+    }
+  }
+
+  /**
+   * Does the variable start with any of the prefixes?
+   *
+   * Prefixes covered by a shorter prefix are dropped, leaving a set where no prefix starts with another. In such a
+   * set, the only prefix that can match a value is the greatest prefix not after the value, which a binary search
+   * finds without allocating.
+   */
+  private static class StartsWithAny
+      extends Condition
+  {
+    private final String variable;
+
+    private final String[] prefixes;
+
+    private StartsWithAny(final String variable, final Set<String> prefixes) {
+      this.variable = variable;
+      List<String> minimal = new ArrayList<>();
+      for (String prefix : new TreeSet<>(prefixes)) {
+        // sorted order puts each prefix straight after any shorter prefix covering it
+        if (minimal.isEmpty() || !prefix.startsWith(minimal.get(minimal.size() - 1))) {
+          minimal.add(prefix);
+        }
+      }
+      this.prefixes = minimal.toArray(new String[0]);
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      String value = bindings.get(variable);
+      int index = Arrays.binarySearch(prefixes, value);
+      if (index >= 0) {
+        return true;
+      }
+      int floor = -index - 2;
+      return floor >= 0 && value.startsWith(prefixes[floor]);
+    }
+  }
+
+  /**
+   * Is the literal prefixed by the variable, as in `"literal" =^ variable`?
+   */
+  private static class PrefixOf
+      extends Condition
+  {
+    private final String variable;
+
+    private final String literal;
+
+    private PrefixOf(final String variable, final String literal) {
+      this.variable = variable;
+      this.literal = literal;
+    }
+
+    @Override
+    boolean test(final Bindings bindings) {
+      return literal.startsWith(bindings.get(variable));
+    }
+  }
+}
@@ -12,11 +12,30 @@
  */
 package org.sonatype.nexus.selector;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.selector.CselCompiler.Bindings;
+import org.sonatype.nexus.selector.CselCompiler.Condition;
+import org.sonatype.nexus.selector.CselCompiler.Fallback;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Subset of JEXL selectors that can also be represented as SQL.
  *
+ * Expressions are compiled on creation (see {@link CselCompiler}) so they can be evaluated without interpreting
+ * the script; this can be turned off with {@code nexus.selector.csel.compile=false}.
+ *
  * @since 3.6
  */
 public class CselSelector
@@ -24,12 +43,32 @@ public class CselSelector
 {
   public static final String TYPE = "csel";
 
+  private static final Logger log = LoggerFactory.getLogger(CselSelector.class);
+
+  private static final boolean COMPILE = SystemPropertiesHelper.getBoolean("nexus.selector.csel.compile", true);
+
   private final CselToSql cselToSql;
 
+  @Nullable
+  private final Condition condition;
+
   public CselSelector(final CselToSql cselToSql, final JexlExpression expression) {
     super(expression);
     this.cselToSql = checkNotNull(cselToSql);
+    this.condition = COMPILE ? CselCompiler.compile(expression.getSyntaxTree()) : null;
+  }
 
+  @Override
+  public boolean evaluate(final VariableSource source) {
+    if (condition != null) {
+      try {
+        return condition.test(new Bindings(source));
+      }
+      catch (Fallback e) { // NOSONAR
+        // value the compiled condition doesn't handle
+      }
+    }
+    return super.evaluate(source);
   }
 
   @Override
@@ -41,4 +80,99 @@ public class CselSelector
   public <T> void toSql(final T sqlBuilder, final CselToSql<T> cselToSql) {
     cselToSql.transformCselToSql(expression.getSyntaxTree(), sqlBuilder);
   }
+
+  /**
+   * Combines the given selectors into one that matches when any of them do, as when a user is granted access through
+   * several content selectors. Compiled selectors are merged into a single condition; any others are evaluated in
+   * turn afterwards. Selectors that fail to evaluate are treated as not matching. As SQL the selectors are or-ed
+   * together, each in its own brackets.
+   *
+   * @since 3.next
+   */
+  public static Selector anyOf(final List<Selector> selectors) {
+    List<Condition> conditions = new ArrayList<>();
+    List<Selector> others = new ArrayList<>();
+    for (Selector selector : selectors) {
+      if (selector instanceof CselSelector && ((CselSelector) selector).condition != null) {
+        conditions.add(((CselSelector) selector).condition);
+      }
+      else {
+        others.add(selector);
+      }
+    }
+    return new AnyOfSelector(conditions.isEmpty() ? null : CselCompiler.anyOf(conditions), selectors, others);
+  }
+
+  private static class AnyOfSelector
+      implements Selector
+  {
+    @Nullable
+    private final Condition condition;
+
+    private final List<Selector> selectors;
+
+    private final List<Selector> others;
+
+    private AnyOfSelector(
+        @Nullable final Condition condition,
+        final List<Selector> selectors,
+        final List<Selector> others)
+    {
+      this.condition = condition;
+      this.selectors = selectors;
+      this.others = others;
+    }
+
+    @Override
+    public boolean evaluate(final VariableSource source) {
+      if (condition != null) {
+        try {
+          if (condition.test(new Bindings(source))) {
+            return true;
+          }
+          return anyMatch(others, source);
+        }
+        catch (Fallback e) { // NOSONAR
+          // evaluate each selector on its own, deferring to JEXL where needed
+        }
+      }
+      return anyMatch(selectors, source);
+    }
+
+    private static boolean anyMatch(final List<Selector> selectors, final VariableSource source) {
+      for (Selector selector : selectors) {
+        try {
+          if (selector.evaluate(source)) {
+            return true;
+          }
+        }
+        catch (Exception e) {
+          log.debug("Selector '{}' cannot be evaluated", selector, e);
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void toSql(final SelectorSqlBuilder sqlBuilder) {
+      appendAnyOf(sqlBuilder, selector -> selector.toSql(sqlBuilder));
+    }
+
+    @Override
+    public <T> void toSql(final T sqlBuilder, final CselToSql<T> cselToSql) {
+      checkArgument(sqlBuilder instanceof SelectorSqlBuilder, "Unsupported SQL builder %s", sqlBuilder);
+      appendAnyOf((SelectorSqlBuilder) sqlBuilder, selector -> selector.toSql(sqlBuilder, cselToSql));
+    }
+
+    private void appendAnyOf(final SelectorSqlBuilder sqlBuilder, final Consumer<Selector> toSql) {
+      checkState(!selectors.isEmpty(), "No selectors to combine");
+      for (int i = 0; i < selectors.size(); i++) {
+        if (i > 0) {
+          sqlBuilder.appendOperator("or");
+        }
+        Selector selector = selectors.get(i);
+        sqlBuilder.appendExpression(() -> toSql.accept(selector));
+      }
+    }
+  }
 }
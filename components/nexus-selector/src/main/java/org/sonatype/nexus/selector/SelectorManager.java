@@ -22,6 +22,8 @@ import javax.annotation.Nullable;
 import org.sonatype.goodies.lifecycle.Lifecycle;
 import org.sonatype.nexus.common.entity.EntityId;
 
+import org.slf4j.LoggerFactory;
+
 /**
  * Manages content selectors.
  *
@@ -108,6 +110,29 @@ public interface SelectorManager
   boolean evaluate(SelectorConfiguration selectorConfiguration, VariableSource variableSource)
       throws SelectorEvaluationException;
 
+  /**
+   * Evaluate whether any of the specified content selectors match the given variable source. Selectors that cannot
+   * be evaluated are treated as not matching.
+   *
+   * @since 3.next
+   */
+  default boolean evaluateAny(
+      final List<SelectorConfiguration> selectorConfigurations,
+      final VariableSource variableSource)
+  {
+    for (SelectorConfiguration selectorConfiguration : selectorConfigurations) {
+      try {
+        if (evaluate(selectorConfiguration, variableSource)) {
+          return true;
+        }
+      }
+      catch (SelectorEvaluationException e) {
+        LoggerFactory.getLogger(SelectorManager.class).debug(e.getMessage());
+      }
+    }
+    return false;
+  }
+
   /**
    * Convert the specified content selector to SQL for use as a 'where' clause.
    *
@@ -0,0 +1,141 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.selector.internal.DatastoreCselToSql;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+
+public class CselSelectorTest
+    extends TestSupport
+{
+  private static final List<String> EXPRESSIONS = asList(
+      "format == \"maven2\"",
+      "\"maven2\" == format",
+      "format != \"maven2\"",
+      "path =^ \"/org/apache/\"",
+      "\"/org/apache/maven/foo\" =^ path",
+      "path =~ \"/org/.*/bar/.*\"",
+      "path =~ \".*\\.jar\"",
+      "path =~ \"^/org.*\"",
+      "format == \"maven2\" and path =^ \"/org/\"",
+      "format == \"npm\" or path =^ \"/com/\" or path =^ \"/org/apache\" or path =^ \"/org\"",
+      "path == \"/a\" or path == \"/org/apache/maven/foo/bar/moo.jar\" or format == \"npm\"",
+      "(format == \"maven2\" or format == \"npm\") and (path =^ \"/org/\" and path =~ \".*moo.*\")",
+      "format == \"maven2\" && !(path =^ \"/org/\")");
+
+  private static final List<String> PATHS = asList(
+      "/org/apache/maven/foo/bar/moo.jar",
+      "/org/apache/",
+      "/org",
+      "/com/example/app.war",
+      "/a",
+      "");
+
+  private final JexlEngine engine = new JexlEngine();
+
+  @Test
+  public void compiledSelectorsMatchJexl() {
+    for (String expression : EXPRESSIONS) {
+      CselSelector compiled = new CselSelector(mock(CselToSql.class), engine.buildExpression(expression, false));
+      JexlSelector interpreted = new JexlSelector(engine.buildExpression(expression, false));
+      for (String format : asList("maven2", "npm")) {
+        for (String path : PATHS) {
+          VariableSource source = source(format, path);
+          assertThat(expression + " with " + format + ":" + path,
+              compiled.evaluate(source), is(interpreted.evaluate(source)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void onlyCselExpressionsAreCompiled() {
+    assertThat(CselCompiler.compile(engine.parseExpression("path =^ \"/org/\" or format == \"npm\"")),
+        is(notNullValue()));
+    assertThat(CselCompiler.compile(engine.parseExpression("!(path =^ \"/org/\")")), is(nullValue()));
+    assertThat(CselCompiler.compile(engine.parseExpression("path.size() > 2")), is(nullValue()));
+  }
+
+  @Test
+  public void valuesThatAreNotStringsAreEvaluatedByJexl() {
+    CselSelector selector = new CselSelector(mock(CselToSql.class), engine.buildExpression("path == \"1\"", false));
+
+    VariableSource source = new VariableSourceBuilder().addResolver(new ConstantVariableResolver(1, "path")).build();
+    JexlSelector interpreted = new JexlSelector(engine.buildExpression("path == \"1\"", false));
+
+    assertThat(selector.evaluate(source), is(interpreted.evaluate(source)));
+  }
+
+  @Test
+  public void anyOfMatchesWhenAnySelectorMatches() {
+    Selector selector = CselSelector.anyOf(Arrays.asList(
+        csel("format == \"npm\" and path =^ \"/@scope/\""),
+        csel("path =^ \"/org/apache/\""),
+        csel("path =^ \"/org/\""),
+        new JexlSelector(engine.buildExpression("path == \"/jexl\"", false))));
+
+    assertThat(selector.evaluate(source("maven2", "/org/sonatype/a.jar")), is(true));
+    assertThat(selector.evaluate(source("npm", "/@scope/a.tgz")), is(true));
+    assertThat(selector.evaluate(source("maven2", "/@scope/a.tgz")), is(false));
+    assertThat(selector.evaluate(source("maven2", "/jexl")), is(true));
+    assertThat(selector.evaluate(source("maven2", "/com/a.jar")), is(false));
+  }
+
+  @Test
+  public void anyOfOrsTheSqlOfEachSelector() {
+    DatastoreCselToSql cselToSql = new DatastoreCselToSql();
+    Selector selector = CselSelector.anyOf(Arrays.asList(
+        new CselSelector(cselToSql, engine.buildExpression("format == \"npm\" and path == \"/a\"", false)),
+        new CselSelector(cselToSql, engine.buildExpression("path == \"/b\"", false))));
+
+    SelectorSqlBuilder builder = new SelectorSqlBuilder()
+        .propertyAlias("format", "format_alias")
+        .propertyAlias("path", "path_alias")
+        .parameterPrefix(":")
+        .parameterNamePrefix("param_");
+    selector.toSql(builder);
+
+    assertThat(builder.getQueryString(),
+        is("(format_alias = :param_0 and path_alias = :param_1) or (path_alias = :param_2)"));
+    assertThat(builder.getQueryParameters().get("param_2"), is("/b"));
+
+    builder.clearQueryString();
+    selector.toSql(builder, cselToSql);
+
+    assertThat(builder.getQueryString(),
+        is("(format_alias = :param_0 and path_alias = :param_1) or (path_alias = :param_2)"));
+  }
+
+  private Selector csel(final String expression) {
+    return new CselSelector(mock(CselToSql.class), engine.buildExpression(expression, false));
+  }
+
+  private static VariableSource source(final String format, final String path) {
+    return new VariableSourceBuilder()
+        .addResolver(new ConstantVariableResolver(format, "format"))
+        .addResolver(new ConstantVariableResolver(path, "path"))
+        .build();
+  }
+}
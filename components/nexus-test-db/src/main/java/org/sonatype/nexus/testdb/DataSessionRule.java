@@ -218,6 +218,12 @@ public class DataSessionRule
         .openSession(TransactionIsolation.SERIALIZABLE);
   }
 
+  @Override
+  public DataSession<?> openReadOnlySession(final String storeName) {
+    return ofNullable(stores.get(storeName)).orElseThrow(() -> new DataStoreNotFoundException(storeName))
+        .openSession(TransactionIsolation.READ_ONLY);
+  }
+
   @Override
   public Connection openConnection(final String storeName) throws SQLException {
     return ofNullable(stores.get(storeName)).orElseThrow(() -> new DataStoreNotFoundException(storeName)).openConnection();
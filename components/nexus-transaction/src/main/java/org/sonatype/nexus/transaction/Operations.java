@@ -128,6 +128,16 @@ public class Operations<E extends Exception, B extends Operations<E, B>>
         throwing, store);
   }
 
+  /**
+   * @see Transactional#isolation()
+   * @since 3.next
+   */
+  public final B isolation(final TransactionIsolation isolation) {
+    checkNotNull(isolation);
+    return (B) copy(new TransactionalImpl(spec.reason(), spec.commitOn(), spec.retryOn(), spec.swallow(), isolation),
+        throwing, store);
+  }
+
   /**
    * Applies the given stereotype annotation (meta-annotated with &#064;{@link Transactional}).
    *
@@ -23,5 +23,13 @@ public enum TransactionIsolation
    *
    * See also {@link SerializedAccessException} which will be thrown on failure.
    */
-  SERIALIZABLE
+  SERIALIZABLE,
+
+  /**
+   * Read-only transactions may be routed to a read replica when the store has one configured, so they may not see
+   * the most recent writes. Stores without a replica treat this the same as {@link #STANDARD}.
+   *
+   * @since 3.next
+   */
+  READ_ONLY
 }
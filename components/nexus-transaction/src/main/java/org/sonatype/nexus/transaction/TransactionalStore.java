@@ -33,6 +33,7 @@ public interface TransactionalStore<S extends TransactionalSession<?>>
   default S openSession(final TransactionIsolation isolationLevel) {
     switch(isolationLevel) {
       case STANDARD:
+      case READ_ONLY:
         return openSession();
       default:
         throw new UnsupportedOperationException();
@@ -49,6 +49,9 @@ public class OperationsBuilderTest
     @Transactional(swallow = { RuntimeException.class, MalformedURLException.class })
     void customSwallow();
 
+    @Transactional(isolation = TransactionIsolation.READ_ONLY)
+    void customIsolation();
+
     @Transactional(commitOn = IllegalStateException.class, retryOn = RuntimeException.class, swallow = IOException.class)
     void customValues();
 
@@ -111,6 +114,14 @@ public class OperationsBuilderTest
       // expected
     }
 
+    try {
+      new Operations().isolation(null);
+      fail("Expected NullPointerException");
+    }
+    catch (NullPointerException e) {
+      // expected
+    }
+
     try {
       new Operations().stereotype(null);
       fail("Expected NullPointerException");
@@ -151,6 +162,10 @@ public class OperationsBuilderTest
         new Operations().swallow(RuntimeException.class, MalformedURLException.class).spec,
         sample("customSwallow"));
 
+    assertBehaviour(
+        new Operations().isolation(TransactionIsolation.READ_ONLY).spec,
+        sample("customIsolation"));
+
     assertBehaviour(
         new Operations().commitOn(IllegalStateException.class).retryOn(RuntimeException.class).swallow(IOException.class).spec,
         sample("customValues"));
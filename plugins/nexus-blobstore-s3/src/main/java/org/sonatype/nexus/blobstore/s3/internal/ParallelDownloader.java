@@ -0,0 +1,322 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.min;
+
+/**
+ * Downloads large objects from S3 as several ranged GETs running in parallel.
+ *
+ * The returned stream reads the ranges in order, keeping up to {@code nexus.s3.rangedDownload.parallelism} ranges of
+ * {@code nexus.s3.rangedDownload.chunkSize} bytes in flight ahead of the reader. Each stream reuses the buffers of
+ * ranges it has read, so it allocates at most one more buffer than the ranges in flight. Objects smaller than
+ * {@code nexus.s3.rangedDownload.minimumSize} are fetched with a single GET as before. Every range must come from the
+ * same version of the object, otherwise the stream fails.
+ *
+ * Ranges are fetched by a pool of {@code nexus.s3.rangedDownload.threads} threads with a queue of
+ * {@code nexus.s3.rangedDownload.queueCapacity} ranges; when the queue is full, or no blob store has started the
+ * pool, ranges are fetched by the reading thread instead. The pool is shut down when the last blob store using it
+ * stops.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class ParallelDownloader
+    extends ComponentSupport
+{
+  private final boolean enabled;
+
+  private final long minimumSize;
+
+  private final int chunkSize;
+
+  private final int parallelism;
+
+  private final int threads;
+
+  private final int queueCapacity;
+
+  private int users;
+
+  @Nullable
+  private volatile ThreadPoolExecutor executor;
+
+  @Inject
+  public ParallelDownloader(
+      @Named("${nexus.s3.rangedDownload.enabled:-false}") final boolean enabled,
+      @Named("${nexus.s3.rangedDownload.minimumSize:-67108864}") final long minimumSize,
+      @Named("${nexus.s3.rangedDownload.chunkSize:-8388608}") final int chunkSize,
+      @Named("${nexus.s3.rangedDownload.parallelism:-4}") final int parallelism,
+      @Named("${nexus.s3.rangedDownload.threads:-32}") final int threads,
+      @Named("${nexus.s3.rangedDownload.queueCapacity:-64}") final int queueCapacity)
+  {
+    checkArgument(chunkSize > 0, "nexus.s3.rangedDownload.chunkSize must be positive");
+    checkArgument(parallelism > 0, "nexus.s3.rangedDownload.parallelism must be positive");
+    checkArgument(threads > 0, "nexus.s3.rangedDownload.threads must be positive");
+    checkArgument(queueCapacity > 0, "nexus.s3.rangedDownload.queueCapacity must be positive");
+    this.enabled = enabled;
+    this.minimumSize = minimumSize;
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+    this.threads = threads;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Called by each blob store that starts using this downloader; the first call starts the thread pool.
+   */
+  public synchronized void start() {
+    if (users++ == 0) {
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(
+          threads,
+          threads,
+          60L,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(queueCapacity),
+          new NexusThreadFactory("s3-parallel", "downloadThreads"));
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+    }
+  }
+
+  /**
+   * Called by each blob store that stops using this downloader; the last call shuts the thread pool down, letting
+   * ranges already queued finish.
+   */
+  public synchronized void stop() {
+    if (users > 0 && --users == 0) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Should an object of the given size be downloaded in ranges?
+   */
+  public boolean isParallel(final long size) {
+    return enabled && size >= minimumSize && size > chunkSize;
+  }
+
+  /**
+   * Opens a stream over the object, which is expected to be {@code size} bytes long.
+   */
+  public InputStream download(final AmazonS3 s3, final String bucket, final String key, final long size) {
+    checkNotNull(s3);
+    checkNotNull(bucket);
+    checkNotNull(key);
+    if (!isParallel(size)) {
+      return s3.getObject(bucket, key).getObjectContent();
+    }
+    return new RangedInputStream(s3, bucket, key, size);
+  }
+
+  /**
+   * Reassembles the ranges of an object in order, fetching ahead of the reader.
+   */
+  private class RangedInputStream
+      extends InputStream
+  {
+    private final AmazonS3 s3;
+
+    private final String bucket;
+
+    private final String key;
+
+    private final long size;
+
+    private final Deque<Future<Chunk>> ranges = new ArrayDeque<>();
+
+    /**
+     * Buffers of ranges that have been read, reused for the next ranges; only touched by the reading thread.
+     */
+    private final Deque<byte[]> freeBuffers = new ArrayDeque<>();
+
+    private long nextOffset;
+
+    @Nullable
+    private volatile String eTag;
+
+    @Nullable
+    private Chunk current;
+
+    private int position;
+
+    private boolean closed;
+
+    private RangedInputStream(final AmazonS3 s3, final String bucket, final String key, final long size) {
+      this.s3 = s3;
+      this.bucket = bucket;
+      this.key = key;
+      this.size = size;
+      fetchAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      checkNotNull(b);
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (current == null || position == current.length) {
+        Future<Chunk> next = ranges.poll();
+        if (next == null) {
+          return -1;
+        }
+        Chunk chunk = await(next);
+        if (current != null) {
+          freeBuffers.push(current.bytes);
+        }
+        current = chunk;
+        position = 0;
+        fetchAhead();
+      }
+      int count = min(len, current.length - position);
+      System.arraycopy(current.bytes, position, b, off, count);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return current != null ? current.length - position : 0;
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        current = null;
+        freeBuffers.clear();
+        // let requests in progress finish, but don't start any that are still queued
+        ranges.forEach(range -> range.cancel(false));
+        ranges.clear();
+      }
+    }
+
+    private void fetchAhead() {
+      while (ranges.size() < parallelism && nextOffset < size) {
+        long firstByte = nextOffset;
+        long lastByte = min(size, firstByte + chunkSize) - 1;
+        nextOffset = lastByte + 1;
+
+        byte[] buffer = freeBuffers.isEmpty() ? new byte[chunkSize] : freeBuffers.pop();
+        FutureTask<Chunk> range = new FutureTask<>(() -> fetch(firstByte, lastByte, buffer));
+        try {
+          ThreadPoolExecutor pool = executor;
+          if (pool == null) {
+            throw new RejectedExecutionException("Not started");
+          }
+          pool.execute(range);
+        }
+        catch (RejectedExecutionException e) {
+          log.debug("Unable to fetch {} range {}-{} in parallel, fetching directly", key, firstByte, lastByte);
+          range.run();
+        }
+        ranges.add(range);
+      }
+    }
+
+    private Chunk fetch(final long firstByte, final long lastByte, final byte[] buffer) throws IOException {
+      log.trace("Fetching {}/{} range {}-{}", bucket, key, firstByte, lastByte);
+      GetObjectRequest request = new GetObjectRequest(bucket, key).withRange(firstByte, lastByte);
+      try (S3Object object = s3.getObject(request); InputStream in = object.getObjectContent()) {
+        checkVersion(object.getObjectMetadata().getETag());
+        int length = (int) (lastByte - firstByte + 1);
+        ByteStreams.readFully(in, buffer, 0, length);
+        return new Chunk(buffer, length);
+      }
+    }
+
+    private void checkVersion(@Nullable final String rangeETag) throws IOException {
+      synchronized (this) {
+        if (eTag == null) {
+          eTag = rangeETag;
+        }
+      }
+      if (!Objects.equals(eTag, rangeETag)) {
+        throw new IOException("Object " + bucket + "/" + key + " changed during download");
+      }
+    }
+
+    private Chunk await(final Future<Chunk> range) throws IOException {
+      try {
+        return range.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted downloading " + bucket + "/" + key);
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException("Unable to download " + bucket + "/" + key, cause);
+      }
+    }
+  }
+
+  /**
+   * Content of a range, held in a buffer that may be longer.
+   */
+  private static class Chunk
+  {
+    private final byte[] bytes;
+
+    private final int length;
+
+    private Chunk(final byte[] bytes, final int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
+  }
+}
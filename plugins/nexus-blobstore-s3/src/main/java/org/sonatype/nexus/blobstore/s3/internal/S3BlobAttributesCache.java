@@ -0,0 +1,154 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobAttributes;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.nullToEmpty;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Bounded LRU cache of blob attributes read from S3, shared by all S3 blob stores on this node.
+ *
+ * Reading a blob normally costs a request for its {@code .properties} object before the content can be fetched;
+ * with the cache enabled repeat reads of the same blob go straight to the content. Entries are dropped whenever this
+ * node changes the attributes, and expire after {@code nexus.s3.attributeCache.ttl} to bound how long changes made by
+ * other nodes go unnoticed. Only attributes of existing blobs are cached. Entries are keyed by the
+ * {@link #location location} of the bucket as well as the attribute path, so stores using buckets of the same name on
+ * different endpoints or regions don't share entries.
+ *
+ * Hit and miss counts and the hit rate are published under {@code nexus.s3.attributeCache}.
+ *
+ * @since 3.next
+ */
+@Named
+@Singleton
+public class S3BlobAttributesCache
+    extends ComponentSupport
+{
+  private static final String METRIC_PREFIX = "nexus.s3.attributeCache";
+
+  private final boolean enabled;
+
+  private final Cache<String, CachedAttributes> cache;
+
+  @Inject
+  public S3BlobAttributesCache(
+      @Named("${nexus.s3.attributeCache.enabled:-false}") final boolean enabled,
+      @Named("${nexus.s3.attributeCache.maximumSize:-50000}") final long maximumSize,
+      @Named("${nexus.s3.attributeCache.ttl:-60s}") final Duration ttl)
+  {
+    checkArgument(maximumSize > 0, "nexus.s3.attributeCache.maximumSize must be positive");
+    this.enabled = enabled;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+
+    if (enabled) {
+      MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+      registry.remove(MetricRegistry.name(METRIC_PREFIX, "hits"));
+      registry.remove(MetricRegistry.name(METRIC_PREFIX, "misses"));
+      registry.remove(MetricRegistry.name(METRIC_PREFIX, "hitRate"));
+      registry.register(MetricRegistry.name(METRIC_PREFIX, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+      registry.register(MetricRegistry.name(METRIC_PREFIX, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+      registry.register(MetricRegistry.name(METRIC_PREFIX, "hitRate"), (Gauge<Double>) () -> cache.stats().hitRate());
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Identifies a bucket by its endpoint, region and name.
+   *
+   * @param endpoint custom endpoint of the blob store, {@code null} for AWS
+   * @param region   region of the blob store, {@code null} for the default region
+   */
+  public static String location(@Nullable final String endpoint, @Nullable final String region, final String bucket) {
+    return nullToEmpty(endpoint) + '|' + nullToEmpty(region) + '|' + checkNotNull(bucket);
+  }
+
+  @Nullable
+  public CachedAttributes get(final String location, final String attributePath) {
+    return enabled ? cache.getIfPresent(key(location, attributePath)) : null;
+  }
+
+  public void put(final String location, final String attributePath, final BlobAttributes attributes) {
+    if (enabled && attributes.getMetrics() != null) {
+      cache.put(key(location, attributePath), new CachedAttributes(attributes));
+    }
+  }
+
+  public void invalidate(final String location, final String attributePath) {
+    if (enabled) {
+      cache.invalidate(key(location, attributePath));
+    }
+  }
+
+  private static String key(final String location, final String attributePath) {
+    return checkNotNull(location) + '/' + checkNotNull(attributePath);
+  }
+
+  /**
+   * Immutable copy of the attributes needed to serve a blob.
+   */
+  public static class CachedAttributes
+  {
+    private final Map<String, String> headers;
+
+    private final BlobMetrics metrics;
+
+    private final boolean deleted;
+
+    private CachedAttributes(final BlobAttributes attributes) {
+      this.headers = unmodifiableMap(new HashMap<>(attributes.getHeaders()));
+      this.metrics = attributes.getMetrics();
+      this.deleted = attributes.isDeleted();
+    }
+
+    public Map<String, String> getHeaders() {
+      return headers;
+    }
+
+    public BlobMetrics getMetrics() {
+      return metrics;
+    }
+
+    public boolean isDeleted() {
+      return deleted;
+    }
+  }
+}
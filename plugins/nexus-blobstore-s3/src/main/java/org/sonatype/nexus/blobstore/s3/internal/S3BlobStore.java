@@ -50,6 +50,8 @@ import org.sonatype.nexus.blobstore.api.metrics.BlobStoreMetricsService;
 import org.sonatype.nexus.blobstore.metrics.MonitoringBlobStoreMetrics;
 import org.sonatype.nexus.blobstore.quota.BlobStoreQuotaUsageChecker;
 import org.sonatype.nexus.blobstore.s3.S3BlobStoreConfigurationHelper;
+import org.sonatype.nexus.blobstore.s3.internal.S3BlobAttributesCache.CachedAttributes;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
 import org.sonatype.nexus.common.log.DryRunPrefix;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.thread.NexusThreadFactory;
@@ -89,6 +91,7 @@ import static java.util.stream.StreamSupport.stream;
 import static org.sonatype.nexus.blobstore.DirectPathLocationStrategy.DIRECT_PATH_ROOT;
 import static org.sonatype.nexus.blobstore.api.OperationType.DOWNLOAD;
 import static org.sonatype.nexus.blobstore.api.OperationType.UPLOAD;
+import static org.sonatype.nexus.blobstore.s3.S3BlobStoreConfigurationHelper.CONFIG_KEY;
 import static org.sonatype.nexus.blobstore.s3.S3BlobStoreConfigurationHelper.getConfiguredExpirationInDays;
 import static org.sonatype.nexus.blobstore.s3.internal.S3BlobStoreException.buildException;
 import static org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport.State.FAILED;
@@ -187,6 +190,17 @@ public class S3BlobStore
 
   private RawObjectAccess rawObjectAccess;
 
+  @Nullable
+  private S3BlobAttributesCache attributesCache;
+
+  /**
+   * Location of the bucket, keying its entries in the attributes cache.
+   */
+  private String attributesCacheLocation;
+
+  @Nullable
+  private ParallelDownloader downloader;
+
   @Inject
   public S3BlobStore(
       final AmazonS3Factory amazonS3Factory,
@@ -220,6 +234,22 @@ public class S3BlobStore
     hardDeleteTimer = registry.timer(MetricRegistry.name(S3BlobStore.class, METRIC_NAME, "hardDelete"));
   }
 
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setAttributesCache(final S3BlobAttributesCache attributesCache) {
+    this.attributesCache = attributesCache;
+  }
+
+  /**
+   * @since 3.next
+   */
+  @Inject
+  public void setDownloader(final ParallelDownloader downloader) {
+    this.downloader = downloader;
+  }
+
   @Override
   protected void doStart() throws Exception {
     // ensure blobstore is supported
@@ -245,10 +275,17 @@ public class S3BlobStore
       this.executorService = newFixedThreadPool(8,
           new NexusThreadFactory("s3-blobstore", "async-ops"));
     }
+
+    if (downloader != null) {
+      downloader.start();
+    }
   }
 
   @Override
   protected void doStop() throws Exception {
+    if (downloader != null) {
+      downloader.stop();
+    }
     liveBlobs = null;
     if (executorService != null) {
       executorService.shutdown();
@@ -341,6 +378,7 @@ public class S3BlobStore
       final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSha1(), streamMetrics.getSize());
       blob.refresh(headers, metrics);
       S3BlobAttributes blobAttributes = writeBlobAttributes(headers, attributePath, metrics);
+      cacheAttributes(attributePath, blobAttributes);
       if (isDirectPath && existingSize != null) {
         metricsService.recordDeletion(existingSize);
       }
@@ -386,6 +424,7 @@ public class S3BlobStore
       log.debug("Attempting to make blob with id: {} and path: {} permanent.", blobId, blobPath);
       blob.refresh(headers, metrics);
       writeBlobAttributes(headers, attributePath, metrics);
+      invalidateCachedAttributes(attributePath);
       return blob;
     }
     catch (IOException e) {
@@ -429,12 +468,23 @@ public class S3BlobStore
     Lock lock = blob.lock();
     try {
       if (blob.isStale()) {
+        CachedAttributes cached = cachedAttributes(attributePath(blobId));
+        if (cached != null) {
+          if (cached.isDeleted() && !includeDeleted) {
+            log.debug("Attempt to access soft-deleted blob {}", blobId);
+            return null;
+          }
+          blob.refresh(cached.getHeaders(), cached.getMetrics());
+          return blob;
+        }
+
         S3BlobAttributes blobAttributes = new S3BlobAttributes(s3, getConfiguredBucket(), attributePath(blobId));
         boolean loaded = blobAttributes.load();
         if (!loaded) {
           log.warn("Attempt to access non-existent blob {} ({})", blobId, blobAttributes);
           return null;
         }
+        cacheAttributes(attributePath(blobId), blobAttributes);
 
         if (blobAttributes.isDeleted() && !includeDeleted) {
           log.debug("Attempt to access soft-deleted blob {} attributes: {}", blobId, blobAttributes);
@@ -500,6 +550,7 @@ public class S3BlobStore
       blobAttributes.setDeletedReason(reason);
       blobAttributes.setDeletedDateTime(new DateTime());
       blobAttributes.store();
+      invalidateCachedAttributes(attributePath(blobId));
 
       // soft delete is implemented using an S3 lifecycle that sets expiration on objects with DELETED_TAG
       // tag the bytes
@@ -565,6 +616,7 @@ public class S3BlobStore
 
       String blobPath = contentPath(blobId);
       boolean blobDeleted = batchDelete(blobPath, attributePath);
+      invalidateCachedAttributes(attributePath);
 
       if (blobDeleted && contentSize != null) {
         metricsService.recordDeletion(contentSize);
@@ -626,6 +678,9 @@ public class S3BlobStore
       bucketManager.setS3(s3);
       bucketManager.prepareStorageLocation(blobStoreConfiguration);
       S3BlobStoreConfigurationHelper.setConfiguredBucket(blobStoreConfiguration, getConfiguredBucket());
+      NestedAttributesMap s3Configuration = blobStoreConfiguration.attributes(CONFIG_KEY);
+      attributesCacheLocation = S3BlobAttributesCache.location(s3Configuration.get(ENDPOINT_KEY, String.class),
+          s3Configuration.get(REGION_KEY, String.class), getConfiguredBucket());
       rawObjectAccess = new S3RawObjectAccess(getConfiguredBucket(), getBucketPrefix(), s3, performanceLogger, uploader);
     }
     catch (AmazonS3Exception e) {
@@ -715,6 +770,11 @@ public class S3BlobStore
 
     @Override
     protected InputStream doGetInputStream() {
+      BlobMetrics metrics = getMetrics();
+      if (downloader != null && metrics != null && downloader.isParallel(metrics.getContentSize())) {
+        return performanceLogger.maybeWrapForPerformanceLogging(
+            downloader.download(s3, getConfiguredBucket(), contentPath(getId()), metrics.getContentSize()));
+      }
       S3Object object = s3.getObject(getConfiguredBucket(), contentPath(getId()));
       return performanceLogger.maybeWrapForPerformanceLogging(object.getObjectContent());
     }
@@ -813,6 +873,7 @@ public class S3BlobStore
       S3BlobAttributes s3BlobAttributes = (S3BlobAttributes) getBlobAttributes(blobId);
       s3BlobAttributes.updateFrom(blobAttributes);
       s3BlobAttributes.store();
+      invalidateCachedAttributes(attributePath(blobId));
     }
     catch (Exception e) {
       log.error("Unable to set BlobAttributes for blob id: {}, exception: {}",
@@ -823,6 +884,7 @@ public class S3BlobStore
   @Override
   @Timed
   protected void doUndelete(final BlobId blobId, final BlobAttributes attributes) {
+    invalidateCachedAttributes(attributePath(blobId));
     s3.setObjectTagging(untagAsDeleted(contentPath(blobId)));
     s3.setObjectTagging(untagAsDeleted(attributePath(blobId)));
     metricsService.recordAddition(attributes.getMetrics().getContentSize());
@@ -848,6 +910,9 @@ public class S3BlobStore
   @Timed
   public boolean exists(final BlobId blobId) {
     checkNotNull(blobId);
+    if (cachedAttributes(attributePath(blobId)) != null) {
+      return true;
+    }
     S3BlobAttributes blobAttributes = new S3BlobAttributes(s3, getConfiguredBucket(), attributePath(blobId));
     try (final Timer.Context existsContext = existsTimer.time()) {
       return blobAttributes.load();
@@ -903,6 +968,23 @@ public class S3BlobStore
     metricsService.flush();
   }
 
+  @Nullable
+  private CachedAttributes cachedAttributes(final String attributePath) {
+    return attributesCache != null ? attributesCache.get(attributesCacheLocation, attributePath) : null;
+  }
+
+  private void cacheAttributes(final String attributePath, final BlobAttributes blobAttributes) {
+    if (attributesCache != null) {
+      attributesCache.put(attributesCacheLocation, attributePath, blobAttributes);
+    }
+  }
+
+  private void invalidateCachedAttributes(final String attributePath) {
+    if (attributesCache != null) {
+      attributesCache.invalidate(attributesCacheLocation, attributePath);
+    }
+  }
+
   private S3BlobAttributes writeBlobAttributes(
       final Map<String, String> headers,
       final String attributePath,
@@ -0,0 +1,141 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ParallelDownloader}.
+ */
+public class ParallelDownloaderTest
+    extends TestSupport
+{
+  private static final int CHUNK_SIZE = 1000;
+
+  private final byte[] data = new byte[10 * CHUNK_SIZE + 123];
+
+  @Mock
+  private AmazonS3 s3;
+
+  private ParallelDownloader underTest;
+
+  @Before
+  public void setUp() {
+    new Random(42).nextBytes(data);
+    underTest = new ParallelDownloader(true, 2 * CHUNK_SIZE, CHUNK_SIZE, 3, 4, 8);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void largeObjectsAreReassembledInOrder() throws Exception {
+    when(s3.getObject(any(GetObjectRequest.class))).then(invocation -> range(invocation.getArgument(0), "v1"));
+
+    try (InputStream in = underTest.download(s3, "bucket", "key", data.length)) {
+      assertThat(Arrays.equals(IOUtils.toByteArray(in), data), is(true));
+    }
+
+    verify(s3, times(11)).getObject(any(GetObjectRequest.class));
+    verify(s3, never()).getObject("bucket", "key");
+  }
+
+  @Test
+  public void rangesAreFetchedDirectlyWhenThePoolIsBusy() throws Exception {
+    underTest.stop();
+    underTest = new ParallelDownloader(true, 2 * CHUNK_SIZE, CHUNK_SIZE, 3, 1, 1);
+    underTest.start();
+    when(s3.getObject(any(GetObjectRequest.class))).then(invocation -> range(invocation.getArgument(0), "v1"));
+
+    try (InputStream in = underTest.download(s3, "bucket", "key", data.length)) {
+      assertThat(Arrays.equals(IOUtils.toByteArray(in), data), is(true));
+    }
+  }
+
+  @Test
+  public void rangesAreFetchedDirectlyOnceStopped() throws Exception {
+    underTest.stop();
+    when(s3.getObject(any(GetObjectRequest.class))).then(invocation -> range(invocation.getArgument(0), "v1"));
+
+    try (InputStream in = underTest.download(s3, "bucket", "key", data.length)) {
+      assertThat(Arrays.equals(IOUtils.toByteArray(in), data), is(true));
+    }
+
+    verify(s3, times(11)).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  public void smallObjectsUseASingleRequest() throws Exception {
+    S3Object object = new S3Object();
+    object.setObjectContent(new ByteArrayInputStream(data, 0, CHUNK_SIZE));
+    when(s3.getObject("bucket", "key")).thenReturn(object);
+
+    try (InputStream in = underTest.download(s3, "bucket", "key", CHUNK_SIZE)) {
+      assertThat(IOUtils.toByteArray(in).length, is(CHUNK_SIZE));
+    }
+
+    verify(s3, never()).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  public void objectChangedDuringDownloadFails() throws Exception {
+    AtomicInteger requests = new AtomicInteger();
+    when(s3.getObject(any(GetObjectRequest.class)))
+        .then(invocation -> range(invocation.getArgument(0), requests.getAndIncrement() < 5 ? "v1" : "v2"));
+
+    try (InputStream in = underTest.download(s3, "bucket", "key", data.length)) {
+      IOUtils.toByteArray(in);
+      fail("Expected the download to fail");
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage(), is("Object bucket/key changed during download"));
+    }
+  }
+
+  private S3Object range(final GetObjectRequest request, final String eTag) {
+    long[] range = request.getRange();
+    S3Object object = new S3Object();
+    object.getObjectMetadata().setHeader(Headers.ETAG, eTag);
+    object.setObjectContent(new ByteArrayInputStream(data, (int) range[0], (int) (range[1] - range[0] + 1)));
+    return object;
+  }
+}
@@ -22,6 +22,7 @@ import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.apt.datastore.AptContentFacet;
 import org.sonatype.nexus.repository.apt.datastore.internal.hosted.metadata.AptHostedMetadataFacet;
 import org.sonatype.nexus.repository.apt.internal.debian.PackageInfo;
+import org.sonatype.nexus.repository.apt.internal.hosted.AssetAction;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.view.Payload;
 
@@ -55,6 +56,7 @@ public class AptHostedFacet
 
     FluentAsset asset = content().put(assetPath, payload, packageInfo);
     metadata().addPackageMetadata(asset);
+    metadata().recordChange(new AssetChange(AssetAction.ADDED, asset));
     metadata().removeInReleaseIndex();
     return asset;
   }
@@ -74,6 +76,13 @@ public class AptHostedFacet
     rebuildMetadata(Collections.emptyList());
   }
 
+  /**
+   * Method for triggering Apt metadata recalculation of only the architectures changed since the last rebuild.
+   */
+  public void rebuildPendingMetadata() throws IOException {
+    metadata().rebuildPendingMetadata();
+  }
+
   /**
    * Method for triggering Apt metadata recalculation with possibility to specify what actually asset was changed
    */
@@ -79,7 +79,7 @@ public class AptHostedHandler
       final AptContentFacet contentFacet) throws IOException
   {
     if (isMetadataRebuildRequired(path, contentFacet)) {
-      context.getRepository().facet(AptHostedFacet.class).rebuildMetadata();
+      context.getRepository().facet(AptHostedFacet.class).rebuildPendingMetadata();
     }
     Optional<Content> content = contentFacet.get(path);
     return content.isPresent() ? HttpResponses.ok(content.get()) : HttpResponses.notFound(path);
@@ -44,13 +44,16 @@ public class AptLastAssetMaintenanceFacet
     final Set<String> deleteAssetPaths = super.deleteAsset(asset);
     final FluentAsset fluentAsset = contentFacet().assets().with(asset);
     metadata().removePackageMetadata(fluentAsset);
+    metadata().recordChange(new AssetChange(AssetAction.REMOVED, fluentAsset));
     metadata().removeInReleaseIndex();
     return deleteAssetPaths;
   }
 
   @Override
   public Set<String> deleteComponent(final Component component) {
+    Collection<FluentAsset> assets = contentFacet().components().with(component).assets();
     Set<String> deleteAssetPaths = super.deleteComponent(component);
+    assets.forEach(asset -> metadata().recordChange(new AssetChange(AssetAction.REMOVED, asset)));
     metadata().removeInReleaseIndex();
     return deleteAssetPaths;
   }
@@ -17,17 +17,26 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -56,6 +65,7 @@ import org.sonatype.nexus.repository.content.utils.FormatAttributesUtils;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.payloads.BytesPayload;
 import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -64,8 +74,10 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.http.protocol.HttpDateGenerator.PATTERN_RFC1123;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_CLUSTERED_ENABLED_NAMED;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.MD5;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA256;
 import static org.sonatype.nexus.repository.apt.internal.AptFacetHelper.normalizeAssetPath;
@@ -81,12 +93,19 @@ import static org.sonatype.nexus.repository.apt.internal.ReleaseName.RELEASE_GPG
 
 /**
  * Apt metadata facet. Holds the logic for metadata recalculation.
+ *
+ * Package indexes are streamed from the key-value store one page at a time and compressed in parallel. When the
+ * assets that changed are known only the indexes of their architectures are regenerated. Uploads and deletes record
+ * their changes with {@link #recordChange(AssetChange)} so the next {@link #rebuildPendingMetadata()} can be
+ * incremental. Recorded changes only live in memory on the node that made them, so pending rebuilds are full after
+ * start-up, when no changes were recorded, and always when clustered.
  */
 @Named(AptFormat.NAME)
 @Exposed
 public class AptHostedMetadataFacet
     extends FacetSupport
 {
+  private static final List<String> INDEX_EXTENSIONS = Arrays.asList(StringUtils.EMPTY, GZ, BZ2);
 
   private final ObjectMapper mapper;
 
@@ -94,8 +113,23 @@ public class AptHostedMetadataFacet
 
   private final Cooperation2Factory.Builder cooperationBuilder;
 
+  private final boolean incrementalEnabled;
+
+  private final boolean clustered;
+
+  private final int compressionThreads;
+
+  private final Queue<AssetChange> pendingChanges = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Changes made before this node started were not recorded, so the first pending rebuild must be a full one.
+   */
+  private final AtomicBoolean fullRebuildRequired = new AtomicBoolean(true);
+
   private Cooperation2 cooperation;
 
+  private ExecutorService compressionExecutor;
+
   @Inject
   public AptHostedMetadataFacet(
       final ObjectMapper mapper,
@@ -104,7 +138,10 @@ public class AptHostedMetadataFacet
       @Named("${nexus.apt.metadata.cooperation.enabled:-true}") final boolean cooperationEnabled,
       @Named("${nexus.apt.metadata.cooperation.majorTimeout:-0s}") final Duration majorTimeout,
       @Named("${nexus.apt.metadata.cooperation.minorTimeout:-30s}") final Duration minorTimeout,
-      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey)
+      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey,
+      @Named("${nexus.apt.metadata.incremental:-true}") final boolean incrementalEnabled,
+      @Named("${nexus.apt.metadata.compressionThreads:-2}") final int compressionThreads,
+      @Named(DATASTORE_CLUSTERED_ENABLED_NAMED) final boolean clustered)
   {
     this.mapper = checkNotNull(mapper);
     this.clock = checkNotNull(clock);
@@ -113,12 +150,24 @@ public class AptHostedMetadataFacet
         .majorTimeout(majorTimeout)
         .minorTimeout(minorTimeout)
         .threadsPerKey(threadsPerKey);
+    this.incrementalEnabled = incrementalEnabled;
+    this.clustered = clustered;
+    checkArgument(compressionThreads > 0, "Compression threads must be greater than zero");
+    this.compressionThreads = compressionThreads;
   }
 
   @Override
   protected void doInit(final Configuration configuration) throws Exception {
     super.doInit(configuration);
     this.cooperation = cooperationBuilder.build(getRepository().getName() + ":repomd");
+    this.compressionExecutor = Executors.newFixedThreadPool(compressionThreads,
+        new NexusThreadFactory("apt-metadata", getRepository().getName()));
+  }
+
+  @Override
+  protected void doDestroy() throws Exception {
+    compressionExecutor.shutdown();
+    super.doDestroy();
   }
 
   public void addPackageMetadata(final FluentAsset asset) {
@@ -141,13 +190,62 @@ public class AptHostedMetadataFacet
     content().deleteAssetsByPrefix(normalizeAssetPath(releaseIndexName(INRELEASE)));
   }
 
+  /**
+   * Records a package change to be applied by the next {@link #rebuildPendingMetadata()}.
+   */
+  public void recordChange(final AssetChange change) {
+    pendingChanges.add(checkNotNull(change));
+  }
+
   public Optional<Content> rebuildMetadata(final List<AssetChange> changeList) throws IOException {
     return Optional.ofNullable(
-        cooperation.on(() -> doRebuildMetadata(changeList))
+        cooperation.on(() -> doRebuildMetadata(changeList, incrementalEnabled && !changeList.isEmpty()))
             .cooperate(changeList.toString())
     );
   }
 
+  /**
+   * Rebuilds the metadata from the changes recorded since the last rebuild, regenerating only the indexes of the
+   * architectures they touch. Changes are put back if the rebuild fails so a later attempt still sees them.
+   *
+   * An empty list of changes doesn't mean nothing changed, the change may have been made before this node started or
+   * on another node, so the rebuild is full in that case.
+   */
+  public Optional<Content> rebuildPendingMetadata() throws IOException {
+    return Optional.ofNullable(
+        cooperation.on(this::doRebuildPendingMetadata)
+            .cooperate("pending")
+    );
+  }
+
+  private Content doRebuildPendingMetadata() throws IOException {
+    List<AssetChange> changes = drainPendingChanges();
+    boolean full = fullRebuildRequired.getAndSet(false) || !incrementalEnabled || clustered || changes.isEmpty();
+    boolean ok = false;
+    try {
+      Content content = doRebuildMetadata(changes, !full);
+      ok = true;
+      return content;
+    }
+    finally {
+      if (!ok) {
+        pendingChanges.addAll(changes);
+        if (full) {
+          fullRebuildRequired.set(true);
+        }
+      }
+    }
+  }
+
+  private List<AssetChange> drainPendingChanges() {
+    List<AssetChange> changes = new ArrayList<>();
+    AssetChange change;
+    while ((change = pendingChanges.poll()) != null) {
+      changes.add(change);
+    }
+    return changes;
+  }
+
   /**
    * Removes metadata per architecture
    */
@@ -156,19 +254,22 @@ public class AptHostedMetadataFacet
     content().deleteAssetsByPrefix(normalizeAssetPath(mainBinaryPrefix()));
   }
 
-  private Content doRebuildMetadata(final List<AssetChange> changeList) throws IOException {
+  private Content doRebuildMetadata(final List<AssetChange> changeList, final boolean incremental) throws IOException {
     log.debug("Starting rebuilding metadata at {}", getRepository().getName());
     OffsetDateTime rebuildStart = clock.clusterTime();
 
     AptContentFacet aptFacet = content();
     AptSigningFacet signingFacet = signing();
 
-    removeMetadataPerArchitecture();
+    if (!incremental) {
+      removeMetadataPerArchitecture();
+    }
 
     StringBuilder sha256Builder = new StringBuilder();
     StringBuilder md5Builder = new StringBuilder();
     String releaseFile;
-    try (CompressingTempFileStore store = buildPackageIndexes(changeList)) {
+    Map<String, List<FluentAsset>> reusedIndexes = new HashMap<>();
+    try (CompressingTempFileStore store = buildPackageIndexes(changeList, incremental, reusedIndexes)) {
       for (Map.Entry<String, CompressingTempFileStore.FileMetadata> entry : store.getFiles().entrySet()) {
         FluentAsset metadataAsset = aptFacet.put(
             packageIndexName(entry.getKey(), StringUtils.EMPTY),
@@ -180,7 +281,7 @@ public class AptHostedMetadataFacet
 
         FluentAsset gzMetadataAsset = aptFacet.put(
             packageIndexName(entry.getKey(), GZ),
-            new StreamPayload(entry.getValue().gzSupplier(), entry.getValue().bzSize(), AptMimeTypes.GZIP)
+            new StreamPayload(entry.getValue().gzSupplier(), entry.getValue().gzSize(), AptMimeTypes.GZIP)
         );
         addSignatureItem(md5Builder, MD5, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
         addSignatureItem(sha256Builder, SHA256, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
@@ -193,9 +294,20 @@ public class AptHostedMetadataFacet
         addSignatureItem(sha256Builder, SHA256, bzMetadataAsset, packageRelativeIndexName(entry.getKey(), BZ2));
       }
 
+      for (Map.Entry<String, List<FluentAsset>> entry : reusedIndexes.entrySet()) {
+        for (int i = 0; i < INDEX_EXTENSIONS.size(); i++) {
+          String filename = packageRelativeIndexName(entry.getKey(), INDEX_EXTENSIONS.get(i));
+          addSignatureItem(md5Builder, MD5, entry.getValue().get(i), filename);
+          addSignatureItem(sha256Builder, SHA256, entry.getValue().get(i), filename);
+        }
+      }
+
+      Set<String> architectures = new TreeSet<>(store.getFiles().keySet());
+      architectures.addAll(reusedIndexes.keySet());
+
       releaseFile = buildReleaseFile(
           aptFacet.getDistribution(),
-          store.getFiles().keySet(),
+          architectures,
           md5Builder.toString(),
           sha256Builder.toString()
       );
@@ -216,54 +328,68 @@ public class AptHostedMetadataFacet
 
     if (log.isDebugEnabled()) {
       long finishTime = System.currentTimeMillis();
-      log.debug("Completed metadata rebuild in {}", finishTime - rebuildStart.toInstant().toEpochMilli());
+      log.debug("Completed {} metadata rebuild in {}", incremental ? "incremental" : "full",
+          finishTime - rebuildStart.toInstant().toEpochMilli());
     }
 
     return releaseFileAsset.download();
   }
 
-  private CompressingTempFileStore buildPackageIndexes(final List<AssetChange> changes)
-      throws IOException
+  /**
+   * Streams the stored package metadata into one Packages file per architecture, then compresses them in parallel.
+   *
+   * In incremental mode only the architectures of the changed assets are regenerated; the existing indexes of other
+   * architectures are added to {@code reusedIndexes} instead, unless one of their index files is missing.
+   */
+  private CompressingTempFileStore buildPackageIndexes(
+      final List<AssetChange> changes,
+      final boolean incremental,
+      final Map<String, List<FluentAsset>> reusedIndexes) throws IOException
   {
     CompressingTempFileStore result = new CompressingTempFileStore();
     Map<String, Writer> streams = new HashMap<>();
     boolean ok = false;
     try {
-      Set<String> architectures =
+      Set<String> changedArchitectures =
           changes.stream()
               .map(change -> getArchitecture(change.getAsset()))
               .collect(Collectors.toSet());
 
-      final List<Map<String, Object>> packagesInfo = data()
-          .browsePackagesMetadata()
-          .map(this::deserialize)
-          .collect(Collectors.toList());
-
-      packagesInfo.stream().map(x -> x.get(P_ARCHITECTURE).toString())
-          .collect(Collectors.toCollection(() -> architectures));
-
-      Map<String, List<Map<String, Object>>> assetsPerArch = new HashMap<>();
-      for (String architecture : architectures) {
-        List<Map<String, Object>> assets = packagesInfo.stream()
-            .filter(x -> x.get(P_ARCHITECTURE).toString().equals(architecture))
-            .collect(Collectors.toList());
-        assetsPerArch.put(architecture, assets);
+      // NOTE:  We exclude added assets as well to account for the case where we are replacing an asset
+      Set<String> excludeNames = changes.stream().map(c -> c.getAsset().path()).collect(Collectors.toSet());
+
+      Map<String, Boolean> reuseDecisions = new HashMap<>();
+
+      try (Stream<String> packagesMetadata = data().browsePackagesMetadata()) {
+        Iterator<String> itr = packagesMetadata.iterator();
+        while (itr.hasNext()) {
+          Map<String, Object> asset = deserialize(itr.next());
+          final String arch = asset.get(P_ARCHITECTURE).toString();
+          if (incremental && !changedArchitectures.contains(arch)
+              && reuseDecisions.computeIfAbsent(arch, a -> maybeReuseIndexes(a, reusedIndexes))) {
+            continue;
+          }
+          Writer outWriter = streams.computeIfAbsent(arch, result::openOutput);
+          final String name = asset.get(P_PACKAGE_NAME).toString();
+          if (!excludeNames.contains(name)) {
+            final String indexSection = asset.get(P_INDEX_SECTION).toString();
+            outWriter.write(indexSection);
+            outWriter.write("\n\n");
+          }
+        }
       }
 
-      for (List<Map<String, Object>> assets : assetsPerArch.values()) {
-        Optional<AssetChange> removeAssetChange =
-            changes.stream()
-                .filter(change -> change.getAsset().kind().equals(DEB))
-                .filter(change -> change.getAction() == AssetAction.REMOVED)
-                .findAny();
+      // architectures whose last package was removed still need an (empty) index
+      changes.stream()
+          .filter(change -> change.getAsset().kind().equals(DEB))
+          .filter(change -> change.getAction() == AssetAction.REMOVED)
+          .forEach(change -> createEmptyMetadataFile(result, streams, change));
 
-        if (assets.isEmpty() && removeAssetChange.isPresent()) {
-          createEmptyMetadataFile(result, streams, removeAssetChange.get());
-        }
-        else {
-          createMetadataFileWithData(changes, result, streams, assets);
-        }
+      for (Writer writer : streams.values()) {
+        writer.close();
       }
+
+      result.compress(compressionExecutor);
       ok = true;
     }
     finally {
@@ -278,25 +404,21 @@ public class AptHostedMetadataFacet
     return result;
   }
 
-  private void createMetadataFileWithData(
-      final List<AssetChange> changes,
-      final CompressingTempFileStore result,
-      final Map<String, Writer> streams,
-      final List<Map<String, Object>> assets) throws IOException
-  {
-    // NOTE:  We exclude added assets as well to account for the case where we are replacing an asset
-    Set<String> excludeNames = changes.stream().map(c -> c.getAsset().path()).collect(Collectors.toSet());
-
-    for (Map<String, Object> asset : assets) {
-      final String name = asset.get(P_PACKAGE_NAME).toString();
-      final String arch = asset.get(P_ARCHITECTURE).toString();
-      Writer outWriter = streams.computeIfAbsent(arch, result::openOutput);
-      if (!excludeNames.contains(name)) {
-        final String indexSection = asset.get(P_INDEX_SECTION).toString();
-        outWriter.write(indexSection);
-        outWriter.write("\n\n");
+  /**
+   * Records the existing indexes of the given architecture for reuse, if all of them are present.
+   */
+  private boolean maybeReuseIndexes(final String arch, final Map<String, List<FluentAsset>> reusedIndexes) {
+    List<FluentAsset> indexes = new ArrayList<>();
+    for (String ext : INDEX_EXTENSIONS) {
+      Optional<FluentAsset> index = content().getAsset(packageIndexName(arch, ext));
+      if (!index.isPresent()) {
+        log.debug("Missing Packages{} index for architecture {}, regenerating", ext, arch);
+        return false;
       }
+      indexes.add(index.get());
     }
+    reusedIndexes.put(arch, indexes);
+    return true;
   }
 
   private String buildReleaseFile(
@@ -361,8 +483,7 @@ public class AptHostedMetadataFacet
       final Map<String, Writer> streams,
       final AssetChange removeAssetChange)
   {
-    String arch = (String) FormatAttributesUtils.getFormatAttributes(removeAssetChange.getAsset())
-        .get(P_ARCHITECTURE);
+    String arch = getArchitecture(removeAssetChange.getAsset());
     streams.computeIfAbsent(arch, result::openOutput);
   }
 
@@ -13,15 +13,21 @@
 package org.sonatype.nexus.repository.apt.internal.hosted;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.GZIPOutputStream;
 
 import org.sonatype.goodies.common.ComponentSupport;
@@ -30,12 +36,15 @@ import org.sonatype.nexus.common.io.InputStreamSupplier;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.CountingOutputStream;
-import org.bouncycastle.util.io.TeeOutputStream;
 
 /**
  * Stores a set of temp files, automatically compressing each into a GZIP, BZ2 and plain format.
  *
+ * Content is written to the plain file first; once every output has been written {@link #compress(Executor)} produces
+ * the GZIP and BZ2 files from it, running each compression as a separate task.
+ *
  * @since 3.17
  */
 public class CompressingTempFileStore
@@ -51,16 +60,35 @@ public class CompressingTempFileStore
       }
       FileHolder holder = new FileHolder();
       holdersByKey.put(key, holder);
-      return new OutputStreamWriter(new TeeOutputStream(
-          new TeeOutputStream(new GZIPOutputStream(Files.newOutputStream(holder.gzTempFile)),
-              new BZip2CompressorOutputStream(Files.newOutputStream(holder.bzTempFile))),
-          Files.newOutputStream(holder.plainTempFile)), Charsets.UTF_8);
+      return new OutputStreamWriter(holder.plainStream, Charsets.UTF_8);
     }
     catch (IOException e) {
       throw new UncheckedIOException(e);
     }
   }
 
+  /**
+   * Compresses the plain content of every output, which must all have been closed, using the given executor.
+   *
+   * @since 3.next
+   */
+  public void compress(final Executor executor) throws IOException {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (FileHolder holder : holdersByKey.values()) {
+      futures.add(CompletableFuture.runAsync(() -> compress(holder.plainTempFile, holder.gzStream, true), executor));
+      futures.add(CompletableFuture.runAsync(() -> compress(holder.plainTempFile, holder.bzStream, false), executor));
+    }
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    catch (CompletionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    }
+  }
+
   public Map<String, FileMetadata> getFiles() {
     return Maps.transformValues(holdersByKey, holder -> new FileMetadata(holder));
   }
@@ -69,6 +97,10 @@ public class CompressingTempFileStore
     List<Path> notDeletedFiles = new LinkedList<>();
 
     for (FileHolder holder : holdersByKey.values()) {
+      IOUtils.closeQuietly(holder.plainStream, null);
+      IOUtils.closeQuietly(holder.gzStream, null);
+      IOUtils.closeQuietly(holder.bzStream, null);
+      deleteFile(holder.plainTempFile, notDeletedFiles);
       deleteFile(holder.bzTempFile, notDeletedFiles);
       deleteFile(holder.gzTempFile, notDeletedFiles);
     }
@@ -78,6 +110,16 @@ public class CompressingTempFileStore
     }
   }
 
+  private static void compress(final Path source, final CountingOutputStream target, final boolean gzip) {
+    try (InputStream in = Files.newInputStream(source);
+         OutputStream out = gzip ? new GZIPOutputStream(target) : new BZip2CompressorOutputStream(target)) {
+      IOUtils.copy(in, out);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   private void deleteFile(final Path path, final List<Path> paths) {
     try {
       Files.deleteIfExists(path);
@@ -0,0 +1,200 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.apt.datastore.internal.hosted.metadata;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.cooperation2.datastore.DefaultCooperation2Factory;
+import org.sonatype.nexus.common.time.Clock;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.apt.AptFormat;
+import org.sonatype.nexus.repository.apt.datastore.AptContentFacet;
+import org.sonatype.nexus.repository.apt.datastore.internal.data.AptKeyValueFacet;
+import org.sonatype.nexus.repository.apt.datastore.internal.hosted.AssetChange;
+import org.sonatype.nexus.repository.apt.internal.gpg.AptSigningFacet;
+import org.sonatype.nexus.repository.apt.internal.hosted.AssetAction;
+import org.sonatype.nexus.repository.content.AssetBlob;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_ARCHITECTURE;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_INDEX_SECTION;
+import static org.sonatype.nexus.repository.apt.internal.AptProperties.P_PACKAGE_NAME;
+
+public class AptHostedMetadataFacetTest
+    extends TestSupport
+{
+  private static final String AMD64_INDEX = "dists/bionic/main/binary-amd64/Packages";
+
+  private static final String I386_INDEX = "dists/bionic/main/binary-i386/Packages";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Mock
+  private Clock clock;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private AptContentFacet content;
+
+  @Mock
+  private AptKeyValueFacet data;
+
+  @Mock
+  private AptSigningFacet signing;
+
+  private AptHostedMetadataFacet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(clock.clusterTime()).thenReturn(OffsetDateTime.now());
+    when(repository.getName()).thenReturn("apt-hosted");
+    when(repository.getFormat()).thenReturn(new AptFormat());
+    when(repository.facet(AptContentFacet.class)).thenReturn(content);
+    when(repository.facet(AptKeyValueFacet.class)).thenReturn(data);
+    when(repository.facet(AptSigningFacet.class)).thenReturn(signing);
+
+    when(content.getDistribution()).thenReturn("bionic");
+    when(content.put(anyString(), any(Payload.class))).thenAnswer(invocation -> indexAsset());
+    when(content.getAsset(startsWith(I386_INDEX))).thenAnswer(invocation -> Optional.of(indexAsset()));
+    when(content.getAsset(startsWith(AMD64_INDEX))).thenAnswer(invocation -> Optional.of(indexAsset()));
+    when(signing.signInline(anyString())).thenReturn(new byte[0]);
+    when(signing.signExternal(anyString())).thenReturn(new byte[0]);
+    when(data.browsePackagesMetadata()).thenAnswer(invocation -> Stream.of(
+        packageMetadata("nano", "amd64"),
+        packageMetadata("vim", "amd64"),
+        packageMetadata("nano", "i386")));
+
+    underTest = new AptHostedMetadataFacet(mapper, clock, new DefaultCooperation2Factory(), true, Duration.ZERO,
+        Duration.ofSeconds(30), 100, true, 2, false);
+    underTest.attach(repository);
+    underTest.init();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.destroy();
+  }
+
+  @Test
+  public void firstPendingRebuildIsFull() throws Exception {
+    underTest.recordChange(new AssetChange(AssetAction.ADDED, packageAsset("amd64")));
+
+    underTest.rebuildPendingMetadata();
+
+    verify(content).deleteAssetsByPrefix("/dists/bionic/main/binary-");
+    verify(content, times(3)).put(startsWith(AMD64_INDEX), any(Payload.class));
+    verify(content, times(3)).put(startsWith(I386_INDEX), any(Payload.class));
+  }
+
+  @Test
+  public void untouchedArchitecturesAreNotRewritten() throws Exception {
+    underTest.rebuildPendingMetadata();
+    clearInvocations(content);
+
+    underTest.recordChange(new AssetChange(AssetAction.ADDED, packageAsset("amd64")));
+    underTest.rebuildPendingMetadata();
+
+    verify(content, never()).deleteAssetsByPrefix(anyString());
+    verify(content, times(3)).put(startsWith(AMD64_INDEX), any(Payload.class));
+    verify(content, never()).put(startsWith(I386_INDEX), any(Payload.class));
+    verify(content).put(eq("dists/bionic/Release"), any(Payload.class));
+  }
+
+  @Test
+  public void pendingRebuildWithoutRecordedChangesIsFull() throws Exception {
+    underTest.rebuildPendingMetadata();
+    clearInvocations(content);
+
+    underTest.rebuildPendingMetadata();
+
+    verify(content).deleteAssetsByPrefix("/dists/bionic/main/binary-");
+    verify(content, times(3)).put(startsWith(AMD64_INDEX), any(Payload.class));
+    verify(content, times(3)).put(startsWith(I386_INDEX), any(Payload.class));
+  }
+
+  @Test
+  public void pendingRebuildIsFullWhenClustered() throws Exception {
+    underTest.destroy();
+    underTest = new AptHostedMetadataFacet(mapper, clock, new DefaultCooperation2Factory(), true, Duration.ZERO,
+        Duration.ofSeconds(30), 100, true, 2, true);
+    underTest.attach(repository);
+    underTest.init();
+
+    underTest.rebuildPendingMetadata();
+    clearInvocations(content);
+
+    underTest.recordChange(new AssetChange(AssetAction.ADDED, packageAsset("amd64")));
+    underTest.rebuildPendingMetadata();
+
+    verify(content).deleteAssetsByPrefix("/dists/bionic/main/binary-");
+    verify(content, times(3)).put(startsWith(I386_INDEX), any(Payload.class));
+  }
+
+  private String packageMetadata(final String name, final String arch) throws Exception {
+    return mapper.writeValueAsString(ImmutableMap.of(
+        P_PACKAGE_NAME, name,
+        P_ARCHITECTURE, arch,
+        P_INDEX_SECTION, "Package: " + name + "\nArchitecture: " + arch));
+  }
+
+  private FluentAsset packageAsset(final String arch) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put(AptFormat.NAME, new HashMap<>(ImmutableMap.of(P_ARCHITECTURE, arch)));
+
+    FluentAsset asset = mock(FluentAsset.class);
+    when(asset.repository()).thenReturn(repository);
+    when(asset.path()).thenReturn("/pool/n/nano/nano_1.0_" + arch + ".deb");
+    when(asset.kind()).thenReturn("DEB");
+    when(asset.attributes()).thenReturn(new NestedAttributesMap("attributes", attributes));
+    return asset;
+  }
+
+  private FluentAsset indexAsset() {
+    AssetBlob blob = mock(AssetBlob.class);
+    when(blob.checksums()).thenReturn(ImmutableMap.of("MD5", "md5", "SHA256", "sha256"));
+    when(blob.blobSize()).thenReturn(1L);
+
+    FluentAsset asset = mock(FluentAsset.class);
+    when(asset.blob()).thenReturn(Optional.of(blob));
+    when(asset.download()).thenReturn(mock(Content.class));
+    return asset;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.apt.internal.hosted;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CompressingTempFileStoreTest
+    extends TestSupport
+{
+  private static final String CONTENT = "Package: hello\nArchitecture: amd64\n\n";
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void compressesEachOutput() throws Exception {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore()) {
+      try (Writer writer = underTest.openOutput("amd64")) {
+        writer.write(CONTENT);
+      }
+      underTest.openOutput("i386").close();
+
+      underTest.compress(executor);
+
+      CompressingTempFileStore.FileMetadata amd64 = underTest.getFiles().get("amd64");
+      assertThat(amd64.plainSize(), is((long) CONTENT.length()));
+      try (InputStream in = amd64.plainSupplier().get()) {
+        assertThat(IOUtils.toString(in, UTF_8), is(CONTENT));
+      }
+      try (InputStream in = new GZIPInputStream(amd64.gzSupplier().get())) {
+        assertThat(IOUtils.toString(in, UTF_8), is(CONTENT));
+      }
+      try (InputStream in = new BZip2CompressorInputStream(amd64.bzSupplier().get())) {
+        assertThat(IOUtils.toString(in, UTF_8), is(CONTENT));
+      }
+
+      CompressingTempFileStore.FileMetadata i386 = underTest.getFiles().get("i386");
+      assertThat(i386.plainSize(), is(0L));
+      try (InputStream in = new GZIPInputStream(i386.gzSupplier().get())) {
+        assertThat(IOUtils.toString(in, UTF_8), is(""));
+      }
+    }
+  }
+}
@@ -15,22 +15,31 @@ package org.sonatype.nexus.repository.httpbridge.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.NoSuchFileException;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.repository.http.HttpMethods;
 import org.sonatype.nexus.repository.httpbridge.HttpResponseSender;
+import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
 
+import org.eclipse.jetty.server.HttpOutput;
+
 /**
  * Default {@link HttpResponseSender}.
  *
@@ -42,6 +51,19 @@ public class DefaultHttpResponseSender
     extends ComponentSupport
     implements HttpResponseSender
 {
+  private static final ClassValue<Class<?>> COPY_DECLARER = new ClassValue<Class<?>>()
+  {
+    @Override
+    protected Class<?> computeValue(final Class<?> type) {
+      try {
+        return type.getMethod("copy", InputStream.class, OutputStream.class).getDeclaringClass();
+      }
+      catch (NoSuchMethodException e) { // NOSONAR
+        return type;
+      }
+    }
+  };
+
   @Override
   public void send(@Nullable final Request request, final Response response, final HttpServletResponse httpResponse)
       throws ServletException, IOException
@@ -74,7 +96,8 @@ public class DefaultHttpResponseSender
             httpResponse.setContentLengthLong(payload.getSize());
           }
 
-          if (request != null && !HttpMethods.HEAD.equals(request.getAction())) {
+          if (request != null && !HttpMethods.HEAD.equals(request.getAction()) &&
+              !maybeSendFileRegion(payload, httpResponse)) {
             try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
               payload.copy(input, output);
             }
@@ -86,4 +109,97 @@ public class DefaultHttpResponseSender
       }
     }
   }
+
+  /**
+   * Hands file-backed payloads to Jetty as a channel over the file region, which Jetty writes to the connection in
+   * chunks through its pooled (direct, where configured) output buffers instead of the payload's stream and heap
+   * copy buffer. Returns {@code false} when the payload has no file region, customizes {@link Payload#copy} or the
+   * response is not written directly by Jetty, in which case the payload is streamed.
+   */
+  private boolean maybeSendFileRegion(final Payload payload, final HttpServletResponse httpResponse)
+      throws IOException
+  {
+    BlobFileRegion region = payload.getFileRegion();
+    if (region == null || region.getCount() != payload.getSize() || !usesDefaultCopy(payload)) {
+      return false;
+    }
+    ServletOutputStream output = httpResponse.getOutputStream();
+    if (!(output instanceof HttpOutput)) {
+      return false;
+    }
+
+    FileChannel channel;
+    try {
+      channel = region.openChannel();
+    }
+    catch (NoSuchFileException e) { // NOSONAR
+      // let the stream path report the missing blob
+      return false;
+    }
+
+    log.trace("Sending file region: {}", region);
+    try (FileChannel fileChannel = channel) {
+      fileChannel.position(region.getPosition());
+      ((HttpOutput) output).sendContent(new RegionChannel(fileChannel, region.getCount()));
+    }
+    return true;
+  }
+
+  /**
+   * Does sending the payload's stream amount to a plain copy? {@link Content} delegates to its wrapped payload.
+   */
+  private static boolean usesDefaultCopy(final Payload payload) {
+    Class<?> copyDeclarer = COPY_DECLARER.get(payload.getClass());
+    if (copyDeclarer == Content.class) {
+      return usesDefaultCopy(((Content) payload).getPayload());
+    }
+    return copyDeclarer == Payload.class;
+  }
+
+  /**
+   * Limits reads from a positioned {@link FileChannel} to the length of a region.
+   */
+  private static class RegionChannel
+      implements ReadableByteChannel
+  {
+    private final FileChannel channel;
+
+    private long remaining;
+
+    RegionChannel(final FileChannel channel, final long count) {
+      this.channel = channel;
+      this.remaining = count;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int limit = dst.limit();
+      if (dst.remaining() > remaining) {
+        dst.limit(dst.position() + (int) remaining);
+      }
+      try {
+        int read = channel.read(dst);
+        if (read > 0) {
+          remaining -= read;
+        }
+        return read;
+      }
+      finally {
+        dst.limit(limit);
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
 }
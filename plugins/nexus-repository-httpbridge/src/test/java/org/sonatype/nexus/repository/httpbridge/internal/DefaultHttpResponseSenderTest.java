@@ -15,12 +15,17 @@ package org.sonatype.nexus.repository.httpbridge.internal;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobFileRegion;
 import org.sonatype.nexus.repository.http.HttpMethods;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.httpbridge.HttpResponseSender;
@@ -31,6 +36,7 @@ import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
 
+import org.eclipse.jetty.server.HttpOutput;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
@@ -40,9 +46,13 @@ import org.mockito.Spy;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.http.HttpStatus.FORBIDDEN;
@@ -119,6 +129,7 @@ public class DefaultHttpResponseSenderTest
 
     order.verify(payload).getContentType();
     order.verify(payload, atLeastOnce()).getSize();
+    order.verify(payload).getFileRegion();
     order.verify(payload).openInputStream();
     order.verify(input).close();
     order.verify(payload).close();
@@ -144,6 +155,7 @@ public class DefaultHttpResponseSenderTest
 
     order.verify(payload).getContentType();
     order.verify(payload, atLeastOnce()).getSize();
+    order.verify(payload).getFileRegion();
     order.verify(payload).openInputStream();
     order.verify(input).close();
     order.verify(payload).close();
@@ -151,6 +163,59 @@ public class DefaultHttpResponseSenderTest
     order.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void fileRegionSentWithoutCopy() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    RegionPayload regionPayload = new RegionPayload(new BlobFileRegion(file, 5, 4));
+    HttpOutput httpOutput = mock(HttpOutput.class);
+    when(httpServletResponse.getOutputStream()).thenReturn(httpOutput);
+    ByteBuffer sent = ByteBuffer.allocate(TEST_CONTENT.length);
+    doAnswer(invocation -> {
+      ReadableByteChannel channel = invocation.getArgument(0);
+      while (channel.read(sent) >= 0) {
+        // read the whole region
+      }
+      return null;
+    }).when(httpOutput).sendContent(any(ReadableByteChannel.class));
+
+    underTest.send(request, HttpResponses.ok(regionPayload), httpServletResponse);
+
+    assertThat(new String(sent.array(), 0, sent.position(), StandardCharsets.UTF_8), is("CONT"));
+    assertThat(regionPayload.opened, is(false));
+  }
+
+  @Test
+  public void fileRegionStreamedWhenPayloadCustomizesCopy() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    when(payload.getSize()).thenReturn((long) TEST_CONTENT.length);
+    when(payload.getFileRegion()).thenReturn(new BlobFileRegion(file, 0, TEST_CONTENT.length));
+    HttpOutput httpOutput = mock(HttpOutput.class);
+    when(httpServletResponse.getOutputStream()).thenReturn(httpOutput);
+
+    underTest.send(request, HttpResponses.ok(payload), httpServletResponse);
+
+    verify(httpOutput, never()).sendContent(any(ReadableByteChannel.class));
+    verify(payload).copy(input, httpOutput);
+  }
+
+  @Test
+  public void fileRegionStreamedWhenOutputIsNotJetty() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    when(payload.getSize()).thenReturn((long) TEST_CONTENT.length);
+    when(payload.getFileRegion()).thenReturn(new BlobFileRegion(file, 0, TEST_CONTENT.length));
+
+    underTest.send(request, HttpResponses.ok(payload), httpServletResponse);
+
+    verify(payload).openInputStream();
+    verify(payload).copy(input, output);
+  }
+
   @Test
   public void customStatusMessageIsMaintained() throws Exception {
     when(request.getAction()).thenReturn(HttpMethods.GET);
@@ -175,4 +240,37 @@ public class DefaultHttpResponseSenderTest
     verify(httpServletResponse).setStatus(403, "You can't see this");
   }
 
+
+  private static class RegionPayload
+      implements Payload
+  {
+    private final BlobFileRegion region;
+
+    private boolean opened;
+
+    private RegionPayload(final BlobFileRegion region) {
+      this.region = region;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+      opened = true;
+      return new ByteArrayInputStream(TEST_CONTENT);
+    }
+
+    @Override
+    public long getSize() {
+      return region.getCount();
+    }
+
+    @Override
+    public String getContentType() {
+      return null;
+    }
+
+    @Override
+    public BlobFileRegion getFileRegion() {
+      return region;
+    }
+  }
 }